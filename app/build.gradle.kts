@@ -1,5 +1,6 @@
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.baselineprofile)
     id("com.google.protobuf") version "0.9.4"
 }
 
@@ -50,6 +51,41 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            all { test ->
+                // Порог по кадрам/с зависит от машины — только в ingestBenchmark
+                test.exclude("**/IngestThroughputTest.class")
+            }
+        }
+    }
+}
+
+// Стенд приёма с порогом: ./gradlew :app:ingestBenchmark -Dingest.minFps=2000 -Dingest.frames=...
+tasks.register<Test>("ingestBenchmark") {
+    group = "verification"
+    description = "Пропускная способность входящего конвейера (IngestThroughputTest)"
+    val unitTest = tasks.named<Test>("testDebugUnitTest").get()
+    dependsOn(unitTest.dependsOn)
+    testClassesDirs = unitTest.testClassesDirs
+    classpath = unitTest.classpath
+    filter { includeTestsMatching("*.IngestThroughputTest") }
+    systemProperty("ingest.report", layout.buildDirectory.file("reports/ingest/throughput.txt").get().asFile.path)
+    listOf("ingest.minFps", "ingest.frames").forEach { key ->
+        System.getProperty(key)?.let { systemProperty(key, it) }
+    }
+    outputs.upToDateWhen { false }
+}
+
+// JMH-замеры Unishox2/TextPayload: ./gradlew :app:unishoxBenchmark (аргументы JMH — -Pjmh.args="...")
+tasks.register<JavaExec>("unishoxBenchmark") {
+    group = "verification"
+    description = "JMH: сжатие и распаковка текста (Unishox2Benchmark)"
+    val unitTest = tasks.named<Test>("testDebugUnitTest").get()
+    dependsOn(unitTest.dependsOn)
+    classpath = unitTest.classpath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(listOf("Unishox2Benchmark") + (findProperty("jmh.args")?.toString()?.split(" ") ?: emptyList()))
 }
 
 dependencies {
@@ -76,6 +112,8 @@ dependencies {
     implementation("org.maplibre.gl:android-sdk:10.2.0")
     // ИЛИ
     // implementation("org.osmdroid:osmdroid-android:6.1.17")
+    // HTTP-стек MapLibre: перехватчик для офлайн-тайлов
+    implementation("com.squareup.okhttp3:okhttp:4.9.3")
 
     // UI списков
     implementation("androidx.recyclerview:recyclerview:1.3.2")
@@ -83,8 +121,14 @@ dependencies {
     // Location Services
     implementation("com.google.android.gms:play-services-location:21.0.1")
 
+    // Baseline Profile: установка профиля при первом запуске и генератор из :benchmark
+    implementation(libs.profileinstaller)
+    baselineProfile(project(":benchmark"))
+
     // Тестирование
     testImplementation(libs.junit)
+    testImplementation(libs.jmh.core)
+    testAnnotationProcessor(libs.jmh.generator.annprocess)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
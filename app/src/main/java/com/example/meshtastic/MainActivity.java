@@ -1,5 +1,8 @@
 package com.example.meshtastic;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
 import android.os.Bundle;
 
 import androidx.activity.EdgeToEdge;
@@ -12,13 +15,31 @@ import androidx.fragment.app.FragmentTransaction;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.example.meshtastic.data.synthetic.TrafficGenerator;
 import com.example.meshtastic.ui.connection.ConnectionFragment;
+import com.example.meshtastic.ui.map.MapFragment;
 import com.example.meshtastic.ui.nodes.NodesFragment;
 import com.example.meshtastic.ui.settings.SettingsFragment;
 import com.example.meshtastic.ui.status.StatusFragment;
 
 public class MainActivity extends AppCompatActivity {
 
+    /**
+     * Стартовая вкладка ("nodes", "status", ...) — для макробенчмарков, которые
+     * меряют холодный старт сразу до нужного экрана.
+     */
+    public static final String EXTRA_START_TAB = "start_tab";
+
+    /**
+     * Число узлов синтетической сети вместо радио и кадров трафика в секунду.
+     * Работает только в отлаживаемой или profileable-сборке (макробенчмарки).
+     */
+    public static final String EXTRA_SYNTHETIC_NODES = "synthetic_nodes";
+    public static final String EXTRA_SYNTHETIC_RATE = "synthetic_rate";
+    private static final int DEFAULT_SYNTHETIC_RATE = 50;
+    private static final long SYNTHETIC_SEED = 42;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -41,6 +62,9 @@ public class MainActivity extends AppCompatActivity {
             } else if (item.getItemId() == R.id.nav_nodes) {
                 showFragment(new NodesFragment());
                 return true;
+            } else if (item.getItemId() == R.id.nav_map) {
+                showFragment(new MapFragment());
+                return true;
             } else if (item.getItemId() == R.id.nav_settings) {
                 showFragment(new SettingsFragment());
                 return true;
@@ -50,10 +74,41 @@ public class MainActivity extends AppCompatActivity {
 
         // Стартовый экран
         if (savedInstanceState == null) {
-            bottomNav.setSelectedItemId(R.id.nav_connection);
+            startSyntheticMeshIfRequested();
+            bottomNav.setSelectedItemId(startTab(getIntent().getStringExtra(EXTRA_START_TAB)));
         }
     }
 
+    private void startSyntheticMeshIfRequested() {
+        int nodes = getIntent().getIntExtra(EXTRA_SYNTHETIC_NODES, 0);
+        if (nodes <= 0 || !isDebugToolsEnabled(this)) return;
+        int rate = getIntent().getIntExtra(EXTRA_SYNTHETIC_RATE, DEFAULT_SYNTHETIC_RATE);
+        MeshConnectionRepository.getInstance(this).startSyntheticTraffic(
+                new TrafficGenerator.Config().nodes(nodes).seed(SYNTHETIC_SEED), rate);
+    }
+
+    /**
+     * Синтетическая сеть из extras запуска — для бенчмарков, которые гоняют
+     * profileable-сборку; в магазинной её не включить.
+     */
+    public static boolean isDebugToolsEnabled(Context context) {
+        return isDebuggable(context) || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && context.getApplicationInfo().isProfileableByShell());
+    }
+
+    /** Отладочные переключатели на экранах — только в отлаживаемой сборке. */
+    public static boolean isDebuggable(Context context) {
+        return (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private static int startTab(String name) {
+        if ("status".equals(name)) return R.id.nav_status;
+        if ("nodes".equals(name)) return R.id.nav_nodes;
+        if ("map".equals(name)) return R.id.nav_map;
+        if ("settings".equals(name)) return R.id.nav_settings;
+        return R.id.nav_connection;
+    }
+
     private void showFragment(androidx.fragment.app.Fragment fragment) {
         FragmentManager fragmentManager = getSupportFragmentManager();
         FragmentTransaction transaction = fragmentManager.beginTransaction();
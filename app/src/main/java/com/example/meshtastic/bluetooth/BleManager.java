@@ -22,11 +22,18 @@ import android.os.Looper;
 import android.os.ParcelUuid;
 import android.util.Log;
 
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.Gauge;
+import com.example.meshtastic.data.metrics.Histogram;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.metrics.PacketTrace;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -91,6 +98,12 @@ public class BleManager {
     private ConnectionListener connectionListener;
     private BytesListener bytesListener;
 
+    // Thread that receives FromRadio frames (main by default, the ingest thread when the service runs)
+    private volatile Handler bytesHandler = mainHandler;
+    // Frames drained in one burst are delivered with a single post (gatt thread only)
+    private static final int MAX_FRAMES_PER_BATCH = 16;
+    private final ArrayList<byte[]> pendingFrames = new ArrayList<>();
+
     private int mtu = 23;
     private boolean connected = false;
 
@@ -122,11 +135,26 @@ public class BleManager {
 
     private final ArrayDeque<GattOp> opQueue = new ArrayDeque<>();
     private GattOp inFlight = null;
+    private long inFlightStartNanos;
+
+    // --- Metrics (see MetricsRegistry; recording does not allocate) ---
+    private static final Histogram[] OP_LATENCY_US = new Histogram[OpType.values().length];
+    static {
+        for (OpType t : OpType.values()) {
+            OP_LATENCY_US[t.ordinal()] = MetricsRegistry.get()
+                    .histogram("gatt.op." + t.name().toLowerCase(Locale.ROOT) + ".us");
+        }
+    }
+    private static final Gauge OP_QUEUE_DEPTH = MetricsRegistry.get().gauge("gatt.queue.depth");
+    private static final Counter OP_TIMEOUTS = MetricsRegistry.get().counter("gatt.op.timeouts");
+    private static final Counter FRAMES_READ = MetricsRegistry.get().counter("ble.frames");
+    private static final Histogram DRAIN_BURST = MetricsRegistry.get().histogram("ble.drain.burst.frames");
     private final Runnable opTimeoutRunnable = new Runnable() {
         @Override public void run() {
             gattHandler.post(() -> {
                 if (inFlight != null) {
                     Log.w(TAG, "GattOp timeout: " + inFlight);
+                    OP_TIMEOUTS.increment();
                     // Clear the stuck op and move on; if the stack is truly wedged, later ops will also timeout.
                     inFlight = null;
                     processNextOp();
@@ -137,6 +165,7 @@ public class BleManager {
 
     // --- FromRadio draining state ---
     private boolean drainingFromRadio = false;
+    private int drainFrames = 0;
     private long lastFromNum = -1;
 
     // --- Poll fallback ---
@@ -241,7 +270,10 @@ public class BleManager {
             mainHandler.removeCallbacks(fromNumPollRunnable);
 
             drainingFromRadio = false;
+            drainFrames = 0;
+            pendingFrames.clear();
             opQueue.clear();
+            OP_QUEUE_DEPTH.set(0);
             inFlight = null;
             mainHandler.removeCallbacks(opTimeoutRunnable);
 
@@ -267,7 +299,10 @@ public class BleManager {
         mainHandler.removeCallbacks(fromNumPollRunnable);
 
         drainingFromRadio = false;
+        drainFrames = 0;
+        pendingFrames.clear();
         opQueue.clear();
+        OP_QUEUE_DEPTH.set(0);
         inFlight = null;
         mainHandler.removeCallbacks(opTimeoutRunnable);
 
@@ -440,6 +475,8 @@ public class BleManager {
 
         @Override
         public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            // Stamp before the hop to the GATT thread so the trace includes it
+            final long readNanos = PacketTrace.isEnabled() ? System.nanoTime() : 0;
             gattHandler.post(() -> {
                 UUID uuid = (characteristic != null) ? characteristic.getUuid() : null;
                 byte[] value = (characteristic != null) ? characteristic.getValue() : null;
@@ -452,6 +489,8 @@ public class BleManager {
                 finishOp();
 
                 if (status != BluetoothGatt.GATT_SUCCESS || uuid == null) {
+                    // Don't hold already drained frames until the next burst
+                    flushFrames();
                     return;
                 }
 
@@ -461,7 +500,7 @@ public class BleManager {
                 }
 
                 if (UUID_FROM_RADIO.equals(uuid)) {
-                    handleFromRadioValue(value);
+                    handleFromRadioValue(value, readNanos);
                 }
             });
         }
@@ -531,7 +570,10 @@ public class BleManager {
         }
     }
 
-    private void handleFromRadioValue(byte[] value) {
+    /**
+     * @param readNanos when onCharacteristicRead fired, 0 unless packet tracing is on
+     */
+    private void handleFromRadioValue(byte[] value, long readNanos) {
         if (!drainingFromRadio) {
             // A read might have been triggered manually; still handle.
             drainingFromRadio = true;
@@ -540,19 +582,49 @@ public class BleManager {
         if (value == null || value.length == 0) {
             // No more packets queued on the device.
             drainingFromRadio = false;
+            DRAIN_BURST.record(drainFrames);
+            drainFrames = 0;
+            flushFrames();
             return;
         }
 
+        FRAMES_READ.increment();
+        drainFrames++;
+
         if (bytesListener != null) {
             byte[] copy = new byte[value.length];
             System.arraycopy(value, 0, copy, 0, value.length);
-            mainHandler.post(() -> bytesListener.onBytes(copy));
+            if (readNanos != 0) PacketTrace.read(copy, readNanos);
+            pendingFrames.add(copy);
+            if (pendingFrames.size() >= MAX_FRAMES_PER_BATCH) flushFrames();
         }
 
         // Continue draining until empty.
         enqueueRead(fromRadioChar);
     }
 
+    /**
+     * Hands the frames collected so far to the listener thread in one message,
+     * so a drain burst wakes the consumer once instead of once per frame.
+     */
+    private void flushFrames() {
+        if (pendingFrames.isEmpty()) return;
+        BytesListener listener = bytesListener;
+        byte[][] batch = pendingFrames.toArray(new byte[0][]);
+        pendingFrames.clear();
+        if (listener == null) return;
+        bytesHandler.post(() -> {
+            for (byte[] frame : batch) listener.onBytes(frame);
+        });
+    }
+
+    /**
+     * Thread (looper) on which {@link BytesListener#onBytes} is called; null restores the main thread.
+     */
+    public void setBytesHandler(Handler handler) {
+        bytesHandler = handler != null ? handler : mainHandler;
+    }
+
     private void drainFromRadio() {
         if (gatt == null || fromRadioChar == null) return;
         if (drainingFromRadio) return;
@@ -583,18 +655,21 @@ public class BleManager {
     private void enqueueWrite(BluetoothGattCharacteristic ch, byte[] value) {
         if (ch == null || gatt == null) return;
         opQueue.add(new GattOp(OpType.WRITE_CHAR, ch, null, value));
+        OP_QUEUE_DEPTH.set(opQueue.size());
         processNextOp();
     }
 
     private void enqueueRead(BluetoothGattCharacteristic ch) {
         if (ch == null || gatt == null) return;
         opQueue.add(new GattOp(OpType.READ_CHAR, ch, null, null));
+        OP_QUEUE_DEPTH.set(opQueue.size());
         processNextOp();
     }
 
     private void enqueueWriteDesc(BluetoothGattDescriptor desc, byte[] value) {
         if (desc == null || gatt == null) return;
         opQueue.add(new GattOp(OpType.WRITE_DESC, null, desc, value));
+        OP_QUEUE_DEPTH.set(opQueue.size());
         processNextOp();
     }
 
@@ -605,7 +680,9 @@ public class BleManager {
         if (opQueue.isEmpty()) return;
 
         inFlight = opQueue.poll();
+        OP_QUEUE_DEPTH.set(opQueue.size());
         if (inFlight == null) return;
+        inFlightStartNanos = System.nanoTime();
 
         Log.d(TAG, "GattOp started: " + inFlight);
 
@@ -655,6 +732,9 @@ public class BleManager {
     private void finishOp() {
         // Cancel timeout for current op and continue.
         mainHandler.removeCallbacks(opTimeoutRunnable);
+        if (inFlight != null) {
+            OP_LATENCY_US[inFlight.type.ordinal()].record((System.nanoTime() - inFlightStartNanos) / 1000);
+        }
         inFlight = null;
         processNextOp();
     }
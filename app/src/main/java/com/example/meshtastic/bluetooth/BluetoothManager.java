@@ -3,17 +3,31 @@ package com.example.meshtastic.bluetooth;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothSocket;
+import android.os.Handler;
 import android.util.Log;
 
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.parser.ProtobufStreamParser;
+import com.example.meshtastic.util.Constants;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
 
 /**
  * Менеджер для работы с Bluetooth соединением через Serial Port Profile (SPP).
  * Отвечает за поиск устройств, подключение и базовую работу с потоками данных.
+ *
+ * {@link #startReading} запускает поток чтения: байты из сокета режутся на кадры
+ * последовательного протокола Meshtastic ({@code 0x94 0xC3} + длина) и отдаются
+ * получателю на его Handler. Если получатель не успевает, поток чтения ждёт —
+ * сокет перестаёт читаться, и RFCOMM притормаживает радио.
  */
 public class BluetoothManager {
     private static final String TAG = "BluetoothManager";
@@ -25,7 +39,19 @@ public class BluetoothManager {
     private BluetoothSocket bluetoothSocket;
     private InputStream inputStream;
     private OutputStream outputStream;
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
+
+    // Не больше стольких кадров отдано получателю и ещё не обработано
+    private static final int MAX_FRAMES_IN_FLIGHT = 64;
+    // Сколько closeConnection ждёт выхода потока чтения после закрытия сокета
+    private static final long READER_JOIN_MS = 1_000;
+    private static final Counter FRAMES_READ = MetricsRegistry.get().counter("spp.frames");
+    private static final Counter BYTES_READ = MetricsRegistry.get().counter("spp.bytes");
+    private static final Counter BACKPRESSURE_WAITS = MetricsRegistry.get().counter("spp.backpressure.waits");
+
+    private final ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.SERIAL);
+    private final Semaphore framesInFlight = new Semaphore(MAX_FRAMES_IN_FLIGHT);
+    private Thread readerThread;
     
     public BluetoothManager() {
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
@@ -101,9 +127,98 @@ public class BluetoothManager {
         }
     }
     
+    /**
+     * Отправляет ToRadio с заголовком последовательного протокола.
+     * @param toRadio сериализованный ToRadio, не длиннее 512 байт
+     */
+    public boolean sendToRadio(byte[] toRadio) {
+        return sendData(ProtobufStreamParser.encodeSerialFrame(toRadio));
+    }
+
+    /**
+     * Запускает поток чтения кадров FromRadio; до {@link #closeConnection()} или
+     * {@link #stopReading()}. Не вызывать вместе с {@link #readData}.
+     * @param handler поток, в котором вызывается {@code listener}
+     * @return false — нет соединения или прежний поток чтения ещё не завершился
+     */
+    public synchronized boolean startReading(BleManager.BytesListener listener, Handler handler) {
+        InputStream in = inputStream;
+        // Прежний поток может ещё висеть в read(): два читателя делили бы сокет и парсер
+        if (!isConnected || in == null || (readerThread != null && readerThread.isAlive())) {
+            return false;
+        }
+        parser.reset();
+        readerThread = new Thread(() -> readLoop(in, listener, handler), "MeshtasticSppReader");
+        readerThread.start();
+        return true;
+    }
+
+    /**
+     * Просит поток чтения остановиться; прочитанные после этого кадры не отдаются.
+     * Блокирующий read() прерыванием не снять — поток выйдет со следующей порцией данных
+     * или при {@link #closeConnection()}, а до тех пор {@link #startReading} нового не запустит.
+     */
+    public synchronized void stopReading() {
+        if (readerThread != null) {
+            readerThread.interrupt();
+        }
+    }
+
+    private void readLoop(InputStream in, BleManager.BytesListener listener, Handler handler) {
+        byte[] chunk = new byte[Constants.READ_BUFFER_SIZE];
+        List<byte[]> frames = new ArrayList<>();
+        ProtobufStreamParser.FrameSink sink = frames::add;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int n = in.read(chunk);
+                if (n < 0) {
+                    break;
+                }
+                BYTES_READ.add(n);
+                if (parser.append(chunk, 0, n, sink) == 0) {
+                    continue;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                FRAMES_READ.add(frames.size());
+                deliver(frames, listener, handler);
+                frames.clear();
+            }
+        } catch (IOException e) {
+            if (isConnected) {
+                Log.e(TAG, "Ошибка чтения SPP", e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.d(TAG, "Поток чтения SPP остановлен");
+    }
+
+    /** Кадры одного чтения уходят одним сообщением; ждёт, пока получатель не разгрузится. */
+    private void deliver(List<byte[]> frames, BleManager.BytesListener listener, Handler handler)
+            throws InterruptedException {
+        byte[][] batch = frames.toArray(new byte[0][]);
+        int permits = Math.min(batch.length, MAX_FRAMES_IN_FLIGHT);
+        if (!framesInFlight.tryAcquire(permits)) {
+            BACKPRESSURE_WAITS.increment();
+            framesInFlight.acquire(permits);
+        }
+        boolean posted = handler.post(() -> {
+            try {
+                for (byte[] frame : batch) listener.onBytes(frame);
+            } finally {
+                framesInFlight.release(permits);
+            }
+        });
+        if (!posted) {
+            framesInFlight.release(permits);
+        }
+    }
+
     /**
      * Читает данные из потока (блокирующий вызов).
-     * В реальной реализации это должно быть в отдельном потоке.
+     * Для приёма кадров FromRadio используйте {@link #startReading}.
      * @param buffer буфер для чтения
      * @return количество прочитанных байтов, или -1 при ошибке
      */
@@ -125,6 +240,8 @@ public class BluetoothManager {
      */
     public void closeConnection() {
         isConnected = false;
+        // Закрытие сокета ниже прерывает блокирующий read в потоке чтения
+        stopReading();
         
         try {
             if (inputStream != null) {
@@ -143,6 +260,26 @@ public class BluetoothManager {
         } catch (IOException e) {
             Log.e(TAG, "Ошибка при закрытии соединения", e);
         }
+        joinReader();
+    }
+
+    /** Ждёт, пока поток чтения, разбуженный закрытием сокета, выйдет. */
+    private void joinReader() {
+        Thread reader;
+        synchronized (this) {
+            reader = readerThread;
+        }
+        if (reader == null || reader == Thread.currentThread()) {
+            return;
+        }
+        try {
+            reader.join(READER_JOIN_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (reader.isAlive()) {
+            Log.w(TAG, "Поток чтения SPP не завершился за " + READER_JOIN_MS + " мс");
+        }
     }
     
     /**
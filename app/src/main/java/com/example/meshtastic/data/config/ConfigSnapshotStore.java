@@ -0,0 +1,79 @@
+package com.example.meshtastic.data.config;
+
+import android.util.Log;
+
+import org.meshtastic.proto.MeshProtos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Снимки настроек радио на диске: по файлу на адрес устройства, внутри — кадры
+ * FromRadio (MyNodeInfo, DeviceMetadata, свой NodeInfo, Config, ModuleConfig, Channel)
+ * подряд с varint-длиной перед каждым, как их пишет {@code writeDelimitedTo}.
+ *
+ * Кадры те же, что приходят в want_config, поэтому снимок разбирается тем же кодом,
+ * что и живой поток. Файл заменяется атомарно через временный.
+ */
+public class ConfigSnapshotStore {
+
+    private static final String TAG = "ConfigSnapshotStore";
+    private static final String SUFFIX = ".pb";
+
+    private final File dir;
+
+    public ConfigSnapshotStore(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return кадры снимка или пустой список, если снимка нет или он повреждён
+     */
+    public List<MeshProtos.FromRadio> load(String address) {
+        File file = fileFor(address);
+        if (!file.isFile()) return Collections.emptyList();
+        List<MeshProtos.FromRadio> frames = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            MeshProtos.FromRadio f;
+            while ((f = MeshProtos.FromRadio.parseDelimitedFrom(in)) != null) frames.add(f);
+            return frames;
+        } catch (IOException e) {
+            Log.w(TAG, "Снимок " + file.getName() + " повреждён: " + e.getMessage());
+            file.delete();
+            return Collections.emptyList();
+        }
+    }
+
+    public void save(String address, List<MeshProtos.FromRadio> frames) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("не удалось создать " + dir);
+        File file = fileFor(address);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            for (MeshProtos.FromRadio f : frames) f.writeDelimitedTo(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("не удалось заменить " + file.getName());
+        }
+    }
+
+    public void delete(String address) {
+        fileFor(address).delete();
+    }
+
+    File fileFor(String address) {
+        // AA:BB:CC:DD:EE:FF -> aabbccddeeff.pb
+        String name = address.replaceAll("[^0-9A-Fa-f]", "").toLowerCase(Locale.ROOT);
+        return new File(dir, (name.isEmpty() ? "unknown" : name) + SUFFIX);
+    }
+}
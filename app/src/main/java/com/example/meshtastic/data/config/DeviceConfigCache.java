@@ -0,0 +1,254 @@
+package com.example.meshtastic.data.config;
+
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.AdminProtos;
+import org.meshtastic.proto.ChannelProtos;
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.ModuleConfigProtos;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Текущие настройки своего радио: разделы Config и ModuleConfig, каналы и владелец,
+ * как их прислал поток want_config или ответы admin.
+ *
+ * Разделы хранятся по варианту oneof, каналы — по индексу; каждое новое сообщение
+ * заменяет раздел целиком. Кэш можно заполнить из сохранённого снимка
+ * ({@link #toFrames()}/{@link #loadFrames(List)}); тогда свежий поток want_config
+ * поверх него заменяет разделы, а не пришедшие в потоке удаляются на config_complete_id.
+ * Потокобезопасен.
+ */
+public class DeviceConfigCache {
+
+    private final EnumMap<ConfigProtos.Config.PayloadVariantCase, ConfigProtos.Config> configs =
+            new EnumMap<>(ConfigProtos.Config.PayloadVariantCase.class);
+    private final EnumMap<ModuleConfigProtos.ModuleConfig.PayloadVariantCase, ModuleConfigProtos.ModuleConfig> modules =
+            new EnumMap<>(ModuleConfigProtos.ModuleConfig.PayloadVariantCase.class);
+    private final TreeMap<Integer, ChannelProtos.Channel> channels = new TreeMap<>();
+
+    // Что пришло в текущем потоке want_config — остальное на config_complete_id устарело
+    private final EnumSet<ConfigProtos.Config.PayloadVariantCase> seenConfigs =
+            EnumSet.noneOf(ConfigProtos.Config.PayloadVariantCase.class);
+    private final EnumSet<ModuleConfigProtos.ModuleConfig.PayloadVariantCase> seenModules =
+            EnumSet.noneOf(ModuleConfigProtos.ModuleConfig.PayloadVariantCase.class);
+    private final Set<Integer> seenChannels = new HashSet<>();
+
+    private MeshProtos.MyNodeInfo myInfo;
+    private MeshProtos.DeviceMetadata metadata;
+    private MeshProtos.NodeInfo myNode;
+    private MeshProtos.User owner;
+    private long myNodeNum = -1;
+    private boolean complete;
+    private ByteString sessionPasskey = ByteString.EMPTY;
+
+    /**
+     * Запоминает кадр FromRadio, если он несёт настройки.
+     * @return true, если кадр что-то поменял в кэше
+     */
+    public synchronized boolean onFromRadio(MeshProtos.FromRadio msg) {
+        switch (msg.getPayloadVariantCase()) {
+            case MY_INFO:
+                myInfo = msg.getMyInfo();
+                myNodeNum = myInfo.getMyNodeNum() & 0xffffffffL;
+                return true;
+            case METADATA:
+                metadata = msg.getMetadata();
+                return true;
+            case NODE_INFO:
+                if ((msg.getNodeInfo().getNum() & 0xffffffffL) != myNodeNum) return false;
+                myNode = msg.getNodeInfo();
+                if (myNode.hasUser()) owner = myNode.getUser();
+                return true;
+            case CONFIG:
+                putConfig(msg.getConfig());
+                seenConfigs.add(msg.getConfig().getPayloadVariantCase());
+                return true;
+            case MODULECONFIG:
+                putModuleConfig(msg.getModuleConfig());
+                seenModules.add(msg.getModuleConfig().getPayloadVariantCase());
+                return true;
+            case CHANNEL:
+                channels.put(msg.getChannel().getIndex(), msg.getChannel());
+                seenChannels.add(msg.getChannel().getIndex());
+                return true;
+            case CONFIG_COMPLETE_ID:
+                configs.keySet().retainAll(seenConfigs);
+                modules.keySet().retainAll(seenModules);
+                channels.keySet().retainAll(seenChannels);
+                complete = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Ответ admin от своего узла: ключ сессии и прочитанные разделы.
+     */
+    public synchronized void onAdminMessage(AdminProtos.AdminMessage admin) {
+        if (!admin.getSessionPasskey().isEmpty()) sessionPasskey = admin.getSessionPasskey();
+        switch (admin.getPayloadVariantCase()) {
+            case GET_CONFIG_RESPONSE:
+                putConfig(admin.getGetConfigResponse());
+                break;
+            case GET_MODULE_CONFIG_RESPONSE:
+                putModuleConfig(admin.getGetModuleConfigResponse());
+                break;
+            case GET_CHANNEL_RESPONSE:
+                channels.put(admin.getGetChannelResponse().getIndex(), admin.getGetChannelResponse());
+                break;
+            case GET_OWNER_RESPONSE:
+                owner = admin.getGetOwnerResponse();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Переносит в кэш отправленные set_* — чтобы следующий diff считался от нового состояния.
+     */
+    public synchronized void applyEdits(List<AdminProtos.AdminMessage> edits) {
+        for (AdminProtos.AdminMessage m : edits) {
+            switch (m.getPayloadVariantCase()) {
+                case SET_CONFIG:
+                    putConfig(m.getSetConfig());
+                    break;
+                case SET_MODULE_CONFIG:
+                    putModuleConfig(m.getSetModuleConfig());
+                    break;
+                case SET_CHANNEL:
+                    channels.put(m.getSetChannel().getIndex(), m.getSetChannel());
+                    break;
+                case SET_OWNER:
+                    owner = m.getSetOwner();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** Новый want_config: значения остаются, пока их не заменит свежий поток. */
+    public synchronized void beginConfig() {
+        complete = false;
+        seenConfigs.clear();
+        seenModules.clear();
+        seenChannels.clear();
+    }
+
+    public synchronized void clear() {
+        configs.clear();
+        modules.clear();
+        channels.clear();
+        myInfo = null;
+        metadata = null;
+        myNode = null;
+        owner = null;
+        myNodeNum = -1;
+        sessionPasskey = ByteString.EMPTY;
+        beginConfig();
+    }
+
+    /**
+     * Содержимое кэша кадрами FromRadio в порядке потока want_config — для снимка на диске.
+     */
+    public synchronized List<MeshProtos.FromRadio> toFrames() {
+        List<MeshProtos.FromRadio> out = new ArrayList<>();
+        if (myInfo != null) out.add(MeshProtos.FromRadio.newBuilder().setMyInfo(myInfo).build());
+        if (metadata != null) out.add(MeshProtos.FromRadio.newBuilder().setMetadata(metadata).build());
+        if (myNode != null) {
+            MeshProtos.NodeInfo node = owner != null ? myNode.toBuilder().setUser(owner).build() : myNode;
+            out.add(MeshProtos.FromRadio.newBuilder().setNodeInfo(node).build());
+        }
+        for (ConfigProtos.Config c : configs.values()) {
+            out.add(MeshProtos.FromRadio.newBuilder().setConfig(c).build());
+        }
+        for (ModuleConfigProtos.ModuleConfig c : modules.values()) {
+            out.add(MeshProtos.FromRadio.newBuilder().setModuleConfig(c).build());
+        }
+        for (ChannelProtos.Channel c : channels.values()) {
+            out.add(MeshProtos.FromRadio.newBuilder().setChannel(c).build());
+        }
+        return out;
+    }
+
+    /**
+     * Заменяет кэш снимком. {@link #isComplete()} остаётся false до живого потока.
+     */
+    public synchronized void loadFrames(List<MeshProtos.FromRadio> frames) {
+        clear();
+        for (MeshProtos.FromRadio f : frames) onFromRadio(f);
+        beginConfig();
+    }
+
+    /** Поток want_config дошёл до config_complete_id. */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public synchronized long getMyNodeNum() {
+        return myNodeNum;
+    }
+
+    public synchronized ByteString getSessionPasskey() {
+        return sessionPasskey;
+    }
+
+    public synchronized MeshProtos.MyNodeInfo getMyInfo() {
+        return myInfo;
+    }
+
+    public synchronized MeshProtos.DeviceMetadata getMetadata() {
+        return metadata;
+    }
+
+    public synchronized MeshProtos.User getOwner() {
+        return owner;
+    }
+
+    public synchronized ConfigProtos.Config getConfig(ConfigProtos.Config.PayloadVariantCase section) {
+        return configs.get(section);
+    }
+
+    public synchronized ModuleConfigProtos.ModuleConfig getModuleConfig(
+            ModuleConfigProtos.ModuleConfig.PayloadVariantCase section) {
+        return modules.get(section);
+    }
+
+    public synchronized ChannelProtos.Channel getChannel(int index) {
+        return channels.get(index);
+    }
+
+    public synchronized List<ChannelProtos.Channel> getChannels() {
+        return new ArrayList<>(channels.values());
+    }
+
+    public synchronized List<ConfigProtos.Config> getConfigs() {
+        return new ArrayList<>(configs.values());
+    }
+
+    public synchronized List<ModuleConfigProtos.ModuleConfig> getModuleConfigs() {
+        return new ArrayList<>(modules.values());
+    }
+
+    private void putConfig(ConfigProtos.Config c) {
+        if (c.getPayloadVariantCase() != ConfigProtos.Config.PayloadVariantCase.PAYLOADVARIANT_NOT_SET) {
+            configs.put(c.getPayloadVariantCase(), c);
+        }
+    }
+
+    private void putModuleConfig(ModuleConfigProtos.ModuleConfig c) {
+        if (c.getPayloadVariantCase() != ModuleConfigProtos.ModuleConfig.PayloadVariantCase.PAYLOADVARIANT_NOT_SET) {
+            modules.put(c.getPayloadVariantCase(), c);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.meshtastic.data.config;
+
+import android.util.Log;
+
+import com.example.meshtastic.data.model.SettingsDraft;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.meshtastic.proto.AdminProtos;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Настройки своего радио: кэш из потока want_config и применение черновика.
+ *
+ * Черновик сравнивается с кэшем ({@link SettingsDiff}), и изменённые разделы уходят
+ * одной транзакцией begin_edit_settings … commit_edit_settings: радио сохраняет
+ * настройки и перезагружается один раз, после commit, а не после каждого раздела.
+ */
+public class DeviceConfigManager {
+
+    private static final String TAG = "DeviceConfigManager";
+
+    public interface Transport {
+        boolean send(MeshProtos.ToRadio msg);
+    }
+
+    public enum Status {
+        /** Транзакция поставлена в очередь отправки. */
+        SENT,
+        /** Черновик совпадает с радио — отправлять нечего. */
+        NO_CHANGES,
+        /** Нужные разделы ещё не пришли с радио. */
+        NOT_READY,
+        /** Значение черновика не подходит для радио. */
+        INVALID,
+        /** Нет соединения или очередь переполнена; на радио ничего не ушло. */
+        NOT_SENT,
+        /**
+         * begin_edit_settings ушёл, а часть разделов или commit — нет. Прошивка незакрытую
+         * транзакцию не откатывает: отправленные разделы уже в памяти радио, но не сохранены.
+         * Нужно повторить применение — черновик уйдёт заново целиком и commit закроет транзакцию.
+         */
+        PARTIAL
+    }
+
+    public static class ApplyResult {
+        public final Status status;
+        public final List<SettingsDiff.Change> changes;
+        public final String error;
+
+        public ApplyResult(Status status, List<SettingsDiff.Change> changes, String error) {
+            this.status = status;
+            this.changes = changes;
+            this.error = error;
+        }
+    }
+
+    private final Transport transport;
+    private final DeviceConfigCache cache = new DeviceConfigCache();
+
+    public DeviceConfigManager(Transport transport) {
+        this.transport = transport;
+    }
+
+    public DeviceConfigCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Кадры настроек — в кэш; admin-ответы своего узла — за ключом сессии и разделами.
+     * @return true, если кэш изменился
+     */
+    public boolean onFromRadio(MeshProtos.FromRadio msg) {
+        if (cache.onFromRadio(msg)) return true;
+        if (msg.getPayloadVariantCase() != MeshProtos.FromRadio.PayloadVariantCase.PACKET) return false;
+        MeshProtos.MeshPacket p = msg.getPacket();
+        if (!p.hasDecoded() || p.getDecoded().getPortnum() != Portnums.PortNum.ADMIN_APP) return false;
+        if ((p.getFrom() & 0xffffffffL) != cache.getMyNodeNum()) return false;
+        try {
+            cache.onAdminMessage(AdminProtos.AdminMessage.parseFrom(p.getDecoded().getPayload()));
+            return true;
+        } catch (InvalidProtocolBufferException e) {
+            Log.w(TAG, "Не удалось разобрать AdminMessage: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Перед новым want_config. */
+    public void onConfigRequested() {
+        cache.beginConfig();
+    }
+
+    /**
+     * Сравнивает черновик с радио и отправляет только изменённые разделы одной транзакцией.
+     */
+    public ApplyResult apply(SettingsDraft draft) {
+        SettingsDiff diff;
+        try {
+            diff = SettingsDiff.compute(draft, cache);
+        } catch (IllegalStateException e) {
+            return new ApplyResult(Status.NOT_READY, Collections.emptyList(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return new ApplyResult(Status.INVALID, Collections.emptyList(), e.getMessage());
+        }
+        if (diff.isEmpty()) return new ApplyResult(Status.NO_CHANGES, Collections.emptyList(), null);
+
+        List<AdminProtos.AdminMessage> messages = new ArrayList<>(diff.getEdits().size() + 2);
+        messages.add(AdminProtos.AdminMessage.newBuilder().setBeginEditSettings(true).build());
+        messages.addAll(diff.getEdits());
+        messages.add(AdminProtos.AdminMessage.newBuilder().setCommitEditSettings(true).build());
+
+        for (int i = 0; i < messages.size(); i++) {
+            if (!sendAdmin(messages.get(i))) {
+                // Кэш не трогаем: повтор снова увидит все изменения и отправит их в новой транзакции.
+                Status st = i == 0 ? Status.NOT_SENT : Status.PARTIAL;
+                return new ApplyResult(st, diff.getChanges(), "Не удалось поставить в очередь");
+            }
+        }
+        cache.applyEdits(diff.getEdits());
+        return new ApplyResult(Status.SENT, diff.getChanges(), null);
+    }
+
+    private boolean sendAdmin(AdminProtos.AdminMessage admin) {
+        long myNodeNum = cache.getMyNodeNum();
+        if (myNodeNum < 0) return false;
+        AdminProtos.AdminMessage withKey = admin.toBuilder()
+                .setSessionPasskey(cache.getSessionPasskey())
+                .build();
+        MeshProtos.MeshPacket packet = MeshProtos.MeshPacket.newBuilder()
+                .setTo((int) myNodeNum)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.ADMIN_APP)
+                        .setPayload(withKey.toByteString())
+                        .build())
+                .build();
+        return transport.send(MeshProtos.ToRadio.newBuilder().setPacket(packet).build());
+    }
+}
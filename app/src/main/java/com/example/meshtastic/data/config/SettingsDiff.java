@@ -0,0 +1,156 @@
+package com.example.meshtastic.data.config;
+
+import com.example.meshtastic.data.model.SettingsDraft;
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.AdminProtos;
+import org.meshtastic.proto.ChannelProtos;
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разница между черновиком настроек и тем, что сейчас стоит на радио.
+ *
+ * Сравнение идёт по полям; на радио уходят только разделы, в которых поле
+ * действительно изменилось, каждый — целиком из кэша с заменёнными полями.
+ * Пустое поле черновика означает "не трогать".
+ */
+public final class SettingsDiff {
+
+    /** Изменение одного поля. */
+    public static class Change {
+        public final String field;
+        public final String from;
+        public final String to;
+
+        Change(String field, String from, String to) {
+            this.field = field;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String toString() {
+            return field + ": " + from + " → " + to;
+        }
+    }
+
+    private static final int PRIMARY_CHANNEL = 0;
+
+    private final List<Change> changes = new ArrayList<>();
+    private final List<AdminProtos.AdminMessage> edits = new ArrayList<>();
+
+    private SettingsDiff() {
+    }
+
+    /**
+     * @throws IllegalStateException если нужный раздел ещё не пришёл с радио
+     * @throws IllegalArgumentException если значение черновика не подходит для радио
+     */
+    public static SettingsDiff compute(SettingsDraft draft, DeviceConfigCache cache) {
+        SettingsDiff diff = new SettingsDiff();
+        diff.diffOwner(draft, cache);
+        diff.diffLora(draft, cache);
+        diff.diffPrimaryChannel(draft, cache);
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /** Команды set_* по одной на изменённый раздел, без ключа сессии. */
+    public List<AdminProtos.AdminMessage> getEdits() {
+        return Collections.unmodifiableList(edits);
+    }
+
+    private void diffOwner(SettingsDraft draft, DeviceConfigCache cache) {
+        String name = trimmed(draft.getNodeName());
+        if (name == null) return;
+        MeshProtos.User owner = require(cache.getOwner(), "владелец узла");
+        if (name.equals(owner.getLongName())) return;
+        changes.add(new Change("owner.long_name", owner.getLongName(), name));
+        edits.add(AdminProtos.AdminMessage.newBuilder()
+                .setSetOwner(owner.toBuilder().setLongName(name))
+                .build());
+    }
+
+    private void diffLora(SettingsDraft draft, DeviceConfigCache cache) {
+        String regionText = trimmed(draft.getRegion());
+        if (regionText == null) return;
+        ConfigProtos.Config.LoRaConfig.RegionCode region = parseRegion(regionText);
+        ConfigProtos.Config config = require(cache.getConfig(ConfigProtos.Config.PayloadVariantCase.LORA), "настройки LoRa");
+        ConfigProtos.Config.LoRaConfig lora = config.getLora();
+        if (lora.getRegion() == region) return;
+        changes.add(new Change("lora.region", lora.getRegion().name(), region.name()));
+        edits.add(AdminProtos.AdminMessage.newBuilder()
+                .setSetConfig(ConfigProtos.Config.newBuilder().setLora(lora.toBuilder().setRegion(region)))
+                .build());
+    }
+
+    private void diffPrimaryChannel(SettingsDraft draft, DeviceConfigCache cache) {
+        String name = trimmed(draft.getChannelName());
+        String pskText = trimmed(draft.getPsk());
+        if (name == null && pskText == null) return;
+        ChannelProtos.Channel channel = require(cache.getChannel(PRIMARY_CHANNEL), "основной канал");
+        ChannelProtos.ChannelSettings current = channel.getSettings();
+        ChannelProtos.ChannelSettings.Builder settings = current.toBuilder();
+
+        if (name != null && !name.equals(current.getName())) {
+            changes.add(new Change("channel[0].name", current.getName(), name));
+            settings.setName(name);
+        }
+        if (pskText != null) {
+            ByteString psk = ByteString.copyFrom(pskText.getBytes(StandardCharsets.UTF_8));
+            if (!psk.equals(current.getPsk())) {
+                // Сам ключ в список изменений не выводим
+                changes.add(new Change("channel[0].psk", current.getPsk().size() + " B", psk.size() + " B"));
+                settings.setPsk(psk);
+            }
+        }
+        ChannelProtos.ChannelSettings updated = settings.build();
+        if (updated.equals(current)) return;
+        edits.add(AdminProtos.AdminMessage.newBuilder()
+                .setSetChannel(channel.toBuilder()
+                        .setRole(ChannelProtos.Channel.Role.PRIMARY)
+                        .setSettings(updated))
+                .build());
+    }
+
+    /**
+     * Регион по имени из RegionCode без учёта регистра и подчёркиваний ("eu868" = EU_868).
+     */
+    static ConfigProtos.Config.LoRaConfig.RegionCode parseRegion(String text) {
+        String wanted = normalize(text);
+        for (ConfigProtos.Config.LoRaConfig.RegionCode code : ConfigProtos.Config.LoRaConfig.RegionCode.values()) {
+            if (code == ConfigProtos.Config.LoRaConfig.RegionCode.UNRECOGNIZED) continue;
+            if (normalize(code.name()).equals(wanted)) return code;
+        }
+        throw new IllegalArgumentException("Неизвестный регион: " + text);
+    }
+
+    private static String normalize(String s) {
+        return s.replace("_", "").replace("-", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static String trimmed(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static <T> T require(T value, String what) {
+        if (value == null) throw new IllegalStateException("Нет данных с радио: " + what);
+        return value;
+    }
+}
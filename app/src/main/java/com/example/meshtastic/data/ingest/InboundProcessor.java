@@ -0,0 +1,269 @@
+package com.example.meshtastic.data.ingest;
+
+import com.example.meshtastic.data.config.DeviceConfigManager;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.log.LogRingBuffer;
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.Histogram;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.metrics.PacketTrace;
+import com.example.meshtastic.data.model.DeviceStatus;
+import com.example.meshtastic.data.model.Message;
+import com.example.meshtastic.data.model.NodeInfo;
+import com.example.meshtastic.data.nodes.NodeIndex;
+import com.example.meshtastic.data.parser.MeshProtoParser;
+import com.example.meshtastic.data.text.TextPayload;
+import com.example.meshtastic.data.topology.LinkGraph;
+import com.example.meshtastic.data.topology.TopologyIngest;
+
+import org.meshtastic.proto.ChannelProtos;
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.XmodemProtos.XModem;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Входящий путь кадра FromRadio: история кадров, разбор, журнал прошивки, кэш настроек,
+ * таблица узлов, граф связей, текстовые сообщения.
+ *
+ * Класс не зависит от Android: LiveData, Handler и движки отправки с таймерами живут
+ * за {@link Sink}. Репозиторий отдаёт ему кадры в потоке разбора, стенд
+ * {@code IngestHarness} — на JVM, так что оба гоняют один и тот же код.
+ * Не потокобезопасен — вызывается из одного потока разбора.
+ */
+public class InboundProcessor {
+
+    /**
+     * Куда уходят результаты разбора; вызывается в потоке разбора.
+     * Методы по умолчанию ничего не делают.
+     */
+    public interface Sink {
+        /** Кадр записан в историю, разбор ещё впереди. */
+        default void onFrameReceived(byte[] data, long now) {
+        }
+
+        default void onSummary(String summary) {
+        }
+
+        /** Изменение состояния устройства; применяется к копии последнего состояния. */
+        default void updateStatus(Consumer<DeviceStatus> updater) {
+        }
+
+        /** В таблице узлов новый или обновлённый узел — пора публиковать список. */
+        default void onNodesChanged(NodeInfo node) {
+        }
+
+        /** Радио сообщило свой номер; live = false — из сохранённого снимка. */
+        default void onMyNodeNum(long myNodeNum, boolean live) {
+        }
+
+        default void onTextMessage(Message message) {
+        }
+
+        /**
+         * Живой config_complete_id: радио отдало настройки и каналы (с точностью позиции)
+         * и готово к обмену.
+         */
+        default void onRadioReady() {
+        }
+
+        /** Кэш настроек изменился после config_complete_id — снимок пора сохранить. */
+        default void onConfigChanged() {
+        }
+
+        /** ACK/NAK и статус очереди для пакетов с want_ack. */
+        default void onFromRadio(MeshProtos.FromRadio msg) {
+        }
+
+        /**
+         * Пакет для передач и трассировки.
+         * @return true, если это ответ на свою трассировку и маршрут уже в графе
+         */
+        default boolean onPacket(MeshProtos.MeshPacket p) {
+            return false;
+        }
+
+        default void onChannelUtilization(float percent) {
+        }
+
+        default void onLoRaConfig(ConfigProtos.Config.LoRaConfig lora) {
+        }
+
+        default void onQueueStatus(MeshProtos.QueueStatus queueStatus) {
+        }
+
+        default void onXModem(XModem packet) {
+        }
+
+        /** Точность позиции основного канала, бит. */
+        default void onPositionPrecision(int bits) {
+        }
+    }
+
+    private static final Counter INGEST_FRAMES = MetricsRegistry.get().counter("ingest.frames");
+    private static final Counter DECODE_ERRORS = MetricsRegistry.get().counter("ingest.decode.errors");
+    private static final Histogram DECODE_US = MetricsRegistry.get().histogram("ingest.decode.us");
+    private static final Counter DUPLICATE_PACKETS = MetricsRegistry.get().counter("ingest.duplicate_packets");
+
+    private final FrameHistory frameHistory;
+    private final LogRingBuffer radioLog;
+    private final NodeIndex nodeIndex;
+    private final LinkGraph linkGraph;
+    private final DeviceConfigManager deviceConfig;
+    private final Sink sink;
+    private final RecentPackets recentPackets = new RecentPackets();
+    private volatile long myNodeNum = -1;
+
+    public InboundProcessor(FrameHistory frameHistory, LogRingBuffer radioLog, NodeIndex nodeIndex,
+                            LinkGraph linkGraph, DeviceConfigManager deviceConfig, Sink sink) {
+        this.frameHistory = frameHistory;
+        this.radioLog = radioLog;
+        this.nodeIndex = nodeIndex;
+        this.linkGraph = linkGraph;
+        this.deviceConfig = deviceConfig;
+        this.sink = sink;
+    }
+
+    /** Номер своего узла из MyNodeInfo; -1 — ещё не пришёл. */
+    public long getMyNodeNum() {
+        return myNodeNum;
+    }
+
+    /**
+     * Кадр FromRadio с радио (или из синтетической сети).
+     * @return true — кадр трассируется ({@link PacketTrace#stateUpdated}), осталось
+     *         отметить отрисовку
+     */
+    public boolean onFrame(byte[] data, long now) {
+        if (PacketTrace.isEnabled()) PacketTrace.handover(data);
+        INGEST_FRAMES.increment();
+        // Hex строится только на открытых экранах, здесь — лишь ссылка на кадр
+        frameHistory.record(FrameHistory.Direction.RX, data, now);
+        sink.onFrameReceived(data, now);
+        decode(data);
+        return PacketTrace.isEnabled() && PacketTrace.stateUpdated(data);
+    }
+
+    private void decode(byte[] data) {
+        if (data == null || data.length == 0) return;
+
+        // FromRadio приходит как один protobuf (без varint length-prefix)
+        MeshProtos.FromRadio msg;
+        long decodeStart = System.nanoTime();
+        try {
+            msg = MeshProtos.FromRadio.parseFrom(data);
+        } catch (Exception e) {
+            DECODE_ERRORS.increment();
+            if (PacketTrace.isEnabled()) PacketTrace.dropped(data);
+            return;
+        }
+        DECODE_US.record((System.nanoTime() - decodeStart) / 1000);
+        if (PacketTrace.isEnabled()) PacketTrace.decoded(data);
+
+        // Строки журнала идут сотнями в секунду — в сводку их не выводим, только в кольцо
+        if (msg.getPayloadVariantCase() == MeshProtos.FromRadio.PayloadVariantCase.LOG_RECORD) {
+            MeshProtos.LogRecord rec = msg.getLogRecord();
+            long time = rec.getTime() != 0 ? (rec.getTime() & 0xffffffffL) * 1000 : System.currentTimeMillis();
+            radioLog.add(time, rec.getLevelValue(), rec.getSource(), rec.getMessage());
+            return;
+        }
+
+        String summary = MeshProtoParser.summarize(msg);
+        sink.onSummary(summary);
+        sink.updateStatus(s -> s.setLastSummary(summary));
+
+        sink.onFromRadio(msg);
+        // Config/ModuleConfig/Channel и admin-ответы — в кэш настроек радио; снимок
+        // обновляется после config_complete_id и при изменениях после него
+        if (deviceConfig.onFromRadio(msg) && deviceConfig.getCache().isComplete()) sink.onConfigChanged();
+        apply(msg, true);
+    }
+
+    /**
+     * Применяет разобранный кадр к таблице узлов, графу и настройкам отправки.
+     * @param live false — кадр из сохранённого снимка, а не с радио
+     */
+    public void apply(MeshProtos.FromRadio msg, boolean live) {
+        switch (msg.getPayloadVariantCase()) {
+            case NODE_INFO: {
+                MeshProtos.NodeInfo ni = msg.getNodeInfo();
+                NodeInfo model = MeshProtoParser.toNodeInfo(ni);
+                nodeIndex.put(model);
+                TopologyIngest.applyDirectNeighbor(linkGraph, ni, myNodeNum, System.currentTimeMillis());
+                linkGraph.setGateway(model.getNodeNum(), TopologyIngest.isGateway(ni));
+                if (model.getNodeNum() == myNodeNum) {
+                    nodeIndex.setReference(model.getLatitude(), model.getLongitude());
+                }
+                sink.onNodesChanged(model);
+                if (model.getNodeNum() == myNodeNum && ni.hasDeviceMetrics()
+                        && ni.getDeviceMetrics().hasChannelUtilization()) {
+                    sink.onChannelUtilization(ni.getDeviceMetrics().getChannelUtilization());
+                }
+                if (model.getNodeNum() != 0) {
+                    sink.updateStatus(s -> {
+                        s.setSnr(model.getSnr());
+                        s.setBatteryPercent(model.getBatteryLevel());
+                        s.setLastHeard(model.getLastHeard());
+                    });
+                }
+                break;
+            }
+            case MY_INFO: {
+                myNodeNum = msg.getMyInfo().getMyNodeNum() & 0xffffffffL;
+                linkGraph.setMyNode(myNodeNum);
+                NodeInfo me = nodeIndex.get(myNodeNum);
+                if (me != null) nodeIndex.setReference(me.getLatitude(), me.getLongitude());
+                sink.onMyNodeNum(myNodeNum, live);
+                sink.updateStatus(s -> s.setNodeNum((long) msg.getMyInfo().getMyNodeNum()));
+                break;
+            }
+            case METADATA: {
+                sink.updateStatus(s -> s.setFirmwareVersion(msg.getMetadata().getFirmwareVersion()));
+                break;
+            }
+            case PACKET: {
+                MeshProtos.MeshPacket p = msg.getPacket();
+                if (live && recentPackets.seen(p.getFrom() & 0xffffffffL, p.getId())) DUPLICATE_PACKETS.increment();
+                if (!sink.onPacket(p)) TopologyIngest.onPacket(linkGraph, p, System.currentTimeMillis());
+                if (p.hasDecoded() && TextPayload.isText(p.getDecoded())) {
+                    String text = TextPayload.decode(p.getDecoded());
+                    if (text != null) {
+                        long from = p.getFrom() & 0xffffffffL;
+                        sink.onTextMessage(new Message(text,
+                                String.format(Locale.ROOT, "!%08x", from), from == myNodeNum));
+                    }
+                }
+                break;
+            }
+            case CONFIG: {
+                // Пресет модема — для оценки времени в эфире
+                if (msg.getConfig().hasLora()) sink.onLoRaConfig(msg.getConfig().getLora());
+                break;
+            }
+            case CONFIG_COMPLETE_ID: {
+                if (live) sink.onRadioReady();
+                break;
+            }
+            case QUEUESTATUS: {
+                sink.onQueueStatus(msg.getQueueStatus());
+                break;
+            }
+            case XMODEMPACKET: {
+                sink.onXModem(msg.getXmodemPacket());
+                break;
+            }
+            case CHANNEL: {
+                // Точность позиции задаётся на основном канале
+                ChannelProtos.Channel ch = msg.getChannel();
+                if (ch.getRole() == ChannelProtos.Channel.Role.PRIMARY && ch.getSettings().hasModuleSettings()) {
+                    sink.onPositionPrecision(ch.getSettings().getModuleSettings().getPositionPrecision());
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
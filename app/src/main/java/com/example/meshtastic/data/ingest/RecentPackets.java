@@ -0,0 +1,47 @@
+package com.example.meshtastic.data.ingest;
+
+/**
+ * Последние принятые пакеты по (from, id) — чтобы считать повторы ретрансляций.
+ *
+ * Кольцо фиксированной длины с линейным поиском: на нескольких сотнях записей это
+ * быстрее хеш-таблицы с удалением и не создаёт объектов. Не потокобезопасно —
+ * вызывается из потока разбора.
+ */
+public class RecentPackets {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final long[] keys;
+    private int next;
+    private int size;
+
+    public RecentPackets() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RecentPackets(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity");
+        keys = new long[capacity];
+    }
+
+    /**
+     * Запоминает пакет.
+     * @return true, если такой (from, id) уже был среди последних; пакеты с id 0 не учитываются
+     */
+    public boolean seen(long from, int id) {
+        if (id == 0) return false;
+        long key = (from << 32) | (id & 0xffffffffL);
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) return true;
+        }
+        keys[next] = key;
+        next = (next + 1) % keys.length;
+        if (size < keys.length) size++;
+        return false;
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+}
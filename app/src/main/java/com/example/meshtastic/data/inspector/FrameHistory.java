@@ -0,0 +1,106 @@
+package com.example.meshtastic.data.inspector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Последние N сырых кадров радиоканала (приём и передача) с временем получения.
+ *
+ * На кадр запись стоит нескольких присваиваний: хранится ссылка на уже готовый
+ * массив байтов, ничего не копируется и не форматируется. Hex и разбор строятся
+ * только при чтении — экраном инспектора, пока он открыт.
+ */
+public class FrameHistory {
+
+    public enum Direction {
+        RX,
+        TX
+    }
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** Кадр в снимке для чтения. Массив {@code data} менять нельзя. */
+    public static class Frame {
+        public final long seq;
+        public final long timeMs;
+        public final Direction direction;
+        public final byte[] data;
+
+        Frame(long seq, long timeMs, Direction direction, byte[] data) {
+            this.seq = seq;
+            this.timeMs = timeMs;
+            this.direction = direction;
+            this.data = data;
+        }
+    }
+
+    private final int capacity;
+    private final long[] times;
+    private final boolean[] tx;
+    private final byte[][] frames;
+    private long count;
+
+    public FrameHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrameHistory(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity");
+        this.capacity = capacity;
+        this.times = new long[capacity];
+        this.tx = new boolean[capacity];
+        this.frames = new byte[capacity][];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Запоминает кадр. Массив сохраняется по ссылке — вызывающий не должен его менять.
+     */
+    public synchronized void record(Direction direction, byte[] data, long timeMs) {
+        if (data == null) return;
+        int i = (int) (count % capacity);
+        times[i] = timeMs;
+        tx[i] = direction == Direction.TX;
+        frames[i] = data;
+        count++;
+    }
+
+    /** Сколько кадров записано за всё время — по изменению видно, что пора перерисовать. */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Последний кадр в направлении {@code direction} или null. */
+    public synchronized Frame last(Direction direction) {
+        for (long seq = count - 1; seq >= 0 && seq >= count - capacity; seq--) {
+            int i = (int) (seq % capacity);
+            if (tx[i] == (direction == Direction.TX)) return frame(seq, i);
+        }
+        return null;
+    }
+
+    /**
+     * До {@code limit} последних кадров в порядке прихода.
+     */
+    public synchronized List<Frame> snapshot(int limit) {
+        long from = Math.max(0, count - Math.min(limit, capacity));
+        List<Frame> out = new ArrayList<>((int) (count - from));
+        for (long seq = from; seq < count; seq++) {
+            out.add(frame(seq, (int) (seq % capacity)));
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(frames, null);
+        count = 0;
+    }
+
+    private Frame frame(long seq, int i) {
+        return new Frame(seq, times[i], tx[i] ? Direction.TX : Direction.RX, frames[i]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.meshtastic.data.inspector;
+
+/**
+ * Табличное кодирование байтов в hex: два символа на байт берутся из готовой
+ * таблицы, без String.format и промежуточных строк.
+ */
+public final class HexEncoder {
+
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+    // Для байта b: HEX[2b] и HEX[2b + 1]
+    private static final char[] HEX = new char[512];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            HEX[b << 1] = DIGITS[b >>> 4];
+            HEX[(b << 1) + 1] = DIGITS[b & 0x0F];
+        }
+    }
+
+    public static final int BYTES_PER_LINE = 16;
+
+    private HexEncoder() {
+    }
+
+    /**
+     * Пишет байты через пробел ("0A 1B 2C") в {@code out}.
+     */
+    public static void append(StringBuilder out, byte[] data, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            if (i > 0) out.append(' ');
+            int b = (data[off + i] & 0xFF) << 1;
+            out.append(HEX[b]).append(HEX[b + 1]);
+        }
+    }
+
+    public static String toHex(byte[] data, int off, int len) {
+        if (len <= 0) return "";
+        StringBuilder sb = new StringBuilder(len * 3 - 1);
+        append(sb, data, off, len);
+        return sb.toString();
+    }
+
+    /**
+     * Дамп в виде "смещение: байты  ASCII" по {@link #BYTES_PER_LINE} байт на строку.
+     */
+    public static void dump(StringBuilder out, byte[] data, int off, int len) {
+        for (int line = 0; line < len; line += BYTES_PER_LINE) {
+            int n = Math.min(BYTES_PER_LINE, len - line);
+            appendByte(out, line >>> 8);
+            appendByte(out, line);
+            out.append(": ");
+            append(out, data, off + line, n);
+            for (int pad = n; pad < BYTES_PER_LINE; pad++) out.append("   ");
+            out.append("  ");
+            for (int i = 0; i < n; i++) {
+                int c = data[off + line + i] & 0xFF;
+                out.append(c >= 0x20 && c < 0x7F ? (char) c : '.');
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void appendByte(StringBuilder out, int value) {
+        int b = (value & 0xFF) << 1;
+        out.append(HEX[b]).append(HEX[b + 1]);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.meshtastic.data.log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кольцо последних строк журнала прошивки (LogRecord) фиксированной ёмкости.
+ *
+ * Пишет один поток — поток приёма; запись не блокируется и не создаёт объектов,
+ * кроме строки сообщения, которая уже пришла в protobuf. Поля строки лежат в
+ * параллельных массивах, старые строки перезаписываются.
+ *
+ * Читатели (экран, экспорт) работают без блокировок: у каждой ячейки есть номер
+ * записи, нечётный на время записи. Если писатель обогнал читателя на круг, в снимок
+ * попадают только строки, которые не успели перезаписать.
+ */
+public class LogRingBuffer {
+
+    // Значения совпадают с LogRecord.Level
+    public static final int TRACE = 5;
+    public static final int DEBUG = 10;
+    public static final int INFO = 20;
+    public static final int WARNING = 30;
+    public static final int ERROR = 40;
+    public static final int CRITICAL = 50;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** Строка журнала в снимке для чтения. */
+    public static class Entry {
+        public final long seq;
+        public final long timeMs;
+        public final int level;
+        public final String source;
+        public final String message;
+
+        Entry(long seq, long timeMs, int level, String source, String message) {
+            this.seq = seq;
+            this.timeMs = timeMs;
+            this.level = level;
+            this.source = source;
+            this.message = message;
+        }
+    }
+
+    private final int mask;
+    // 2 * (номер записи + 1): чётное — готово, нечётное — пишется, 0 — пусто
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray times;
+    private final AtomicIntegerArray levels;
+    private final AtomicReferenceArray<String> sources;
+    private final AtomicReferenceArray<String> messages;
+    private final AtomicLong written = new AtomicLong();
+
+    public LogRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity округляется вверх до степени двойки
+     */
+    public LogRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 20)) throw new IllegalArgumentException("capacity");
+        int cap = Integer.highestOneBit(capacity);
+        if (cap < capacity) cap <<= 1;
+        mask = cap - 1;
+        stamps = new AtomicLongArray(cap);
+        times = new AtomicLongArray(cap);
+        levels = new AtomicIntegerArray(cap);
+        sources = new AtomicReferenceArray<>(cap);
+        messages = new AtomicReferenceArray<>(cap);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Сколько строк записано за всё время (включая уже вытесненные). */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /** Сколько строк вытеснено из кольца. */
+    public long getOverwrittenCount() {
+        return Math.max(0, written.get() - capacity());
+    }
+
+    /**
+     * Добавляет строку. Вызывать только из одного потока.
+     * @param level значение LogRecord.Level; UNSET считается INFO
+     */
+    public void add(long timeMs, int level, String source, String message) {
+        long seq = written.get();
+        int i = (int) seq & mask;
+        long stamp = (seq + 1) << 1;
+        // Нечётная метка видна раньше новых полей, чётная — позже
+        stamps.set(i, stamp - 1);
+        times.lazySet(i, timeMs);
+        levels.lazySet(i, level == 0 ? INFO : level);
+        sources.lazySet(i, source);
+        messages.lazySet(i, message);
+        stamps.lazySet(i, stamp);
+        written.lazySet(seq + 1);
+    }
+
+    /**
+     * Последние строки не ниже {@code minLevel}, содержащие {@code substring} (без учёта
+     * регистра) в сообщении или источнике, — в порядке записи.
+     * @param limit не больше стольких строк, самых новых
+     */
+    public List<Entry> query(int minLevel, String substring, int limit) {
+        return query(minLevel, substring, limit, -1);
+    }
+
+    /**
+     * То же, но только строки новее {@code afterSeq} — для дочитывания уже показанного списка.
+     */
+    public List<Entry> query(int minLevel, String substring, int limit, long afterSeq) {
+        String needle = substring == null || substring.isEmpty() ? null : substring;
+        long end = written.get();
+        long start = Math.max(Math.max(0, end - capacity()), afterSeq + 1);
+        List<Entry> out = new ArrayList<>();
+        for (long seq = end - 1; seq >= start && out.size() < limit; seq--) {
+            int i = (int) seq & mask;
+            long stamp = (seq + 1) << 1;
+            if (stamps.get(i) != stamp) break; // дальше только более старые — их уже перезаписали
+            int level = levels.get(i);
+            if (level < minLevel) continue;
+            long time = times.get(i);
+            String source = sources.get(i);
+            String message = messages.get(i);
+            if (stamps.get(i) != stamp) break;
+            if (needle != null && !containsIgnoreCase(message, needle) && !containsIgnoreCase(source, needle)) {
+                continue;
+            }
+            out.add(new Entry(seq, time, level, source, message));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    /**
+     * Выгружает текущее содержимое (с фильтром) в текстовом виде, по строке на запись.
+     * @return число выгруженных строк
+     */
+    public int exportTo(Writer writer, int minLevel, String substring) throws IOException {
+        List<Entry> entries = query(minLevel, substring, capacity());
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT);
+        Date date = new Date();
+        for (Entry e : entries) {
+            date.setTime(e.timeMs);
+            writer.write(fmt.format(date));
+            writer.write(' ');
+            writer.write(levelName(e.level));
+            if (e.source != null && !e.source.isEmpty()) {
+                writer.write(" [");
+                writer.write(e.source);
+                writer.write(']');
+            }
+            writer.write(' ');
+            writer.write(e.message != null ? e.message : "");
+            writer.write('\n');
+        }
+        writer.flush();
+        return entries.size();
+    }
+
+    /**
+     * Забывает все строки. Вызывать из потока записи; номера записей продолжают расти,
+     * чтобы читатели с {@code afterSeq} не запутались.
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            stamps.set(i, 0);
+            sources.lazySet(i, null);
+            messages.lazySet(i, null);
+        }
+    }
+
+    public static String levelName(int level) {
+        if (level >= CRITICAL) return "CRIT";
+        if (level >= ERROR) return "ERROR";
+        if (level >= WARNING) return "WARN";
+        if (level >= INFO) return "INFO";
+        if (level >= DEBUG) return "DEBUG";
+        return "TRACE";
+    }
+
+    static boolean containsIgnoreCase(String haystack, String needle) {
+        if (haystack == null) return false;
+        int n = needle.length();
+        for (int i = 0, last = haystack.length() - n; i <= last; i++) {
+            if (haystack.regionMatches(true, i, needle, 0, n)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.meshtastic.data.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Монотонный счётчик событий. Увеличение не создаёт объектов.
+ */
+public final class Counter {
+
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    void reset() {
+        value.set(0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.meshtastic.data.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Текущее значение (глубина очереди и т.п.) и наибольшее за всё время.
+ */
+public final class Gauge {
+
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Gauge(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void set(long v) {
+        value.set(v);
+        long m;
+        while (v > (m = max.get())) {
+            if (max.compareAndSet(m, v)) break;
+        }
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    void reset() {
+        value.set(0);
+        max.set(0);
+    }
+}
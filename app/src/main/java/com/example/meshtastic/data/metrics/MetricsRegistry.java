@@ -0,0 +1,94 @@
+package com.example.meshtastic.data.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр метрик приложения: счётчики, измерители и гистограммы по именам.
+ *
+ * Метрику получают один раз (обычно в static-поле) и дальше пишут в неё напрямую —
+ * поиск по имени и создание объектов есть только при регистрации. Снимок в тексте
+ * строится по запросу экрана диагностики или экспорта.
+ *
+ * Имена — через точку, единица в конце: {@code gatt.op.read_char.us}.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    MetricsRegistry() {
+    }
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /** Значения счётчиков по именам — для расчёта скорости между двумя снимками. */
+    public Map<String, Long> counterValues() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Counter c : counters.values()) out.put(c.getName(), c.get());
+        return out;
+    }
+
+    /** Обнуляет все метрики; сами объекты остаются зарегистрированными. */
+    public void reset() {
+        for (Counter c : counters.values()) c.reset();
+        for (Gauge g : gauges.values()) g.reset();
+        for (Histogram h : histograms.values()) h.reset();
+    }
+
+    /**
+     * Текстовый снимок: по строке на метрику, имена по алфавиту.
+     * @param ratesPerSecond скорость счётчиков по именам (может быть null)
+     */
+    public void writeText(Appendable out, Map<String, Double> ratesPerSecond) throws IOException {
+        out.append("# counters\n");
+        for (Counter c : new TreeMap<>(counters).values()) {
+            out.append(c.getName()).append(' ').append(Long.toString(c.get()));
+            Double rate = ratesPerSecond != null ? ratesPerSecond.get(c.getName()) : null;
+            if (rate != null) out.append(String.format(Locale.ROOT, " (%.1f/s)", rate));
+            out.append('\n');
+        }
+        out.append("# gauges\n");
+        for (Gauge g : new TreeMap<>(gauges).values()) {
+            out.append(g.getName()).append(' ').append(Long.toString(g.get()))
+                    .append(" max=").append(Long.toString(g.getMax())).append('\n');
+        }
+        out.append("# histograms\n");
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            out.append(String.format(Locale.ROOT, "%s n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d\n",
+                    h.getName(), h.getCount(), h.getMean(), h.percentile(0.50), h.percentile(0.90),
+                    h.percentile(0.99), h.getMax()));
+        }
+    }
+
+    public String toText(Map<String, Double> ratesPerSecond) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeText(sb, ratesPerSecond);
+        } catch (IOException e) {
+            // StringBuilder не бросает
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+}
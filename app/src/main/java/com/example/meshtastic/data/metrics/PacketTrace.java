@@ -0,0 +1,153 @@
+package com.example.meshtastic.data.metrics;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Выборочная трассировка пути кадра FromRadio от GATT-колбэка до экрана.
+ *
+ * Кадр помечается в пяти точках: чтение ({@code onCharacteristicRead}), передача в поток
+ * разбора, разбор protobuf, обновление состояния и первый кадр отрисовки после него.
+ * Время между точками пишется в гистограммы {@code trace.*.us} реестра метрик, а на
+ * Android 10+ — ещё и асинхронными секциями {@link Trace}, так что путь виден в
+ * записи Perfetto/systrace.
+ *
+ * В пути одновременно не больше одного кадра: следующий берётся, когда предыдущий
+ * дошёл до экрана или потерялся (ошибка разбора, разрыв). Кадр узнаётся по ссылке
+ * на его массив байт — тот же массив идёт от GATT-потока до разбора.
+ *
+ * Вызовы обёрнуты в {@code if (PacketTrace.isEnabled())}: выключенная трассировка
+ * стоит одного чтения поля и ветвления.
+ */
+public final class PacketTrace {
+
+    /** Кадр, не дошедший до экрана за это время, считается потерянным. */
+    static final long STALE_NANOS = 5_000_000_000L;
+
+    private static final String[] SECTIONS = {
+            "packet.handover", "packet.decode", "packet.state", "packet.render"
+    };
+    private static final Histogram[] STAGE_US = {
+            MetricsRegistry.get().histogram("trace.read_to_handover.us"),
+            MetricsRegistry.get().histogram("trace.handover_to_decode.us"),
+            MetricsRegistry.get().histogram("trace.decode_to_state.us"),
+            MetricsRegistry.get().histogram("trace.state_to_render.us"),
+    };
+    private static final Histogram TOTAL_US = MetricsRegistry.get().histogram("trace.read_to_render.us");
+    private static final Counter ABANDONED = MetricsRegistry.get().counter("trace.abandoned");
+
+    private static volatile boolean enabled;
+    private static volatile int sampleEvery = 1;
+
+    // Кадр в пути: сравнивается без блокировки, остальное — под блокировкой класса
+    private static volatile byte[] frame;
+    private static long startNanos;
+    private static long stageNanos;
+    private static int stage;
+    private static int cookie;
+    private static int skipped;
+
+    private PacketTrace() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * @param every трассировать один кадр из стольких (не меньше 1)
+     */
+    public static synchronized void setEnabled(boolean on, int every) {
+        sampleEvery = Math.max(1, every);
+        skipped = 0;
+        enabled = on;
+        if (!on) abandon();
+    }
+
+    /** Точка 1, GATT-поток: прочитан непустой FromRadio. */
+    public static synchronized void read(byte[] data, long readNanos) {
+        if (frame != null) {
+            if (readNanos - startNanos < STALE_NANOS) return;
+            abandon();
+        }
+        if (++skipped < sampleEvery) return;
+        skipped = 0;
+        startNanos = readNanos;
+        stageNanos = readNanos;
+        stage = 0;
+        cookie++;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection("packet", cookie);
+            Trace.beginAsyncSection(SECTIONS[0], cookie);
+        }
+        frame = data;
+    }
+
+    /** Точка 2, поток разбора: кадр передан из GATT-потока. */
+    public static void handover(byte[] data) {
+        if (data == frame) advance(0, System.nanoTime());
+    }
+
+    /** Точка 3, поток разбора: protobuf разобран. */
+    public static void decoded(byte[] data) {
+        if (data == frame) advance(1, System.nanoTime());
+    }
+
+    /**
+     * Точка 4, поток разбора: состояние обновлено, LiveData отправлены на главный поток.
+     * @return true — кадр трассируется, и вызывающий должен запланировать {@link #rendered}
+     */
+    public static boolean stateUpdated(byte[] data) {
+        return data == frame && advance(2, System.nanoTime());
+    }
+
+    /**
+     * Точка 5, главный поток: первый кадр отрисовки после обновления состояния
+     * (наблюдатели LiveData к этому моменту уже отработали).
+     */
+    public static void rendered(byte[] data) {
+        if (data == frame) advance(3, System.nanoTime());
+    }
+
+    static boolean advance(byte[] data, int expected, long now) {
+        return data == frame && advance(expected, now);
+    }
+
+    /** Кадр не дойдёт до экрана (ошибка разбора, разрыв) — освобождает место. */
+    public static void dropped(byte[] data) {
+        if (data != null && data == frame) abandon();
+    }
+
+    private static synchronized boolean advance(int expected, long now) {
+        if (frame == null || stage != expected) return false;
+        STAGE_US[expected].record((now - stageNanos) / 1000);
+        stageNanos = now;
+        boolean last = expected == SECTIONS.length - 1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTIONS[expected], cookie);
+            if (last) Trace.endAsyncSection("packet", cookie);
+            else Trace.beginAsyncSection(SECTIONS[expected + 1], cookie);
+        }
+        if (last) {
+            TOTAL_US.record((now - startNanos) / 1000);
+            frame = null;
+        } else {
+            stage = expected + 1;
+        }
+        return true;
+    }
+
+    private static synchronized void abandon() {
+        if (frame == null) return;
+        ABANDONED.increment();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTIONS[stage], cookie);
+            Trace.endAsyncSection("packet", cookie);
+        }
+        frame = null;
+    }
+}
@@ -14,7 +14,6 @@ public class DeviceStatus {
     private Long lastHeard;
     private Long lastRxAt;
     private String lastSummary;
-    private String lastRxHex;
 
     public String getState() {
         return state;
@@ -96,11 +95,19 @@ public class DeviceStatus {
         this.lastSummary = lastSummary;
     }
 
-    public String getLastRxHex() {
-        return lastRxHex;
-    }
-
-    public void setLastRxHex(String lastRxHex) {
-        this.lastRxHex = lastRxHex;
+    /** Независимая копия — для снимков, которые отдаются наружу. */
+    public DeviceStatus copy() {
+        DeviceStatus c = new DeviceStatus();
+        c.state = state;
+        c.statusText = statusText;
+        c.deviceName = deviceName;
+        c.nodeNum = nodeNum;
+        c.firmwareVersion = firmwareVersion;
+        c.batteryPercent = batteryPercent;
+        c.snr = snr;
+        c.lastHeard = lastHeard;
+        c.lastRxAt = lastRxAt;
+        c.lastSummary = lastSummary;
+        return c;
     }
 }
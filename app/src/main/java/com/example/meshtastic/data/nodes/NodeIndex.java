@@ -0,0 +1,223 @@
+package com.example.meshtastic.data.nodes;
+
+import com.example.meshtastic.data.model.Location;
+import com.example.meshtastic.data.model.NodeInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Индексированная таблица узлов: отсортированные представления по каждому ключу
+ * и префиксный поиск по именам.
+ *
+ * Индексы обновляются инкрементально на каждое изменение узла (O(log n) на ключ),
+ * поэтому ни обновление узла, ни смена запроса не приводят к полной сортировке таблицы.
+ */
+public class NodeIndex {
+
+    public enum SortKey {
+        LAST_HEARD,
+        SNR,
+        DISTANCE,
+        HOPS,
+        BATTERY
+    }
+
+    // Точка отсчёта для расстояний пересчитывается только при заметном смещении
+    private static final double REFERENCE_MOVE_THRESHOLD_M = 250;
+
+    /** Элемент индекса. Поле distance меняется только пока элемент вынут из distance-индекса. */
+    private static final class Entry {
+        final NodeInfo node;
+        final String[] words;
+        double distance = Double.MAX_VALUE;
+
+        Entry(NodeInfo node) {
+            this.node = node;
+            this.words = searchWords(node);
+        }
+
+        boolean hasPosition() {
+            return node.getLatitude() != 0 || node.getLongitude() != 0;
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<SortKey, TreeSet<Entry>> sorted = new EnumMap<>(SortKey.class);
+    private final PrefixTrie trie = new PrefixTrie();
+
+    private Location reference;
+
+    public NodeIndex() {
+        for (SortKey key : SortKey.values()) {
+            sorted.put(key, new TreeSet<>(comparator(key)));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized NodeInfo get(long nodeNum) {
+        Entry e = entries.get(nodeNum);
+        return e != null ? e.node : null;
+    }
+
+    /**
+     * Добавляет или заменяет узел (по nodeNum).
+     */
+    public synchronized void put(NodeInfo node) {
+        if (node == null) return;
+        long num = node.getNodeNum();
+        Entry old = entries.remove(num);
+        if (old != null) unindex(old);
+
+        Entry e = new Entry(node);
+        e.distance = distanceTo(e);
+        entries.put(num, e);
+        for (TreeSet<Entry> set : sorted.values()) set.add(e);
+        for (String w : e.words) trie.add(w, num);
+    }
+
+    public synchronized void remove(long nodeNum) {
+        Entry old = entries.remove(nodeNum);
+        if (old != null) unindex(old);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        for (TreeSet<Entry> set : sorted.values()) set.clear();
+        trie.clear();
+    }
+
+    /**
+     * Задаёт собственную позицию для сортировки по расстоянию.
+     * Небольшие смещения игнорируются, чтобы не пересчитывать индекс на каждый фикс.
+     */
+    public synchronized void setReference(double latitude, double longitude) {
+        if (latitude == 0 && longitude == 0) return;
+        Location next = new Location(latitude, longitude);
+        if (reference != null && reference.distanceTo(next) < REFERENCE_MOVE_THRESHOLD_M) return;
+        reference = next;
+
+        TreeSet<Entry> byDistance = sorted.get(SortKey.DISTANCE);
+        byDistance.clear();
+        for (Entry e : entries.values()) {
+            e.distance = distanceTo(e);
+            byDistance.add(e);
+        }
+    }
+
+    /**
+     * Узлы в порядке ключа, отфильтрованные по префиксу имени (пустой префикс — все узлы).
+     */
+    public synchronized List<NodeInfo> query(SortKey key, String prefix) {
+        TreeSet<Entry> index = sorted.get(key != null ? key : SortKey.LAST_HEARD);
+        String p = normalize(prefix);
+
+        if (p.isEmpty()) {
+            List<NodeInfo> out = new ArrayList<>(index.size());
+            for (Entry e : index) out.add(e.node);
+            return out;
+        }
+
+        Set<Long> matches = trie.find(p);
+        List<NodeInfo> out = new ArrayList<>(matches.size());
+        if (matches.isEmpty()) return out;
+
+        // Мало совпадений — сортируем только их; много — проходим готовый индекс с фильтром
+        if (matches.size() * 8 < entries.size()) {
+            List<Entry> hits = new ArrayList<>(matches.size());
+            for (Long num : matches) {
+                Entry e = entries.get(num);
+                if (e != null) hits.add(e);
+            }
+            hits.sort(index.comparator());
+            for (Entry e : hits) out.add(e.node);
+        } else {
+            for (Entry e : index) {
+                if (matches.contains(e.node.getNodeNum())) out.add(e.node);
+            }
+        }
+        return out;
+    }
+
+    public synchronized Collection<NodeInfo> values() {
+        List<NodeInfo> out = new ArrayList<>(entries.size());
+        for (Entry e : entries.values()) out.add(e.node);
+        return out;
+    }
+
+    private void unindex(Entry e) {
+        for (TreeSet<Entry> set : sorted.values()) set.remove(e);
+        long num = e.node.getNodeNum();
+        for (String w : e.words) trie.remove(w, num);
+    }
+
+    private double distanceTo(Entry e) {
+        if (reference == null || !e.hasPosition()) return Double.MAX_VALUE;
+        return reference.distanceTo(new Location(e.node.getLatitude(), e.node.getLongitude()));
+    }
+
+    private static Comparator<Entry> comparator(SortKey key) {
+        Comparator<Entry> primary;
+        switch (key) {
+            case SNR:
+                primary = (a, b) -> Float.compare(b.node.getSnr(), a.node.getSnr());
+                break;
+            case DISTANCE:
+                primary = (a, b) -> Double.compare(a.distance, b.distance);
+                break;
+            case HOPS:
+                // Неизвестное число хопов — в конец
+                primary = (a, b) -> Integer.compare(hopsOrMax(a.node), hopsOrMax(b.node));
+                break;
+            case BATTERY:
+                // -1 (неизвестно) естественным образом окажется в конце
+                primary = (a, b) -> Integer.compare(b.node.getBatteryLevel(), a.node.getBatteryLevel());
+                break;
+            case LAST_HEARD:
+            default:
+                primary = (a, b) -> Long.compare(b.node.getLastHeard(), a.node.getLastHeard());
+                break;
+        }
+        // nodeNum как tie-breaker: TreeSet не должен считать разные узлы равными
+        return primary.thenComparing((a, b) -> Long.compare(a.node.getNodeNum(), b.node.getNodeNum()));
+    }
+
+    private static int hopsOrMax(NodeInfo n) {
+        return n.getHopsAway() != null ? n.getHopsAway() : Integer.MAX_VALUE;
+    }
+
+    private static String[] searchWords(NodeInfo n) {
+        List<String> words = new ArrayList<>(4);
+        String longName = normalize(n.getLongName());
+        if (!longName.isEmpty()) {
+            words.add(longName);
+            // Отдельные слова длинного имени, чтобы "base" находил "Alpha Base"
+            for (String part : longName.split("\\s+")) {
+                if (!part.isEmpty() && !part.equals(longName)) words.add(part);
+            }
+        }
+        String shortName = normalize(n.getShortName());
+        if (!shortName.isEmpty()) words.add(shortName);
+        String userId = normalize(n.getUserId());
+        if (!userId.isEmpty()) {
+            words.add(userId);
+            if (userId.startsWith("!") && userId.length() > 1) words.add(userId.substring(1));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.meshtastic.data.nodes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Префиксное дерево: строка (в нижнем регистре) -> набор номеров узлов.
+ * Поддерживает инкрементальное добавление/удаление, поиск собирает номера из поддерева префикса.
+ * Не потокобезопасно — синхронизация на стороне {@link NodeIndex}.
+ */
+class PrefixTrie {
+
+    private static final class TrieNode {
+        char[] keys = new char[0];
+        TrieNode[] children = new TrieNode[0];
+        int childCount;
+        Set<Long> ids; // узлы, у которых слово заканчивается здесь
+
+        TrieNode child(char c) {
+            for (int i = 0; i < childCount; i++) {
+                if (keys[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        TrieNode childOrCreate(char c) {
+            TrieNode existing = child(c);
+            if (existing != null) return existing;
+            if (childCount == keys.length) {
+                int cap = Math.max(2, childCount * 2);
+                char[] nk = new char[cap];
+                TrieNode[] nc = new TrieNode[cap];
+                System.arraycopy(keys, 0, nk, 0, childCount);
+                System.arraycopy(children, 0, nc, 0, childCount);
+                keys = nk;
+                children = nc;
+            }
+            TrieNode n = new TrieNode();
+            keys[childCount] = c;
+            children[childCount] = n;
+            childCount++;
+            return n;
+        }
+
+        void removeChild(char c) {
+            for (int i = 0; i < childCount; i++) {
+                if (keys[i] == c) {
+                    childCount--;
+                    keys[i] = keys[childCount];
+                    children[i] = children[childCount];
+                    children[childCount] = null;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return childCount == 0 && (ids == null || ids.isEmpty());
+        }
+    }
+
+    private final TrieNode root = new TrieNode();
+
+    void clear() {
+        root.keys = new char[0];
+        root.children = new TrieNode[0];
+        root.childCount = 0;
+        root.ids = null;
+    }
+
+    void add(String word, long id) {
+        if (word == null || word.isEmpty()) return;
+        TrieNode n = root;
+        for (int i = 0; i < word.length(); i++) {
+            n = n.childOrCreate(word.charAt(i));
+        }
+        if (n.ids == null) n.ids = new HashSet<>(2);
+        n.ids.add(id);
+    }
+
+    void remove(String word, long id) {
+        if (word == null || word.isEmpty()) return;
+        remove(root, word, 0, id);
+    }
+
+    /** @return true, если узел опустел и его можно отцепить от родителя */
+    private boolean remove(TrieNode n, String word, int depth, long id) {
+        if (depth == word.length()) {
+            if (n.ids != null) n.ids.remove(id);
+            return n.isEmpty();
+        }
+        char c = word.charAt(depth);
+        TrieNode child = n.child(c);
+        if (child == null) return false;
+        if (remove(child, word, depth + 1, id)) {
+            n.removeChild(c);
+        }
+        return n != root && n.isEmpty();
+    }
+
+    /**
+     * Все номера узлов, у которых есть слово с данным префиксом.
+     */
+    Set<Long> find(String prefix) {
+        Set<Long> out = new HashSet<>();
+        TrieNode n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) {
+            n = n.child(prefix.charAt(i));
+        }
+        if (n != null) collect(n, out);
+        return out;
+    }
+
+    private static void collect(TrieNode n, Set<Long> out) {
+        if (n.ids != null) out.addAll(n.ids);
+        for (int i = 0; i < n.childCount; i++) {
+            collect(n.children[i], out);
+        }
+    }
+}
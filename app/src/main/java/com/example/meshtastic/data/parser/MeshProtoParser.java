@@ -2,6 +2,8 @@ package com.example.meshtastic.data.parser;
 
 import android.util.Log;
 
+import com.example.meshtastic.data.model.NodeInfo;
+
 import org.meshtastic.proto.MeshProtos;
 
 /**
@@ -18,45 +20,86 @@ public class MeshProtoParser {
     public static String parseFromRadioSummary(byte[] data) {
         if (data == null || data.length == 0) return null;
         try {
-            MeshProtos.FromRadio msg = MeshProtos.FromRadio.parseFrom(data);
-            StringBuilder sb = new StringBuilder();
-            sb.append("FromRadio id=").append(msg.getId());
-
-            switch (msg.getPayloadVariantCase()) {
-                case MY_INFO:
-                    // В разных версиях протокола структура MyNodeInfo может отличаться,
-                    // поэтому тут выводим только тип, без доступа к вложенным полям.
-                    sb.append(" MY_INFO");
-                    break;
-                case NODE_INFO:
-                    sb.append(" NODE_INFO");
-                    break;
-                case CONFIG:
-                    sb.append(" CONFIG update");
-                    break;
-                case CHANNEL:
-                    sb.append(" CHANNEL info");
-                    break;
-                case PACKET:
-                    sb.append(" PACKET on port ")
-                      .append(msg.getPacket().getDecoded().getPortnum().name());
-                    break;
-                case LOG_RECORD:
-                    sb.append(" LOG: ").append(msg.getLogRecord().getMessage());
-                    break;
-                case METADATA:
-                    sb.append(" METADATA: ").append(msg.getMetadata().getFirmwareVersion());
-                    break;
-                case PAYLOADVARIANT_NOT_SET:
-                default:
-                    sb.append(" (payload=").append(msg.getPayloadVariantCase().name()).append(")");
-                    break;
-            }
-            return sb.toString();
+            return summarize(MeshProtos.FromRadio.parseFrom(data));
         } catch (Exception e) {
             Log.d(TAG, "Не удалось распарсить FromRadio: " + e.getMessage());
             return null;
         }
     }
-}
 
+    /**
+     * Краткое описание уже разобранного FromRadio — для приёма, где кадр разобран
+     * один раз. Не пишет в android.util.Log.
+     */
+    public static String summarize(MeshProtos.FromRadio msg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("FromRadio id=").append(msg.getId());
+
+        switch (msg.getPayloadVariantCase()) {
+            case MY_INFO:
+                // В разных версиях протокола структура MyNodeInfo может отличаться,
+                // поэтому тут выводим только тип, без доступа к вложенным полям.
+                sb.append(" MY_INFO");
+                break;
+            case NODE_INFO:
+                sb.append(" NODE_INFO");
+                break;
+            case CONFIG:
+                sb.append(" CONFIG update");
+                break;
+            case CHANNEL:
+                sb.append(" CHANNEL info");
+                break;
+            case PACKET:
+                sb.append(" PACKET on port ")
+                  .append(msg.getPacket().getDecoded().getPortnum().name());
+                break;
+            case LOG_RECORD:
+                sb.append(" LOG: ").append(msg.getLogRecord().getMessage());
+                break;
+            case METADATA:
+                sb.append(" METADATA: ").append(msg.getMetadata().getFirmwareVersion());
+                break;
+            case PAYLOADVARIANT_NOT_SET:
+            default:
+                sb.append(" (payload=").append(msg.getPayloadVariantCase().name()).append(")");
+                break;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Переводит NodeInfo из protobuf в модель списка узлов.
+     */
+    public static NodeInfo toNodeInfo(MeshProtos.NodeInfo ni) {
+        NodeInfo n = new NodeInfo();
+        n.setNodeNum(ni.getNum() & 0xffffffffL);
+
+        if (ni.hasUser()) {
+            MeshProtos.User u = ni.getUser();
+            n.setUserId(u.getId());
+            n.setLongName(u.getLongName());
+            n.setShortName(u.getShortName());
+        }
+
+        if (ni.hasPosition()) {
+            MeshProtos.Position p = ni.getPosition();
+            // В protobuf latitudeI/longitudeI - int32 в 1e-7 градуса
+            if (p.hasLatitudeI()) n.setLatitude(p.getLatitudeI() / 1e7);
+            if (p.hasLongitudeI()) n.setLongitude(p.getLongitudeI() / 1e7);
+        }
+
+        n.setSnr(ni.getSnr());
+        n.setLastHeard(ni.getLastHeard());
+        n.setViaMqtt(ni.getViaMqtt());
+
+        if (ni.hasDeviceMetrics() && ni.getDeviceMetrics().hasBatteryLevel()) {
+            n.setBatteryLevel(ni.getDeviceMetrics().getBatteryLevel());
+        }
+
+        if (ni.hasHopsAway()) n.setHopsAway(ni.getHopsAway());
+        if (ni.getChannel() != 0) n.setChannel(ni.getChannel());
+
+        return n;
+    }
+}
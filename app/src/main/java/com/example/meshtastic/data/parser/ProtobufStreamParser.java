@@ -1,80 +1,292 @@
 package com.example.meshtastic.data.parser;
 
-import java.io.ByteArrayOutputStream;
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 /**
- * Парсер length-delimited protobuf сообщений (varint длина + payload).
- * Используется для BLE потока Meshtastic, где сообщения могут приходить порциями.
+ * Парсер потока protobuf-сообщений, приходящих порциями произвольной длины.
+ *
+ * Два вида кадров ({@link Framing}):
+ * <ul>
+ *   <li>{@code VARINT} — varint длина + payload (length-delimited protobuf);</li>
+ *   <li>{@code SERIAL} — последовательный протокол Meshtastic (USB/SPP): стартовые байты
+ *       {@code 0x94 0xC3}, длина uint16 big-endian, payload не длиннее 512 байт. Всё, что
+ *       не похоже на заголовок (например, текстовый отладочный вывод прошивки), пропускается
+ *       до следующей пары стартовых байт.</li>
+ * </ul>
+ *
+ * Байты копятся в одном массиве размером с наибольший кадр: хвост неполного кадра
+ * сдвигается в начало, длинные порции разбираются по частям, так что память парсера
+ * не растёт, что бы ни пришло по каналу.
+ *
+ * Заголовок с невозможной длиной (больше {@code maxFrameSize}, varint длиннее 5 байт)
+ * или payload, который не может начинать protobuf, считается мусором: парсер
+ * выбрасывает байт и ищет следующее правдоподобное начало кадра (в {@code SERIAL} —
+ * следующие стартовые байты). Выброшенные байты считаются в {@link #getDroppedBytes()}
+ * и в метриках {@code parser.*}.
  */
 public class ProtobufStreamParser {
     private static final int MAX_VARINT_BYTES = 5; // uint32
+    private static final long VARINT_INCOMPLETE = -1;
+    private static final long VARINT_MALFORMED = -2;
+
+    public static final int SERIAL_START1 = 0x94;
+    public static final int SERIAL_START2 = 0xC3;
+    public static final int SERIAL_HEADER_SIZE = 4;
+    /** Предел payload в последовательном протоколе прошивки. */
+    public static final int SERIAL_MAX_PAYLOAD = 512;
+    /** Предел кадра по умолчанию — MAX_TO_FROM_RADIO_SIZE прошивки. */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 512;
+
+    private static final Counter DROPPED_BYTES = MetricsRegistry.get().counter("parser.dropped.bytes");
+    private static final Counter RESYNCS = MetricsRegistry.get().counter("parser.resyncs");
+
+    public enum Framing { VARINT, SERIAL }
+
+    /** Получатель готовых кадров; вызывается в потоке, вызвавшем {@code append}. */
+    public interface FrameSink {
+        void onFrame(byte[] frame);
+    }
+
+    private final Framing framing;
+    private final int maxFrameSize;
+    // Неполный кадр всегда короче заголовка + maxFrameSize, так что место есть всегда
+    private final byte[] buffer;
+    // Необработанные байты — buffer[start, end)
+    private int start;
+    private int end;
+
+    private long droppedBytes;
+    private long resyncs;
+    // Выбрасываем подряд идущий мусор — это одна пересинхронизация
+    private boolean resyncing;
 
-    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    public ProtobufStreamParser() {
+        this(Framing.VARINT);
+    }
+
+    public ProtobufStreamParser(Framing framing) {
+        this(framing, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * @param maxFrameSize наибольший payload; в {@code SERIAL} не больше 65535
+     */
+    public ProtobufStreamParser(Framing framing, int maxFrameSize) {
+        if (maxFrameSize <= 0 || (framing == Framing.SERIAL && maxFrameSize > 0xFFFF)) {
+            throw new IllegalArgumentException("maxFrameSize " + maxFrameSize);
+        }
+        this.framing = framing;
+        this.maxFrameSize = maxFrameSize;
+        this.buffer = new byte[maxFrameSize + MAX_VARINT_BYTES + 1];
+    }
+
+    public Framing getFraming() {
+        return framing;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /** Сколько байт выброшено как мусор за всё время. */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /** Сколько раз парсер терял кадры и искал начало следующего. */
+    public synchronized long getResyncs() {
+        return resyncs;
+    }
 
     public synchronized List<byte[]> append(byte[] data) {
+        List<byte[]> frames = new ArrayList<>();
         if (data == null || data.length == 0) {
-            return new ArrayList<>();
+            return frames;
         }
-        buffer.write(data, 0, data.length);
-        return drainFrames();
+        append(data, 0, data.length, frames::add);
+        return frames;
     }
 
-    private List<byte[]> drainFrames() {
-        List<byte[]> frames = new ArrayList<>();
-        byte[] bytes = buffer.toByteArray();
-        int offset = 0;
+    /**
+     * Добавляет порцию байт и отдаёт все кадры, которые стали полными.
+     * {@code data} после возврата можно переиспользовать.
+     * @return число отданных кадров
+     */
+    public synchronized int append(byte[] data, int offset, int length, FrameSink sink) {
+        int count = 0;
+        while (length > 0) {
+            compact();
+            int n = Math.min(length, buffer.length - end);
+            System.arraycopy(data, offset, buffer, end, n);
+            end += n;
+            offset += n;
+            length -= n;
+            count += framing == Framing.SERIAL ? drainSerialFrames(sink) : drainFrames(sink);
+        }
+        return count;
+    }
+
+    /** Сколько байт ждут продолжения кадра. */
+    public synchronized int buffered() {
+        return end - start;
+    }
+
+    /** Забывает недочитанные байты (например, после переподключения); счётчики остаются. */
+    public synchronized void reset() {
+        start = 0;
+        end = 0;
+        resyncing = false;
+    }
 
-        while (offset < bytes.length) {
-            VarintResult lengthResult = readVarint32(bytes, offset);
-            if (lengthResult == null) {
+    /** Заголовок последовательного протокола + payload — для записи в SPP/USB. */
+    public static byte[] encodeSerialFrame(byte[] payload) {
+        if (payload.length > SERIAL_MAX_PAYLOAD) {
+            throw new IllegalArgumentException("payload " + payload.length + " > " + SERIAL_MAX_PAYLOAD);
+        }
+        byte[] out = new byte[SERIAL_HEADER_SIZE + payload.length];
+        out[0] = (byte) SERIAL_START1;
+        out[1] = (byte) SERIAL_START2;
+        out[2] = (byte) (payload.length >> 8);
+        out[3] = (byte) payload.length;
+        System.arraycopy(payload, 0, out, SERIAL_HEADER_SIZE, payload.length);
+        return out;
+    }
+
+    private void compact() {
+        if (start == 0) {
+            return;
+        }
+        int pending = end - start;
+        System.arraycopy(buffer, start, buffer, 0, pending);
+        start = 0;
+        end = pending;
+    }
+
+    private void drop(int count) {
+        if (!resyncing) {
+            resyncing = true;
+            resyncs++;
+            RESYNCS.increment();
+        }
+        droppedBytes += count;
+        DROPPED_BYTES.add(count);
+        start += count;
+    }
+
+    private void emit(FrameSink sink, int frameStart, int frameEnd) {
+        resyncing = false;
+        sink.onFrame(Arrays.copyOfRange(buffer, frameStart, frameEnd));
+        start = frameEnd;
+    }
+
+    private int drainFrames(FrameSink sink) {
+        int count = 0;
+        while (start < end) {
+            long varint = readVarint32(buffer, start, end);
+            if (varint == VARINT_INCOMPLETE) {
                 break;
             }
-            int length = lengthResult.value;
-            int header = lengthResult.bytes;
-            int start = offset + header;
-            int end = start + length;
-            if (length < 0 || end > bytes.length) {
+            int length = (int) varint;
+            int header = (int) (varint >>> 32);
+            if (varint == VARINT_MALFORMED || length < 0 || length > maxFrameSize) {
+                drop(1);
+                continue;
+            }
+            int frameStart = start + header;
+            if (length == 0) {
+                // Пустое сообщение разбирать нечего, а нулевые байты часты в шуме
+                start = frameStart;
+                continue;
+            }
+            if (frameStart < end && !isPlausibleKey(buffer[frameStart] & 0xFF)) {
+                drop(1);
+                continue;
+            }
+            int frameEnd = frameStart + length;
+            if (frameEnd > end) {
                 break;
             }
-            frames.add(Arrays.copyOfRange(bytes, start, end));
-            offset = end;
+            emit(sink, frameStart, frameEnd);
+            count++;
         }
+        return count;
+    }
 
-        if (offset > 0) {
-            buffer.reset();
-            buffer.write(bytes, offset, bytes.length - offset);
+    /**
+     * Может ли байт быть первым ключом protobuf-сообщения: номер поля не 0 и тип
+     * varint, fixed64, length-delimited или fixed32 (группы в proto3 не встречаются).
+     */
+    private static boolean isPlausibleKey(int b) {
+        int wireType = b & 0x07;
+        return (b >> 3) != 0 && (wireType == 0 || wireType == 1 || wireType == 2 || wireType == 5);
+    }
+
+    private int drainSerialFrames(FrameSink sink) {
+        int count = 0;
+        while (end - start >= SERIAL_HEADER_SIZE) {
+            if ((buffer[start] & 0xFF) != SERIAL_START1 || (buffer[start + 1] & 0xFF) != SERIAL_START2) {
+                drop(nextSerialStart(start + 1) - start);
+                continue;
+            }
+            int length = ((buffer[start + 2] & 0xFF) << 8) | (buffer[start + 3] & 0xFF);
+            if (length > maxFrameSize) {
+                // Стартовые байты оказались внутри мусора — ищем следующие
+                drop(nextSerialStart(start + 1) - start);
+                continue;
+            }
+            int frameStart = start + SERIAL_HEADER_SIZE;
+            int frameEnd = frameStart + length;
+            if (frameEnd > end) {
+                break;
+            }
+            emit(sink, frameStart, frameEnd);
+            count++;
         }
-        return frames;
+        // Мусор без единого 0x94 не держим до следующей порции
+        if (end - start < SERIAL_HEADER_SIZE && start < end && (buffer[start] & 0xFF) != SERIAL_START1) {
+            drop(nextSerialStart(start + 1) - start);
+        }
+        return count;
     }
 
-    private static VarintResult readVarint32(byte[] bytes, int offset) {
+    /**
+     * Позиция следующего {@code 0x94} не раньше {@code from}; одиночный {@code 0x94} в самом
+     * конце оставляем — второй стартовый байт может прийти следующей порцией.
+     */
+    private int nextSerialStart(int from) {
+        for (int i = from; i < end; i++) {
+            if ((buffer[i] & 0xFF) == SERIAL_START1 && (i + 1 == end || (buffer[i + 1] & 0xFF) == SERIAL_START2)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return значение в младших 32 битах и длину varint в старших;
+     *         {@link #VARINT_INCOMPLETE}, если varint ещё не пришёл целиком,
+     *         {@link #VARINT_MALFORMED}, если он длиннее 5 байт
+     */
+    private static long readVarint32(byte[] bytes, int offset, int limit) {
         int result = 0;
         int shift = 0;
         for (int i = 0; i < MAX_VARINT_BYTES; i++) {
             int index = offset + i;
-            if (index >= bytes.length) {
-                return null;
+            if (index >= limit) {
+                return VARINT_INCOMPLETE;
             }
             int b = bytes[index] & 0xFF;
             result |= (b & 0x7F) << shift;
             if ((b & 0x80) == 0) {
-                return new VarintResult(result, i + 1);
+                return ((long) (i + 1) << 32) | (result & 0xFFFFFFFFL);
             }
             shift += 7;
         }
-        return null;
-    }
-
-    private static class VarintResult {
-        private final int value;
-        private final int bytes;
-
-        private VarintResult(int value, int bytes) {
-            this.value = value;
-            this.bytes = bytes;
-        }
+        return VARINT_MALFORMED;
     }
 }
@@ -0,0 +1,130 @@
+package com.example.meshtastic.data.position;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.meshtastic.util.LocationHelper;
+
+import org.meshtastic.proto.MeshProtos;
+
+/**
+ * Рассылка позиции телефона в mesh по правилам {@link SmartPositionPolicy}.
+ *
+ * Подстраивает частоту GPS под скорость движения и отправляет пакет только когда
+ * политика считает это оправданным. Все вызовы — из главного потока.
+ */
+public class PositionBroadcaster implements LocationHelper.LocationCallback {
+
+    private static final String TAG = "PositionBroadcaster";
+
+    // Перерегистрируем GPS только при заметном изменении интервала, чтобы не дёргать LocationManager
+    private static final float INTERVAL_CHANGE_THRESHOLD = 0.25f;
+
+    public interface Sender {
+        boolean sendPosition(MeshProtos.Position position);
+    }
+
+    private final LocationHelper locationHelper;
+    private final SmartPositionPolicy policy = new SmartPositionPolicy();
+    private final Sender sender;
+
+    private boolean running = false;
+    private int seqNumber = 0;
+
+    // Предыдущий фикс — для оценки скорости, если GPS её не отдаёт
+    private boolean hasPrevFix = false;
+    private double prevLat;
+    private double prevLon;
+    private long prevFixAt;
+
+    public PositionBroadcaster(Context context, Sender sender) {
+        this.locationHelper = new LocationHelper(context.getApplicationContext());
+        this.sender = sender;
+    }
+
+    public SmartPositionPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        locationHelper.setUpdateInterval(policy.recommendedGpsIntervalMs(Float.NaN), policy.recommendedGpsDistanceM());
+        locationHelper.startLocationUpdates(this);
+        Log.d(TAG, "Рассылка позиции запущена");
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        hasPrevFix = false;
+        locationHelper.stopLocationUpdates();
+        Log.d(TAG, "Рассылка позиции остановлена");
+    }
+
+    @Override
+    public void onLocationReceived(android.location.Location location) {
+        if (!running || location == null) return;
+
+        long now = SystemClock.elapsedRealtime();
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
+        float speed = location.hasSpeed() ? location.getSpeed() : estimateSpeed(lat, lon, now);
+        float bearing = location.hasBearing() ? location.getBearing() : Float.NaN;
+
+        hasPrevFix = true;
+        prevLat = lat;
+        prevLon = lon;
+        prevFixAt = now;
+
+        adaptGpsInterval(speed);
+
+        if (!policy.shouldSend(lat, lon, speed, bearing, now)) return;
+
+        MeshProtos.Position position = buildPosition(location, speed, bearing);
+        if (sender.sendPosition(position)) {
+            policy.onSent(lat, lon, bearing, now);
+            Log.d(TAG, "Позиция отправлена: " + policy.getLastReason());
+        }
+    }
+
+    private void adaptGpsInterval(float speed) {
+        long current = locationHelper.getUpdateInterval();
+        long wanted = policy.recommendedGpsIntervalMs(speed);
+        if (Math.abs(wanted - current) > current * INTERVAL_CHANGE_THRESHOLD) {
+            locationHelper.setUpdateInterval(wanted, policy.recommendedGpsDistanceM());
+        }
+    }
+
+    private float estimateSpeed(double lat, double lon, long now) {
+        if (!hasPrevFix || now <= prevFixAt) return Float.NaN;
+        com.example.meshtastic.data.model.Location prev = new com.example.meshtastic.data.model.Location(prevLat, prevLon);
+        double meters = prev.distanceTo(new com.example.meshtastic.data.model.Location(lat, lon));
+        return (float) (meters * 1000.0 / (now - prevFixAt));
+    }
+
+    private MeshProtos.Position buildPosition(android.location.Location location, float speed, float bearing) {
+        int precision = policy.getPrecisionBits();
+        MeshProtos.Position.Builder b = MeshProtos.Position.newBuilder()
+                .setLatitudeI(policy.quantize(SmartPositionPolicy.toFixed(location.getLatitude())))
+                .setLongitudeI(policy.quantize(SmartPositionPolicy.toFixed(location.getLongitude())))
+                .setTime((int) (System.currentTimeMillis() / 1000))
+                .setLocationSource(MeshProtos.Position.LocSource.LOC_EXTERNAL)
+                .setPrecisionBits(precision)
+                .setNextUpdate((int) (policy.getMaxIntervalMs() / 1000))
+                .setSeqNumber(++seqNumber);
+
+        // Высоту, скорость и курс передаём только при полной точности, иначе они выдают больше, чем координаты
+        if (precision >= 32) {
+            if (location.hasAltitude()) b.setAltitude((int) Math.round(location.getAltitude()));
+            if (!Float.isNaN(speed)) b.setGroundSpeed(Math.round(speed));
+            if (!Float.isNaN(bearing)) b.setGroundTrack(Math.round(bearing * 100f));
+        }
+        return b.build();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.meshtastic.data.position;
+
+import com.example.meshtastic.data.model.Location;
+import com.example.meshtastic.util.Constants;
+
+/**
+ * Логика "умной" рассылки своей позиции (по мотивам smart position в прошивке и SmartBeaconing APRS).
+ *
+ * Решает две задачи:
+ * - когда отправлять позицию в mesh (пройденная дистанция, поворот, время, бюджет эфира);
+ * - как часто просить GPS о новых фиксах в зависимости от скорости.
+ *
+ * Класс без Android-зависимостей и без потоков: все вызовы ожидаются из одного потока.
+ */
+public class SmartPositionPolicy {
+
+    public enum Reason {
+        NONE,
+        FIRST_FIX,
+        DISTANCE,
+        TURN,
+        HEARTBEAT
+    }
+
+    // Параметры (значения по умолчанию — как в прошивке/Constants)
+    private long minIntervalMs = Constants.SMART_POSITION_MIN_INTERVAL;
+    private long maxIntervalMs = Constants.SMART_POSITION_MAX_INTERVAL;
+    private float minDistanceM = Constants.SMART_POSITION_MIN_DISTANCE;
+    private float lowSpeedMps = 1.0f;      // ниже — считаем, что стоим
+    private float highSpeedMps = 25.0f;    // выше — шлём с минимальным интервалом
+    private float minTurnAngleDeg = 28f;   // базовый порог поворота
+    private float turnSlope = 12f;         // добавка к порогу: turnSlope / speed (град * м/с)
+    // ModuleSettings.position_precision канала; пишет поток разбора, читает главный
+    private volatile int precisionBits = 32;
+
+    // Бюджет эфира: token bucket в миллисекундах airtime
+    private float airtimeBudgetPercent = Constants.SMART_POSITION_AIRTIME_BUDGET_PERCENT;
+    private long packetAirtimeMs = Constants.SMART_POSITION_PACKET_AIRTIME_MS;
+    private double airtimeTokensMs;
+    private long lastRefillAt = -1;
+
+    // Состояние последней отправки
+    private boolean hasSent = false;
+    private long lastSentAt;
+    private int lastSentLatI;
+    private int lastSentLonI;
+    private final Location lastSentLocation = new Location();
+    private float lastSentBearing = Float.NaN;
+
+    private Reason lastReason = Reason.NONE;
+
+    /**
+     * Решает, нужно ли отправлять позицию для нового фикса.
+     * @param speedMps скорость в м/с, или NaN если неизвестна
+     * @param bearingDeg курс в градусах, или NaN если неизвестен
+     */
+    public boolean shouldSend(double latitude, double longitude, float speedMps, float bearingDeg, long nowMs) {
+        lastReason = Reason.NONE;
+        if (precisionBits <= 0) return false; // на канале отключена передача позиции
+
+        refillAirtime(nowMs);
+
+        Reason reason = evaluate(latitude, longitude, speedMps, bearingDeg, nowMs);
+        if (reason == Reason.NONE) return false;
+
+        // Пульс отправляем даже без движения, остальные триггеры — только если
+        // изменение видно с той точностью, с которой мы передаём координаты.
+        if (reason != Reason.HEARTBEAT && reason != Reason.FIRST_FIX
+                && quantize(toFixed(latitude)) == quantize(lastSentLatI)
+                && quantize(toFixed(longitude)) == quantize(lastSentLonI)) {
+            return false;
+        }
+
+        if (airtimeTokensMs < packetAirtimeMs) return false;
+
+        lastReason = reason;
+        return true;
+    }
+
+    /**
+     * Фиксирует факт отправки (вызывать после успешной передачи в радио).
+     */
+    public void onSent(double latitude, double longitude, float bearingDeg, long nowMs) {
+        hasSent = true;
+        lastSentAt = nowMs;
+        lastSentLatI = toFixed(latitude);
+        lastSentLonI = toFixed(longitude);
+        lastSentLocation.setLatitude(latitude);
+        lastSentLocation.setLongitude(longitude);
+        lastSentBearing = bearingDeg;
+        airtimeTokensMs -= packetAirtimeMs;
+    }
+
+    /**
+     * Рекомендуемый интервал запроса GPS: стоим — редко, едем — так, чтобы
+     * между фиксами проходить примерно половину минимальной дистанции.
+     */
+    public long recommendedGpsIntervalMs(float speedMps) {
+        if (Float.isNaN(speedMps) || speedMps < lowSpeedMps) {
+            return Constants.SMART_POSITION_GPS_SLOW_INTERVAL;
+        }
+        long ms = (long) (minDistanceM / 2f / speedMps * 1000f);
+        return clamp(ms, Constants.SMART_POSITION_GPS_FAST_INTERVAL, Constants.SMART_POSITION_GPS_SLOW_INTERVAL);
+    }
+
+    /**
+     * Рекомендуемый минимальный шаг GPS (м): половина минимальной дистанции отправки.
+     */
+    public float recommendedGpsDistanceM() {
+        return minDistanceM / 2f;
+    }
+
+    /**
+     * Интервал отправки, соответствующий скорости (SmartBeaconing).
+     */
+    long beaconIntervalMs(float speedMps) {
+        if (Float.isNaN(speedMps) || speedMps <= lowSpeedMps) return maxIntervalMs;
+        if (speedMps >= highSpeedMps) return minIntervalMs;
+        long ms = (long) (minIntervalMs * highSpeedMps / speedMps);
+        return clamp(ms, minIntervalMs, maxIntervalMs);
+    }
+
+    private Reason evaluate(double latitude, double longitude, float speedMps, float bearingDeg, long nowMs) {
+        if (!hasSent) return Reason.FIRST_FIX;
+
+        long elapsed = nowMs - lastSentAt;
+        if (elapsed >= maxIntervalMs) return Reason.HEARTBEAT;
+        if (elapsed < minIntervalMs) return Reason.NONE;
+
+        // Поворот: порог тем меньше, чем выше скорость
+        if (!Float.isNaN(speedMps) && speedMps > lowSpeedMps
+                && !Float.isNaN(bearingDeg) && !Float.isNaN(lastSentBearing)) {
+            float threshold = minTurnAngleDeg + turnSlope / speedMps;
+            if (angleDelta(bearingDeg, lastSentBearing) >= threshold) return Reason.TURN;
+        }
+
+        Location current = new Location(latitude, longitude);
+        double moved = lastSentLocation.distanceTo(current);
+        if (moved >= minDistanceM && elapsed >= beaconIntervalMs(speedMps)) return Reason.DISTANCE;
+
+        return Reason.NONE;
+    }
+
+    private void refillAirtime(long nowMs) {
+        double capacity = airtimeCapacityMs();
+        if (lastRefillAt < 0) {
+            airtimeTokensMs = capacity;
+        } else if (nowMs > lastRefillAt) {
+            airtimeTokensMs = Math.min(capacity,
+                    airtimeTokensMs + (nowMs - lastRefillAt) * airtimeBudgetPercent / 100.0);
+        }
+        lastRefillAt = nowMs;
+    }
+
+    /** Ёмкость корзины — бюджет за одно окно maxInterval, но не меньше одного пакета. */
+    private double airtimeCapacityMs() {
+        return Math.max(packetAirtimeMs, maxIntervalMs * airtimeBudgetPercent / 100.0);
+    }
+
+    /**
+     * Обрезает координату до precisionBits так же, как прошивка:
+     * старшие биты сохраняются, младшие заменяются серединой ячейки.
+     */
+    int quantize(int coordinateI) {
+        int bits = precisionBits;
+        if (bits >= 32) return coordinateI;
+        int mask = 0xFFFFFFFF << (32 - bits);
+        return (coordinateI & mask) + (1 << (31 - bits));
+    }
+
+    static int toFixed(double degrees) {
+        return (int) Math.round(degrees * 1e7);
+    }
+
+    private static float angleDelta(float a, float b) {
+        float d = Math.abs(a - b) % 360f;
+        return d > 180f ? 360f - d : d;
+    }
+
+    private static long clamp(long v, long min, long max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    // -------------------- Настройки --------------------
+
+    public Reason getLastReason() {
+        return lastReason;
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public void setPrecisionBits(int precisionBits) {
+        this.precisionBits = Math.max(0, Math.min(32, precisionBits));
+    }
+
+    public void setMinIntervalMs(long minIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    public void setMaxIntervalMs(long maxIntervalMs) {
+        this.maxIntervalMs = maxIntervalMs;
+    }
+
+    public void setMinDistanceM(float minDistanceM) {
+        this.minDistanceM = minDistanceM;
+    }
+
+    public long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    public void setAirtimeBudgetPercent(float airtimeBudgetPercent) {
+        this.airtimeBudgetPercent = airtimeBudgetPercent;
+    }
+
+    public void setPacketAirtimeMs(long packetAirtimeMs) {
+        this.packetAirtimeMs = packetAirtimeMs;
+    }
+}
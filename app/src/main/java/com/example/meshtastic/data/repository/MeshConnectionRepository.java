@@ -2,25 +2,70 @@ package com.example.meshtastic.data.repository;
 
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
-
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.meshtastic.bluetooth.BleManager;
+import com.example.meshtastic.data.config.ConfigSnapshotStore;
+import com.example.meshtastic.data.config.DeviceConfigManager;
+import com.example.meshtastic.data.ingest.InboundProcessor;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.log.LogRingBuffer;
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.metrics.PacketTrace;
 import com.example.meshtastic.data.model.DeviceStatus;
+import com.example.meshtastic.data.model.Message;
 import com.example.meshtastic.data.model.NodeInfo;
-import com.example.meshtastic.data.parser.MeshProtoParser;
-
-import org.meshtastic.proto.ChannelProtos;
+import com.example.meshtastic.data.model.SettingsDraft;
+import com.example.meshtastic.data.nodes.NodeIndex;
+import com.example.meshtastic.data.position.PositionBroadcaster;
+import com.example.meshtastic.data.send.LoRaAirtime;
+import com.example.meshtastic.data.send.OutboundScheduler;
+import com.example.meshtastic.data.send.ReliableSendEngine;
+import com.example.meshtastic.data.send.SendResult;
+import com.example.meshtastic.data.storage.SettingsStore;
+import com.example.meshtastic.data.synthetic.TrafficGenerator;
+import com.example.meshtastic.data.text.TextPayload;
+import com.example.meshtastic.data.topology.LinkGraph;
+import com.example.meshtastic.data.topology.TracerouteScheduler;
+import com.example.meshtastic.data.transfer.ChunkedTransferEngine;
+import com.example.meshtastic.data.xmodem.XModemTransfer;
+import com.example.meshtastic.service.BluetoothConnectionService;
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.ConfigProtos;
 import org.meshtastic.proto.MeshProtos;
 import org.meshtastic.proto.Portnums;
-
+import org.meshtastic.proto.XmodemProtos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Единая точка управления BLE соединением с Meshtastic.
@@ -28,6 +73,17 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class MeshConnectionRepository {
 
+    private static final String TAG = "MeshConnectionRepository";
+
+    /**
+     * Инкрементальные изменения таблицы узлов (вызывается в главном потоке).
+     * Для экранов, которым нужен не весь список на каждый пакет, а только изменившийся узел.
+     */
+    public interface NodeChangeListener {
+        void onNodeChanged(NodeInfo node);
+        void onNodesCleared();
+    }
+
     public enum State {
         DISCONNECTED,
         SCANNING,
@@ -55,16 +111,105 @@ public class MeshConnectionRepository {
     private final MutableLiveData<byte[]> lastRx = new MutableLiveData<>(null);
     private final MutableLiveData<String> lastFromRadioSummary = new MutableLiveData<>(null);
     private final MutableLiveData<List<NodeInfo>> nodes = new MutableLiveData<>(new ArrayList<>());
-
-    private final Map<Long, NodeInfo> nodeMap = new ConcurrentHashMap<>();
+    private final MutableLiveData<Message> lastTextMessage = new MutableLiveData<>(null);
+
+    private final NodeIndex nodeIndex = new NodeIndex();
+    private final LogRingBuffer radioLog = new LogRingBuffer();
+    private final FrameHistory frameHistory = new FrameHistory();
+    private final LinkGraph linkGraph = new LinkGraph();
+    private final MutableLiveData<TracerouteScheduler.Progress> tracerouteProgress = new MutableLiveData<>(null);
+    private volatile NodeIndex.SortKey nodeSortKey = NodeIndex.SortKey.LAST_HEARD;
+    private volatile String nodeFilter = "";
+    private final List<NodeChangeListener> nodeChangeListeners = new CopyOnWriteArrayList<>();
     private final Set<String> seenAddresses = new HashSet<>();
 
     private int wantConfigId = 1;
 
+    // Broadcast-адрес Meshtastic (NODENUM_BROADCAST)
+    private static final int BROADCAST_ADDR = 0xFFFFFFFF;
+
+    private final PositionBroadcaster positionBroadcaster;
+    private volatile boolean positionSharingEnabled;
+    // Радио прислало config_complete_id: каналы и точность позиции известны
+    private volatile boolean radioReady;
+    // Сжатие исходящих Unishox2 выключено, пока кодек не сверен с эталонными векторами
+    // unishox2_compress_simple (Unishox2Test.referenceVectors)
+    private static final boolean COMPRESS_OUTBOUND_TEXT = false;
+
+    private final ReliableSendEngine sendEngine = new ReliableSendEngine(this::sendToRadio);
+    private final OutboundScheduler outbound;
+    private final DeviceConfigManager deviceConfig = new DeviceConfigManager(this::sendToRadio);
+    private final ConfigSnapshotStore snapshots;
+    private final ScheduledExecutorService snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ConfigSnapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    // Изменения кэша настроек копятся и пишутся на диск одним файлом не чаще раза в SNAPSHOT_FLUSH_MS
+    private static final long SNAPSHOT_FLUSH_MS = 5_000;
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Поток разбора FromRadio — один на всё время жизни процесса, чтобы кадры никогда не
+    // разбирались в двух потоках сразу. Запускается при первом соединении, не при старте
+    private HandlerThread ingestThread;
+    private Handler ingestHandler;
+    private final Context appContext;
+    private final SettingsStore settingsStore;
+    // Адрес радио, чей снимок сейчас в кэше настроек
+    private volatile String snapshotAddress;
+    // С радио уже пошёл живой поток want_config — снимок с диска его не перетирает
+    private volatile boolean liveConfigStarted;
+    private final ChunkedTransferEngine transfers = new ChunkedTransferEngine(new ChunkedTransferEngine.Transport() {
+        @Override
+        public boolean send(int to, int channel, int portnum, ByteString payload) {
+            return sendData(to, channel, portnum, payload);
+        }
+
+        @Override
+        public boolean hasQueued() {
+            return outbound.getPendingCount(OutboundScheduler.TrafficClass.TRANSFER) > 0;
+        }
+    });
+    private final TracerouteScheduler traceroutes;
+    private final XModemTransfer xmodem = new XModemTransfer(
+            p -> sendToRadio(MeshProtos.ToRadio.newBuilder().setXmodemPacket(p).build()));
+
+    // Метрики публикации (экран диагностики); метрики приёма — в InboundProcessor
+    private static final Counter PUBLISH_NODES = MetricsRegistry.get().counter("livedata.publish.nodes");
+    private static final Counter PUBLISH_STATUS = MetricsRegistry.get().counter("livedata.publish.status");
+    // Входящий путь без Android; вызывается только в потоке разбора
+    private final InboundProcessor inbound;
+    // Синтетический трафик вместо радио (бенчмарки, отладка); null — обычный режим
+    private static final long SYNTHETIC_TICK_MS = 50;
+    private static final int SYNTHETIC_INITIAL_PER_TICK = 250;
+    private volatile TrafficGenerator syntheticTraffic;
+    private volatile int syntheticFramesPerTick;
+
     private final MutableLiveData<DeviceStatus> deviceStatus = new MutableLiveData<>(new DeviceStatus());
+    // Последнее отправленное состояние; опубликованный объект больше не меняется,
+    // каждое обновление — новая копия (guarded by this)
+    private DeviceStatus latestStatus = new DeviceStatus();
 
     private MeshConnectionRepository(Context context) {
+        appContext = context;
         bleManager = new BleManager(context);
+        // BLE transport: чистый protobuf БЕЗ length-delimited framing
+        // (length-delimited нужен только для Serial)
+        outbound = new OutboundScheduler(msg -> {
+            byte[] bytes = msg.toByteArray();
+            frameHistory.record(FrameHistory.Direction.TX, bytes, System.currentTimeMillis());
+            bleManager.write(bytes);
+        });
+        positionBroadcaster = new PositionBroadcaster(context, this::sendPosition);
+        traceroutes = new TracerouteScheduler(this::sendToRadio, linkGraph, outbound::getAirtime,
+                sendEngine::generatePacketId);
+        inbound = new InboundProcessor(frameHistory, radioLog, nodeIndex, linkGraph, deviceConfig, new InboundSink());
+        snapshots = new ConfigSnapshotStore(new File(context.getFilesDir(), "snapshots"));
+        settingsStore = new SettingsStore(context);
+        positionSharingEnabled = settingsStore.isPositionSharingEnabled();
+        // Статус и настройки последнего радио — сразу из снимка, не дожидаясь BLE
+        String lastAddress = settingsStore.getLastDeviceAddress();
+        if (!lastAddress.isEmpty()) loadSnapshot(lastAddress);
     }
 
     public LiveData<State> getState() {
@@ -95,6 +240,97 @@ public class MeshConnectionRepository {
         return nodes;
     }
 
+    /** Последнее принятое текстовое сообщение (сжатые уже распакованы). */
+    public LiveData<Message> getLastTextMessage() {
+        return lastTextMessage;
+    }
+
+    /**
+     * Журнал прошивки (LogRecord): последние строки, читается без блокировок.
+     */
+    public LogRingBuffer getRadioLog() {
+        return radioLog;
+    }
+
+    /**
+     * Последние сырые кадры обоих направлений для инспектора пакетов.
+     */
+    public FrameHistory getFrameHistory() {
+        return frameHistory;
+    }
+
+    public void addNodeChangeListener(NodeChangeListener listener) {
+        if (listener != null) nodeChangeListeners.add(listener);
+    }
+
+    public void removeNodeChangeListener(NodeChangeListener listener) {
+        nodeChangeListeners.remove(listener);
+    }
+
+    /** Текущее содержимое таблицы узлов без фильтра (для первичной загрузки). */
+    public List<NodeInfo> getNodeSnapshot() {
+        return new ArrayList<>(nodeIndex.values());
+    }
+
+    /**
+     * Граф связей сети (NeighborInfo, traceroute, прямой приём) с маршрутами и нагрузкой
+     * на ретрансляторы. Потокобезопасен.
+     */
+    public LinkGraph getLinkGraph() {
+        return linkGraph;
+    }
+
+    /**
+     * Трассирует набор узлов с ограничением числа запросов и темпа по эфиру
+     * (см. {@link TracerouteScheduler}); маршруты сразу попадают в {@link #getLinkGraph()}.
+     */
+    public void startTraceroutes(Collection<Long> targets, TracerouteScheduler.Listener listener) {
+        traceroutes.start(targets, new TracerouteScheduler.Listener() {
+            @Override
+            public void onResult(TracerouteScheduler.Result result) {
+                if (listener != null) listener.onResult(result);
+            }
+
+            @Override
+            public void onProgress(TracerouteScheduler.Progress progress) {
+                tracerouteProgress.postValue(progress);
+                if (listener != null) listener.onProgress(progress);
+            }
+        });
+    }
+
+    public void cancelTraceroutes() {
+        traceroutes.cancel();
+    }
+
+    /** Прогресс текущего задания трассировки (null — ещё не запускалось). */
+    public LiveData<TracerouteScheduler.Progress> getTracerouteProgress() {
+        return tracerouteProgress;
+    }
+
+    public NodeIndex.SortKey getNodeSortKey() {
+        return nodeSortKey;
+    }
+
+    public String getNodeFilter() {
+        return nodeFilter;
+    }
+
+    /**
+     * Меняет сортировку и фильтр списка узлов. Пересортировки таблицы не происходит:
+     * список берётся из готовых индексов {@link NodeIndex}.
+     */
+    public void setNodeQuery(NodeIndex.SortKey sortKey, String filter) {
+        nodeSortKey = sortKey != null ? sortKey : NodeIndex.SortKey.LAST_HEARD;
+        nodeFilter = filter != null ? filter : "";
+        publishNodes();
+    }
+
+    private void publishNodes() {
+        PUBLISH_NODES.increment();
+        nodes.postValue(nodeIndex.query(nodeSortKey, nodeFilter));
+    }
+
     public LiveData<DeviceStatus> getDeviceStatus() {
         return deviceStatus;
     }
@@ -166,6 +402,18 @@ public class MeshConnectionRepository {
 
         state.postValue(State.CONNECTING);
         statusText.postValue("Подключение к " + safeName(device) + "…");
+        // Кэш настроек относится к конкретному радио: берём его снимок, живой поток уточнит
+        liveConfigStarted = false;
+        radioReady = false;
+        settingsStore.setLastDeviceAddress(device.getAddress());
+        if (!device.getAddress().equals(snapshotAddress)) {
+            flushSnapshot();
+            deviceConfig.getCache().clear();
+            loadSnapshot(device.getAddress());
+        }
+        // Приём живёт в сервисе переднего плана, чтобы не засыпать вместе с экраном
+        ContextCompat.startForegroundService(appContext, new Intent(appContext, BluetoothConnectionService.class));
+        ingestHandler();
 
         bleManager.connect(device, new BleManager.ConnectionListener() {
             @Override
@@ -176,12 +424,23 @@ public class MeshConnectionRepository {
                     s.setState(State.CONNECTED.name());
                     s.setStatusText("Подключено: " + safeName(device));
                 });
-                // Сразу попросим конфиг/инфо, чтобы устройство начало отвечать FromRadio
+                // Сразу попросим конфиг/инфо, чтобы устройство начало отвечать FromRadio;
+                // позиция пойдёт после config_complete_id, когда известна её точность на канале
                 requestConfig();
             }
 
             @Override
             public void onDisconnected() {
+                // Разрыв, заказанный startSyntheticTraffic: состоянием уже владеет синтетика
+                if (syntheticTraffic != null) return;
+                radioReady = false;
+                stopService();
+                positionBroadcaster.stop();
+                sendEngine.cancelAll();
+                transfers.cancelAll();
+                traceroutes.cancel();
+                xmodem.abort("соединение потеряно");
+                outbound.clear();
                 state.postValue(State.DISCONNECTED);
                 statusText.postValue("Отключено");
                 updateDeviceStatus(s -> {
@@ -199,22 +458,91 @@ public class MeshConnectionRepository {
                     s.setStatusText(message != null ? message : "Ошибка");
                 });
             }
-        }, data -> {
-            lastRx.postValue(data);
-            updateDeviceStatus(s -> {
-                s.setLastRxAt(System.currentTimeMillis());
-                s.setLastRxHex(toHex(data));
-            });
-            handleFromRadio(data);
+        }, this::onRadioBytes);
+    }
+
+    /** Кадр FromRadio с радио (или из синтетической сети); вызывается в потоке разбора. */
+    private void onRadioBytes(byte[] data) {
+        if (inbound.onFrame(data, System.currentTimeMillis())) traceRender(data);
+    }
+
+    /**
+     * Последняя точка трассировки — первый кадр отрисовки после того, как главный поток
+     * разобрал уже отправленные postValue.
+     */
+    private void traceRender(byte[] data) {
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(t -> PacketTrace.rendered(data)));
+    }
+
+    /**
+     * Подменяет радио синтетическим трафиком ({@link TrafficGenerator}) — для бенчмарков
+     * и отладки. Кадры идут тем же путём, что и с BLE, в потоке разбора.
+     * Соединение с радио, если оно есть, сначала разрывается — иначе живые и синтетические
+     * кадры смешались бы в одной таблице узлов. Снимок настроек реального радио при этом
+     * не читается и не перезаписывается. Останавливается через {@link #disconnect()}.
+     * @param framesPerSecond кадров в секунду после начальной загрузки
+     */
+    public void startSyntheticTraffic(TrafficGenerator.Config config, int framesPerSecond) {
+        disconnect();
+        flushSnapshot();
+        snapshotAddress = null;
+        liveConfigStarted = true;
+        deviceConfig.getCache().clear();
+
+        TrafficGenerator generator = new TrafficGenerator(config);
+        syntheticFramesPerTick = Math.max(1, (int) (framesPerSecond * SYNTHETIC_TICK_MS / 1000));
+        syntheticTraffic = generator;
+        String text = "Синтетическая сеть: " + generator.getMesh().getNodeCount() + " узлов";
+        state.postValue(State.CONNECTED);
+        statusText.postValue(text);
+        updateDeviceStatus(s -> {
+            s.setState(State.CONNECTED.name());
+            s.setDeviceName("Synthetic");
+            s.setStatusText(text);
         });
+        ContextCompat.startForegroundService(appContext, new Intent(appContext, BluetoothConnectionService.class));
+        Handler ingest = ingestHandler();
+        ingest.removeCallbacks(syntheticTick);
+        ingest.post(syntheticTick);
+    }
+
+    private final Runnable syntheticTick = new Runnable() {
+        @Override
+        public void run() {
+            TrafficGenerator generator = syntheticTraffic;
+            if (generator == null) return;
+            long now = System.currentTimeMillis();
+            if (generator.hasInitialFrames()) {
+                for (int i = 0; i < SYNTHETIC_INITIAL_PER_TICK && generator.hasInitialFrames(); i++) {
+                    onRadioBytes(generator.next(now));
+                }
+            } else {
+                generator.feed(MeshConnectionRepository.this::onRadioBytes, syntheticFramesPerTick, now);
+            }
+            ingestHandler().postDelayed(this, SYNTHETIC_TICK_MS);
+        }
+    };
+
+    public boolean isSyntheticTrafficRunning() {
+        return syntheticTraffic != null;
     }
 
     public void disconnect() {
+        syntheticTraffic = null;
+        radioReady = false;
+        stopService();
+        positionBroadcaster.stop();
+        sendEngine.cancelAll();
+        transfers.cancelAll();
+        traceroutes.cancel();
+        xmodem.abort("отключено");
+        outbound.clear();
         bleManager.disconnect();
         state.postValue(State.DISCONNECTED);
         statusText.postValue("Отключено");
         // можно очистить список узлов при отключении
-        nodeMap.clear();
+        nodeIndex.clear();
+        for (NodeChangeListener l : nodeChangeListeners) l.onNodesCleared();
         nodes.postValue(new ArrayList<>());
     }
 
@@ -222,57 +550,170 @@ public class MeshConnectionRepository {
         if (data == null) return false;
         State st = state.getValue();
         if (st != State.CONNECTED) return false;
+        frameHistory.record(FrameHistory.Direction.TX, data, System.currentTimeMillis());
         bleManager.write(data);
         return true;
     }
 
+    /**
+     * Ставит сообщение в очередь отправки. В радио оно уйдёт, когда позволят
+     * QueueStatus и бюджет эфира (см. {@link OutboundScheduler}).
+     * @return false, если нет соединения или очередь класса трафика переполнена
+     */
     public boolean sendToRadio(MeshProtos.ToRadio msg) {
         if (msg == null) return false;
         State st = state.getValue();
         if (st != State.CONNECTED) return false;
 
-        // BLE transport: чистый protobuf БЕЗ length-delimited framing
-        // (length-delimited нужен только для Serial)
-        byte[] raw = msg.toByteArray();
+        return outbound.enqueue(msg);
+    }
 
-        bleManager.write(raw);
-        return true;
+    /**
+     * Отправляет пакет с want_ack и ждёт ACK/NAK от сети (см. {@link ReliableSendEngine}).
+     * Future завершается в главном потоке.
+     */
+    public CompletableFuture<SendResult> sendReliable(MeshProtos.MeshPacket packet) {
+        return sendEngine.send(packet);
     }
 
-    public boolean applyChannelPsk(String channelName, String pskText) {
-        if (channelName == null || channelName.trim().isEmpty()) return false;
-        if (pskText == null || pskText.trim().isEmpty()) return false;
-        if (state.getValue() != State.CONNECTED) return false;
+    /**
+     * Текстовое сообщение с подтверждением доставки. При включённом сжатии уходит
+     * на TEXT_MESSAGE_COMPRESSED_APP, если это сокращает время в эфире.
+     * @param to номер узла или broadcast (0xFFFFFFFF)
+     */
+    public CompletableFuture<SendResult> sendText(int to, int channel, String text) {
+        MeshProtos.MeshPacket packet = MeshProtos.MeshPacket.newBuilder()
+                .setTo(to)
+                .setChannel(channel)
+                .setPriority(MeshProtos.MeshPacket.Priority.RELIABLE)
+                .setDecoded(TextPayload.encode(text, COMPRESS_OUTBOUND_TEXT, outbound.getAirtime()))
+                .build();
+        return sendReliable(packet);
+    }
 
-        byte[] pskBytes = pskText.trim().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Передаёт данные узлу кусками ChunkedPayload со скользящим окном
+     * (см. {@link ChunkedTransferEngine}). Итог и прогресс — в callback в главном потоке.
+     * @return payload_id передачи или 0, если передача не началась
+     */
+    public int sendPayload(int to, int channel, byte[] data, ChunkedTransferEngine.Callback callback) {
+        return transfers.send(to, channel, data, callback);
+    }
 
-        ChannelProtos.ChannelSettings settings = ChannelProtos.ChannelSettings.newBuilder()
-                .setName(channelName.trim())
-                .setPsk(com.google.protobuf.ByteString.copyFrom(pskBytes))
-                .build();
+    /**
+     * Получатель входящих передач ChunkedPayload.
+     */
+    public void setPayloadListener(ChunkedTransferEngine.Listener listener) {
+        transfers.setListener(listener);
+    }
 
-        ChannelProtos.Channel channel = ChannelProtos.Channel.newBuilder()
-                .setIndex(0)
-                .setRole(ChannelProtos.Channel.Role.PRIMARY)
-                .setSettings(settings)
-                .build();
+    /**
+     * Записывает локальный файл в файловую систему радио по XModem (см. {@link XModemTransfer}).
+     * Колбэки приходят в потоке передачи.
+     */
+    public void pushFile(File local, String remotePath, XModemTransfer.Listener listener) {
+        try {
+            xmodem.push(remotePath, new BufferedInputStream(new FileInputStream(local)), local.length(), listener);
+        } catch (IOException e) {
+            if (listener != null) listener.onComplete(false, 0, e.getMessage());
+        }
+    }
 
-        MeshProtos.FromRadio out = MeshProtos.FromRadio.newBuilder()
+    /**
+     * Читает файл с радио в локальный файл; при ошибке недописанный файл удаляется.
+     * Колбэки приходят в потоке передачи.
+     */
+    public void pullFile(String remotePath, File local, XModemTransfer.Listener listener) {
+        try {
+            xmodem.pull(remotePath, new BufferedOutputStream(new FileOutputStream(local)),
+                    new XModemTransfer.Listener() {
+                        @Override
+                        public void onProgress(long bytes, long totalBytes) {
+                            if (listener != null) listener.onProgress(bytes, totalBytes);
+                        }
+
+                        @Override
+                        public void onComplete(boolean success, long bytes, String error) {
+                            if (!success) local.delete();
+                            if (listener != null) listener.onComplete(success, bytes, error);
+                        }
+                    });
+        } catch (IOException e) {
+            if (listener != null) listener.onComplete(false, 0, e.getMessage());
+        }
+    }
+
+    public void cancelFileTransfer() {
+        xmodem.cancel();
+    }
+
+    private boolean sendData(int to, int channel, int portnum, ByteString payload) {
+        MeshProtos.MeshPacket packet = MeshProtos.MeshPacket.newBuilder()
+                .setTo(to)
                 .setChannel(channel)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnumValue(portnum)
+                        .setPayload(payload)
+                        .build())
                 .build();
+        return sendToRadio(MeshProtos.ToRadio.newBuilder().setPacket(packet).build());
+    }
+
+    /**
+     * Отправляет свою позицию broadcast-пакетом на POSITION_APP.
+     */
+    public boolean sendPosition(MeshProtos.Position position) {
+        if (position == null) return false;
 
         MeshProtos.MeshPacket packet = MeshProtos.MeshPacket.newBuilder()
+                .setTo(BROADCAST_ADDR)
                 .setDecoded(MeshProtos.Data.newBuilder()
-                        .setPortnum(Portnums.PortNum.ADMIN_APP)
-                        .setPayload(out.toByteString())
+                        .setPortnum(Portnums.PortNum.POSITION_APP)
+                        .setPayload(position.toByteString())
                         .build())
                 .build();
 
-        MeshProtos.ToRadio msg = MeshProtos.ToRadio.newBuilder()
+        return sendToRadio(MeshProtos.ToRadio.newBuilder()
                 .setPacket(packet)
-                .build();
+                .build());
+    }
+
+    /**
+     * Включает/выключает рассылку позиции телефона. Работает только пока есть соединение
+     * и радио отдало настройки (config_complete_id).
+     */
+    public void setPositionSharingEnabled(boolean enabled) {
+        positionSharingEnabled = enabled;
+        if (enabled && radioReady) {
+            positionBroadcaster.start();
+        } else if (!enabled) {
+            positionBroadcaster.stop();
+        }
+    }
+
+    /**
+     * Применяет черновик настроек: на радио уходят только изменённые разделы,
+     * одной транзакцией admin (см. {@link DeviceConfigManager}).
+     */
+    public DeviceConfigManager.ApplyResult applySettings(SettingsDraft draft) {
+        if (state.getValue() != State.CONNECTED) {
+            return new DeviceConfigManager.ApplyResult(DeviceConfigManager.Status.NOT_SENT,
+                    Collections.emptyList(), "Нет соединения");
+        }
+        DeviceConfigManager.ApplyResult result = deviceConfig.apply(draft);
+        if (result.status == DeviceConfigManager.Status.SENT) scheduleSnapshotSave();
+        return result;
+    }
 
-        return sendToRadio(msg);
+    public boolean applyChannelPsk(String channelName, String pskText) {
+        if (channelName == null || channelName.trim().isEmpty()) return false;
+        if (pskText == null || pskText.trim().isEmpty()) return false;
+
+        SettingsDraft draft = new SettingsDraft();
+        draft.setChannelName(channelName);
+        draft.setPsk(pskText);
+        DeviceConfigManager.Status st = applySettings(draft).status;
+        return st == DeviceConfigManager.Status.SENT || st == DeviceConfigManager.Status.NO_CHANGES;
     }
 
     private static String safeName(BluetoothDevice d) {
@@ -280,106 +721,182 @@ public class MeshConnectionRepository {
         return (n == null || n.isEmpty()) ? d.getAddress() : n;
     }
 
-    private void handleFromRadio(byte[] data) {
-        if (data == null || data.length == 0) return;
-
-        // FromRadio приходит как один protobuf (без varint length-prefix)
-        MeshProtos.FromRadio msg;
-        try {
-            msg = MeshProtos.FromRadio.parseFrom(data);
-        } catch (Exception e) {
-            return;
+    /** Результаты {@link InboundProcessor}: LiveData, слушатели узлов и движки отправки. */
+    private final class InboundSink implements InboundProcessor.Sink {
+        @Override
+        public void onFrameReceived(byte[] data, long now) {
+            lastRx.postValue(data);
+            updateDeviceStatus(s -> s.setLastRxAt(now));
         }
 
-        String summary = MeshProtoParser.parseFromRadioSummary(data);
-        if (summary != null) {
+        @Override
+        public void onSummary(String summary) {
             lastFromRadioSummary.postValue(summary);
-            updateDeviceStatus(s -> s.setLastSummary(summary));
         }
 
-        switch (msg.getPayloadVariantCase()) {
-            case NODE_INFO: {
-                MeshProtos.NodeInfo ni = msg.getNodeInfo();
-                NodeInfo model = convertNode(ni);
-                nodeMap.put(model.getNodeNum(), model);
-                nodes.postValue(new ArrayList<>(nodeMap.values()));
-                if (model.getNodeNum() != 0) {
-                    updateDeviceStatus(s -> {
-                        s.setSnr(model.getSnr());
-                        s.setBatteryPercent(model.getBatteryLevel());
-                        s.setLastHeard(model.getLastHeard());
-                    });
-                }
-                break;
+        @Override
+        public void updateStatus(java.util.function.Consumer<DeviceStatus> updater) {
+            updateDeviceStatus(updater);
+        }
+
+        @Override
+        public void onNodesChanged(NodeInfo node) {
+            publishNodes();
+            if (!nodeChangeListeners.isEmpty()) {
+                mainHandler.post(() -> {
+                    for (NodeChangeListener l : nodeChangeListeners) l.onNodeChanged(node);
+                });
             }
-            case MY_INFO: {
-                statusText.postValue("Подключено: my_num=" + msg.getMyInfo().getMyNodeNum());
-                updateDeviceStatus(s -> s.setNodeNum((long) msg.getMyInfo().getMyNodeNum()));
-                break;
+        }
+
+        @Override
+        public void onMyNodeNum(long myNodeNum, boolean live) {
+            if (live) {
+                liveConfigStarted = true;
+                statusText.postValue("Подключено: my_num=" + (int) myNodeNum);
             }
-            case METADATA: {
-                updateDeviceStatus(s -> s.setFirmwareVersion(msg.getMetadata().getFirmwareVersion()));
-                break;
+            outbound.setMyNodeNum(myNodeNum);
+            traceroutes.setMyNodeNum(myNodeNum);
+        }
+
+        @Override
+        public void onTextMessage(Message message) {
+            lastTextMessage.postValue(message);
+        }
+
+        @Override
+        public void onRadioReady() {
+            radioReady = true;
+            if (positionSharingEnabled) {
+                mainHandler.post(() -> {
+                    if (radioReady && positionSharingEnabled) positionBroadcaster.start();
+                });
             }
-            default:
-                break;
         }
-    }
 
-    private void updateDeviceStatus(java.util.function.Consumer<DeviceStatus> updater) {
-        DeviceStatus current = deviceStatus.getValue();
-        if (current == null) current = new DeviceStatus();
-        updater.accept(current);
-        deviceStatus.postValue(current);
-    }
+        @Override
+        public void onConfigChanged() {
+            scheduleSnapshotSave();
+        }
 
-    private static String toHex(byte[] data) {
-        if (data == null || data.length == 0) return "—";
-        StringBuilder sb = new StringBuilder();
-        for (byte b : data) {
-            sb.append(String.format("%02X ", b));
+        @Override
+        public void onFromRadio(MeshProtos.FromRadio msg) {
+            sendEngine.onFromRadio(msg);
         }
-        return sb.toString().trim();
-    }
 
-    private void requestConfig() {
-        int configId = wantConfigId++;
-        MeshProtos.ToRadio msg = MeshProtos.ToRadio.newBuilder()
-                .setWantConfigId(configId)
-                .build();
-        sendToRadio(msg);
-    }
+        @Override
+        public boolean onPacket(MeshProtos.MeshPacket p) {
+            transfers.onPacket(p);
+            return traceroutes.onPacket(p);
+        }
 
-    private NodeInfo convertNode(MeshProtos.NodeInfo ni) {
-        NodeInfo n = new NodeInfo();
-        n.setNodeNum(ni.getNum() & 0xffffffffL);
+        @Override
+        public void onChannelUtilization(float percent) {
+            outbound.setChannelUtilization(percent);
+        }
 
-        if (ni.hasUser()) {
-            MeshProtos.User u = ni.getUser();
-            n.setUserId(u.getId());
-            n.setLongName(u.getLongName());
-            n.setShortName(u.getShortName());
+        @Override
+        public void onLoRaConfig(ConfigProtos.Config.LoRaConfig lora) {
+            outbound.setLoRaConfig(lora);
+            LoRaAirtime airtime = outbound.getAirtime();
+            Log.d(TAG, "Модем: SF" + airtime.getSpreadFactor() + "/" + airtime.getBandwidthKHz()
+                    + " кГц, символ " + airtime.getSymbolMs() + " мс");
         }
 
-        if (ni.hasPosition()) {
-            MeshProtos.Position p = ni.getPosition();
-            // В protobuf latitudeI/longitudeI - int32 в 1e-7 градуса
-            if (p.hasLatitudeI()) n.setLatitude(p.getLatitudeI() / 1e7);
-            if (p.hasLongitudeI()) n.setLongitude(p.getLongitudeI() / 1e7);
+        @Override
+        public void onQueueStatus(MeshProtos.QueueStatus queueStatus) {
+            outbound.onQueueStatus(queueStatus);
         }
 
-        n.setSnr(ni.getSnr());
-        n.setLastHeard(ni.getLastHeard());
-        n.setViaMqtt(ni.getViaMqtt());
+        @Override
+        public void onXModem(XmodemProtos.XModem packet) {
+            xmodem.onXModem(packet);
+        }
+
+        @Override
+        public void onPositionPrecision(int bits) {
+            positionBroadcaster.getPolicy().setPrecisionBits(bits);
+        }
+    }
 
-        if (ni.hasDeviceMetrics() && ni.getDeviceMetrics().hasBatteryLevel()) {
-            n.setBatteryLevel(ni.getDeviceMetrics().getBatteryLevel());
+    /**
+     * Поток разбора FromRadio ("MeshIngest"). Все кадры, живые, синтетические и из снимка,
+     * разбираются только в нём.
+     */
+    private synchronized Handler ingestHandler() {
+        if (ingestHandler == null) {
+            ingestThread = new HandlerThread("MeshIngest", Process.THREAD_PRIORITY_FOREGROUND);
+            ingestThread.start();
+            ingestHandler = new Handler(ingestThread.getLooper());
+            bleManager.setBytesHandler(ingestHandler);
         }
+        return ingestHandler;
+    }
 
-        if (ni.hasHopsAway()) n.setHopsAway(ni.getHopsAway());
-        if (ni.getChannel() != 0) n.setChannel(ni.getChannel());
+    private void stopService() {
+        appContext.stopService(new Intent(appContext, BluetoothConnectionService.class));
+    }
 
-        return n;
+    private void loadSnapshot(String address) {
+        snapshotAddress = address;
+        snapshotExecutor.execute(() -> {
+            List<MeshProtos.FromRadio> frames = snapshots.load(address);
+            if (frames.isEmpty()) return;
+            // В поток разбора — чтобы снимок не перемешался с живыми кадрами
+            ingestHandler().post(() -> {
+                if (!address.equals(snapshotAddress) || liveConfigStarted) return;
+                deviceConfig.getCache().loadFrames(frames);
+                for (MeshProtos.FromRadio f : frames) inbound.apply(f, false);
+                MeshProtos.User owner = deviceConfig.getCache().getOwner();
+                if (owner != null) {
+                    updateDeviceStatus(s -> {
+                        if (s.getDeviceName() == null) s.setDeviceName(owner.getLongName());
+                    });
+                }
+            });
+        });
+    }
+
+    private void scheduleSnapshotSave() {
+        if (snapshotDirty.compareAndSet(false, true)) {
+            snapshotExecutor.schedule(this::flushSnapshot, SNAPSHOT_FLUSH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Пишет накопленные изменения сейчас; кадры берутся из кэша в вызывающем потоке. */
+    private void flushSnapshot() {
+        if (!snapshotDirty.getAndSet(false)) return;
+        String address = snapshotAddress;
+        if (address == null) return;
+        List<MeshProtos.FromRadio> frames = deviceConfig.getCache().toFrames();
+        snapshotExecutor.execute(() -> {
+            try {
+                snapshots.save(address, frames);
+            } catch (IOException e) {
+                Log.w(TAG, "Не удалось сохранить снимок настроек: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Изменяет копию последнего состояния и публикует её: главный поток рисует объект,
+     * который поток разбора уже не трогает.
+     */
+    private synchronized void updateDeviceStatus(java.util.function.Consumer<DeviceStatus> updater) {
+        DeviceStatus next = latestStatus.copy();
+        updater.accept(next);
+        latestStatus = next;
+        PUBLISH_STATUS.increment();
+        deviceStatus.postValue(next);
+    }
+
+    private void requestConfig() {
+        int configId = wantConfigId++;
+        deviceConfig.onConfigRequested();
+        MeshProtos.ToRadio msg = MeshProtos.ToRadio.newBuilder()
+                .setWantConfigId(configId)
+                .build();
+        sendToRadio(msg);
     }
 
     /** Builds Meshtastic "length-delimited" frame: [varint32 length][payload]. */
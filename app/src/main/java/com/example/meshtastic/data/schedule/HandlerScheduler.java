@@ -0,0 +1,47 @@
+package com.example.meshtastic.data.schedule;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * {@link TaskScheduler} поверх Handler; время — SystemClock.elapsedRealtime().
+ */
+public final class HandlerScheduler implements TaskScheduler {
+
+    private final Handler handler;
+
+    public HandlerScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    /** Главный поток приложения. */
+    public static HandlerScheduler main() {
+        return new HandlerScheduler(new Handler(Looper.getMainLooper()));
+    }
+
+    @Override
+    public long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return Looper.myLooper() == handler.getLooper();
+    }
+}
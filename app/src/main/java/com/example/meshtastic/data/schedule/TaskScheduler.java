@@ -0,0 +1,23 @@
+package com.example.meshtastic.data.schedule;
+
+/**
+ * Часы и очередь задач одного потока для движков отправки.
+ *
+ * На устройстве — {@link HandlerScheduler} (главный поток и SystemClock.elapsedRealtime()),
+ * в JVM-тестах — ручное время, которое тест двигает сам.
+ */
+public interface TaskScheduler {
+
+    /** Монотонное время, мс. */
+    long now();
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMs);
+
+    /** Снимает все ещё не выполненные запуски задачи. */
+    void cancel(Runnable task);
+
+    /** Вызов идёт из потока планировщика — колбэк можно выполнить сразу, без post. */
+    boolean isCurrentThread();
+}
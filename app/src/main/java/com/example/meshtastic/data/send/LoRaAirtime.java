@@ -0,0 +1,127 @@
+package com.example.meshtastic.data.send;
+
+import org.meshtastic.proto.ConfigProtos;
+
+/**
+ * Оценка времени в эфире для LoRa-пакета по формуле Semtech (AN1200.13)
+ * с параметрами модема из LoRaConfig (пресет или ручные bw/sf/cr).
+ */
+public final class LoRaAirtime {
+
+    /** Заголовок Meshtastic поверх LoRa (to, from, id, flags, channel, next_hop, relay_node). */
+    public static final int MESH_HEADER_BYTES = 16;
+
+    // Meshtastic использует длинную преамбулу
+    private static final int PREAMBLE_SYMBOLS = 16;
+
+    private final double bandwidthKHz;
+    private final int spreadFactor;
+    private final int codingRate; // знаменатель 4/x: 5..8
+    private final double symbolMs;
+    private final boolean lowDataRateOptimize;
+    private final int regionDutyCyclePercent;
+
+    public LoRaAirtime(double bandwidthKHz, int spreadFactor, int codingRate, int regionDutyCyclePercent) {
+        this.bandwidthKHz = bandwidthKHz;
+        this.spreadFactor = spreadFactor;
+        this.codingRate = codingRate;
+        this.symbolMs = (1 << spreadFactor) / bandwidthKHz;
+        this.lowDataRateOptimize = symbolMs > 16.0;
+        this.regionDutyCyclePercent = regionDutyCyclePercent;
+    }
+
+    /** Параметры по умолчанию прошивки: LONG_FAST, без ограничения скважности. */
+    public static LoRaAirtime defaults() {
+        return new LoRaAirtime(250, 11, 5, 100);
+    }
+
+    public static LoRaAirtime of(ConfigProtos.Config.LoRaConfig lora) {
+        if (lora == null) return defaults();
+        int duty = dutyCyclePercent(lora.getRegion());
+        if (!lora.getUsePreset() && lora.getBandwidth() != 0 && lora.getSpreadFactor() != 0) {
+            int cr = lora.getCodingRate() >= 5 && lora.getCodingRate() <= 8 ? lora.getCodingRate() : 5;
+            return new LoRaAirtime(customBandwidth(lora.getBandwidth()), lora.getSpreadFactor(), cr, duty);
+        }
+        switch (lora.getModemPreset()) {
+            case SHORT_TURBO:    return new LoRaAirtime(500, 7, 5, duty);
+            case SHORT_FAST:     return new LoRaAirtime(250, 7, 5, duty);
+            case SHORT_SLOW:     return new LoRaAirtime(250, 8, 5, duty);
+            case MEDIUM_FAST:    return new LoRaAirtime(250, 9, 5, duty);
+            case MEDIUM_SLOW:    return new LoRaAirtime(250, 10, 5, duty);
+            case LONG_TURBO:     return new LoRaAirtime(500, 11, 8, duty);
+            case LONG_MODERATE:  return new LoRaAirtime(125, 11, 8, duty);
+            case LONG_SLOW:      return new LoRaAirtime(125, 12, 8, duty);
+            case VERY_LONG_SLOW: return new LoRaAirtime(62.5, 12, 8, duty);
+            case LONG_FAST:
+            default:             return new LoRaAirtime(250, 11, 5, duty);
+        }
+    }
+
+    /**
+     * Число символов полезной нагрузки (без преамбулы) для payloadBytes байт в эфире.
+     * Растёт ступенями по 4/CR символа на блок, поэтому экономия байт окупается,
+     * только если пересекает границу блока.
+     */
+    public int payloadSymbols(int payloadBytes) {
+        int de = lowDataRateOptimize ? 1 : 0;
+        // Явный заголовок, CRC включён
+        int numerator = 8 * payloadBytes - 4 * spreadFactor + 28 + 16;
+        int denominator = 4 * (spreadFactor - 2 * de);
+        int blocks = Math.max((numerator + denominator - 1) / denominator, 0);
+        return 8 + blocks * codingRate;
+    }
+
+    /** Время в эфире (мс) для payloadBytes байт LoRa-нагрузки (заголовок Meshtastic уже включён). */
+    public double airtimeMs(int payloadBytes) {
+        double preamble = (PREAMBLE_SYMBOLS + 4.25) * symbolMs;
+        return preamble + payloadSymbols(payloadBytes) * symbolMs;
+    }
+
+    /** Время в эфире для MeshPacket с закодированной нагрузкой Data размером dataBytes. */
+    public double packetAirtimeMs(int dataBytes) {
+        return airtimeMs(MESH_HEADER_BYTES + dataBytes);
+    }
+
+    public double getSymbolMs() {
+        return symbolMs;
+    }
+
+    public int getSpreadFactor() {
+        return spreadFactor;
+    }
+
+    public double getBandwidthKHz() {
+        return bandwidthKHz;
+    }
+
+    /** Разрешённая регионом доля эфира на передачу, %. */
+    public int getRegionDutyCyclePercent() {
+        return regionDutyCyclePercent;
+    }
+
+    private static double customBandwidth(int bw) {
+        // Как в прошивке: целые значения из конфига означают стандартные полосы LoRa
+        switch (bw) {
+            case 31: return 31.25;
+            case 62: return 62.5;
+            case 200: return 203.125;
+            case 400: return 406.25;
+            case 800: return 812.5;
+            case 1600: return 1625;
+            default: return bw;
+        }
+    }
+
+    private static int dutyCyclePercent(ConfigProtos.Config.LoRaConfig.RegionCode region) {
+        switch (region) {
+            case EU_433:
+            case EU_868:
+            case UA_433:
+                return 10;
+            case UA_868:
+                return 1;
+            default:
+                return 100;
+        }
+    }
+}
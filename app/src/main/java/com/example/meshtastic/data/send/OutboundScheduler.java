@@ -0,0 +1,342 @@
+package com.example.meshtastic.data.send;
+
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.schedule.HandlerScheduler;
+import com.example.meshtastic.data.schedule.TaskScheduler;
+import com.example.meshtastic.data.transfer.ChunkedTransferEngine;
+
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+
+import java.util.ArrayDeque;
+
+/**
+ * Очередь исходящих ToRadio перед транспортом.
+ *
+ * Пакет уходит в радио, только когда:
+ * - в TX-очереди прошивки есть место (по последнему QueueStatus, с локальным учётом отправленного);
+ * - хватает бюджета эфира (token bucket в мс airtime, оценка по пресету модема {@link LoRaAirtime});
+ * - загрузка канала позволяет этот класс трафика (фоновые классы уступают при занятом эфире).
+ *
+ * Куски {@link ChunkedTransferEngine} — свой класс TRANSFER: после позиций, но без отсрочки
+ * по загрузке канала. Передача и так ограничена окном и бюджетом эфира, а отсрочка на минуты
+ * оставила бы её без отчётов получателя.
+ *
+ * Классы обслуживаются строго по приоритету, внутри класса — FIFO. Служебные сообщения
+ * (want_config, heartbeat, xmodem) и пакеты своему узлу в эфир не идут и проходят без бюджета.
+ * Переполнение очереди класса не теряет пакет молча: {@link #enqueue} вернёт false.
+ *
+ * enqueue и onQueueStatus приходят из разных потоков (главный, поток разбора), но очередь
+ * опустошает один поток за раз: пока он пишет в транспорт, остальные только добавляют
+ * пакеты, и записи идут в том же порядке, в каком выбраны по приоритету.
+ */
+public class OutboundScheduler {
+
+    public enum TrafficClass {
+        CONTROL,
+        ADMIN,
+        TEXT,
+        POSITION,
+        TRANSFER,
+        TELEMETRY
+    }
+
+    public interface Transport {
+        void write(MeshProtos.ToRadio msg);
+    }
+
+    // Пока радио не прислало QueueStatus, считаем, что в его очереди есть несколько мест
+    private static final int DEFAULT_QUEUE_SLOTS = 4;
+    // Последнее место в очереди радио держим для ADMIN/TEXT
+    private static final int RESERVED_SLOTS = 1;
+    // Старые прошивки не шлют QueueStatus: без ответа освобождаем слот по таймауту
+    private static final long QUEUE_STATUS_STALE_MS = 3_000;
+
+    private static final int MAX_QUEUED_PER_CLASS = 64;
+
+    // Доля эфира под наши пакеты (не больше скважности региона) и окно накопления бюджета
+    private static final float DEFAULT_AIRTIME_BUDGET_PERCENT = 10f;
+    private static final long BUDGET_WINDOW_MS = 60_000;
+
+    // Пороги загрузки канала, выше которых фоновый трафик ждёт (как в прошивке)
+    private static final float UTILIZATION_DEFER_TELEMETRY = 25f;
+    private static final float UTILIZATION_DEFER_POSITION = 40f;
+
+    private static final long MIN_RETRY_DELAY_MS = 50;
+
+    private static final Counter REJECTED = MetricsRegistry.get().counter("outbound.rejected");
+    private static final Counter DROPPED = MetricsRegistry.get().counter("outbound.dropped");
+
+    private final Transport transport;
+    private final TaskScheduler scheduler;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<MeshProtos.ToRadio>[] queues = new ArrayDeque[TrafficClass.values().length];
+
+    private LoRaAirtime airtime = LoRaAirtime.defaults();
+    private float airtimeBudgetPercent = DEFAULT_AIRTIME_BUDGET_PERCENT;
+    private double airtimeTokensMs;
+    private long lastRefillAt = -1;
+
+    private int queueFree = DEFAULT_QUEUE_SLOTS;
+    private long lastQueueStatusAt;
+    private long lastWriteAt;
+
+    private float channelUtilization;
+    private long myNodeNum = -1;
+
+    // Какой-то поток уже опустошает очередь — остальные только ставят пакеты
+    private boolean draining;
+    private boolean dispatchScheduled;
+    private final Runnable dispatchRunnable = () -> {
+        synchronized (this) {
+            dispatchScheduled = false;
+        }
+        dispatch();
+    };
+
+    public OutboundScheduler(Transport transport) {
+        this(transport, HandlerScheduler.main());
+    }
+
+    public OutboundScheduler(Transport transport, TaskScheduler scheduler) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        for (int i = 0; i < queues.length; i++) queues[i] = new ArrayDeque<>();
+    }
+
+    /**
+     * Ставит сообщение в очередь своего класса и сразу пытается отправить.
+     * @return false, если очередь класса переполнена (сообщение не принято)
+     */
+    public boolean enqueue(MeshProtos.ToRadio msg) {
+        if (msg == null) return false;
+        synchronized (this) {
+            TrafficClass cls = classify(msg);
+            ArrayDeque<MeshProtos.ToRadio> q = queues[cls.ordinal()];
+            if (cls != TrafficClass.CONTROL && q.size() >= MAX_QUEUED_PER_CLASS) {
+                REJECTED.increment();
+                return false;
+            }
+            q.addLast(msg);
+        }
+        dispatch();
+        return true;
+    }
+
+    /** QueueStatus от радио: сколько мест осталось в его TX-очереди. */
+    public void onQueueStatus(MeshProtos.QueueStatus qs) {
+        synchronized (this) {
+            queueFree = qs.getFree();
+            lastQueueStatusAt = scheduler.now();
+        }
+        dispatch();
+    }
+
+    /** Параметры модема из кэшированного конфига устройства. */
+    public synchronized void setLoRaConfig(ConfigProtos.Config.LoRaConfig lora) {
+        airtime = LoRaAirtime.of(lora);
+    }
+
+    /** Загрузка канала своего узла (DeviceMetrics.channel_utilization), %. */
+    public void setChannelUtilization(float percent) {
+        synchronized (this) {
+            channelUtilization = percent;
+        }
+        dispatch();
+    }
+
+    public synchronized void setMyNodeNum(long myNodeNum) {
+        this.myNodeNum = myNodeNum;
+    }
+
+    public synchronized void setAirtimeBudgetPercent(float percent) {
+        this.airtimeBudgetPercent = percent;
+    }
+
+    public synchronized LoRaAirtime getAirtime() {
+        return airtime;
+    }
+
+    public synchronized int getPendingCount() {
+        int n = 0;
+        for (ArrayDeque<MeshProtos.ToRadio> q : queues) n += q.size();
+        return n;
+    }
+
+    public synchronized int getPendingCount(TrafficClass cls) {
+        return queues[cls.ordinal()].size();
+    }
+
+    /**
+     * Сбрасывает очередь и состояние радио (разрыв соединения).
+     * @return сколько сообщений не было отправлено
+     */
+    public synchronized int clear() {
+        int dropped = getPendingCount();
+        for (ArrayDeque<MeshProtos.ToRadio> q : queues) q.clear();
+        queueFree = DEFAULT_QUEUE_SLOTS;
+        lastQueueStatusAt = 0;
+        channelUtilization = 0;
+        scheduler.cancel(dispatchRunnable);
+        dispatchScheduled = false;
+        DROPPED.add(dropped);
+        return dropped;
+    }
+
+    /**
+     * Отправляет всё, что пропускают ограничения; если что-то осталось — планирует повтор.
+     * Запись в транспорт — вне блокировки, но только из одного потока: если очередь уже
+     * опустошается, вызов сразу возвращается, а пакет заберёт тот поток в следующем круге.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            if (draining) return;
+            draining = true;
+        }
+        try {
+            while (true) {
+                MeshProtos.ToRadio next;
+                synchronized (this) {
+                    long now = scheduler.now();
+                    refill(now);
+                    next = pollReady(now);
+                    if (next == null) {
+                        draining = false;
+                        scheduleRetry(now);
+                        return;
+                    }
+                }
+                transport.write(next);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    /** Под блокировкой: первый по приоритету пакет, который можно отправить сейчас. */
+    private MeshProtos.ToRadio pollReady(long now) {
+        // Старая прошивка может не присылать QueueStatus — не блокируемся навсегда
+        if (queueFree <= 0 && now - Math.max(lastQueueStatusAt, lastWriteAt) >= QUEUE_STATUS_STALE_MS) {
+            queueFree = 1;
+        }
+
+        for (TrafficClass cls : TrafficClass.values()) {
+            ArrayDeque<MeshProtos.ToRadio> q = queues[cls.ordinal()];
+            MeshProtos.ToRadio head = q.peekFirst();
+            if (head == null) continue;
+
+            if (cls == TrafficClass.CONTROL || !usesAir(head)) {
+                q.pollFirst();
+                return head;
+            }
+
+            // Если этот класс ждёт места или эфира, младшие тем более ждут:
+            // иначе фоновые пакеты обгоняли бы задержанный текст
+            int reserve = (cls == TrafficClass.ADMIN || cls == TrafficClass.TEXT) ? 0 : RESERVED_SLOTS;
+            if (queueFree <= reserve) return null;
+            if (!allowedByUtilization(cls)) continue;
+
+            double cost = packetAirtimeMs(head);
+            // Пакет дороже всей корзины отправляем, когда корзина полна
+            if (airtimeTokensMs < Math.min(cost, capacityMs())) return null;
+
+            q.pollFirst();
+            airtimeTokensMs -= cost;
+            queueFree--;
+            lastWriteAt = now;
+            return head;
+        }
+        return null;
+    }
+
+    private boolean allowedByUtilization(TrafficClass cls) {
+        switch (cls) {
+            case TELEMETRY:
+                return channelUtilization < UTILIZATION_DEFER_TELEMETRY;
+            case POSITION:
+                return channelUtilization < UTILIZATION_DEFER_POSITION;
+            default:
+                return true;
+        }
+    }
+
+    /** Под блокировкой: будильник на момент, когда появится бюджет, или на таймаут QueueStatus. */
+    private void scheduleRetry(long now) {
+        if (dispatchScheduled) return;
+        MeshProtos.ToRadio head = null;
+        for (int i = 1; i < queues.length && head == null; i++) head = queues[i].peekFirst();
+        if (head == null) return;
+
+        // Мест нет: ждём QueueStatus, а без него — момента, когда последний устареет
+        long delay = Math.max(lastQueueStatusAt, lastWriteAt) + QUEUE_STATUS_STALE_MS - now;
+        double rate = ratePerMs();
+        if (queueFree > 0 && rate > 0) {
+            double missing = Math.min(packetAirtimeMs(head), capacityMs()) - airtimeTokensMs;
+            delay = missing > 0 ? (long) Math.ceil(missing / rate) : QUEUE_STATUS_STALE_MS;
+        }
+        dispatchScheduled = true;
+        scheduler.postDelayed(dispatchRunnable, Math.max(MIN_RETRY_DELAY_MS, delay));
+    }
+
+    private void refill(long now) {
+        if (lastRefillAt < 0) {
+            airtimeTokensMs = capacityMs();
+        } else if (now > lastRefillAt) {
+            airtimeTokensMs = Math.min(capacityMs(), airtimeTokensMs + (now - lastRefillAt) * ratePerMs());
+        }
+        lastRefillAt = now;
+    }
+
+    /** Накопление бюджета: мс эфира за мс реального времени. */
+    private double ratePerMs() {
+        return Math.min(airtimeBudgetPercent, airtime.getRegionDutyCyclePercent()) / 100.0;
+    }
+
+    private double capacityMs() {
+        return BUDGET_WINDOW_MS * ratePerMs();
+    }
+
+    private double packetAirtimeMs(MeshProtos.ToRadio msg) {
+        MeshProtos.MeshPacket p = msg.getPacket();
+        int dataBytes = p.hasDecoded() ? p.getDecoded().getSerializedSize() : p.getEncrypted().size();
+        return airtime.packetAirtimeMs(dataBytes);
+    }
+
+    /** Пакеты своему узлу (admin локальному радио) обрабатываются без передачи в эфир. */
+    private boolean usesAir(MeshProtos.ToRadio msg) {
+        int to = msg.getPacket().getTo();
+        return to != 0 && (to & 0xffffffffL) != myNodeNum;
+    }
+
+    static TrafficClass classify(MeshProtos.ToRadio msg) {
+        if (msg.getPayloadVariantCase() != MeshProtos.ToRadio.PayloadVariantCase.PACKET) {
+            return TrafficClass.CONTROL;
+        }
+        MeshProtos.MeshPacket p = msg.getPacket();
+        if (!p.hasDecoded()) return TrafficClass.TEXT;
+        int port = p.getDecoded().getPortnumValue();
+        if (port == ChunkedTransferEngine.CHUNK_PORT || port == ChunkedTransferEngine.RESPONSE_PORT) {
+            return TrafficClass.TRANSFER;
+        }
+        switch (p.getDecoded().getPortnum()) {
+            case ADMIN_APP:
+                return TrafficClass.ADMIN;
+            case TEXT_MESSAGE_APP:
+            case TEXT_MESSAGE_COMPRESSED_APP:
+            case ROUTING_APP:
+            case ALERT_APP:
+            case DETECTION_SENSOR_APP:
+                return TrafficClass.TEXT;
+            case POSITION_APP:
+            case NODEINFO_APP:
+            case WAYPOINT_APP:
+                return TrafficClass.POSITION;
+            default:
+                return TrafficClass.TELEMETRY;
+        }
+    }
+}
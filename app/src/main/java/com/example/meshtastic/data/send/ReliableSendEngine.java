@@ -0,0 +1,290 @@
+package com.example.meshtastic.data.send;
+
+import android.util.Log;
+
+import com.example.meshtastic.data.schedule.HandlerScheduler;
+import com.example.meshtastic.data.schedule.TaskScheduler;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Надёжная отправка MeshPacket: назначает id, ставит want_ack, держит пакеты "в полёте"
+ * и сопоставляет их с ответами ROUTING_APP (ACK/NAK) по request_id.
+ *
+ * Таймауты — на одном {@link TimingWheel} с общим тиком, который крутится только пока есть
+ * ожидающие пакеты. Таблица в полёте — {@link IntObjectMap} по id, без упаковки ключей,
+ * так что сотни одновременных сообщений не стоят ни таймеров, ни лишних аллокаций на поиск.
+ *
+ * Методы можно вызывать из любого потока; колбэки приходят в потоке планировщика
+ * (на устройстве — главный поток).
+ */
+public class ReliableSendEngine {
+
+    private static final String TAG = "ReliableSendEngine";
+
+    public interface Transport {
+        boolean send(MeshProtos.ToRadio msg);
+    }
+
+    public interface Callback {
+        void onComplete(SendResult result);
+    }
+
+    // Прошивка сама делает до 3 ретрансляций и присылает NAK MAX_RETRANSMIT;
+    // наш таймаут ловит случаи, когда радио вообще не ответило (потерянная запись, перезагрузка).
+    public static final long DEFAULT_TIMEOUT_MS = 90_000;
+    public static final int DEFAULT_MAX_RETRIES = 1;
+
+    private static final long TICK_MS = 250;
+    private static final int WHEEL_SIZE = 512; // оборот ~128 с
+    private static final int NODENUM_BROADCAST = 0xFFFFFFFF;
+
+    private final Transport transport;
+    private final TaskScheduler scheduler;
+    private final IntObjectMap<InFlight> inFlight = new IntObjectMap<>(256);
+    private final TimingWheel<InFlight> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE);
+    private final List<InFlight> expiredScratch = new ArrayList<>();
+
+    private int nextId;
+    private boolean ticking;
+
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    private final Runnable tick = this::onTick;
+
+    private static final class InFlight {
+        MeshProtos.MeshPacket packet;
+        final Callback callback;
+        final CompletableFuture<SendResult> future;
+        final long firstSentAt;
+        int attempts;
+        boolean relayed;
+        TimingWheel.Timeout<InFlight> timeout;
+
+        InFlight(MeshProtos.MeshPacket packet, Callback callback, CompletableFuture<SendResult> future, long now) {
+            this.packet = packet;
+            this.callback = callback;
+            this.future = future;
+            this.firstSentAt = now;
+        }
+    }
+
+    public ReliableSendEngine(Transport transport) {
+        this(transport, HandlerScheduler.main());
+    }
+
+    public ReliableSendEngine(Transport transport, TaskScheduler scheduler) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        // Случайное начало, чтобы после перезапуска приложения не повторять недавние id
+        this.nextId = new Random().nextInt() & 0x7FFFFFFF;
+    }
+
+    public synchronized void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public synchronized void setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Новый id пакета: ненулевой, 31 бит (как в официальных клиентах), не занятый пакетом в полёте.
+     */
+    public synchronized int generatePacketId() {
+        int id;
+        do {
+            nextId = (nextId + 1) & 0x7FFFFFFF;
+            id = nextId;
+        } while (id == 0 || inFlight.containsKey(id));
+        return id;
+    }
+
+    /**
+     * Отправляет пакет с want_ack. Если id не задан — назначается.
+     * @return future с итогом; завершается в потоке планировщика
+     */
+    public CompletableFuture<SendResult> send(MeshProtos.MeshPacket packet) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        send(packet, null, future);
+        return future;
+    }
+
+    /**
+     * Отправляет пакет с want_ack, итог — в callback (поток планировщика).
+     * @return id пакета
+     */
+    public int send(MeshProtos.MeshPacket packet, Callback callback) {
+        return send(packet, callback, null);
+    }
+
+    private int send(MeshProtos.MeshPacket packet, Callback callback, CompletableFuture<SendResult> future) {
+        SendResult notSent = null;
+        InFlight f;
+        synchronized (this) {
+            MeshProtos.MeshPacket.Builder b = packet.toBuilder().setWantAck(true);
+            if (b.getId() == 0 || inFlight.containsKey(b.getId())) b.setId(generatePacketId());
+            f = new InFlight(b.build(), callback, future, scheduler.now());
+            if (!transmit(f)) {
+                notSent = result(f, SendResult.Status.NOT_SENT, MeshProtos.Routing.Error.NO_INTERFACE);
+            }
+        }
+        if (notSent != null) deliver(f, notSent);
+        return f.packet.getId();
+    }
+
+    /**
+     * Разбирает входящий FromRadio: ROUTING_APP с request_id и QueueStatus с ошибкой постановки.
+     * Остальные сообщения игнорируются.
+     */
+    public void onFromRadio(MeshProtos.FromRadio msg) {
+        switch (msg.getPayloadVariantCase()) {
+            case PACKET:
+                onPacket(msg.getPacket());
+                break;
+            case QUEUESTATUS:
+                onQueueStatus(msg.getQueueStatus());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onPacket(MeshProtos.MeshPacket p) {
+        if (!p.hasDecoded()) return;
+        MeshProtos.Data d = p.getDecoded();
+        if (d.getPortnum() != Portnums.PortNum.ROUTING_APP || d.getRequestId() == 0) return;
+
+        MeshProtos.Routing.Error error;
+        try {
+            error = MeshProtos.Routing.parseFrom(d.getPayload()).getErrorReason();
+        } catch (InvalidProtocolBufferException e) {
+            Log.w(TAG, "Битый Routing для id=" + Integer.toUnsignedString(d.getRequestId()));
+            return;
+        }
+
+        InFlight f;
+        SendResult r;
+        synchronized (this) {
+            f = inFlight.get(d.getRequestId());
+            if (f == null) return;
+
+            int to = f.packet.getTo();
+            boolean fromDestination = p.getFrom() == to;
+            if (error == MeshProtos.Routing.Error.NONE && !fromDestination && to != NODENUM_BROADCAST) {
+                // Неявный ACK: ретранслятор повторил наш личный пакет, ждём ACK адресата дальше
+                f.relayed = true;
+                return;
+            }
+
+            complete(f);
+            r = error == MeshProtos.Routing.Error.NONE
+                    ? result(f, SendResult.Status.DELIVERED, error)
+                    : result(f, SendResult.Status.FAILED, error);
+        }
+        deliver(f, r);
+    }
+
+    private void onQueueStatus(MeshProtos.QueueStatus qs) {
+        if (qs.getRes() == 0 || qs.getMeshPacketId() == 0) return;
+        InFlight f;
+        SendResult r;
+        synchronized (this) {
+            f = inFlight.get(qs.getMeshPacketId());
+            if (f == null) return;
+            complete(f);
+            MeshProtos.Routing.Error error = MeshProtos.Routing.Error.forNumber(qs.getRes());
+            r = result(f, SendResult.Status.NOT_SENT, error != null ? error : MeshProtos.Routing.Error.NO_INTERFACE);
+        }
+        deliver(f, r);
+    }
+
+    /**
+     * Завершает все пакеты в полёте как CANCELLED (например, при разрыве соединения).
+     */
+    public void cancelAll() {
+        List<InFlight> cancelled = new ArrayList<>();
+        synchronized (this) {
+            inFlight.forEachValue(cancelled::add);
+            inFlight.clear();
+            for (InFlight f : cancelled) wheel.cancel(f.timeout);
+        }
+        for (InFlight f : cancelled) {
+            deliver(f, result(f, SendResult.Status.CANCELLED, MeshProtos.Routing.Error.NONE));
+        }
+    }
+
+    private void onTick() {
+        List<InFlight> failed = null;
+        synchronized (this) {
+            ticking = false;
+            expiredScratch.clear();
+            wheel.advance(scheduler.now(), expiredScratch);
+            for (InFlight f : expiredScratch) {
+                inFlight.remove(f.packet.getId());
+                if (f.attempts <= maxRetries) {
+                    // Повтор с новым id: старый мог застрять в истории дубликатов радио
+                    f.packet = f.packet.toBuilder().setId(generatePacketId()).build();
+                    if (transmit(f)) continue;
+                }
+                if (failed == null) failed = new ArrayList<>();
+                failed.add(f);
+            }
+            expiredScratch.clear();
+            scheduleTick();
+        }
+        if (failed == null) return;
+        for (InFlight f : failed) {
+            deliver(f, result(f, SendResult.Status.TIMEOUT, MeshProtos.Routing.Error.TIMEOUT));
+        }
+    }
+
+    /** Под блокировкой: регистрирует пакет и отдаёт его в транспорт. */
+    private boolean transmit(InFlight f) {
+        f.attempts++;
+        if (!transport.send(MeshProtos.ToRadio.newBuilder().setPacket(f.packet).build())) return false;
+        inFlight.put(f.packet.getId(), f);
+        f.timeout = wheel.schedule(f, timeoutMs, scheduler.now());
+        scheduleTick();
+        return true;
+    }
+
+    /** Под блокировкой: снимает пакет с учёта. */
+    private void complete(InFlight f) {
+        inFlight.remove(f.packet.getId());
+        wheel.cancel(f.timeout);
+    }
+
+    private void scheduleTick() {
+        if (ticking || wheel.isEmpty()) return;
+        ticking = true;
+        scheduler.postDelayed(tick, TICK_MS);
+    }
+
+    private SendResult result(InFlight f, SendResult.Status status, MeshProtos.Routing.Error error) {
+        return new SendResult(f.packet.getId(), status, error, f.attempts, f.relayed,
+                scheduler.now() - f.firstSentAt);
+    }
+
+    private void deliver(InFlight f, SendResult r) {
+        if (f.callback == null && f.future == null) return;
+        Runnable notify = () -> {
+            if (f.callback != null) f.callback.onComplete(r);
+            if (f.future != null) f.future.complete(r);
+        };
+        if (scheduler.isCurrentThread()) notify.run();
+        else scheduler.post(notify);
+    }
+}
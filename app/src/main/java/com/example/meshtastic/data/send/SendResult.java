@@ -0,0 +1,80 @@
+package com.example.meshtastic.data.send;
+
+import org.meshtastic.proto.MeshProtos;
+
+/**
+ * Итог отправки пакета с want_ack.
+ */
+public final class SendResult {
+
+    public enum Status {
+        /** ACK от адресата (или от соседа-ретранслятора для broadcast). */
+        DELIVERED,
+        /** NAK: прошивка вернула Routing.Error (нет маршрута, исчерпаны повторы и т.п.). */
+        FAILED,
+        /** Нет ответа от радио за отведённое время и все попытки. */
+        TIMEOUT,
+        /** Радио не приняло пакет в очередь или нет соединения. */
+        NOT_SENT,
+        /** Отменено (разрыв соединения). */
+        CANCELLED
+    }
+
+    private final int packetId;
+    private final Status status;
+    private final MeshProtos.Routing.Error error;
+    private final int attempts;
+    private final boolean relayed;
+    private final long latencyMs;
+
+    SendResult(int packetId, Status status, MeshProtos.Routing.Error error,
+               int attempts, boolean relayed, long latencyMs) {
+        this.packetId = packetId;
+        this.status = status;
+        this.error = error;
+        this.attempts = attempts;
+        this.relayed = relayed;
+        this.latencyMs = latencyMs;
+    }
+
+    /** id последней попытки (при повторе пакет уходит с новым id). */
+    public int getPacketId() {
+        return packetId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.DELIVERED;
+    }
+
+    /** Причина для FAILED/NOT_SENT, иначе NONE. */
+    public MeshProtos.Routing.Error getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /** Был ли слышен ретранслятор (неявный ACK) до окончательного результата. */
+    public boolean isRelayed() {
+        return relayed;
+    }
+
+    /** От первой отправки до результата. */
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+
+    @Override
+    public String toString() {
+        return "SendResult{id=" + Integer.toUnsignedString(packetId)
+                + ", " + status
+                + (error != MeshProtos.Routing.Error.NONE ? ", " + error : "")
+                + ", attempts=" + attempts
+                + ", " + latencyMs + " ms}";
+    }
+}
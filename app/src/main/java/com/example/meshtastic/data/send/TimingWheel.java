@@ -0,0 +1,147 @@
+package com.example.meshtastic.data.send;
+
+import java.util.List;
+
+/**
+ * Хешированное колесо таймеров (Varghese &amp; Lauck): O(1) на постановку и отмену,
+ * один периодический тик на все ожидающие таймауты вместо отдельного таймера на каждый.
+ *
+ * Время задаётся вызывающим (мс, монотонное), сам класс потоков не создаёт и не синхронизирован.
+ */
+public final class TimingWheel<T> {
+
+    /** Запланированный таймаут. Отменяется через {@link TimingWheel#cancel(Timeout)}. */
+    public static final class Timeout<T> {
+        final T item;
+        long deadlineTick;
+        Timeout<T> prev;
+        Timeout<T> next;
+        boolean scheduled;
+
+        Timeout(T item) {
+            this.item = item;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    private final long tickMs;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+
+    private long currentTick = -1;
+    private int size;
+
+    /**
+     * @param tickMs разрешение колеса
+     * @param wheelSize число корзин, степень двойки; таймауты длиннее оборота ждут нужного круга в своей корзине
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize) {
+        if (tickMs <= 0) throw new IllegalArgumentException("tickMs <= 0");
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize должен быть степенью двойки");
+        }
+        this.tickMs = tickMs;
+        this.buckets = (Timeout<T>[]) new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * Планирует срабатывание не раньше чем через delayMs (с точностью до тика).
+     */
+    public Timeout<T> schedule(T item, long delayMs, long nowMs) {
+        long now = nowMs / tickMs;
+        if (currentTick < 0) currentTick = now;
+        // Округляем вверх: таймаут не должен сработать раньше срока
+        long deadline = Math.max(currentTick + 1, (nowMs + Math.max(0, delayMs) + tickMs - 1) / tickMs);
+
+        Timeout<T> t = new Timeout<>(item);
+        t.deadlineTick = deadline;
+        link(t);
+        return t;
+    }
+
+    /**
+     * Отменяет таймаут. Повторная отмена или отмена сработавшего — без эффекта.
+     * @return true, если таймаут был снят
+     */
+    public boolean cancel(Timeout<T> t) {
+        if (t == null || !t.scheduled) return false;
+        unlink(t);
+        return true;
+    }
+
+    /**
+     * Продвигает колесо до nowMs и складывает истёкшие элементы в expired.
+     * Колбэки не вызываются изнутри, поэтому обработчик может сразу планировать новые таймауты.
+     * @return число истёкших элементов
+     */
+    public int advance(long nowMs, List<T> expired) {
+        long target = nowMs / tickMs;
+        if (currentTick < 0) {
+            currentTick = target;
+            return 0;
+        }
+        if (target <= currentTick) return 0;
+
+        int count = 0;
+        // После долгой паузы достаточно одного прохода по всем корзинам
+        long steps = Math.min(target - currentTick, buckets.length);
+        for (long s = 1; s <= steps && size > 0; s++) {
+            int index = (int) ((currentTick + s) & mask);
+            Timeout<T> t = buckets[index];
+            while (t != null) {
+                Timeout<T> next = t.next;
+                if (t.deadlineTick <= target) {
+                    unlink(t);
+                    expired.add(t.item);
+                    count++;
+                }
+                t = next;
+            }
+        }
+        currentTick = target;
+        return count;
+    }
+
+    private void link(Timeout<T> t) {
+        int index = (int) (t.deadlineTick & mask);
+        Timeout<T> head = buckets[index];
+        t.prev = null;
+        t.next = head;
+        if (head != null) head.prev = t;
+        buckets[index] = t;
+        t.scheduled = true;
+        size++;
+    }
+
+    private void unlink(Timeout<T> t) {
+        int index = (int) (t.deadlineTick & mask);
+        if (t.prev != null) t.prev.next = t.next;
+        else buckets[index] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+        t.scheduled = false;
+        size--;
+    }
+}
@@ -14,6 +14,8 @@ public class SettingsStore {
     private static final String KEY_REGION = "region";
     private static final String KEY_CHANNEL_NAME = "channel_name";
     private static final String KEY_PSK = "psk";
+    private static final String KEY_SHARE_POSITION = "share_position";
+    private static final String KEY_LAST_DEVICE = "last_device_address";
 
     private final SharedPreferences prefs;
 
@@ -40,6 +42,23 @@ public class SettingsStore {
                 .apply();
     }
 
+    public boolean isPositionSharingEnabled() {
+        return prefs.getBoolean(KEY_SHARE_POSITION, false);
+    }
+
+    public void setPositionSharingEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_SHARE_POSITION, enabled).apply();
+    }
+
+    /** MAC последнего радио, к которому подключались ("" — ещё ни к какому). */
+    public String getLastDeviceAddress() {
+        return prefs.getString(KEY_LAST_DEVICE, "");
+    }
+
+    public void setLastDeviceAddress(String address) {
+        prefs.edit().putString(KEY_LAST_DEVICE, safe(address)).apply();
+    }
+
     private static String safe(String value) {
         return value == null ? "" : value.trim();
     }
@@ -0,0 +1,129 @@
+package com.example.meshtastic.data.synthetic;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.TelemetryProtos;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Синтетическая сеть из N узлов — источник FromRadio для макробенчмарков без радио.
+ *
+ * Кадры такие же, какие радио отдаёт по BLE (protobuf без префикса длины): сначала
+ * MY_INFO и NodeInfo всех узлов, затем бесконечный поток обновлений случайных узлов —
+ * SNR, батарея, last_heard и небольшой дрейф позиции. При одном seed последовательность
+ * кадров одинакова. Узел 0 — собственный.
+ */
+public class SyntheticMesh {
+
+    // Номера узлов начинаются отсюда; центр сети — около Москвы, в единицах 1e-7 градуса
+    private static final int BASE_NODE_NUM = 0x5e000000;
+    private static final int CENTER_LAT_I = 557_558_000;
+    private static final int CENTER_LON_I = 376_173_000;
+    private static final int SPREAD_I = 5_000_000;
+    private static final int DRIFT_I = 500;
+
+    private final int nodeCount;
+    private final Random random;
+    private final int[] latI;
+    private final int[] lonI;
+    private final int[] battery;
+    private final int[] hops;
+    // -1 — ещё не отдан MY_INFO, дальше — индекс следующего узла начальной загрузки
+    private int nextInitial = -1;
+
+    public SyntheticMesh(int nodeCount, long seed) {
+        if (nodeCount <= 0) throw new IllegalArgumentException("nodeCount");
+        this.nodeCount = nodeCount;
+        this.random = new Random(seed);
+        latI = new int[nodeCount];
+        lonI = new int[nodeCount];
+        battery = new int[nodeCount];
+        hops = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            latI[i] = CENTER_LAT_I + random.nextInt(2 * SPREAD_I) - SPREAD_I;
+            lonI[i] = CENTER_LON_I + random.nextInt(2 * SPREAD_I) - SPREAD_I;
+            battery[i] = 20 + random.nextInt(81);
+            hops[i] = i == 0 ? 0 : random.nextInt(8);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getMyNodeNum() {
+        return nodeNum(0) & 0xffffffffL;
+    }
+
+    /** true, пока не отданы MY_INFO и все узлы начальной загрузки. */
+    public boolean hasInitialFrames() {
+        return nextInitial < nodeCount;
+    }
+
+    /**
+     * Следующий кадр начальной загрузки: MY_INFO, затем NodeInfo узлов по порядку.
+     * @return null, если начальная загрузка уже отдана
+     */
+    public byte[] nextInitialFrame(long nowMs) {
+        if (!hasInitialFrames()) return null;
+        if (nextInitial < 0) {
+            nextInitial = 0;
+            return MeshProtos.FromRadio.newBuilder()
+                    .setMyInfo(MeshProtos.MyNodeInfo.newBuilder().setMyNodeNum(nodeNum(0)))
+                    .build()
+                    .toByteArray();
+        }
+        return nodeInfoFrame(nextInitial++, nowMs);
+    }
+
+    /** NodeInfo случайного узла с новыми SNR, батареей, временем и позицией. */
+    public byte[] nextUpdateFrame(long nowMs) {
+        int i = random.nextInt(nodeCount);
+        latI[i] += random.nextInt(2 * DRIFT_I + 1) - DRIFT_I;
+        lonI[i] += random.nextInt(2 * DRIFT_I + 1) - DRIFT_I;
+        battery[i] = Math.max(0, Math.min(100, battery[i] + random.nextInt(3) - 1));
+        return nodeInfoFrame(i, nowMs);
+    }
+
+    // Текущее состояние узла i — для пакетов TrafficGenerator
+
+    int latitudeI(int i) {
+        return latI[i];
+    }
+
+    int longitudeI(int i) {
+        return lonI[i];
+    }
+
+    int batteryLevel(int i) {
+        return battery[i];
+    }
+
+    int hopsAway(int i) {
+        return hops[i];
+    }
+
+    private byte[] nodeInfoFrame(int i, long nowMs) {
+        int num = nodeNum(i);
+        MeshProtos.NodeInfo.Builder node = MeshProtos.NodeInfo.newBuilder()
+                .setNum(num)
+                .setUser(MeshProtos.User.newBuilder()
+                        .setId(String.format(Locale.ROOT, "!%08x", num))
+                        .setLongName(String.format(Locale.ROOT, "Synthetic %05d", i))
+                        .setShortName(String.format(Locale.ROOT, "%04x", i & 0xffff)))
+                .setPosition(MeshProtos.Position.newBuilder()
+                        .setLatitudeI(latI[i])
+                        .setLongitudeI(lonI[i]))
+                .setDeviceMetrics(TelemetryProtos.DeviceMetrics.newBuilder()
+                        .setBatteryLevel(battery[i]))
+                .setSnr(-20f + random.nextFloat() * 30f)
+                .setLastHeard((int) (nowMs / 1000));
+        if (i != 0) node.setHopsAway(hops[i]);
+        return MeshProtos.FromRadio.newBuilder().setNodeInfo(node).build().toByteArray();
+    }
+
+    static int nodeNum(int i) {
+        return BASE_NODE_NUM + i;
+    }
+}
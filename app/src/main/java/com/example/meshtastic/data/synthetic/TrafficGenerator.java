@@ -0,0 +1,338 @@
+package com.example.meshtastic.data.synthetic;
+
+import com.example.meshtastic.bluetooth.BleManager;
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+import org.meshtastic.proto.TelemetryProtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Детерминированный генератор трафика FromRadio для нагрузочных и длительных прогонов.
+ *
+ * Поверх {@link SyntheticMesh} (начальная загрузка и NodeInfo) выдаёт смесь пакетов
+ * POSITION, TELEMETRY, TEXT (пачками от одного узла) и ROUTING в заданных весах и
+ * портит поток как эфир: повторы ретрансляций, перестановки и битые кадры. При одном
+ * {@link Config} последовательность кадров одинакова.
+ *
+ * Кадры — те же байты, что отдаёт BLE, их можно подавать прямо в
+ * {@link BleManager.BytesListener}. Не потокобезопасен: один генератор — один поток.
+ */
+public class TrafficGenerator {
+
+    public enum Kind { NODE_INFO, POSITION, TELEMETRY, TEXT, ROUTING }
+
+    /** Параметры генератора; сеттеры возвращают this. */
+    public static class Config {
+        int nodeCount = 1_000;
+        long seed = 1;
+        // Веса по Kind.ordinal()
+        final int[] weights = {10, 30, 30, 10, 20};
+        double duplicateRate;
+        double reorderRate;
+        double corruptRate;
+        int maxReorderDistance = 8;
+        int maxTextBurst = 5;
+
+        public Config nodes(int nodeCount) {
+            if (nodeCount <= 0) throw new IllegalArgumentException("nodeCount");
+            this.nodeCount = nodeCount;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /** Относительный вес вида пакета; 0 — не генерировать. */
+        public Config weight(Kind kind, int weight) {
+            if (weight < 0) throw new IllegalArgumentException("weight");
+            weights[kind.ordinal()] = weight;
+            return this;
+        }
+
+        /** Доля кадров, которые придут ещё раз (ретрансляция того же пакета). */
+        public Config duplicates(double rate) {
+            duplicateRate = checkRate(rate);
+            return this;
+        }
+
+        /** Доля кадров, которые придут позже следующих, не дальше maxReorderDistance. */
+        public Config reorder(double rate) {
+            reorderRate = checkRate(rate);
+            return this;
+        }
+
+        /** Доля кадров с испорченными или отрезанными байтами. */
+        public Config corruption(double rate) {
+            corruptRate = checkRate(rate);
+            return this;
+        }
+
+        public Config maxReorderDistance(int frames) {
+            if (frames <= 0) throw new IllegalArgumentException("frames");
+            maxReorderDistance = frames;
+            return this;
+        }
+
+        public Config maxTextBurst(int messages) {
+            if (messages <= 0) throw new IllegalArgumentException("messages");
+            maxTextBurst = messages;
+            return this;
+        }
+
+        private static double checkRate(double rate) {
+            if (rate < 0 || rate > 1) throw new IllegalArgumentException("rate");
+            return rate;
+        }
+    }
+
+    private static final int BROADCAST = 0xFFFFFFFF;
+    private static final String[] TEXTS = {
+            "Проверка связи", "Иду к точке сбора", "Все хорошо", "Нужна помощь",
+            "На месте", "Связь есть?", "Батарея садится", "Выхожу на маршрут"
+    };
+
+    /** Кадр, отложенный до выдачи номер releaseAt (повтор или перестановка). */
+    private static final class Held {
+        final byte[] frame;
+        final long releaseAt;
+
+        Held(byte[] frame, long releaseAt) {
+            this.frame = frame;
+            this.releaseAt = releaseAt;
+        }
+    }
+
+    private final Config config;
+    private final SyntheticMesh mesh;
+    private final Random random;
+    private final int totalWeight;
+    private final ArrayList<Held> held = new ArrayList<>();
+
+    private int nextPacketId;
+    // Счётчик пакетов нашего узла: у их id старший бит взведён, у чужих — сброшен
+    private int nextOwnPacketId;
+    private int burstFrom = -1;
+    private int burstRemaining;
+
+    private long emitted;
+    private long generated;
+    private long duplicated;
+    private long reordered;
+    private long corrupted;
+
+    public TrafficGenerator(Config config) {
+        this.config = config;
+        int total = 0;
+        for (int w : config.weights) total += w;
+        if (total == 0) throw new IllegalArgumentException("все веса нулевые");
+        totalWeight = total;
+        mesh = new SyntheticMesh(config.nodeCount, config.seed);
+        // Свой поток случайных чисел, чтобы смесь не зависела от числа вызовов SyntheticMesh
+        random = new Random(config.seed * 0x9E3779B97F4A7C15L + 1);
+        nextPacketId = random.nextInt();
+        nextOwnPacketId = random.nextInt();
+    }
+
+    public SyntheticMesh getMesh() {
+        return mesh;
+    }
+
+    /** true, пока идёт начальная загрузка (MY_INFO и NodeInfo всех узлов). */
+    public boolean hasInitialFrames() {
+        return mesh.hasInitialFrames();
+    }
+
+    /**
+     * Следующий кадр. Сначала — начальная загрузка без искажений (она идёт по надёжному
+     * want_config), затем смесь пакетов с повторами, перестановками и порчей.
+     */
+    public byte[] next(long nowMs) {
+        if (mesh.hasInitialFrames()) {
+            emitted++;
+            return mesh.nextInitialFrame(nowMs);
+        }
+        for (int i = 0, n = held.size(); i < n; i++) {
+            Held h = held.get(i);
+            if (h.releaseAt <= emitted) {
+                held.remove(i);
+                emitted++;
+                return h.frame;
+            }
+        }
+        while (true) {
+            byte[] frame = fresh(nowMs);
+            generated++;
+            if (config.duplicateRate > 0 && random.nextDouble() < config.duplicateRate) {
+                duplicated++;
+                held.add(new Held(frame, emitted + 1 + random.nextInt(config.maxReorderDistance)));
+            }
+            if (config.corruptRate > 0 && random.nextDouble() < config.corruptRate) {
+                corrupted++;
+                frame = corrupt(frame);
+            }
+            // Отложенных не больше окна перестановки — иначе при rate=1 цикл не кончится
+            if (config.reorderRate > 0 && held.size() < config.maxReorderDistance
+                    && random.nextDouble() < config.reorderRate) {
+                reordered++;
+                held.add(new Held(frame, emitted + 1 + random.nextInt(config.maxReorderDistance)));
+                continue;
+            }
+            emitted++;
+            return frame;
+        }
+    }
+
+    /**
+     * Подаёт {@code frames} кадров в приёмник — тот же путь, что у кадров с BLE.
+     */
+    public void feed(BleManager.BytesListener sink, int frames, long nowMs) {
+        for (int i = 0; i < frames; i++) sink.onBytes(next(nowMs));
+    }
+
+    /** Выдано кадров всего, включая начальную загрузку, повторы и отложенные. */
+    public long getEmittedCount() {
+        return emitted;
+    }
+
+    /** Сгенерировано новых пакетов после начальной загрузки. */
+    public long getGeneratedCount() {
+        return generated;
+    }
+
+    public long getDuplicatedCount() {
+        return duplicated;
+    }
+
+    public long getReorderedCount() {
+        return reordered;
+    }
+
+    public long getCorruptedCount() {
+        return corrupted;
+    }
+
+    private byte[] fresh(long nowMs) {
+        if (burstRemaining > 0) {
+            burstRemaining--;
+            return text(burstFrom, nowMs);
+        }
+        switch (pickKind()) {
+            case NODE_INFO:
+                return mesh.nextUpdateFrame(nowMs);
+            case POSITION:
+                return position(randomNode(), nowMs);
+            case TELEMETRY:
+                return telemetry(randomNode(), nowMs);
+            case TEXT:
+                burstFrom = randomNode();
+                burstRemaining = random.nextInt(config.maxTextBurst);
+                return text(burstFrom, nowMs);
+            case ROUTING:
+            default:
+                return routing(randomNode(), nowMs);
+        }
+    }
+
+    private Kind pickKind() {
+        int r = random.nextInt(totalWeight);
+        Kind[] kinds = Kind.values();
+        for (int i = 0; i < kinds.length; i++) {
+            r -= config.weights[i];
+            if (r < 0) return kinds[i];
+        }
+        return Kind.NODE_INFO;
+    }
+
+    private int randomNode() {
+        // Узел 0 — собственный, его пакеты радио не пересылает нам в эфир
+        return mesh.getNodeCount() > 1 ? 1 + random.nextInt(mesh.getNodeCount() - 1) : 0;
+    }
+
+    private byte[] position(int node, long nowMs) {
+        MeshProtos.Position p = MeshProtos.Position.newBuilder()
+                .setLatitudeI(mesh.latitudeI(node))
+                .setLongitudeI(mesh.longitudeI(node))
+                .setTime((int) (nowMs / 1000))
+                .build();
+        return packet(node, BROADCAST, Portnums.PortNum.POSITION_APP, p.toByteString(), nowMs);
+    }
+
+    private byte[] telemetry(int node, long nowMs) {
+        TelemetryProtos.Telemetry t = TelemetryProtos.Telemetry.newBuilder()
+                .setTime((int) (nowMs / 1000))
+                .setDeviceMetrics(TelemetryProtos.DeviceMetrics.newBuilder()
+                        .setBatteryLevel(mesh.batteryLevel(node))
+                        .setVoltage(3.3f + mesh.batteryLevel(node) / 100f)
+                        .setChannelUtilization(random.nextFloat() * 40f)
+                        .setAirUtilTx(random.nextFloat() * 10f))
+                .build();
+        return packet(node, BROADCAST, Portnums.PortNum.TELEMETRY_APP, t.toByteString(), nowMs);
+    }
+
+    private byte[] text(int node, long nowMs) {
+        String text = TEXTS[random.nextInt(TEXTS.length)];
+        return packet(node, BROADCAST, Portnums.PortNum.TEXT_MESSAGE_APP,
+                ByteString.copyFrom(text, StandardCharsets.UTF_8), nowMs);
+    }
+
+    /**
+     * ACK нашему узлу на пакет, который он отправил сам: каждый ROUTING отвечает на свой id.
+     * Чужие пакеты генератора — широковещательные, и подтверждать их нашему узлу некому.
+     */
+    private byte[] routing(int node, long nowMs) {
+        MeshProtos.Routing r = MeshProtos.Routing.newBuilder()
+                .setErrorReason(MeshProtos.Routing.Error.NONE)
+                .build();
+        MeshProtos.Data data = MeshProtos.Data.newBuilder()
+                .setPortnum(Portnums.PortNum.ROUTING_APP)
+                .setPayload(r.toByteString())
+                .setRequestId(nextOwnPacketId++ | 0x80000000)
+                .build();
+        return frame(node, SyntheticMesh.nodeNum(0), data, nowMs);
+    }
+
+    private byte[] packet(int node, int to, Portnums.PortNum port, ByteString payload, long nowMs) {
+        MeshProtos.Data data = MeshProtos.Data.newBuilder()
+                .setPortnum(port)
+                .setPayload(payload)
+                .build();
+        return frame(node, to, data, nowMs);
+    }
+
+    private byte[] frame(int node, int to, MeshProtos.Data data, long nowMs) {
+        int hopStart = 3;
+        MeshProtos.MeshPacket p = MeshProtos.MeshPacket.newBuilder()
+                .setFrom(SyntheticMesh.nodeNum(node))
+                .setTo(to)
+                .setId(nextPacketId++ & 0x7fffffff)
+                .setDecoded(data)
+                .setRxTime((int) (nowMs / 1000))
+                .setRxSnr(-20f + random.nextFloat() * 30f)
+                .setRxRssi(-120 + random.nextInt(80))
+                .setHopStart(hopStart)
+                .setHopLimit(Math.max(0, hopStart - mesh.hopsAway(node)))
+                .build();
+        return MeshProtos.FromRadio.newBuilder().setPacket(p).build().toByteArray();
+    }
+
+    /** Отрезает хвост или переворачивает несколько битов — как сбой на линии. */
+    private byte[] corrupt(byte[] frame) {
+        if (frame.length > 1 && random.nextBoolean()) {
+            return Arrays.copyOf(frame, 1 + random.nextInt(frame.length - 1));
+        }
+        byte[] out = frame.clone();
+        int flips = 1 + random.nextInt(3);
+        for (int i = 0; i < flips; i++) {
+            out[random.nextInt(out.length)] ^= (byte) (1 << random.nextInt(8));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.meshtastic.data.text;
+
+import com.example.meshtastic.data.inspector.HexEncoder;
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.send.LoRaAirtime;
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Текст сообщения ↔ MeshProtos.Data для TEXT_MESSAGE_APP и TEXT_MESSAGE_COMPRESSED_APP.
+ */
+public final class TextPayload {
+
+    // Сообщения Meshtastic не длиннее ~230 байт; запас — на словарные ссылки и повторы
+    private static final int MAX_DECODED_BYTES = 4096;
+    // Сколько байт сырой нагрузки показать, если распаковать не удалось
+    static final int MAX_RAW_SHOWN = 64;
+
+    private static final Counter UNDECODED = MetricsRegistry.get().counter("text.compressed.undecoded");
+
+    private TextPayload() {
+    }
+
+    public static boolean isText(MeshProtos.Data data) {
+        Portnums.PortNum port = data.getPortnum();
+        return port == Portnums.PortNum.TEXT_MESSAGE_APP || port == Portnums.PortNum.TEXT_MESSAGE_COMPRESSED_APP;
+    }
+
+    /**
+     * Текст из пакета; сжатый Unishox2 распаковывается прозрачно. Если сжатые данные
+     * не разобрать (delta/hex-escape, которые кодек не поддерживает, или мусор), вместо
+     * текста — пометка с hex сырой нагрузки: сообщение видно в чате, а не теряется молча.
+     * @return null, если порт не текстовый
+     */
+    public static String decode(MeshProtos.Data data) {
+        switch (data.getPortnum()) {
+            case TEXT_MESSAGE_APP:
+                return data.getPayload().toStringUtf8();
+            case TEXT_MESSAGE_COMPRESSED_APP: {
+                byte[] in = data.getPayload().toByteArray();
+                byte[] out = new byte[MAX_DECODED_BYTES];
+                int n = Unishox2.decompress(in, 0, in.length, out);
+                if (n >= 0) return new String(out, 0, n, StandardCharsets.UTF_8);
+                UNDECODED.increment();
+                return undecodable(in);
+            }
+            default:
+                return null;
+        }
+    }
+
+    static String undecodable(byte[] payload) {
+        int shown = Math.min(payload.length, MAX_RAW_SHOWN);
+        StringBuilder sb = new StringBuilder(64 + shown * 3)
+                .append("[сжатое сообщение не распаковано, ")
+                .append(payload.length)
+                .append(" байт: ");
+        HexEncoder.append(sb, payload, 0, shown);
+        if (shown < payload.length) sb.append(" …");
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Нагрузка для отправки текста. Сжатая версия выбирается, только если она
+     * экономит хотя бы один блок символов LoRa (иначе время в эфире то же, а совместимость хуже).
+     */
+    public static MeshProtos.Data encode(String text, boolean allowCompression, LoRaAirtime airtime) {
+        byte[] raw = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        MeshProtos.Data plain = MeshProtos.Data.newBuilder()
+                .setPortnum(Portnums.PortNum.TEXT_MESSAGE_APP)
+                .setPayload(ByteString.copyFrom(raw))
+                .build();
+        if (!allowCompression || raw.length < 4) return plain;
+
+        byte[] packed = new byte[raw.length - 1];
+        int n = Unishox2.compress(raw, raw.length, packed);
+        if (n < 0) return plain;
+
+        MeshProtos.Data compressed = MeshProtos.Data.newBuilder()
+                .setPortnum(Portnums.PortNum.TEXT_MESSAGE_COMPRESSED_APP)
+                .setPayload(ByteString.copyFrom(packed, 0, n))
+                .build();
+        int plainSymbols = airtime.payloadSymbols(LoRaAirtime.MESH_HEADER_BYTES + plain.getSerializedSize());
+        int packedSymbols = airtime.payloadSymbols(LoRaAirtime.MESH_HEADER_BYTES + compressed.getSerializedSize());
+        return packedSymbols < plainSymbols ? compressed : plain;
+    }
+}
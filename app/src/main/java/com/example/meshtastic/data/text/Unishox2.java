@@ -0,0 +1,496 @@
+package com.example.meshtastic.data.text;
+
+/**
+ * Кодек Unishox2 (пресет по умолчанию, как unishox2_compress_simple / unishox2_decompress_simple
+ * в прошивке Meshtastic) для TEXT_MESSAGE_COMPRESSED_APP.
+ *
+ * Поддерживается подмножество формата, которого достаточно для текста в ASCII:
+ * наборы букв/символов/цифр, регистр, повтор символа, словарные ссылки назад,
+ * частые последовательности и терминатор. Unicode (delta-кодирование), шестнадцатеричные
+ * последовательности и шаблоны не кодируются; встретив их при разборе, декодер
+ * сообщает об ошибке ({@link #decompress} возвращает -1), а не выдаёт мусор.
+ *
+ * Без аллокаций на символ: работа идёт с массивами, переданными вызывающим.
+ */
+public final class Unishox2 {
+
+    private static final int ALPHA = 0;
+    private static final int SYM = 1;
+    private static final int NUM = 2;
+    private static final int DICT = 3;
+    private static final int DELTA = 4;
+
+    // Горизонтальные коды (переключение набора) — выровнены влево в байте
+    private static final int[] HCODES = {0x00, 0x40, 0x80, 0xC0, 0xE0};
+    private static final int[] HCODE_LENS = {2, 2, 2, 3, 3};
+
+    private static final char[][] SETS = {
+            {0, ' ', 'e', 't', 'a', 'o', 'i', 'n', 's', 'r', 'l', 'c', 'd', 'h', 'u', 'p', 'm', 'b',
+                    'g', 'w', 'f', 'y', 'v', 'k', 'q', 'j', 'x', 'z'},
+            {'"', '{', '}', '_', '<', '>', ':', '\n', 0, '[', ']', '\\', ';', '\'', '\t', '@', '*', '&',
+                    '?', '!', '^', '|', '\r', '~', '`', 0, 0, 0},
+            {0, ',', '.', '0', '1', '9', '2', '5', '-', '/', '3', '4', '6', '7', '8', '(', ')', ' ',
+                    '=', '+', '$', '%', '#', 0, 0, 0, 0, 0}
+    };
+
+    // Вертикальные коды (позиция в наборе) — префиксный код, выровнен влево в байте
+    private static final int[] VCODES = {
+            0x00, 0x40, 0x60, 0x80, 0x90, 0xA0, 0xB0,
+            0xC0, 0xD0, 0xD8, 0xE0, 0xE4, 0xE8, 0xEC,
+            0xEE, 0xF0, 0xF2, 0xF4, 0xF6, 0xF7, 0xF8,
+            0xF9, 0xFA, 0xFB, 0xFC, 0xFD, 0xFE, 0xFF};
+    private static final int[] VCODE_LENS = {
+            2, 3, 3, 4, 4, 4, 4,
+            4, 5, 5, 6, 6, 6, 7,
+            7, 7, 7, 7, 8, 8, 8,
+            8, 8, 8, 8, 8, 8, 8};
+
+    // Код символа: старшие 3 бита — набор, младшие 5 — позиция
+    private static int code(int set, int pos) {
+        return (set << 5) + pos;
+    }
+
+    private static final int RPT_CODE = code(NUM, 26);
+    private static final int TERM_CODE = code(NUM, 27);
+    private static final int LF_CODE = code(SYM, 7);
+    private static final int CRLF_CODE = code(SYM, 8);
+    private static final int CR_CODE = code(SYM, 22);
+    private static final int TAB_CODE = code(SYM, 14);
+    private static final int NUM_SPC_CODE = code(NUM, 17);
+
+    private static final byte[][] FREQ_SEQ = {
+            ascii("\": \""), ascii("\": "), ascii("</"), ascii("=\""), ascii("\":\""), ascii("://")};
+    private static final int[] FREQ_CODES = {
+            code(SYM, 25), code(SYM, 26), code(SYM, 27), code(NUM, 23), code(NUM, 24), code(NUM, 25)};
+
+    private static final int SW_CODE = 0;
+    private static final int SW_CODE_LEN = 2;
+
+    // Минимальная длина словарной ссылки
+    private static final int NICE_LEN = 5;
+
+    private static final int[] COUNT_BIT_LENS = {2, 4, 7, 11, 16};
+    private static final int[] COUNT_ADDER = {4, 20, 148, 2196, 67732};
+    // Старшие 5 бит — код, младшие 3 — его длина
+    private static final int[] COUNT_CODES = {0x01, 0x82, 0xC3, 0xE4, 0xF4};
+
+    private static final int OFFSET_94 = 33;
+    private static final int[] CODE_94 = new int[94];
+    // Декодирование vcode по 8 битам: (длина << 5) | позиция
+    private static final int[] VCODE_LOOKUP = new int[256];
+
+    static {
+        for (int set = 0; set < 3; set++) {
+            for (int pos = 0; pos < 28; pos++) {
+                char c = SETS[set][pos];
+                if (c > 32) {
+                    CODE_94[c - OFFSET_94] = code(set, pos);
+                    if (c >= 'a' && c <= 'z') CODE_94[c - OFFSET_94 - ('a' - 'A')] = code(set, pos);
+                }
+            }
+        }
+        for (int pos = 0; pos < VCODES.length; pos++) {
+            int span = 1 << (8 - VCODE_LENS[pos]);
+            for (int i = 0; i < span; i++) {
+                VCODE_LOOKUP[VCODES[pos] + i] = (VCODE_LENS[pos] << 5) | pos;
+            }
+        }
+    }
+
+    private Unishox2() {
+    }
+
+    // -------------------- Сжатие --------------------
+
+    /**
+     * Сжимает in[0..len). Поддерживаются печатные ASCII, '\n', '\r', '\t'.
+     * @return длина результата в out, или -1 если текст не поддерживается или не помещается в out
+     */
+    public static int compress(byte[] in, int len, byte[] out) {
+        BitWriter w = new BitWriter(out);
+        int state = ALPHA;
+        boolean allUpper = false;
+
+        if (!w.append(0x80, 1)) return -1; // "магический" бит Unishox2
+
+        for (int l = 0; l < len; l++) {
+            if (l < len - NICE_LEN + 1) {
+                int next = matchOccurrence(in, len, l, w, state);
+                if (next == -2) return -1;
+                if (next >= 0) {
+                    l = next;
+                    continue;
+                }
+            }
+
+            int c = in[l] & 0xFF;
+
+            // Повтор предыдущего символа (не меньше 4 раз)
+            if (l > 0 && len > 4 && l < len - 4
+                    && c == (in[l - 1] & 0xFF) && c == (in[l + 1] & 0xFF)
+                    && c == (in[l + 2] & 0xFF) && c == (in[l + 3] & 0xFF)) {
+                int end = l + 4;
+                while (end < len && (in[end] & 0xFF) == c) end++;
+                int count = end - l;
+                state = appendCode(w, RPT_CODE, state);
+                if (state < 0 || !encodeCount(w, count - 4)) return -1;
+                l = end - 1;
+                continue;
+            }
+
+            int seq = matchFreqSeq(in, len, l);
+            if (seq >= 0) {
+                state = appendCode(w, FREQ_CODES[seq], state);
+                if (state < 0) return -1;
+                l += FREQ_SEQ[seq].length - 1;
+                continue;
+            }
+
+            boolean upper = c >= 'A' && c <= 'Z';
+            if (!upper && allUpper) {
+                allUpper = false;
+                if (!appendSwitch(w) || !w.append(HCODES[ALPHA], HCODE_LENS[ALPHA])) return -1;
+                state = ALPHA;
+            }
+            if (upper && !allUpper) {
+                if (state == NUM) {
+                    if (!appendSwitch(w) || !w.append(HCODES[ALPHA], HCODE_LENS[ALPHA])) return -1;
+                    state = ALPHA;
+                }
+                if (!appendSwitch(w) || !w.append(HCODES[ALPHA], HCODE_LENS[ALPHA])) return -1;
+                // Шесть заглавных подряд — включаем режим "всё заглавными"
+                int ll = l + 5;
+                while (ll >= l && ll < len && in[ll] >= 'A' && in[ll] <= 'Z') ll--;
+                if (ll == l - 1) {
+                    if (!appendSwitch(w) || !w.append(HCODES[ALPHA], HCODE_LENS[ALPHA])) return -1;
+                    allUpper = true;
+                }
+            }
+
+            if (c == ' ') {
+                int v = state == NUM ? (NUM_SPC_CODE & 0x1F) : 1;
+                if (!w.append(VCODES[v], VCODE_LENS[v])) return -1;
+            } else if (c > 32 && c < 127) {
+                state = appendCode(w, CODE_94[c - OFFSET_94], state);
+            } else if (c == '\r' && l + 1 < len && in[l + 1] == '\n') {
+                state = appendCode(w, CRLF_CODE, state);
+                l++;
+            } else if (c == '\n') {
+                state = appendCode(w, LF_CODE, state);
+            } else if (c == '\r') {
+                state = appendCode(w, CR_CODE, state);
+            } else if (c == '\t') {
+                state = appendCode(w, TAB_CODE, state);
+            } else {
+                return -1; // Unicode и управляющие символы — не в этом подмножестве
+            }
+            if (state < 0) return -1;
+        }
+
+        return w.finish(state);
+    }
+
+    /**
+     * @return новая позиция l, -1 если совпадения нет, -2 если не хватило места
+     */
+    private static int matchOccurrence(byte[] in, int len, int l, BitWriter w, int state) {
+        int longestLen = 0;
+        int longestDist = 0;
+        for (int j = l - NICE_LEN; j >= 0; j--) {
+            int k = l;
+            while (k < len && j + k - l < l && in[k] == in[j + k - l]) k++;
+            if (k - l > NICE_LEN - 1) {
+                int matchLen = k - l - NICE_LEN;
+                if (matchLen > longestLen) {
+                    longestLen = matchLen;
+                    longestDist = l - j - NICE_LEN + 1;
+                }
+            }
+        }
+        if (longestLen == 0) return -1;
+        if (!appendSwitch(w) || !w.append(HCODES[DICT], HCODE_LENS[DICT])
+                || !encodeCount(w, longestLen) || !encodeCount(w, longestDist)) {
+            return -2;
+        }
+        return l + longestLen + NICE_LEN - 1;
+    }
+
+    private static int matchFreqSeq(byte[] in, int len, int l) {
+        outer:
+        for (int i = 0; i < FREQ_SEQ.length; i++) {
+            byte[] seq = FREQ_SEQ[i];
+            if (l + seq.length > len) continue;
+            for (int k = 0; k < seq.length; k++) {
+                if (in[l + k] != seq[k]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean appendSwitch(BitWriter w) {
+        return w.append(SW_CODE, SW_CODE_LEN);
+    }
+
+    /** @return новое состояние или -1, если не хватило места */
+    private static int appendCode(BitWriter w, int code, int state) {
+        int h = code >> 5;
+        int v = code & 0x1F;
+        switch (h) {
+            case ALPHA:
+                if (state != ALPHA) {
+                    if (!appendSwitch(w) || !w.append(HCODES[ALPHA], HCODE_LENS[ALPHA])) return -1;
+                    state = ALPHA;
+                }
+                break;
+            case SYM:
+                if (!appendSwitch(w) || !w.append(HCODES[SYM], HCODE_LENS[SYM])) return -1;
+                break;
+            case NUM:
+                if (state != NUM) {
+                    if (!appendSwitch(w) || !w.append(HCODES[NUM], HCODE_LENS[NUM])) return -1;
+                    char c = SETS[NUM][v];
+                    if (c >= '0' && c <= '9') state = NUM;
+                }
+                break;
+            default:
+                break;
+        }
+        return w.append(VCODES[v], VCODE_LENS[v]) ? state : -1;
+    }
+
+    private static boolean encodeCount(BitWriter w, int count) {
+        for (int i = 0; i < COUNT_BIT_LENS.length; i++) {
+            if (count < COUNT_ADDER[i]) {
+                if (!w.append(COUNT_CODES[i] & 0xF8, COUNT_CODES[i] & 0x07)) return false;
+                int bits = COUNT_BIT_LENS[i];
+                int value = (count - (i > 0 ? COUNT_ADDER[i - 1] : 0)) << (16 - bits);
+                if (bits > 8) {
+                    return w.append((value >> 8) & 0xFF, 8) && w.append(value & 0xFF, bits - 8);
+                }
+                return w.append((value >> 8) & 0xFF, bits);
+            }
+        }
+        return false;
+    }
+
+    /** Запись битов старшими вперёд в заранее выделенный массив. */
+    private static final class BitWriter {
+        private final byte[] out;
+        private int bit;
+
+        BitWriter(byte[] out) {
+            this.out = out;
+        }
+
+        /** code выровнен влево в байте, len ≤ 8 */
+        boolean append(int code, int len) {
+            if (bit + len > out.length * 8) return false;
+            for (int i = 0; i < len; i++) {
+                int idx = bit >> 3;
+                int mask = 0x80 >> (bit & 7);
+                if ((code & (0x80 >> i)) != 0) out[idx] |= mask;
+                else out[idx] &= ~mask;
+                bit++;
+            }
+            return true;
+        }
+
+        /**
+         * Терминатор (переход в набор цифр + TERM), обрезанный по границе байта,
+         * остаток последнего байта заполняется единицами — как в прошивке.
+         */
+        int finish(int state) {
+            int bytes = (bit + 7) >> 3;
+            int limit = bytes * 8;
+            if (state != NUM) {
+                appendTruncated(SW_CODE, SW_CODE_LEN, limit);
+                appendTruncated(HCODES[NUM], HCODE_LENS[NUM], limit);
+            }
+            int t = TERM_CODE & 0x1F;
+            appendTruncated(VCODES[t], VCODE_LENS[t], limit);
+            while (bit < limit) {
+                out[bit >> 3] |= 0x80 >> (bit & 7);
+                bit++;
+            }
+            return bytes;
+        }
+
+        private void appendTruncated(int code, int len, int limit) {
+            append(code, Math.min(len, Math.max(0, limit - bit)));
+        }
+    }
+
+    // -------------------- Распаковка --------------------
+
+    /**
+     * Распаковывает in[off..off+len) в out.
+     * @return длина результата, или -1 при повреждённых данных, неподдерживаемой
+     *         возможности формата или нехватке места в out
+     */
+    public static int decompress(byte[] in, int off, int len, byte[] out) {
+        BitReader r = new BitReader(in, off, len);
+        r.bit = 1; // магический бит
+        int dstate = ALPHA;
+        boolean allUpper = false;
+        int ol = 0;
+
+        while (r.bit < r.end) {
+            int h = dstate;
+            boolean upper = false;
+
+            int v = r.readVCode();
+            if (v < 0) break;
+
+            if (v == 0) {
+                h = r.readHCode();
+                if (h < 0 || r.bit >= r.end) break;
+                if (h == ALPHA) {
+                    if (dstate != ALPHA) {
+                        dstate = ALPHA;
+                        continue;
+                    }
+                    if (allUpper) {
+                        allUpper = false;
+                        continue;
+                    }
+                    v = r.readVCode();
+                    if (v < 0) break;
+                    if (v == 0) {
+                        int h2 = r.readHCode();
+                        if (h2 < 0) break;
+                        if (h2 != ALPHA) return -1;
+                        allUpper = true;
+                        continue;
+                    }
+                    if (v == 1) return -1; // заглавный пробел — переход в delta-режим (Unicode)
+                    upper = true;
+                } else if (h == DICT) {
+                    int dictLen = r.readCount();
+                    int dist = r.readCount();
+                    if (dictLen < 0 || dist < 0) break;
+                    dictLen += NICE_LEN;
+                    dist += NICE_LEN - 1;
+                    if (dist > ol || ol + dictLen > out.length) return -1;
+                    // Побайтно: при dist < dictLen источник перекрывается с приёмником
+                    for (int i = 0; i < dictLen; i++) out[ol + i] = out[ol - dist + i];
+                    ol += dictLen;
+                    continue;
+                } else if (h == DELTA) {
+                    return -1;
+                } else {
+                    v = r.readVCode();
+                    if (v < 0) break;
+                    if (h == NUM && v == 0) return -1; // hex/шаблоны/UUID
+                }
+            }
+
+            char c = SETS[h][v];
+            if (c == 0) {
+                int code = code(h, v);
+                if (code == TERM_CODE) break;
+                if (code == RPT_CODE) {
+                    int count = r.readCount();
+                    if (count < 0) break;
+                    count += 4;
+                    if (ol == 0 || ol + count > out.length) return -1;
+                    byte prev = out[ol - 1];
+                    for (int i = 0; i < count; i++) out[ol++] = prev;
+                    continue;
+                }
+                byte[] seq = null;
+                if (code == CRLF_CODE) {
+                    if (ol + 2 > out.length) return -1;
+                    out[ol++] = '\r';
+                    out[ol++] = '\n';
+                    continue;
+                }
+                for (int i = 0; i < FREQ_CODES.length; i++) {
+                    if (FREQ_CODES[i] == code) seq = FREQ_SEQ[i];
+                }
+                if (seq == null || ol + seq.length > out.length) return -1;
+                System.arraycopy(seq, 0, out, ol, seq.length);
+                ol += seq.length;
+                continue;
+            }
+
+            if (c >= 'a' && c <= 'z' && (upper || allUpper)) c -= 32;
+            if (ol >= out.length) return -1;
+            out[ol++] = (byte) c;
+            if (h == NUM && c >= '0' && c <= '9') dstate = NUM;
+        }
+        return ol;
+    }
+
+    private static final class BitReader {
+        private final byte[] in;
+        private final int off;
+        final int end;
+        int bit;
+
+        BitReader(byte[] in, int off, int len) {
+            this.in = in;
+            this.off = off;
+            this.end = len * 8;
+        }
+
+        /** 8 бит с позиции bit; за концом данных — единицы (как дополнение при сжатии). */
+        private int peek8() {
+            int idx = bit >> 3;
+            int shift = bit & 7;
+            int hi = (in[off + idx] & 0xFF) << shift;
+            int lo = (idx + 1) * 8 < end ? (in[off + idx + 1] & 0xFF) >> (8 - shift) : 0xFF >> (8 - shift);
+            return (hi | lo) & 0xFF;
+        }
+
+        int readVCode() {
+            if (bit >= end) return -1;
+            int e = VCODE_LOOKUP[peek8()];
+            int len = e >> 5;
+            if (bit + len > end) return -1;
+            bit += len;
+            return e & 0x1F;
+        }
+
+        int readHCode() {
+            if (bit >= end) return -1;
+            int code = peek8();
+            for (int h = 0; h < HCODES.length; h++) {
+                int mask = (0xFF << (8 - HCODE_LENS[h])) & 0xFF;
+                if ((code & mask) == HCODES[h]) {
+                    if (bit + HCODE_LENS[h] > end) return -1;
+                    bit += HCODE_LENS[h];
+                    return h;
+                }
+            }
+            return -1;
+        }
+
+        int readCount() {
+            // Префикс: до четырёх единиц, завершённый нулём (после четырёх единиц нуля нет)
+            int idx = 0;
+            while (idx < 4) {
+                if (bit >= end) return -1;
+                if (readBit() == 0) break;
+                idx++;
+            }
+            int bits = COUNT_BIT_LENS[idx];
+            if (bit + bits > end) return -1;
+            int value = 0;
+            for (int i = 0; i < bits; i++) value = (value << 1) | readBit();
+            return value + (idx > 0 ? COUNT_ADDER[idx - 1] : 0);
+        }
+
+        private int readBit() {
+            int b = (in[off + (bit >> 3)] >> (7 - (bit & 7))) & 1;
+            bit++;
+            return b;
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++) b[i] = (byte) s.charAt(i);
+        return b;
+    }
+}
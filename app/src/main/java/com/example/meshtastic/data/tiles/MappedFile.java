@@ -0,0 +1,83 @@
+package com.example.meshtastic.data.tiles;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Файл только для чтения, отображённый в память сегментами.
+ *
+ * MappedByteBuffer ограничен 2 ГБ, поэтому файл режется на сегменты по {@link #SEGMENT_SIZE},
+ * которые отображаются лениво при первом обращении. Открытие не читает данные вообще —
+ * страницы подгружает ОС по мере чтения, так что многогигабайтный файл открывается мгновенно.
+ * Чтение потокобезопасно.
+ */
+class MappedFile implements Closeable {
+
+    private static final long SEGMENT_SIZE = 1L << 30; // 1 ГБ
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long size;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+
+    MappedFile(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+        size = channel.size();
+        segments = new AtomicReferenceArray<>((int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE));
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Читает length байт начиная с offset. Диапазон может пересекать границу сегментов.
+     */
+    byte[] read(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IOException("Чтение за пределами файла: " + offset + "+" + length + " > " + size);
+        }
+        byte[] out = new byte[length];
+        int done = 0;
+        while (done < length) {
+            long pos = offset + done;
+            int index = (int) (pos / SEGMENT_SIZE);
+            int inSegment = (int) (pos % SEGMENT_SIZE);
+            // duplicate(): у каждого читателя своя позиция, сам буфер общий
+            ByteBuffer view = segment(index).duplicate();
+            int n = Math.min(length - done, view.capacity() - inSegment);
+            view.position(inSegment);
+            view.get(out, done, n);
+            done += n;
+        }
+        return out;
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer seg = segments.get(index);
+        if (seg != null) return seg;
+        synchronized (segments) {
+            seg = segments.get(index);
+            if (seg == null) {
+                long start = index * SEGMENT_SIZE;
+                long len = Math.min(SEGMENT_SIZE, size - start);
+                seg = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+                segments.set(index, seg);
+            }
+            return seg;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.meshtastic.data.tiles;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение MBTiles (SQLite). Тайлы достаются точечными запросами по индексу
+ * (zoom_level, tile_column, tile_row), база открывается только на чтение
+ * с включённым mmap SQLite — без распаковки и без чтения файла целиком.
+ */
+public class MbTilesArchive implements TileArchive {
+
+    // Сколько файла SQLite разрешено отображать в память
+    private static final long MMAP_SIZE = 1L << 30;
+
+    private static final String[] TILE_COLUMNS = {"tile_data"};
+    private static final String TILE_WHERE = "zoom_level = ? AND tile_column = ? AND tile_row = ?";
+
+    private final SQLiteDatabase db;
+    private final Format format;
+    private final int minZoom;
+    private final int maxZoom;
+    private final String[] vectorLayers;
+
+    public MbTilesArchive(File path) throws IOException {
+        try {
+            db = SQLiteDatabase.openDatabase(path.getAbsolutePath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        } catch (RuntimeException e) {
+            throw new IOException("Не удалось открыть MBTiles: " + path, e);
+        }
+        try (Cursor c = db.rawQuery("PRAGMA mmap_size = " + MMAP_SIZE, null)) {
+            c.moveToFirst();
+        }
+        format = formatOf(metadata("format"));
+        minZoom = parseInt(metadata("minzoom"), 0);
+        maxZoom = parseInt(metadata("maxzoom"), 14);
+        String json = metadata("json");
+        vectorLayers = json != null
+                ? PmTilesArchive.parseVectorLayers(json.getBytes(StandardCharsets.UTF_8))
+                : new String[0];
+    }
+
+    @Override
+    public byte[] readTile(int z, int x, int y) {
+        // MBTiles хранит строки в схеме TMS (y снизу вверх)
+        int tmsY = (1 << z) - 1 - y;
+        String[] args = {Integer.toString(z), Integer.toString(x), Integer.toString(tmsY)};
+        try (Cursor c = db.query("tiles", TILE_COLUMNS, TILE_WHERE, args, null, null, null)) {
+            return c.moveToFirst() ? c.getBlob(0) : null;
+        }
+    }
+
+    private String metadata(String name) {
+        try (Cursor c = db.rawQuery("SELECT value FROM metadata WHERE name = ?", new String[]{name})) {
+            return c.moveToFirst() ? c.getString(0) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Format formatOf(String format) {
+        if (format == null) return Format.UNKNOWN;
+        switch (format) {
+            case "pbf": return Format.MVT;
+            case "png": return Format.PNG;
+            case "jpg":
+            case "jpeg": return Format.JPEG;
+            case "webp": return Format.WEBP;
+            default: return Format.UNKNOWN;
+        }
+    }
+
+    private static int parseInt(String s, int fallback) {
+        if (s == null) return fallback;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    public Format getFormat() {
+        return format;
+    }
+
+    @Override
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    @Override
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    @Override
+    public String[] getVectorLayers() {
+        return vectorLayers;
+    }
+
+    @Override
+    public void close() {
+        db.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.meshtastic.data.tiles;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * OkHttp-перехватчик для HTTP-стека MapLibre: запросы к {@link OfflineTileProvider#TILE_HOST}
+ * обслуживаются из локального архива, остальные уходят в сеть как обычно.
+ */
+public class OfflineTileInterceptor implements Interceptor {
+
+    private static final MediaType MVT = MediaType.parse("application/x-protobuf");
+    private static final MediaType PNG = MediaType.parse("image/png");
+    private static final MediaType JPEG = MediaType.parse("image/jpeg");
+    private static final MediaType WEBP = MediaType.parse("image/webp");
+    private static final MediaType OCTET = MediaType.parse("application/octet-stream");
+
+    private volatile OfflineTileProvider provider;
+
+    public void setProvider(OfflineTileProvider provider) {
+        this.provider = provider;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!OfflineTileProvider.TILE_HOST.equals(request.url().host())) {
+            return chain.proceed(request);
+        }
+
+        OfflineTileProvider p = provider;
+        byte[] tile = null;
+        List<String> segments = request.url().pathSegments();
+        if (p != null && segments.size() == 3) {
+            try {
+                int z = Integer.parseInt(segments.get(0));
+                int x = Integer.parseInt(segments.get(1));
+                int y = Integer.parseInt(segments.get(2));
+                tile = p.getTile(z, x, y);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        Response.Builder b = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1);
+        if (tile == null) {
+            // 204: MapLibre считает тайл пустым, без ошибки и повторов
+            return b.code(204).message("No Content")
+                    .body(ResponseBody.create(new byte[0], OCTET))
+                    .build();
+        }
+        return b.code(200).message("OK")
+                .header("Cache-Control", "no-store")
+                .body(ResponseBody.create(tile, mediaType(p.getArchive().getFormat())))
+                .build();
+    }
+
+    private static MediaType mediaType(TileArchive.Format format) {
+        switch (format) {
+            case MVT: return MVT;
+            case PNG: return PNG;
+            case JPEG: return JPEG;
+            case WEBP: return WEBP;
+            default: return OCTET;
+        }
+    }
+}
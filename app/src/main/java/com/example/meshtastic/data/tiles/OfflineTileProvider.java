@@ -0,0 +1,120 @@
+package com.example.meshtastic.data.tiles;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Локальный источник тайлов для карты: архив + LRU уже распакованных тайлов.
+ *
+ * Тайлы запрашиваются из сетевых потоков MapLibre (через {@link OfflineTileInterceptor}),
+ * поэтому чтение с диска никогда не выполняется в главном потоке.
+ */
+public class OfflineTileProvider {
+
+    private static final String TAG = "OfflineTileProvider";
+
+    /** Каталог с офлайн-картами внутри внешнего хранилища приложения. */
+    public static final String MAPS_DIR = "maps";
+
+    /** Условный хост, запросы к которому обслуживаются локально. */
+    public static final String TILE_HOST = "offline.tiles";
+    public static final String TILE_URL_TEMPLATE = "https://" + TILE_HOST + "/{z}/{x}/{y}";
+
+    private static final int CACHE_BYTES = 32 * 1024 * 1024;
+
+    private static OfflineTileProvider current;
+
+    private final File file;
+    private final TileArchive archive;
+    private final LruCache<Long, byte[]> cache = new LruCache<Long, byte[]>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Long key, byte[] value) {
+            return value.length;
+        }
+    };
+
+    private OfflineTileProvider(File file, TileArchive archive) {
+        this.file = file;
+        this.archive = archive;
+    }
+
+    /**
+     * Открывает первый найденный архив (.pmtiles или .mbtiles) в каталоге карт.
+     * Повторные вызовы возвращают уже открытый архив. Вызывать не из главного потока.
+     * @return null, если офлайн-карт нет
+     */
+    public static synchronized OfflineTileProvider openDefault(Context context) {
+        File dir = context.getApplicationContext().getExternalFilesDir(MAPS_DIR);
+        File candidate = findArchive(dir);
+        if (candidate == null) return null;
+        if (current != null && current.file.equals(candidate)) return current;
+
+        try {
+            TileArchive archive = open(candidate);
+            if (current != null) current.close();
+            current = new OfflineTileProvider(candidate, archive);
+            Log.d(TAG, "Офлайн-карта: " + candidate.getName() + " (" + archive.getFormat() + ")");
+            return current;
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось открыть офлайн-карту " + candidate, e);
+            return null;
+        }
+    }
+
+    static TileArchive open(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".pmtiles")) return new PmTilesArchive(file);
+        if (name.endsWith(".mbtiles")) return new MbTilesArchive(file);
+        throw new IOException("Неизвестный формат архива: " + file);
+    }
+
+    private static File findArchive(File dir) {
+        if (dir == null) return null;
+        File[] files = dir.listFiles();
+        if (files == null) return null;
+        for (File f : files) {
+            String name = f.getName().toLowerCase(Locale.ROOT);
+            if (f.isFile() && (name.endsWith(".pmtiles") || name.endsWith(".mbtiles"))) return f;
+        }
+        return null;
+    }
+
+    /**
+     * Распакованный тайл (gzip снимается здесь, MapLibre получает готовые байты).
+     * @return null, если тайла нет в архиве
+     */
+    public byte[] getTile(int z, int x, int y) throws IOException {
+        if (z < 0 || z > 24 || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) return null;
+        long key = ((long) z << 50) | ((long) x << 25) | y;
+        byte[] tile = cache.get(key);
+        if (tile != null) return tile;
+
+        tile = archive.readTile(z, x, y);
+        if (tile == null) return null;
+        if (TileCodec.isGzip(tile)) tile = TileCodec.gunzip(tile);
+        cache.put(key, tile);
+        return tile;
+    }
+
+    public TileArchive getArchive() {
+        return archive;
+    }
+
+    public String getName() {
+        return file.getName();
+    }
+
+    private void close() {
+        cache.evictAll();
+        try {
+            archive.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Ошибка закрытия архива", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.meshtastic.data.tiles;
+
+import android.util.LruCache;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение PMTiles v3 (один файл: заголовок, каталоги, тайлы) через {@link MappedFile}.
+ *
+ * При открытии читаются только 127-байтный заголовок и корневой каталог; листовые
+ * каталоги декодируются по требованию и держатся в небольшом LRU.
+ */
+public class PmTilesArchive implements TileArchive {
+
+    private static final int HEADER_SIZE = 127;
+    private static final int MAX_DIRECTORY_DEPTH = 4;
+
+    private static final int COMPRESSION_NONE = 1;
+    private static final int COMPRESSION_GZIP = 2;
+
+    /** Каталог в виде параллельных массивов (без объекта на запись). */
+    private static final class Directory {
+        final long[] tileIds;
+        final int[] runLengths;
+        final int[] lengths;
+        final long[] offsets;
+
+        Directory(int n) {
+            tileIds = new long[n];
+            runLengths = new int[n];
+            lengths = new int[n];
+            offsets = new long[n];
+        }
+
+        /** Индекс записи с наибольшим tileId <= id, или -1. */
+        int find(long id) {
+            int lo = 0;
+            int hi = tileIds.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long v = tileIds[mid];
+                if (v < id) lo = mid + 1;
+                else if (v > id) hi = mid - 1;
+                else return mid;
+            }
+            return hi;
+        }
+    }
+
+    private final MappedFile file;
+    private final Directory root;
+    private final long leafDirsOffset;
+    private final long tileDataOffset;
+    private final int internalCompression;
+    private final int minZoom;
+    private final int maxZoom;
+    private final Format format;
+    private final String[] vectorLayers;
+
+    private final LruCache<Long, Directory> leafCache = new LruCache<>(64);
+
+    public PmTilesArchive(File path) throws IOException {
+        file = new MappedFile(path);
+        try {
+            ByteBuffer h = ByteBuffer.wrap(file.read(0, HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[7];
+            h.get(magic);
+            if (!"PMTiles".equals(new String(magic, StandardCharsets.US_ASCII)) || h.get(7) != 3) {
+                throw new IOException("Не PMTiles v3: " + path);
+            }
+            long rootOffset = h.getLong(8);
+            long rootLength = h.getLong(16);
+            long metadataOffset = h.getLong(24);
+            long metadataLength = h.getLong(32);
+            leafDirsOffset = h.getLong(40);
+            tileDataOffset = h.getLong(56);
+            internalCompression = h.get(97) & 0xFF;
+            int tileType = h.get(99) & 0xFF;
+            minZoom = h.get(100) & 0xFF;
+            maxZoom = h.get(101) & 0xFF;
+            format = formatOf(tileType);
+
+            root = decodeDirectory(decompress(file.read(rootOffset, (int) rootLength)));
+            vectorLayers = metadataLength > 0 && metadataLength < Integer.MAX_VALUE
+                    ? parseVectorLayers(decompress(file.read(metadataOffset, (int) metadataLength)))
+                    : new String[0];
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    @Override
+    public byte[] readTile(int z, int x, int y) throws IOException {
+        long id = zxyToTileId(z, x, y);
+        Directory dir = root;
+        for (int depth = 0; depth < MAX_DIRECTORY_DEPTH; depth++) {
+            int i = dir.find(id);
+            if (i < 0) return null;
+            if (dir.runLengths[i] == 0) {
+                // Ссылка на листовой каталог
+                dir = leafDirectory(leafDirsOffset + dir.offsets[i], dir.lengths[i]);
+                continue;
+            }
+            if (id - dir.tileIds[i] >= dir.runLengths[i]) return null;
+            return file.read(tileDataOffset + dir.offsets[i], dir.lengths[i]);
+        }
+        return null;
+    }
+
+    private Directory leafDirectory(long offset, int length) throws IOException {
+        Directory d = leafCache.get(offset);
+        if (d == null) {
+            d = decodeDirectory(decompress(file.read(offset, length)));
+            leafCache.put(offset, d);
+        }
+        return d;
+    }
+
+    private byte[] decompress(byte[] data) throws IOException {
+        if (internalCompression == COMPRESSION_NONE) return data;
+        if (internalCompression == COMPRESSION_GZIP) return TileCodec.gunzip(data);
+        throw new IOException("Неподдерживаемое сжатие каталогов PMTiles: " + internalCompression);
+    }
+
+    @Override
+    public Format getFormat() {
+        return format;
+    }
+
+    @Override
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    @Override
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    @Override
+    public String[] getVectorLayers() {
+        return vectorLayers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        leafCache.evictAll();
+        file.close();
+    }
+
+    // -------------------- Формат PMTiles --------------------
+
+    private static Directory decodeDirectory(byte[] data) {
+        int[] pos = {0};
+        int n = (int) readVarint(data, pos);
+        Directory d = new Directory(n);
+
+        long lastId = 0;
+        for (int i = 0; i < n; i++) {
+            lastId += readVarint(data, pos);
+            d.tileIds[i] = lastId;
+        }
+        for (int i = 0; i < n; i++) d.runLengths[i] = (int) readVarint(data, pos);
+        for (int i = 0; i < n; i++) d.lengths[i] = (int) readVarint(data, pos);
+        for (int i = 0; i < n; i++) {
+            long v = readVarint(data, pos);
+            // 0 означает "сразу за предыдущим тайлом"
+            d.offsets[i] = (v == 0 && i > 0) ? d.offsets[i - 1] + d.lengths[i - 1] : v - 1;
+        }
+        return d;
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            int b = data[pos[0]++] & 0xFF;
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+        }
+    }
+
+    /** Номер тайла по кривой Гильберта, как в спецификации PMTiles v3. */
+    static long zxyToTileId(int z, int x, int y) {
+        long acc = ((1L << (2 * z)) - 1) / 3; // сумма 4^t для t < z
+        long d = 0;
+        long tx = x;
+        long ty = y;
+        for (long s = 1L << (z - 1); z > 0 && s > 0; s >>= 1) {
+            long rx = (tx & s) > 0 ? 1 : 0;
+            long ry = (ty & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    tx = s - 1 - tx;
+                    ty = s - 1 - ty;
+                }
+                long t = tx;
+                tx = ty;
+                ty = t;
+            }
+        }
+        return acc + d;
+    }
+
+    private static Format formatOf(int tileType) {
+        switch (tileType) {
+            case 1: return Format.MVT;
+            case 2: return Format.PNG;
+            case 3: return Format.JPEG;
+            case 4: return Format.WEBP;
+            default: return Format.UNKNOWN;
+        }
+    }
+
+    static String[] parseVectorLayers(byte[] json) {
+        try {
+            JSONObject o = new JSONObject(new String(json, StandardCharsets.UTF_8));
+            JSONArray layers = o.optJSONArray("vector_layers");
+            if (layers == null) return new String[0];
+            String[] out = new String[layers.length()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = layers.getJSONObject(i).getString("id");
+            }
+            return out;
+        } catch (Exception e) {
+            return new String[0];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.meshtastic.data.tiles;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Локальный архив тайлов (MBTiles, PMTiles). Реализации обязаны быть потокобезопасными:
+ * тайлы запрашиваются параллельно из сетевых потоков MapLibre.
+ */
+public interface TileArchive extends Closeable {
+
+    enum Format {
+        MVT,
+        PNG,
+        JPEG,
+        WEBP,
+        UNKNOWN
+    }
+
+    /**
+     * Сырые байты тайла в схеме XYZ (y сверху вниз), как хранятся в архиве (возможно, gzip).
+     * @return null, если тайла нет
+     */
+    byte[] readTile(int z, int x, int y) throws IOException;
+
+    Format getFormat();
+
+    int getMinZoom();
+
+    int getMaxZoom();
+
+    /**
+     * Имена векторных слоёв (для MVT), если архив их описывает; иначе пустой массив.
+     */
+    String[] getVectorLayers();
+}
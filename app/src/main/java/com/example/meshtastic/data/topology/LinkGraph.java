@@ -0,0 +1,394 @@
+package com.example.meshtastic.data.topology;
+
+import com.example.meshtastic.data.send.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Граф радиосвязей сети по номерам узлов: ребро a → b означает, что b слышит a,
+ * с SNR на приёме и временем последнего подтверждения.
+ *
+ * Рёбра приходят из NeighborInfo, traceroute и прямого приёма и применяются по одному.
+ * Поверх графа держатся два дерева кратчайших путей ({@link ShortestPathTree}): от своего
+ * узла ко всем и от всех к ближайшему шлюзу. Каждое изменение ребра пересчитывает только
+ * затронутую часть деревьев, а нагрузка на ретрансляторы считается за O(n) по готовым деревьям
+ * и кэшируется до следующего изменения.
+ */
+public class LinkGraph {
+
+    // Стоимость ребра ~ ожидаемое число передач: хороший SNR — 1, на пределе демодуляции — 4
+    private static final float GOOD_SNR = 5f;
+    private static final float BAD_SNR = -15f;
+    private static final double MAX_COST = 4.0;
+    private static final double UNKNOWN_SNR_COST = 2.0;
+
+    public static final long DEFAULT_EDGE_TTL_MS = 12 * 60 * 60 * 1000L;
+    private static final long EXPIRE_CHECK_INTERVAL_MS = 60_000;
+
+    static final class Node {
+        final int num;
+        final int index;
+        final List<Edge> out = new ArrayList<>(4);
+        final List<Edge> in = new ArrayList<>(4);
+
+        Node(int num, int index) {
+            this.num = num;
+            this.index = index;
+        }
+    }
+
+    static final class Edge {
+        final Node from;
+        final Node to;
+        float snr;
+        long heardAt;
+        double cost;
+
+        Edge(Node from, Node to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /** Путь по графу: узлы от начала к концу, суммарная стоимость и самое слабое звено. */
+    public static final class Route {
+        public final long[] nodes;
+        public final double cost;
+        public final float worstSnr;
+        public final long oldestHeardAt;
+
+        Route(long[] nodes, double cost, float worstSnr, long oldestHeardAt) {
+            this.nodes = nodes;
+            this.cost = cost;
+            this.worstSnr = worstSnr;
+            this.oldestHeardAt = oldestHeardAt;
+        }
+
+        public int hops() {
+            return nodes.length - 1;
+        }
+    }
+
+    /** Сколько лучших маршрутов проходит через узел как через ретранслятор. */
+    public static final class RelayLoad {
+        public final long nodeNum;
+        public final int routesFromMe;
+        public final int routesToGateway;
+
+        RelayLoad(long nodeNum, int routesFromMe, int routesToGateway) {
+            this.nodeNum = nodeNum;
+            this.routesFromMe = routesFromMe;
+            this.routesToGateway = routesToGateway;
+        }
+
+        public int total() {
+            return routesFromMe + routesToGateway;
+        }
+    }
+
+    private final IntObjectMap<Node> byNum = new IntObjectMap<>(512);
+    private final List<Node> nodes = new ArrayList<>();
+    private final ShortestPathTree fromMe = new ShortestPathTree(nodes, false);
+    private final ShortestPathTree toGateway = new ShortestPathTree(nodes, true);
+    private final long edgeTtlMs;
+
+    private Node me;
+    private int edgeCount;
+    private long lastExpireCheck;
+
+    // Кэш нагрузки на ретрансляторы, действителен для указанных версий деревьев
+    private int[] loadFromMe = new int[0];
+    private int[] loadToGateway = new int[0];
+    private int loadVersionFromMe = -1;
+    private int loadVersionToGateway = -1;
+
+    public LinkGraph() {
+        this(DEFAULT_EDGE_TTL_MS);
+    }
+
+    public LinkGraph(long edgeTtlMs) {
+        this.edgeTtlMs = edgeTtlMs;
+    }
+
+    public synchronized int nodeCount() {
+        return nodes.size();
+    }
+
+    public synchronized int edgeCount() {
+        return edgeCount;
+    }
+
+    public synchronized void setMyNode(long nodeNum) {
+        Node n = node(nodeNum);
+        if (n == me) return;
+        if (me != null) fromMe.setSource(me.index, false);
+        me = n;
+        if (n != null) fromMe.setSource(n.index, true);
+    }
+
+    /**
+     * Отмечает узел как шлюз (MQTT, выход в другую сеть): к ним считается {@link #getBestGateway}.
+     */
+    public synchronized void setGateway(long nodeNum, boolean gateway) {
+        Node n = node(nodeNum);
+        if (n != null) toGateway.setSource(n.index, gateway);
+    }
+
+    /**
+     * Ребро {@code from → to}: {@code to} слышал {@code from} с указанным SNR.
+     * @param snr NaN, если SNR неизвестен
+     */
+    public synchronized void updateEdge(long from, long to, float snr, long nowMs) {
+        Node a = node(from);
+        Node b = node(to);
+        if (a == null || b == null || a == b) return;
+        expireIfDue(nowMs);
+
+        Edge e = find(a, b);
+        if (e == null) {
+            e = new Edge(a, b);
+            e.snr = snr;
+            e.heardAt = nowMs;
+            e.cost = linkCost(snr);
+            a.out.add(e);
+            b.in.add(e);
+            edgeCount++;
+            improved(e);
+            return;
+        }
+        e.heardAt = Math.max(e.heardAt, nowMs);
+        // Подтверждение без SNR не затирает известный SNR
+        if (Float.isNaN(snr)) return;
+        double old = e.cost;
+        e.snr = snr;
+        e.cost = linkCost(snr);
+        if (e.cost < old) {
+            improved(e);
+        } else if (e.cost > old) {
+            worsened(e);
+        }
+    }
+
+    public synchronized void removeEdge(long from, long to) {
+        Node a = byNum.get((int) from);
+        Node b = byNum.get((int) to);
+        if (a == null || b == null) return;
+        Edge e = find(a, b);
+        if (e != null) remove(e);
+    }
+
+    /**
+     * Полный список соседей узла из NeighborInfo: рёбра к {@code reporter}, которых
+     * больше нет в отчёте, удаляются.
+     */
+    public synchronized void onNeighborReport(long reporter, long[] neighbors, float[] snrs, long nowMs) {
+        Node r = node(reporter);
+        if (r == null) return;
+        for (int i = 0; i < neighbors.length; i++) {
+            updateEdge(neighbors[i], reporter, snrs[i], nowMs);
+        }
+        for (int i = r.in.size() - 1; i >= 0; i--) {
+            Edge e = r.in.get(i);
+            if (!contains(neighbors, e.from.num & 0xffffffffL)) remove(e);
+        }
+    }
+
+    /**
+     * Пройденный пакетом путь: {@code path[i] → path[i+1]} с SNR на приёме {@code snrs[i]}
+     * (NaN — неизвестен).
+     */
+    public synchronized void onRoute(long[] path, float[] snrs, long nowMs) {
+        for (int i = 0; i + 1 < path.length; i++) {
+            float snr = snrs != null && i < snrs.length ? snrs[i] : Float.NaN;
+            updateEdge(path[i], path[i + 1], snr, nowMs);
+        }
+    }
+
+    /**
+     * Удаляет рёбра, которые не подтверждались дольше TTL.
+     */
+    public synchronized void expire(long nowMs) {
+        lastExpireCheck = nowMs;
+        for (Node n : nodes) {
+            for (int i = n.out.size() - 1; i >= 0; i--) {
+                Edge e = n.out.get(i);
+                if (nowMs - e.heardAt > edgeTtlMs) remove(e);
+            }
+        }
+    }
+
+    /** Лучший путь от своего узла до {@code nodeNum} или null. */
+    public synchronized Route getRoute(long nodeNum) {
+        Node n = byNum.get((int) nodeNum);
+        if (n == null || fromMe.dist(n.index) == ShortestPathTree.INF) return null;
+        return route(fromMe, n, false);
+    }
+
+    /** Путь от {@code nodeNum} до ближайшего шлюза или null. */
+    public synchronized Route getBestGateway(long nodeNum) {
+        Node n = byNum.get((int) nodeNum);
+        if (n == null || toGateway.dist(n.index) == ShortestPathTree.INF) return null;
+        return route(toGateway, n, true);
+    }
+
+    /**
+     * Ретрансляторы, через которые проходит больше всего лучших маршрутов
+     * (от своего узла и к шлюзам), по убыванию.
+     */
+    public synchronized List<RelayLoad> getBottlenecks(int limit) {
+        refreshLoads();
+        List<RelayLoad> out = new ArrayList<>();
+        for (Node n : nodes) {
+            int a = loadFromMe[n.index];
+            int b = loadToGateway[n.index];
+            if (a + b > 0) out.add(new RelayLoad(n.num & 0xffffffffL, a, b));
+        }
+        out.sort((x, y) -> Integer.compare(y.total(), x.total()));
+        return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+    }
+
+    /** Соседи, которых узел слышит (входящие рёбра). */
+    public synchronized Collection<Long> getNeighbors(long nodeNum) {
+        Node n = byNum.get((int) nodeNum);
+        if (n == null) return Collections.emptyList();
+        List<Long> out = new ArrayList<>(n.in.size());
+        for (Edge e : n.in) out.add(e.from.num & 0xffffffffL);
+        return out;
+    }
+
+    public synchronized void clear() {
+        byNum.clear();
+        nodes.clear();
+        edgeCount = 0;
+        me = null;
+        fromMe.clearSources();
+        toGateway.clearSources();
+        loadVersionFromMe = -1;
+        loadVersionToGateway = -1;
+    }
+
+    static double linkCost(float snr) {
+        if (Float.isNaN(snr)) return UNKNOWN_SNR_COST;
+        if (snr >= GOOD_SNR) return 1.0;
+        if (snr <= BAD_SNR) return MAX_COST;
+        return 1.0 + (GOOD_SNR - snr) / (GOOD_SNR - BAD_SNR) * (MAX_COST - 1.0);
+    }
+
+    // -------------------- внутреннее --------------------
+
+    private Node node(long nodeNum) {
+        int num = (int) nodeNum;
+        // 0 — нет узла, 0xFFFFFFFF — broadcast
+        if (num == 0 || num == -1) return null;
+        Node n = byNum.get(num);
+        if (n == null) {
+            n = new Node(num, nodes.size());
+            nodes.add(n);
+            byNum.put(num, n);
+            fromMe.ensureCapacity(nodes.size());
+            toGateway.ensureCapacity(nodes.size());
+        }
+        return n;
+    }
+
+    private static Edge find(Node a, Node b) {
+        List<Edge> out = a.out;
+        for (int i = 0; i < out.size(); i++) {
+            Edge e = out.get(i);
+            if (e.to == b) return e;
+        }
+        return null;
+    }
+
+    private void remove(Edge e) {
+        e.from.out.remove(e);
+        e.to.in.remove(e);
+        edgeCount--;
+        worsened(e);
+    }
+
+    private void improved(Edge e) {
+        fromMe.onEdgeImproved(e);
+        toGateway.onEdgeImproved(e);
+    }
+
+    private void worsened(Edge e) {
+        fromMe.onEdgeWorsened(e);
+        toGateway.onEdgeWorsened(e);
+    }
+
+    private void expireIfDue(long nowMs) {
+        if (nowMs - lastExpireCheck >= EXPIRE_CHECK_INTERVAL_MS) expire(nowMs);
+    }
+
+    private Route route(ShortestPathTree tree, Node target, boolean towardSource) {
+        List<Long> path = new ArrayList<>();
+        float worst = Float.NaN;
+        long oldest = Long.MAX_VALUE;
+        Node n = target;
+        path.add(n.num & 0xffffffffL);
+        Edge e;
+        while ((e = tree.parent(n.index)) != null) {
+            if (!Float.isNaN(e.snr) && (Float.isNaN(worst) || e.snr < worst)) worst = e.snr;
+            oldest = Math.min(oldest, e.heardAt);
+            n = tree.toward(e);
+            path.add(n.num & 0xffffffffL);
+        }
+        // Дерево хранит путь от цели к источнику; для маршрута от себя его нужно развернуть
+        if (!towardSource) Collections.reverse(path);
+        long[] nodesOut = new long[path.size()];
+        for (int i = 0; i < nodesOut.length; i++) nodesOut[i] = path.get(i);
+        return new Route(nodesOut, tree.dist(target.index), worst, oldest == Long.MAX_VALUE ? 0 : oldest);
+    }
+
+    /**
+     * Нагрузка = число узлов в поддереве минус сам узел; считается один раз на версию дерева.
+     */
+    private void refreshLoads() {
+        int n = nodes.size();
+        if (loadFromMe.length < n) {
+            loadFromMe = new int[n];
+            loadToGateway = new int[n];
+            loadVersionFromMe = -1;
+            loadVersionToGateway = -1;
+        }
+        if (loadVersionFromMe != fromMe.version()) {
+            subtreeLoads(fromMe, loadFromMe);
+            loadVersionFromMe = fromMe.version();
+        }
+        if (loadVersionToGateway != toGateway.version()) {
+            subtreeLoads(toGateway, loadToGateway);
+            loadVersionToGateway = toGateway.version();
+        }
+    }
+
+    private void subtreeLoads(ShortestPathTree tree, int[] load) {
+        int n = nodes.size();
+        Arrays.fill(load, 0);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        // От дальних к ближним: поддерево узла накоплено к моменту передачи родителю
+        Arrays.sort(order, (x, y) -> Double.compare(tree.dist(y), tree.dist(x)));
+        int[] size = new int[n];
+        for (int i : order) {
+            Edge p = tree.parent(i);
+            if (p == null) continue;
+            size[i]++;
+            int parent = tree.toward(p).index;
+            size[parent] += size[i];
+            // Источник (свой узел, шлюз) ретранслятором не считаем
+            if (tree.parent(parent) != null) load[parent] += size[i];
+        }
+    }
+
+    private static boolean contains(long[] values, long v) {
+        for (long x : values) {
+            if (x == v) return true;
+        }
+        return false;
+    }
+}
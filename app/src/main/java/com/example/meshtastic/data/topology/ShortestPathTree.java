@@ -0,0 +1,197 @@
+package com.example.meshtastic.data.topology;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Дерево кратчайших путей над {@link LinkGraph}, которое поддерживается инкрементально.
+ *
+ * Прямое дерево — пути от источников по направлению рёбер (от своего узла к остальным),
+ * обратное — пути к ближайшему источнику (от любого узла к шлюзу).
+ *
+ * Удешевление ребра запускает Дейкстру только от его конца; удорожание или удаление
+ * ребра дерева пересчитывает только поддерево под ним. Рёбра вне дерева при удорожании
+ * ничего не меняют.
+ */
+final class ShortestPathTree {
+
+    static final double INF = Double.POSITIVE_INFINITY;
+
+    private final boolean reverse;
+    private final List<LinkGraph.Node> nodes;
+
+    private boolean[] source = new boolean[0];
+    private double[] dist = new double[0];
+    private LinkGraph.Edge[] parent = new LinkGraph.Edge[0];
+    private int version;
+
+    private static final class Item implements Comparable<Item> {
+        final double dist;
+        final int index;
+
+        Item(double dist, int index) {
+            this.dist = dist;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Item o) {
+            return Double.compare(dist, o.dist);
+        }
+    }
+
+    ShortestPathTree(List<LinkGraph.Node> nodes, boolean reverse) {
+        this.nodes = nodes;
+        this.reverse = reverse;
+    }
+
+    /** Растёт при каждом изменении дерева — для кэшей поверх него. */
+    int version() {
+        return version;
+    }
+
+    double dist(int index) {
+        return index < dist.length ? dist[index] : INF;
+    }
+
+    /** Ребро к предыдущему узлу пути (в сторону источника) или null. */
+    LinkGraph.Edge parent(int index) {
+        return index < parent.length ? parent[index] : null;
+    }
+
+    /** Узел ближе к источнику по ребру дерева. */
+    LinkGraph.Node toward(LinkGraph.Edge e) {
+        return reverse ? e.to : e.from;
+    }
+
+    LinkGraph.Node away(LinkGraph.Edge e) {
+        return reverse ? e.from : e.to;
+    }
+
+    private List<LinkGraph.Edge> forward(LinkGraph.Node n) {
+        return reverse ? n.in : n.out;
+    }
+
+    private List<LinkGraph.Edge> backward(LinkGraph.Node n) {
+        return reverse ? n.out : n.in;
+    }
+
+    void ensureCapacity(int size) {
+        if (size <= dist.length) return;
+        int old = dist.length;
+        int cap = Math.max(size, old * 2);
+        dist = Arrays.copyOf(dist, cap);
+        Arrays.fill(dist, old, cap, INF);
+        parent = Arrays.copyOf(parent, cap);
+        source = Arrays.copyOf(source, cap);
+    }
+
+    void setSource(int index, boolean isSource) {
+        ensureCapacity(index + 1);
+        if (source[index] == isSource) return;
+        source[index] = isSource;
+        recompute();
+    }
+
+    void clearSources() {
+        Arrays.fill(source, false);
+        recompute();
+    }
+
+    /** Полный пересчёт — только при смене источников. */
+    void recompute() {
+        ensureCapacity(nodes.size());
+        Arrays.fill(dist, INF);
+        Arrays.fill(parent, null);
+        PriorityQueue<Item> pq = new PriorityQueue<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (source[i]) {
+                dist[i] = 0;
+                pq.add(new Item(0, i));
+            }
+        }
+        run(pq);
+        version++;
+    }
+
+    /** Ребро добавлено или подешевело. */
+    void onEdgeImproved(LinkGraph.Edge e) {
+        ensureCapacity(nodes.size());
+        int t = toward(e).index;
+        int h = away(e).index;
+        double d = dist[t] + e.cost;
+        if (d >= dist[h] || source[h]) return;
+        dist[h] = d;
+        parent[h] = e;
+        PriorityQueue<Item> pq = new PriorityQueue<>();
+        pq.add(new Item(d, h));
+        run(pq);
+        version++;
+    }
+
+    /**
+     * Ребро подорожало или удалено (в последнем случае оно уже вынуто из списков смежности).
+     */
+    void onEdgeWorsened(LinkGraph.Edge e) {
+        ensureCapacity(nodes.size());
+        int h = away(e).index;
+        if (parent[h] != e) return;
+
+        List<Integer> affected = subtree(h);
+        for (int i : affected) {
+            dist[i] = INF;
+            parent[i] = null;
+        }
+        // Каждый узел поддерева пробуем подцепить к уцелевшей части дерева
+        PriorityQueue<Item> pq = new PriorityQueue<>();
+        for (int i : affected) {
+            LinkGraph.Node n = nodes.get(i);
+            for (LinkGraph.Edge b : backward(n)) {
+                double d = dist[toward(b).index] + b.cost;
+                if (d < dist[i]) {
+                    dist[i] = d;
+                    parent[i] = b;
+                }
+            }
+            if (dist[i] < INF) pq.add(new Item(dist[i], i));
+        }
+        run(pq);
+        version++;
+    }
+
+    /** Узлы поддерева в порядке обхода в ширину (родитель раньше детей). */
+    private List<Integer> subtree(int root) {
+        List<Integer> out = new ArrayList<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            int x = queue.poll();
+            out.add(x);
+            for (LinkGraph.Edge f : forward(nodes.get(x))) {
+                int c = away(f).index;
+                if (parent[c] == f) queue.add(c);
+            }
+        }
+        return out;
+    }
+
+    private void run(PriorityQueue<Item> pq) {
+        while (!pq.isEmpty()) {
+            Item it = pq.poll();
+            if (it.dist > dist[it.index]) continue;
+            for (LinkGraph.Edge f : forward(nodes.get(it.index))) {
+                int c = away(f).index;
+                if (source[c]) continue;
+                double d = it.dist + f.cost;
+                if (d < dist[c]) {
+                    dist[c] = d;
+                    parent[c] = f;
+                    pq.add(new Item(d, c));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.meshtastic.data.topology;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.List;
+
+/**
+ * Разбор сообщений, несущих топологию, в рёбра {@link LinkGraph}.
+ */
+public final class TopologyIngest {
+
+    // В RouteDiscovery SNR умножен на 4; INT8_MIN — "неизвестно"
+    private static final int SNR_UNKNOWN = -128;
+    private static final int NODENUM_BROADCAST = 0xFFFFFFFF;
+
+    private TopologyIngest() {
+    }
+
+    /**
+     * Пакет NEIGHBORINFO_APP или ответ TRACEROUTE_APP.
+     * @return true, если пакет нёс топологию
+     */
+    public static boolean onPacket(LinkGraph graph, MeshProtos.MeshPacket p, long nowMs) {
+        if (!p.hasDecoded()) return false;
+        MeshProtos.Data d = p.getDecoded();
+        try {
+            if (d.getPortnum() == Portnums.PortNum.NEIGHBORINFO_APP) {
+                applyNeighborInfo(graph, MeshProtos.NeighborInfo.parseFrom(d.getPayload()), nowMs);
+                return true;
+            }
+            if (d.getPortnum() == Portnums.PortNum.TRACEROUTE_APP && d.getRequestId() != 0) {
+                // Ответ: идёт от адресата трассировки к нам
+                applyRouteDiscovery(graph, p.getTo(), p.getFrom(),
+                        MeshProtos.RouteDiscovery.parseFrom(d.getPayload()), nowMs);
+                return true;
+            }
+        } catch (InvalidProtocolBufferException e) {
+            return false;
+        }
+        return false;
+    }
+
+    public static void applyNeighborInfo(LinkGraph graph, MeshProtos.NeighborInfo info, long nowMs) {
+        int n = info.getNeighborsCount();
+        long[] neighbors = new long[n];
+        float[] snrs = new float[n];
+        for (int i = 0; i < n; i++) {
+            MeshProtos.Neighbor nb = info.getNeighbors(i);
+            neighbors[i] = nb.getNodeId() & 0xffffffffL;
+            snrs[i] = nb.getSnr();
+        }
+        graph.onNeighborReport(info.getNodeId() & 0xffffffffL, neighbors, snrs, nowMs);
+    }
+
+    /**
+     * Трассировка {@code origin → dest}: прямой путь (route, snr_towards) и обратный
+     * (route_back, snr_back), если он есть.
+     */
+    public static void applyRouteDiscovery(LinkGraph graph, int origin, int dest,
+                                           MeshProtos.RouteDiscovery rd, long nowMs) {
+        graph.onRoute(path(origin, rd.getRouteList(), dest), snrs(rd.getSnrTowardsList()), nowMs);
+        if (rd.getSnrBackCount() > 0 || rd.getRouteBackCount() > 0) {
+            graph.onRoute(path(dest, rd.getRouteBackList(), origin), snrs(rd.getSnrBackList()), nowMs);
+        }
+    }
+
+    /**
+     * Прямой приём (hops_away == 0 в NodeInfo): узел слышен нами с его SNR.
+     */
+    public static void applyDirectNeighbor(LinkGraph graph, MeshProtos.NodeInfo ni, long myNodeNum, long nowMs) {
+        if (!ni.hasHopsAway() || ni.getHopsAway() != 0 || ni.getViaMqtt()) return;
+        if ((ni.getNum() & 0xffffffffL) == myNodeNum) return;
+        graph.updateEdge(ni.getNum() & 0xffffffffL, myNodeNum, ni.getSnr(), nowMs);
+    }
+
+    /**
+     * Шлюзами считаем стационарные ретрансляторы (роль ROUTER): к ним сходится трафик сети.
+     */
+    public static boolean isGateway(MeshProtos.NodeInfo ni) {
+        return ni.hasUser() && ni.getUser().getRole() == ConfigProtos.Config.DeviceConfig.Role.ROUTER;
+    }
+
+    private static long[] path(int first, List<Integer> middle, int last) {
+        long[] out = new long[middle.size() + 2];
+        out[0] = first & 0xffffffffL;
+        for (int i = 0; i < middle.size(); i++) {
+            // Ретранслятор без поддержки трассировки записывается как broadcast — граф его пропустит
+            int num = middle.get(i);
+            out[i + 1] = num == NODENUM_BROADCAST ? 0 : num & 0xffffffffL;
+        }
+        out[out.length - 1] = last & 0xffffffffL;
+        return out;
+    }
+
+    private static float[] snrs(List<Integer> scaled) {
+        float[] out = new float[scaled.size()];
+        for (int i = 0; i < out.length; i++) {
+            int v = scaled.get(i);
+            out[i] = v == SNR_UNKNOWN ? Float.NaN : v / 4f;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.meshtastic.data.topology;
+
+import com.example.meshtastic.data.schedule.HandlerScheduler;
+import com.example.meshtastic.data.schedule.TaskScheduler;
+import com.example.meshtastic.data.send.IntObjectMap;
+import com.example.meshtastic.data.send.LoRaAirtime;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Пакетная трассировка маршрутов: очередь целей, не больше {@code maxInFlight} запросов
+ * одновременно и интервал между запросами по бюджету эфира.
+ *
+ * Интервал — оценка эфира, который съест одна трассировка (запрос и ответ, каждый
+ * ретранслируется на каждом хопе), делённая на долю эфира под диагностику. Ответы
+ * RouteDiscovery сопоставляются по request_id и сразу пишутся в {@link LinkGraph};
+ * прогресс и частичные результаты приходят в {@link Listener} в потоке планировщика (главном).
+ */
+public class TracerouteScheduler {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+    public static final long DEFAULT_TIMEOUT_MS = 120_000;
+
+    // Доля эфира под трассировки и нижняя граница интервала
+    private static final float AIRTIME_SHARE_PERCENT = 5f;
+    private static final long MIN_SPACING_MS = 10_000;
+    private static final int DEFAULT_HOPS = 3;
+    // RouteDiscovery: по 5 байт на узел и 2 на SNR в каждую сторону
+    private static final int ROUTE_BYTES_PER_HOP = 14;
+    private static final int NODENUM_BROADCAST = 0xFFFFFFFF;
+
+    public interface Transport {
+        boolean send(MeshProtos.ToRadio msg);
+    }
+
+    public interface Listener {
+        void onResult(Result result);
+
+        default void onProgress(Progress progress) {
+        }
+    }
+
+    public static final class Result {
+        public enum Status {
+            OK,
+            TIMEOUT,
+            FAILED,
+            NOT_SENT,
+            CANCELLED
+        }
+
+        public final long target;
+        public final Status status;
+        /** Полный путь туда: свой узел, ретрансляторы, цель. */
+        public final List<Long> routeTowards;
+        /** Путь обратно (если прошивка его заполнила). */
+        public final List<Long> routeBack;
+        public final long rttMs;
+        public final String error;
+
+        Result(long target, Status status, List<Long> routeTowards, List<Long> routeBack, long rttMs, String error) {
+            this.target = target;
+            this.status = status;
+            this.routeTowards = routeTowards;
+            this.routeBack = routeBack;
+            this.rttMs = rttMs;
+            this.error = error;
+        }
+    }
+
+    public static final class Progress {
+        public final int total;
+        public final int done;
+        public final int succeeded;
+        public final int inFlight;
+        public final boolean running;
+
+        Progress(int total, int done, int succeeded, int inFlight, boolean running) {
+            this.total = total;
+            this.done = done;
+            this.succeeded = succeeded;
+            this.inFlight = inFlight;
+            this.running = running;
+        }
+    }
+
+    private static final class Request {
+        final long target;
+        final int packetId;
+        final long sentAt;
+
+        Request(long target, int packetId, long sentAt) {
+            this.target = target;
+            this.packetId = packetId;
+            this.sentAt = sentAt;
+        }
+    }
+
+    private final Transport transport;
+    private final LinkGraph graph;
+    private final Supplier<LoRaAirtime> airtime;
+    private final IntSupplier packetIds;
+    private final TaskScheduler scheduler;
+
+    private final ArrayDeque<Long> pending = new ArrayDeque<>();
+    private final IntObjectMap<Request> inFlight = new IntObjectMap<>(16);
+    private final List<Result> results = new ArrayList<>();
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+    private long myNodeNum;
+    private Listener listener;
+    private int total;
+    private int succeeded;
+    private long nextSendAt;
+    private boolean running;
+
+    private final Runnable pump = this::pump;
+
+    public TracerouteScheduler(Transport transport, LinkGraph graph, Supplier<LoRaAirtime> airtime,
+                               IntSupplier packetIds) {
+        this(transport, graph, airtime, packetIds, HandlerScheduler.main());
+    }
+
+    public TracerouteScheduler(Transport transport, LinkGraph graph, Supplier<LoRaAirtime> airtime,
+                               IntSupplier packetIds, TaskScheduler scheduler) {
+        this.transport = transport;
+        this.graph = graph;
+        this.airtime = airtime;
+        this.packetIds = packetIds;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public synchronized void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public synchronized void setMyNodeNum(long myNodeNum) {
+        this.myNodeNum = myNodeNum;
+    }
+
+    /**
+     * Запускает трассировку набора узлов. Предыдущее задание отменяется.
+     */
+    public void start(Collection<Long> targets, Listener l) {
+        List<Result> cancelled = drain();
+        Listener old;
+        synchronized (this) {
+            old = listener;
+            listener = l;
+            results.clear();
+            for (Long t : new LinkedHashSet<>(targets)) {
+                int num = (int) (long) t;
+                if (num == 0 || num == NODENUM_BROADCAST || t == myNodeNum) continue;
+                pending.add(t & 0xffffffffL);
+            }
+            total = pending.size();
+            succeeded = 0;
+            running = total > 0;
+            nextSendAt = 0;
+        }
+        deliver(old, cancelled);
+        scheduler.cancel(pump);
+        scheduler.post(pump);
+    }
+
+    /** Отменяет задание: ожидающие цели и запросы в полёте завершаются как CANCELLED. */
+    public void cancel() {
+        List<Result> cancelled = drain();
+        Listener l;
+        synchronized (this) {
+            l = listener;
+        }
+        deliver(l, cancelled);
+    }
+
+    public synchronized Progress getProgress() {
+        return progress();
+    }
+
+    /** Результаты текущего задания на этот момент. */
+    public synchronized List<Result> getResults() {
+        return Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    /**
+     * Разбирает входящий пакет: ответ TRACEROUTE_APP или ошибку ROUTING_APP на наш запрос.
+     * @return true, если пакет относился к запросу этого планировщика
+     */
+    public boolean onPacket(MeshProtos.MeshPacket p) {
+        if (!p.hasDecoded()) return false;
+        MeshProtos.Data d = p.getDecoded();
+        if (d.getRequestId() == 0) return false;
+
+        Result r;
+        Listener l;
+        synchronized (this) {
+            Request req = inFlight.get(d.getRequestId());
+            if (req == null) return false;
+            long rtt = scheduler.now() - req.sentAt;
+
+            if (d.getPortnum() == Portnums.PortNum.TRACEROUTE_APP) {
+                MeshProtos.RouteDiscovery rd;
+                try {
+                    rd = MeshProtos.RouteDiscovery.parseFrom(d.getPayload());
+                } catch (InvalidProtocolBufferException e) {
+                    return false;
+                }
+                TopologyIngest.applyRouteDiscovery(graph, p.getTo(), p.getFrom(), rd, System.currentTimeMillis());
+                r = new Result(req.target, Result.Status.OK,
+                        path(p.getTo(), rd.getRouteList(), p.getFrom()),
+                        rd.getRouteBackCount() > 0 || rd.getSnrBackCount() > 0
+                                ? path(p.getFrom(), rd.getRouteBackList(), p.getTo())
+                                : Collections.emptyList(),
+                        rtt, null);
+                succeeded++;
+            } else if (d.getPortnum() == Portnums.PortNum.ROUTING_APP) {
+                MeshProtos.Routing.Error error;
+                try {
+                    error = MeshProtos.Routing.parseFrom(d.getPayload()).getErrorReason();
+                } catch (InvalidProtocolBufferException e) {
+                    return false;
+                }
+                // ACK от ретранслятора — запрос ушёл, ждём сам ответ
+                if (error == MeshProtos.Routing.Error.NONE) return true;
+                r = new Result(req.target, Result.Status.FAILED, Collections.emptyList(),
+                        Collections.emptyList(), rtt, error.name());
+            } else {
+                return false;
+            }
+            inFlight.remove(req.packetId);
+            results.add(r);
+            l = listener;
+        }
+        deliver(l, Collections.singletonList(r));
+        scheduler.cancel(pump);
+        scheduler.post(pump);
+        return true;
+    }
+
+    private void pump() {
+        List<Result> finished = new ArrayList<>();
+        Listener l;
+        long delay = -1;
+        boolean changed;
+        synchronized (this) {
+            long now = scheduler.now();
+            l = listener;
+
+            // Таймауты
+            List<Request> expired = new ArrayList<>();
+            inFlight.forEachValue(req -> {
+                if (now - req.sentAt >= timeoutMs) expired.add(req);
+            });
+            for (Request req : expired) {
+                inFlight.remove(req.packetId);
+                finished.add(new Result(req.target, Result.Status.TIMEOUT, Collections.emptyList(),
+                        Collections.emptyList(), now - req.sentAt, "нет ответа"));
+            }
+
+            // Новые запросы: не больше maxInFlight и не чаще бюджета эфира
+            int sent = 0;
+            while (!pending.isEmpty() && inFlight.size() < maxInFlight && now >= nextSendAt) {
+                long target = pending.poll();
+                int id = packetIds.getAsInt();
+                if (!transport.send(request(target, id))) {
+                    finished.add(new Result(target, Result.Status.NOT_SENT, Collections.emptyList(),
+                            Collections.emptyList(), 0, "нет соединения"));
+                    continue;
+                }
+                inFlight.put(id, new Request(target, id, now));
+                nextSendAt = now + spacingMs(target);
+                sent++;
+            }
+            results.addAll(finished);
+            changed = sent > 0 || !finished.isEmpty();
+
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                running = false;
+            } else {
+                long next = Long.MAX_VALUE;
+                if (!pending.isEmpty() && inFlight.size() < maxInFlight) next = nextSendAt;
+                long oldest = Long.MAX_VALUE;
+                for (Request req : snapshot()) oldest = Math.min(oldest, req.sentAt);
+                if (oldest != Long.MAX_VALUE) next = Math.min(next, oldest + timeoutMs);
+                delay = Math.max(0, next - now);
+            }
+        }
+        if (delay >= 0) scheduler.postDelayed(pump, delay);
+        if (changed) deliver(l, finished);
+    }
+
+    /**
+     * Эфир одной трассировки до цели, растянутый до доли {@link #AIRTIME_SHARE_PERCENT}.
+     */
+    private long spacingMs(long target) {
+        LinkGraph.Route route = graph.getRoute(target);
+        int hops = route != null ? route.hops() : DEFAULT_HOPS;
+        LoRaAirtime a = airtime.get();
+        double packetMs = a.packetAirtimeMs(4 + ROUTE_BYTES_PER_HOP * hops);
+        // Запрос и ответ проходят каждый по hops звеньям
+        double channelMs = packetMs * 2 * Math.max(1, hops);
+        float share = Math.min(AIRTIME_SHARE_PERCENT, a.getRegionDutyCyclePercent());
+        return Math.max(MIN_SPACING_MS, (long) (channelMs * 100 / share));
+    }
+
+    private static MeshProtos.ToRadio request(long target, int id) {
+        MeshProtos.MeshPacket packet = MeshProtos.MeshPacket.newBuilder()
+                .setTo((int) target)
+                .setId(id)
+                .setWantAck(true)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.TRACEROUTE_APP)
+                        .setPayload(MeshProtos.RouteDiscovery.getDefaultInstance().toByteString())
+                        .setWantResponse(true)
+                        .build())
+                .build();
+        return MeshProtos.ToRadio.newBuilder().setPacket(packet).build();
+    }
+
+    /** Снимает все ожидающие и летящие запросы как CANCELLED. */
+    private List<Result> drain() {
+        synchronized (this) {
+            List<Result> out = new ArrayList<>();
+            for (Long t : pending) {
+                out.add(new Result(t, Result.Status.CANCELLED, Collections.emptyList(),
+                        Collections.emptyList(), 0, null));
+            }
+            for (Request req : snapshot()) {
+                out.add(new Result(req.target, Result.Status.CANCELLED, Collections.emptyList(),
+                        Collections.emptyList(), 0, null));
+            }
+            pending.clear();
+            inFlight.clear();
+            results.addAll(out);
+            running = false;
+            scheduler.cancel(pump);
+            return out;
+        }
+    }
+
+    private List<Request> snapshot() {
+        List<Request> out = new ArrayList<>(inFlight.size());
+        inFlight.forEachValue(out::add);
+        return out;
+    }
+
+    private Progress progress() {
+        return new Progress(total, results.size(), succeeded, inFlight.size(), running);
+    }
+
+    private void deliver(Listener l, List<Result> finished) {
+        if (l == null) return;
+        Progress p;
+        synchronized (this) {
+            p = progress();
+        }
+        scheduler.post(() -> {
+            for (Result r : finished) l.onResult(r);
+            l.onProgress(p);
+        });
+    }
+
+    private static List<Long> path(int first, List<Integer> middle, int last) {
+        List<Long> out = new ArrayList<>(middle.size() + 2);
+        out.add(first & 0xffffffffL);
+        for (int num : middle) out.add(num & 0xffffffffL);
+        out.add(last & 0xffffffffL);
+        return out;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.meshtastic.data.transfer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сборка входящей передачи: куски пишутся сразу на своё место в заранее выделенный
+ * буфер, полученные индексы отмечаются в битовой карте.
+ *
+ * Все куски, кроме последнего, ровно {@code chunkSize} байт, поэтому смещение куска —
+ * просто {@code index * chunkSize}, и порядок прихода значения не имеет.
+ */
+public class ChunkReassembler {
+
+    public enum Result {
+        /** Новый кусок записан. */
+        ACCEPTED,
+        /** Кусок уже был получен — отправитель, видимо, не получил отчёт. */
+        DUPLICATE,
+        /** Индекс вне диапазона или размер не сходится с форматом. */
+        INVALID
+    }
+
+    private final int chunkCount;
+    private final int chunkSize;
+    private final byte[] buffer;
+    private final long[] received;
+
+    private int receivedCount;
+    private int highWater; // индекс старшего полученного куска + 1
+    private int length = -1;
+
+    public ChunkReassembler(int chunkCount, int chunkSize) {
+        if (chunkCount <= 0 || chunkSize <= 0) throw new IllegalArgumentException("chunkCount/chunkSize");
+        this.chunkCount = chunkCount;
+        this.chunkSize = chunkSize;
+        this.buffer = new byte[chunkCount * chunkSize];
+        this.received = new long[(chunkCount + 63) >>> 6];
+    }
+
+    /**
+     * Записывает кусок {@code index}; читает все оставшиеся байты {@code data}.
+     */
+    public Result put(int index, ByteBuffer data) {
+        int len = data.remaining();
+        if (index < 0 || index >= chunkCount) return Result.INVALID;
+        boolean last = index == chunkCount - 1;
+        if (last ? (len <= 0 || len > chunkSize) : len != chunkSize) return Result.INVALID;
+        if (has(index)) return Result.DUPLICATE;
+
+        data.get(buffer, index * chunkSize, len);
+        received[index >>> 6] |= 1L << index;
+        receivedCount++;
+        if (index + 1 > highWater) highWater = index + 1;
+        if (last) length = index * chunkSize + len;
+        return Result.ACCEPTED;
+    }
+
+    public boolean has(int index) {
+        return (received[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isComplete() {
+        return receivedCount == chunkCount;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getReceivedCount() {
+        return receivedCount;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * Отчёт для отправителя: недостающие индексы ниже границы по возрастанию,
+     * последним элементом — сама граница (всё ниже неё, кроме перечисленного, получено).
+     *
+     * Если пропусков больше {@code maxMissing}, граница сдвигается к первому
+     * невошедшему пропуску, чтобы отчёт не подтвердил лишнего.
+     *
+     * @param out массив не короче {@code maxMissing + 1}
+     * @return число заполненных элементов
+     */
+    public int report(int[] out, int maxMissing) {
+        int n = 0;
+        int horizon = highWater;
+        for (int w = 0; w < received.length && w << 6 < horizon; w++) {
+            long missing = ~received[w];
+            while (missing != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(missing);
+                if (i >= horizon) break;
+                if (n == maxMissing) {
+                    horizon = i;
+                    break;
+                }
+                out[n++] = i;
+                missing &= missing - 1;
+            }
+        }
+        out[n++] = horizon;
+        return n;
+    }
+
+    /**
+     * Собранные данные без копирования; только после {@link #isComplete()}.
+     */
+    public ByteBuffer data() {
+        if (!isComplete()) throw new IllegalStateException("передача не завершена");
+        return ByteBuffer.wrap(buffer, 0, length).asReadOnlyBuffer();
+    }
+}
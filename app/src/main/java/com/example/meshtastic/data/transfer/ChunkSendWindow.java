@@ -0,0 +1,150 @@
+package com.example.meshtastic.data.transfer;
+
+/**
+ * Учёт исходящей передачи: скользящее окно неподтверждённых кусков и очередь
+ * повторов только тех индексов, о которых сообщил получатель.
+ *
+ * Время передаётся явно, так что класс не зависит от Android и часов.
+ */
+public class ChunkSendWindow {
+
+    private final int chunkCount;
+    private final int windowSize;
+    private final long resendHoldoffMs;
+
+    private final long[] acked;
+    private final long[] queued;
+    private final long[] lastSentAt;
+    // Кольцо повторов: индекс стоит в очереди не более одного раза, так что хватает chunkCount
+    private final int[] resendRing;
+    private int resendHead;
+    private int resendSize;
+
+    private int ackedCount;
+    private int nextNew;
+    private int base; // младший неподтверждённый индекс
+
+    /**
+     * @param resendHoldoffMs сколько не повторять только что отправленный кусок:
+     *                        отчёт, пришедший раньше, мог быть составлен до его прихода
+     */
+    public ChunkSendWindow(int chunkCount, int windowSize, long resendHoldoffMs) {
+        if (chunkCount <= 0 || windowSize <= 0) throw new IllegalArgumentException("chunkCount/windowSize");
+        this.chunkCount = chunkCount;
+        this.windowSize = windowSize;
+        this.resendHoldoffMs = resendHoldoffMs;
+        int words = (chunkCount + 63) >>> 6;
+        this.acked = new long[words];
+        this.queued = new long[words];
+        this.lastSentAt = new long[chunkCount];
+        this.resendRing = new int[chunkCount];
+    }
+
+    /**
+     * Следующий кусок к отправке: сначала запрошенные повторы, затем новые в пределах окна.
+     * @return индекс или -1, если сейчас отправлять нечего
+     */
+    public int next() {
+        while (resendSize > 0) {
+            int i = resendRing[resendHead];
+            resendHead = (resendHead + 1) % chunkCount;
+            resendSize--;
+            queued[i >>> 6] &= ~(1L << i);
+            if (!isAcked(i)) return i;
+        }
+        if (nextNew < chunkCount && nextNew - ackedCount < windowSize) return nextNew++;
+        return -1;
+    }
+
+    /**
+     * Возвращает кусок, который транспорт не принял, в начало очереди повторов.
+     */
+    public void unsend(int index) {
+        if (index == nextNew - 1 && lastSentAt[index] == 0) {
+            nextNew--;
+            return;
+        }
+        if (isQueued(index)) return;
+        resendHead = (resendHead - 1 + chunkCount) % chunkCount;
+        resendRing[resendHead] = index;
+        resendSize++;
+        queued[index >>> 6] |= 1L << index;
+    }
+
+    public void markSent(int index, long nowMs) {
+        // 0 зарезервирован под "не отправлялся"
+        lastSentAt[index] = Math.max(1, nowMs);
+    }
+
+    /**
+     * Применяет отчёт получателя: {@code missing[0..n-2]} — недостающие индексы,
+     * {@code missing[n-1]} — граница, ниже которой остальное получено.
+     * @return число новых подтверждённых кусков
+     */
+    public int onReport(int[] report, int n, long nowMs) {
+        if (n <= 0) return 0;
+        int horizon = Math.min(report[n - 1], nextNew);
+        int before = ackedCount;
+
+        int j = 0;
+        for (int i = base; i < horizon; i++) {
+            while (j < n - 1 && report[j] < i) j++;
+            if (j < n - 1 && report[j] == i) continue;
+            if (!isAcked(i)) {
+                acked[i >>> 6] |= 1L << i;
+                ackedCount++;
+            }
+        }
+        while (base < chunkCount && isAcked(base)) base++;
+
+        for (int k = 0; k < n - 1; k++) {
+            int i = report[k];
+            if (i < 0 || i >= nextNew || isAcked(i) || isQueued(i)) continue;
+            if (nowMs - lastSentAt[i] < resendHoldoffMs) continue;
+            enqueueResend(i);
+        }
+        return ackedCount - before;
+    }
+
+    /**
+     * Повтор младшего неподтверждённого куска, когда отчётов давно нет:
+     * получатель ответит на дубликат или на пропуск новым отчётом.
+     * @return индекс или -1, если отправлено всё
+     */
+    public int probe() {
+        if (base >= nextNew) return -1;
+        if (!isQueued(base)) enqueueResend(base);
+        return base;
+    }
+
+    private void enqueueResend(int i) {
+        resendRing[(resendHead + resendSize) % chunkCount] = i;
+        resendSize++;
+        queued[i >>> 6] |= 1L << i;
+    }
+
+    public boolean isAcked(int index) {
+        return (acked[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private boolean isQueued(int index) {
+        return (queued[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isComplete() {
+        return ackedCount == chunkCount;
+    }
+
+    /** Отправленные, но ещё не подтверждённые куски. */
+    public int getOutstanding() {
+        return nextNew - ackedCount;
+    }
+
+    public int getAckedCount() {
+        return ackedCount;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
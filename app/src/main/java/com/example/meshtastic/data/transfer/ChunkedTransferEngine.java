@@ -0,0 +1,512 @@
+package com.example.meshtastic.data.transfer;
+
+import com.example.meshtastic.data.metrics.Counter;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.schedule.HandlerScheduler;
+import com.example.meshtastic.data.schedule.TaskScheduler;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Передача больших данных кусками ChunkedPayload со скользящим окном.
+ *
+ * Протокол:
+ * <ol>
+ *     <li>отправитель шлёт ChunkedPayloadResponse.request_transfer, получатель отвечает accept_transfer;</li>
+ *     <li>отправитель держит в полёте до {@code windowSize} неподтверждённых кусков, не дожидаясь
+ *     ответа на каждый;</li>
+ *     <li>получатель каждые {@link #REPORT_EVERY} новых кусков (а также на дубликат, последний кусок
+ *     и по таймауту тишины) шлёт resend_chunks: недостающие индексы и последним элементом — границу,
+ *     ниже которой всё остальное получено;</li>
+ *     <li>отправитель сдвигает окно по границе и повторяет только перечисленные куски.</li>
+ * </ol>
+ *
+ * Для этих сообщений в прошивке нет своего порта, поэтому куски идут на PRIVATE_APP,
+ * а ответы — на соседний частный порт {@link #RESPONSE_PORT}. Темп задаёт
+ * {@code OutboundScheduler}: куски окна стоят в его очереди и уходят по мере освобождения
+ * TX-очереди радио и бюджета эфира. Если очередь не принимает кусок, передача ждёт и
+ * повторяет отправку, не расходуя попытки зондирования: отказ очереди — не тишина получателя.
+ * Так же таймауты рукопожатия и отчёта откладываются, пока отправленное ещё ждёт в очереди
+ * ({@link Transport#hasQueued()}): задержка планировщика — не потеря в эфире.
+ *
+ * Методы можно вызывать из любого потока; колбэки приходят в потоке планировщика (главном).
+ */
+public class ChunkedTransferEngine {
+
+    public static final int CHUNK_PORT = Portnums.PortNum.PRIVATE_APP_VALUE;
+    // 257 занят ATAK_FORWARDER
+    public static final int RESPONSE_PORT = Portnums.PortNum.PRIVATE_APP_VALUE + 2;
+
+    // С заголовком ChunkedPayload (~15 байт) укладывается в полезную нагрузку Data (233 байта)
+    public static final int CHUNK_SIZE = 200;
+    public static final int MAX_CHUNKS = 1024; // ~200 КБ
+    public static final int DEFAULT_WINDOW = 8;
+    public static final int REPORT_EVERY = 4;
+
+    private static final int MAX_REPORT_MISSING = 48; // отчёт до ~100 байт
+    private static final int MAX_INBOUND = 4;
+    private static final int COMPLETED_MEMORY = 16;
+    private static final int NODENUM_BROADCAST = 0xFFFFFFFF;
+
+    private static final long HANDSHAKE_TIMEOUT_MS = 30_000;
+    private static final int HANDSHAKE_ATTEMPTS = 3;
+    private static final long REPORT_TIMEOUT_MS = 60_000;
+    private static final int MAX_PROBES = 3;
+    private static final long RESEND_HOLDOFF_MS = 15_000;
+    private static final long BLOCKED_RETRY_MS = 2_000;
+    private static final long RECEIVER_IDLE_MS = 20_000;
+    private static final int MAX_IDLE_REPORTS = 5;
+
+    private static final Counter ABORTED = MetricsRegistry.get().counter("transfer.aborted");
+    private static final Counter BLOCKED = MetricsRegistry.get().counter("transfer.blocked");
+    private static final Counter INBOUND_DROPPED = MetricsRegistry.get().counter("transfer.inbound.dropped");
+    private static final Counter MALFORMED = MetricsRegistry.get().counter("transfer.malformed");
+
+    public interface Transport {
+        /** Отправляет Data с указанным портом узлу {@code to}; false — очередь не приняла. */
+        boolean send(int to, int channel, int portnum, ByteString payload);
+
+        /**
+         * Отправленное ещё стоит в очереди перед радио (ждёт места в TX-очереди или бюджета
+         * эфира). Пока это так, молчание получателя ожидаемо и таймауты не засчитываются.
+         */
+        default boolean hasQueued() {
+            return false;
+        }
+    }
+
+    public interface Callback {
+        default void onProgress(int payloadId, int ackedChunks, int totalChunks) {
+        }
+
+        void onComplete(int payloadId, boolean success, String error);
+    }
+
+    public interface Listener {
+        /**
+         * Получена передача целиком. Буфер только для чтения и без копии —
+         * если данные нужны дольше вызова, их нужно скопировать.
+         */
+        void onReceived(int from, int payloadId, ByteBuffer data);
+    }
+
+    private final Transport transport;
+    private final TaskScheduler scheduler;
+    private final Random random = new Random();
+
+    private final Map<Integer, Outbound> outbound = new HashMap<>();
+    private final Map<Long, Inbound> inbound = new HashMap<>();
+    private final Map<Long, Integer> completed = new LinkedHashMap<Long, Integer>(COMPLETED_MEMORY, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > COMPLETED_MEMORY;
+        }
+    };
+    private final int[] reportScratch = new int[MAX_REPORT_MISSING + 1];
+
+    private int windowSize = DEFAULT_WINDOW;
+    private volatile Listener listener;
+
+    private final class Outbound implements Runnable {
+        final int to;
+        final int channel;
+        final int payloadId;
+        final byte[] data;
+        final ChunkSendWindow window;
+        final Callback callback;
+        boolean accepted;
+        int attempts;
+        // Транспорт отказал в последнем pump: таймер только повторит отправку
+        boolean blocked;
+
+        Outbound(int to, int channel, int payloadId, byte[] data, int chunkCount, Callback callback) {
+            this.to = to;
+            this.channel = channel;
+            this.payloadId = payloadId;
+            this.data = data;
+            this.window = new ChunkSendWindow(chunkCount, windowSize, RESEND_HOLDOFF_MS);
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            onOutboundTimer(this);
+        }
+    }
+
+    private final class Inbound implements Runnable {
+        final int from;
+        final int channel;
+        final int payloadId;
+        ChunkReassembler chunks;
+        int sinceReport;
+        int idleReports;
+
+        Inbound(int from, int channel, int payloadId) {
+            this.from = from;
+            this.channel = channel;
+            this.payloadId = payloadId;
+        }
+
+        @Override
+        public void run() {
+            onInboundTimer(this);
+        }
+    }
+
+    public ChunkedTransferEngine(Transport transport) {
+        this(transport, HandlerScheduler.main());
+    }
+
+    public ChunkedTransferEngine(Transport transport, TaskScheduler scheduler) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Размер окна для новых передач; не меньше {@link #REPORT_EVERY}, иначе отправитель
+     * будет упираться в окно раньше, чем получатель пришлёт отчёт.
+     */
+    public synchronized void setWindowSize(int windowSize) {
+        this.windowSize = Math.max(REPORT_EVERY, windowSize);
+    }
+
+    /**
+     * Начинает передачу узлу {@code to}.
+     * @return payload_id передачи или 0, если данные не подходят или транспорт не принял запрос
+     */
+    public int send(int to, int channel, byte[] data, Callback callback) {
+        if (data == null || data.length == 0 || to == NODENUM_BROADCAST) return 0;
+        int count = (data.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (count > MAX_CHUNKS) return 0;
+
+        synchronized (this) {
+            int id;
+            do {
+                id = random.nextInt() & 0x7FFFFFFF;
+            } while (id == 0 || outbound.containsKey(id));
+
+            Outbound t = new Outbound(to, channel, id, data, count, callback);
+            outbound.put(id, t);
+            if (!requestTransfer(t)) {
+                outbound.remove(id);
+                scheduler.cancel(t);
+                return 0;
+            }
+            return id;
+        }
+    }
+
+    public void cancel(int payloadId) {
+        Outbound t;
+        synchronized (this) {
+            t = outbound.remove(payloadId);
+            if (t == null) return;
+            scheduler.cancel(t);
+        }
+        finish(t, false, "отменено");
+    }
+
+    /**
+     * Прерывает все передачи (например, при разрыве соединения).
+     */
+    public void cancelAll() {
+        List<Outbound> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(outbound.values());
+            outbound.clear();
+            for (Outbound t : cancelled) scheduler.cancel(t);
+            for (Inbound r : inbound.values()) scheduler.cancel(r);
+            inbound.clear();
+        }
+        for (Outbound t : cancelled) finish(t, false, "соединение потеряно");
+    }
+
+    /**
+     * Разбирает входящий пакет; пакеты других портов игнорируются.
+     */
+    public void onPacket(MeshProtos.MeshPacket p) {
+        if (!p.hasDecoded()) return;
+        MeshProtos.Data d = p.getDecoded();
+        try {
+            if (d.getPortnumValue() == CHUNK_PORT) {
+                onChunk(p.getFrom(), p.getChannel(), MeshProtos.ChunkedPayload.parseFrom(d.getPayload()));
+            } else if (d.getPortnumValue() == RESPONSE_PORT) {
+                onResponse(p.getFrom(), p.getChannel(), MeshProtos.ChunkedPayloadResponse.parseFrom(d.getPayload()));
+            }
+        } catch (InvalidProtocolBufferException e) {
+            MALFORMED.increment();
+        }
+    }
+
+    // -------------------- Отправитель --------------------
+
+    private boolean requestTransfer(Outbound t) {
+        t.attempts++;
+        scheduler.postDelayed(t, HANDSHAKE_TIMEOUT_MS);
+        return sendResponse(t.to, t.channel, MeshProtos.ChunkedPayloadResponse.newBuilder()
+                .setPayloadId(t.payloadId)
+                .setRequestTransfer(true));
+    }
+
+    private void onResponse(int from, int channel, MeshProtos.ChunkedPayloadResponse r) {
+        switch (r.getPayloadVariantCase()) {
+            case REQUEST_TRANSFER:
+                onTransferRequest(from, channel, r.getPayloadId());
+                break;
+            case ACCEPT_TRANSFER:
+                onAccepted(from, r.getPayloadId());
+                break;
+            case RESEND_CHUNKS:
+                onReport(from, r.getPayloadId(), r.getResendChunks());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private synchronized void onAccepted(int from, int payloadId) {
+        Outbound t = outbound.get(payloadId);
+        if (t == null || t.to != from || t.accepted) return;
+        t.accepted = true;
+        t.attempts = 0;
+        pump(t);
+    }
+
+    private void onReport(int from, int payloadId, MeshProtos.resend_chunks report) {
+        Outbound done = null;
+        synchronized (this) {
+            Outbound t = outbound.get(payloadId);
+            if (t == null || t.to != from) return;
+            // Отчёт означает и согласие: accept_transfer мог потеряться
+            t.accepted = true;
+            t.attempts = 0;
+
+            int n = report.getChunksCount();
+            if (n == 0) return;
+            int[] r = new int[n];
+            for (int i = 0; i < n; i++) r[i] = report.getChunks(i);
+            Arrays.sort(r, 0, n - 1);
+
+            int newlyAcked = t.window.onReport(r, n, scheduler.now());
+            if (t.window.isComplete()) {
+                outbound.remove(payloadId);
+                scheduler.cancel(t);
+                done = t;
+            } else {
+                pump(t);
+            }
+            if (newlyAcked > 0 && t.callback != null) {
+                Outbound progress = t;
+                int acked = t.window.getAckedCount();
+                int total = t.window.getChunkCount();
+                scheduler.post(() -> progress.callback.onProgress(progress.payloadId, acked, total));
+            }
+        }
+        if (done != null) finish(done, true, null);
+    }
+
+    /**
+     * Под блокировкой: отдаёт в транспорт всё, что позволяет окно, и перезапускает таймер —
+     * таймаут отчёта или, если транспорт отказал, повтор через {@link #BLOCKED_RETRY_MS}.
+     */
+    private void pump(Outbound t) {
+        long now = scheduler.now();
+        boolean blocked = false;
+        int i;
+        while ((i = t.window.next()) >= 0) {
+            if (!sendChunk(t, i)) {
+                t.window.unsend(i);
+                blocked = true;
+                break;
+            }
+            t.window.markSent(i, now);
+        }
+        if (blocked) BLOCKED.increment();
+        t.blocked = blocked;
+        scheduler.cancel(t);
+        scheduler.postDelayed(t, blocked ? BLOCKED_RETRY_MS : REPORT_TIMEOUT_MS);
+    }
+
+    private boolean sendChunk(Outbound t, int index) {
+        int offset = index * CHUNK_SIZE;
+        int len = Math.min(CHUNK_SIZE, t.data.length - offset);
+        ByteString payload = MeshProtos.ChunkedPayload.newBuilder()
+                .setPayloadId(t.payloadId)
+                .setChunkCount(t.window.getChunkCount())
+                .setChunkIndex(index)
+                .setPayloadChunk(ByteString.copyFrom(t.data, offset, len))
+                .build()
+                .toByteString();
+        return transport.send(t.to, t.channel, CHUNK_PORT, payload);
+    }
+
+    private void onOutboundTimer(Outbound t) {
+        String error = null;
+        synchronized (this) {
+            if (outbound.get(t.payloadId) != t) return;
+            if (!t.blocked && transport.hasQueued()) {
+                // Запрос или куски ещё не ушли в радио — ответа ждать рано
+                scheduler.postDelayed(t, t.accepted ? REPORT_TIMEOUT_MS : HANDSHAKE_TIMEOUT_MS);
+                return;
+            }
+            if (!t.accepted) {
+                if (t.attempts < HANDSHAKE_ATTEMPTS && requestTransfer(t)) return;
+                error = "получатель не ответил на запрос";
+            } else if (t.blocked) {
+                // Очередь отправки была полна: получатель не молчал, кусков просто не было в эфире
+                pump(t);
+                return;
+            } else if (t.attempts < MAX_PROBES) {
+                // Тишина: повторяем младший неподтверждённый кусок, получатель ответит отчётом
+                t.attempts++;
+                t.window.probe();
+                pump(t);
+                return;
+            } else {
+                error = "нет отчётов от получателя";
+            }
+            outbound.remove(t.payloadId);
+        }
+        finish(t, false, error);
+    }
+
+    private void finish(Outbound t, boolean success, String error) {
+        if (!success) ABORTED.increment();
+        if (t.callback == null) return;
+        scheduler.post(() -> t.callback.onComplete(t.payloadId, success, error));
+    }
+
+    // -------------------- Получатель --------------------
+
+    private static long key(int from, int payloadId) {
+        return ((long) from << 32) | (payloadId & 0xffffffffL);
+    }
+
+    private synchronized void onTransferRequest(int from, int channel, int payloadId) {
+        long k = key(from, payloadId);
+        if (!inbound.containsKey(k) && !completed.containsKey(k)) {
+            if (inbound.size() >= MAX_INBOUND) {
+                INBOUND_DROPPED.increment();
+                return;
+            }
+            Inbound r = new Inbound(from, channel, payloadId);
+            inbound.put(k, r);
+            scheduler.postDelayed(r, RECEIVER_IDLE_MS);
+        }
+        // Повторный запрос — ответ потерялся, подтверждаем снова
+        sendResponse(from, channel, MeshProtos.ChunkedPayloadResponse.newBuilder()
+                .setPayloadId(payloadId)
+                .setAcceptTransfer(true));
+    }
+
+    private void onChunk(int from, int channel, MeshProtos.ChunkedPayload c) {
+        Inbound done = null;
+        synchronized (this) {
+            long k = key(from, c.getPayloadId());
+            Inbound r = inbound.get(k);
+            if (r == null) {
+                Integer count = completed.get(k);
+                // Уже собрано, но отправитель не получил итоговый отчёт
+                if (count != null) sendReport(from, channel, c.getPayloadId(), new int[]{count}, 1);
+                return;
+            }
+            int count = c.getChunkCount();
+            if (r.chunks == null) {
+                // Недопустимое число кусков
+                if (count <= 0 || count > MAX_CHUNKS) {
+                    drop(k, r);
+                    return;
+                }
+                r.chunks = new ChunkReassembler(count, CHUNK_SIZE);
+            } else if (count != r.chunks.getChunkCount()) {
+                // Число кусков изменилось посреди передачи
+                drop(k, r);
+                return;
+            }
+
+            // asReadOnlyByteBuffer у ByteString-литерала — обёртка без копии
+            ChunkReassembler.Result res = r.chunks.put(c.getChunkIndex(), c.getPayloadChunk().asReadOnlyByteBuffer());
+            if (res == ChunkReassembler.Result.INVALID) return;
+
+            r.idleReports = 0;
+            scheduler.cancel(r);
+            if (r.chunks.isComplete()) {
+                inbound.remove(k);
+                completed.put(k, count);
+                sendReport(from, channel, r.payloadId, new int[]{count}, 1);
+                done = r;
+            } else {
+                if (res == ChunkReassembler.Result.ACCEPTED) r.sinceReport++;
+                if (res == ChunkReassembler.Result.DUPLICATE
+                        || r.sinceReport >= REPORT_EVERY
+                        || c.getChunkIndex() == count - 1) {
+                    report(r);
+                }
+                scheduler.postDelayed(r, RECEIVER_IDLE_MS);
+            }
+        }
+        if (done != null) {
+            Listener l = listener;
+            if (l != null) {
+                Inbound r = done;
+                scheduler.post(() -> l.onReceived(r.from, r.payloadId, r.chunks.data()));
+            }
+        }
+    }
+
+    private void onInboundTimer(Inbound r) {
+        synchronized (this) {
+            long k = key(r.from, r.payloadId);
+            if (inbound.get(k) != r) return;
+            // Отправитель замолчал
+            if (++r.idleReports > MAX_IDLE_REPORTS) {
+                drop(k, r);
+                return;
+            }
+            if (r.chunks != null) report(r);
+            scheduler.postDelayed(r, RECEIVER_IDLE_MS);
+        }
+    }
+
+    /** Под блокировкой. */
+    private void report(Inbound r) {
+        r.sinceReport = 0;
+        int n = r.chunks.report(reportScratch, MAX_REPORT_MISSING);
+        sendReport(r.from, r.channel, r.payloadId, reportScratch, n);
+    }
+
+    private void drop(long k, Inbound r) {
+        inbound.remove(k);
+        scheduler.cancel(r);
+        INBOUND_DROPPED.increment();
+    }
+
+    private boolean sendReport(int to, int channel, int payloadId, int[] chunks, int n) {
+        MeshProtos.resend_chunks.Builder b = MeshProtos.resend_chunks.newBuilder();
+        for (int i = 0; i < n; i++) b.addChunks(chunks[i]);
+        return sendResponse(to, channel, MeshProtos.ChunkedPayloadResponse.newBuilder()
+                .setPayloadId(payloadId)
+                .setResendChunks(b));
+    }
+
+    private boolean sendResponse(int to, int channel, MeshProtos.ChunkedPayloadResponse.Builder r) {
+        return transport.send(to, channel, RESPONSE_PORT, r.build().toByteString());
+    }
+}
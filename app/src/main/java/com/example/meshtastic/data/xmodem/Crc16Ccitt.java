@@ -0,0 +1,36 @@
+package com.example.meshtastic.data.xmodem;
+
+/**
+ * CRC-16/XMODEM (CCITT, полином 0x1021, начальное значение 0) — как crc16_ccitt в прошивке.
+ *
+ * Табличный вариант: байт за шаг, без ветвлений по битам. {@link #update} можно вызывать
+ * по частям — результат тот же, что и для склеенного буфера.
+ */
+public final class Crc16Ccitt {
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private Crc16Ccitt() {
+    }
+
+    public static int update(int crc, byte[] data, int offset, int len) {
+        for (int i = offset, end = offset + len; i < end; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    public static int compute(byte[] data, int offset, int len) {
+        return update(0, data, offset, len);
+    }
+}
@@ -0,0 +1,519 @@
+package com.example.meshtastic.data.xmodem;
+
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.XmodemProtos.XModem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Передача файлов в/из файловой системы радио по сообщениям XModem (ToRadio/FromRadio.xmodemPacket).
+ *
+ * Протокол прошивки: блок с seq=0 несёт имя файла (SOH — записать на радио, STX — прочитать
+ * с радио), дальше блоки по {@link #BLOCK_SIZE} байт с CRC-16/CCITT, ACK/NAK на каждый, в конце EOT.
+ *
+ * Запись (push) идёт конвейером: в полёте до {@code window} блоков. Радио принимает блоки
+ * строго по порядку и на любой пропуск отвечает NAK с ожидаемым номером, так что при ошибке
+ * повторяется хвост окна начиная с него (go-back-N). Номеров в ACK/NAK прошивка не ставит,
+ * поэтому ACK считаются по порядку, а повтор идёт раундами: после первого NAK отправка
+ * замирает, пока не придут ответы на всё, что уже в пути (это NAK на устаревший хвост),
+ * или пока не истечёт пара RTT — ответа на потерянный блок не будет. Так каждый NAK
+ * нового раунда относится к нему самому. Неподтверждённые блоки лежат в кольце
+ * переиспользуемых буферов, файл читается потоком ровно один раз.
+ *
+ * Чтение (pull) у прошивки stop-and-wait: следующий блок радио шлёт только после ACK,
+ * поэтому здесь выигрыш только в том, что ACK уходит сразу после проверки CRC, а данные
+ * пишутся в поток без накопления в памяти.
+ *
+ * Вся работа — в собственном потоке; колбэки {@link Listener} приходят в нём же.
+ * Одновременно идёт одна передача: прошивка держит только один открытый файл.
+ */
+public class XModemTransfer {
+
+    /** Максимальный размер buffer в прошивке (xmodem.options). */
+    public static final int BLOCK_SIZE = 128;
+    public static final int DEFAULT_WINDOW = 8;
+
+    private static final long TIMEOUT_MS = 5_000;
+    // Оценка RTT до первого ответа радио и нижняя граница ожидания хвоста раунда
+    private static final long INITIAL_RTT_MS = 500;
+    private static final long MIN_DRAIN_MS = 20;
+    private static final int MAX_RETRIES = 10;
+
+    public interface Transport {
+        boolean send(XModem packet);
+    }
+
+    public interface Listener {
+        default void onProgress(long bytes, long totalBytes) {
+        }
+
+        void onComplete(boolean success, long bytes, String error);
+    }
+
+    private enum Mode {
+        IDLE,
+        PUSH_OPEN,
+        PUSH_DATA,
+        PUSH_EOT,
+        PULL
+    }
+
+    private final Transport transport;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private int window = DEFAULT_WINDOW;
+
+    // Состояние текущей передачи; трогается только из потока executor
+    private Mode mode = Mode.IDLE;
+    private Listener listener;
+    private InputStream in;
+    private OutputStream out;
+    private long totalBytes;
+    private long bytes;
+    private int retries;
+    private ScheduledFuture<?> timeout;
+    private XModem.Control openControl;
+    private byte[] openName;
+
+    // push: кольцо блоков [base, next) и время последней отправки каждого
+    private byte[][] blocks;
+    private int[] lengths;
+    private long[] sentAt;
+    private int base;
+    private int next;
+    private boolean eof;
+    // Отправленные блоки, на которые ещё не пришёл ни ACK, ни NAK (потерянные тоже здесь)
+    private int unanswered;
+    // После NAK: ждём ответов на хвост прошлого раунда, новых блоков не шлём
+    private boolean draining;
+    private long lastSentAt;
+    private long openSentAt;
+    private long srttMs = INITIAL_RTT_MS;
+
+    // pull: ожидаемый номер блока и общий буфер под него
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int expected;
+    private boolean lastWasNak;
+
+    public XModemTransfer(Transport transport) {
+        this(transport, Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "XModem")), true);
+    }
+
+    /**
+     * @param executor однопоточный планировщик, в котором будет идти передача
+     */
+    public XModemTransfer(Transport transport, ScheduledExecutorService executor) {
+        this(transport, executor, false);
+    }
+
+    private XModemTransfer(Transport transport, ScheduledExecutorService executor, boolean ownsExecutor) {
+        this.transport = transport;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /** Число блоков в полёте при записи; применяется к следующей передаче. */
+    public void setWindow(int window) {
+        executor.execute(() -> this.window = Math.max(1, window));
+    }
+
+    /**
+     * Записывает поток в файл {@code remoteName} на радио. Поток закрывается по окончании.
+     * @param size размер для прогресса или -1, если неизвестен
+     */
+    public void push(String remoteName, InputStream source, long size, Listener l) {
+        executor.execute(() -> {
+            if (!begin(l)) {
+                closeQuietly(source);
+                return;
+            }
+            in = source;
+            totalBytes = size;
+            blocks = new byte[window][BLOCK_SIZE];
+            lengths = new int[window];
+            sentAt = new long[window];
+            base = 1;
+            next = 1;
+            eof = false;
+            unanswered = 0;
+            draining = false;
+            srttMs = INITIAL_RTT_MS;
+            mode = Mode.PUSH_OPEN;
+            sendOpen(XModem.Control.SOH, remoteName);
+        });
+    }
+
+    /**
+     * Читает файл {@code remoteName} с радио в поток. Поток закрывается по окончании.
+     */
+    public void pull(String remoteName, OutputStream target, Listener l) {
+        executor.execute(() -> {
+            if (!begin(l)) {
+                closeQuietly(target);
+                return;
+            }
+            out = target;
+            totalBytes = -1;
+            expected = 1;
+            lastWasNak = false;
+            mode = Mode.PULL;
+            sendOpen(XModem.Control.STX, remoteName);
+        });
+    }
+
+    /**
+     * Обработка FromRadio.xmodemPacket; можно звать из любого потока.
+     */
+    public void onXModem(XModem packet) {
+        executor.execute(() -> handle(packet));
+    }
+
+    /**
+     * Отменяет передачу; радио получает CAN (при записи недописанный файл удаляется прошивкой).
+     */
+    public void cancel() {
+        executor.execute(() -> {
+            if (mode == Mode.IDLE) return;
+            send(XModem.Control.CAN, 0, null, 0);
+            finish(false, "отменено");
+        });
+    }
+
+    /**
+     * Прерывает передачу без обмена с радио — например, при разрыве соединения.
+     */
+    public void abort(String reason) {
+        executor.execute(() -> {
+            if (mode != Mode.IDLE) finish(false, reason);
+        });
+    }
+
+    public void shutdown() {
+        abort("остановлено");
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    private boolean begin(Listener l) {
+        if (mode != Mode.IDLE) {
+            if (l != null) l.onComplete(false, 0, "уже идёт другая передача");
+            return false;
+        }
+        listener = l;
+        bytes = 0;
+        retries = 0;
+        return true;
+    }
+
+    private void sendOpen(XModem.Control control, String remoteName) {
+        byte[] name = remoteName.getBytes(StandardCharsets.UTF_8);
+        if (name.length == 0 || name.length > BLOCK_SIZE) {
+            finish(false, "недопустимое имя файла");
+            return;
+        }
+        openControl = control;
+        openName = name;
+        resendOpen();
+    }
+
+    private void resendOpen() {
+        openSentAt = nowMs();
+        if (send(openControl, 0, openName, openName.length)) armTimeout();
+    }
+
+    private void handle(XModem p) {
+        switch (mode) {
+            case PUSH_OPEN:
+            case PUSH_DATA:
+            case PUSH_EOT:
+                handlePush(p);
+                break;
+            case PULL:
+                handlePull(p);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -------------------- push --------------------
+
+    private void handlePush(XModem p) {
+        switch (p.getControl()) {
+            case ACK:
+                if (mode == Mode.PUSH_OPEN) {
+                    mode = Mode.PUSH_DATA;
+                    retries = 0;
+                    srttMs = Math.max(1, nowMs() - openSentAt);
+                    fill();
+                } else if (mode == Mode.PUSH_EOT) {
+                    finish(true, null);
+                } else {
+                    onPushAck();
+                }
+                break;
+            case NAK:
+                if (mode == Mode.PUSH_OPEN) {
+                    finish(false, "радио не открыло файл на запись");
+                } else if (mode == Mode.PUSH_DATA) {
+                    onPushNak();
+                } else if (++retries > MAX_RETRIES) {
+                    finish(false, "радио не подтвердило EOT");
+                } else {
+                    sendEot();
+                }
+                break;
+            case CAN:
+                finish(false, "радио отменило передачу");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onPushAck() {
+        // Прошивка обнуляет управляющие пакеты, seq в ACK всегда 0. Но блоки она берёт
+        // строго по порядку, так что каждый ACK подтверждает самый старый блок окна
+        if (base >= next) return;
+        if (unanswered > 0) unanswered--;
+        // Хвост прошлого раунда не подтверждается никогда: ACK значит, что он весь уже пришёл
+        draining = false;
+        int slot = base % window;
+        srttMs = (7 * srttMs + Math.max(1, nowMs() - sentAt[slot])) / 8;
+        bytes += lengths[slot];
+        base++;
+        retries = 0;
+        if (listener != null) listener.onProgress(bytes, totalBytes);
+        fill();
+    }
+
+    private void onPushNak() {
+        if (unanswered > 0) unanswered--;
+        if (unanswered == 0) {
+            // Ответы на всё отправленное пришли: повторяем сразу
+            goBack();
+            return;
+        }
+        if (draining) return;
+        // Первый NAK раунда. Остальные блоки в пути радио отвергнет; ждём их NAK, но не дольше,
+        // чем нужно на ответ последнему отправленному, — потерянный блок ответа не даст
+        draining = true;
+        long wait = lastSentAt + 2 * srttMs - nowMs();
+        armTimeout(Math.min(TIMEOUT_MS, Math.max(MIN_DRAIN_MS, wait)));
+    }
+
+    /** Новый раунд: повтор окна с base; всё, что было в пути, считается отвеченным или потерянным. */
+    private void goBack() {
+        if (++retries > MAX_RETRIES) {
+            send(XModem.Control.CAN, 0, null, 0);
+            finish(false, "слишком много повторов");
+            return;
+        }
+        draining = false;
+        unanswered = 0;
+        for (int s = base; s < next; s++) {
+            if (!sendBlock(s)) return;
+        }
+        armTimeout();
+    }
+
+    /** Дочитывает файл в свободные места окна и отправляет новые блоки. */
+    private void fill() {
+        try {
+            while (!eof && next - base < window) {
+                int slot = next % window;
+                int len = readBlock(in, blocks[slot]);
+                if (len == 0) {
+                    eof = true;
+                    break;
+                }
+                lengths[slot] = len;
+                if (len < BLOCK_SIZE) eof = true;
+                if (!sendBlock(next++)) return;
+            }
+        } catch (IOException e) {
+            send(XModem.Control.CAN, 0, null, 0);
+            finish(false, "ошибка чтения: " + e.getMessage());
+            return;
+        }
+        if (eof && base == next) {
+            sendEot();
+        } else {
+            armTimeout();
+        }
+    }
+
+    private boolean sendBlock(int seq) {
+        int slot = seq % window;
+        lastSentAt = nowMs();
+        sentAt[slot] = lastSentAt;
+        unanswered++;
+        return send(XModem.Control.SOH, seq, blocks[slot], lengths[slot]);
+    }
+
+    private void sendEot() {
+        mode = Mode.PUSH_EOT;
+        if (send(XModem.Control.EOT, 0, null, 0)) armTimeout();
+    }
+
+    private static int readBlock(InputStream in, byte[] dst) throws IOException {
+        int n = 0;
+        while (n < dst.length) {
+            int r = in.read(dst, n, dst.length - n);
+            if (r < 0) break;
+            n += r;
+        }
+        return n;
+    }
+
+    // -------------------- pull --------------------
+
+    private void handlePull(XModem p) {
+        switch (p.getControl()) {
+            case SOH:
+            case STX:
+                onPullBlock(p);
+                break;
+            case EOT:
+                finish(true, null);
+                break;
+            case NAK:
+                // Во время чтения радио шлёт NAK только если не смогло открыть файл
+                if (expected == 1) finish(false, "радио не открыло файл на чтение");
+                break;
+            case CAN:
+                finish(false, "радио отменило передачу");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onPullBlock(XModem p) {
+        int seq = p.getSeq();
+        if (seq == expected - 1) {
+            // Радио повторило уже записанный блок: наш ACK потерялся, и мы попросили повтор.
+            // Лишний ACK нельзя — прошивка на каждый ACK сдвигается на следующий блок.
+            if (lastWasNak) sendPullControl(XModem.Control.ACK, seq);
+            return;
+        }
+        ByteString data = p.getBuffer();
+        int len = data.size();
+        if (seq != expected || len > BLOCK_SIZE) {
+            sendPullControl(XModem.Control.NAK, expected);
+            return;
+        }
+        data.copyTo(block, 0);
+        if (Crc16Ccitt.compute(block, 0, len) != p.getCrc16()) {
+            sendPullControl(XModem.Control.NAK, expected);
+            return;
+        }
+        try {
+            out.write(block, 0, len);
+        } catch (IOException e) {
+            send(XModem.Control.CAN, 0, null, 0);
+            finish(false, "ошибка записи: " + e.getMessage());
+            return;
+        }
+        bytes += len;
+        expected++;
+        retries = 0;
+        sendPullControl(XModem.Control.ACK, seq);
+        if (listener != null) listener.onProgress(bytes, totalBytes);
+    }
+
+    private void sendPullControl(XModem.Control control, int seq) {
+        lastWasNak = control == XModem.Control.NAK;
+        if (send(control, seq, null, 0)) armTimeout();
+    }
+
+    // -------------------- общее --------------------
+
+    private boolean send(XModem.Control control, int seq, byte[] data, int len) {
+        XModem.Builder b = XModem.newBuilder().setControl(control).setSeq(seq);
+        if (data != null) {
+            b.setBuffer(ByteString.copyFrom(data, 0, len));
+            b.setCrc16(Crc16Ccitt.compute(data, 0, len));
+        }
+        if (transport.send(b.build())) return true;
+        if (mode != Mode.IDLE && control != XModem.Control.CAN) finish(false, "нет соединения");
+        return false;
+    }
+
+    private void armTimeout() {
+        armTimeout(TIMEOUT_MS);
+    }
+
+    private void armTimeout(long delayMs) {
+        if (timeout != null) timeout.cancel(false);
+        timeout = executor.schedule(this::onTimeout, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void onTimeout() {
+        timeout = null;
+        switch (mode) {
+            case PUSH_OPEN:
+            case PULL:
+                if (++retries > MAX_RETRIES) {
+                    send(XModem.Control.CAN, 0, null, 0);
+                    finish(false, "радио не отвечает");
+                } else if (mode == Mode.PULL) {
+                    // Потерялся блок или наш ACK: NAK просит радио повторить текущий блок
+                    sendPullControl(XModem.Control.NAK, expected);
+                } else {
+                    resendOpen();
+                }
+                break;
+            case PUSH_DATA:
+                // Либо истекло ожидание хвоста раунда, либо радио молчит TIMEOUT_MS
+                goBack();
+                break;
+            case PUSH_EOT:
+                if (++retries > MAX_RETRIES) finish(false, "радио не подтвердило EOT");
+                else sendEot();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void finish(boolean success, String error) {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        closeQuietly(in);
+        closeQuietly(out);
+        in = null;
+        out = null;
+        blocks = null;
+        lengths = null;
+        sentAt = null;
+        openName = null;
+        mode = Mode.IDLE;
+        Listener l = listener;
+        listener = null;
+        if (l != null) l.onComplete(success, bytes, error);
+    }
+
+    private static void closeQuietly(Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.meshtastic.service;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.lifecycle.Observer;
+
+import com.example.meshtastic.MainActivity;
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+
+/**
+ * Сервис переднего плана, который держит процесс и приём живыми, пока есть соединение.
+ *
+ * Разбор FromRadio идёт в потоке "MeshIngest" репозитория: приём не ждёт отрисовки
+ * и не замирает вместе с экраном. Поток один на процесс и не меняется при запуске
+ * и остановке сервиса, так что кадры никогда не разбираются в двух потоках сразу.
+ * BleManager отдаёт кадры пачками — один пост на опустошение очереди радио, а снимок
+ * настроек пишется на диск не чаще раза в несколько секунд. Привязки нет: экраны читают
+ * состояние из репозитория.
+ */
+public class BluetoothConnectionService extends Service {
+
+    private static final String CHANNEL_ID = "mesh_connection";
+    private static final int NOTIFICATION_ID = 1;
+
+    private final Observer<String> statusObserver = this::updateNotification;
+
+    private MeshConnectionRepository repo;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        repo = MeshConnectionRepository.getInstance(this);
+
+        createChannel();
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification("Подключение…"),
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                        ? ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE : 0);
+
+        repo.getStatusText().observeForever(statusObserver);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // После гибели процесса соединение само не восстановится — перезапуск не нужен
+        return START_NOT_STICKY;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public void onDestroy() {
+        repo.getStatusText().removeObserver(statusObserver);
+        super.onDestroy();
+    }
+
+    private void createChannel() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Соединение с радио",
+                NotificationManager.IMPORTANCE_LOW);
+        channel.setShowBadge(false);
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        if (nm != null) nm.createNotificationChannel(channel);
+    }
+
+    private Notification buildNotification(String text) {
+        PendingIntent open = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+                .setContentTitle("Meshtastic")
+                .setContentText(text)
+                .setContentIntent(open)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+    }
+
+    private void updateNotification(String text) {
+        NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        if (nm != null && text != null) nm.notify(NOTIFICATION_ID, buildNotification(text));
+    }
+}
@@ -21,6 +21,9 @@ import androidx.fragment.app.Fragment;
 import com.example.meshtastic.R;
 import com.example.meshtastic.data.repository.MeshConnectionRepository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Фрагмент для поиска и подключения к устройству Meshtastic через BLE.
  */
@@ -96,20 +99,20 @@ public class ConnectionFragment extends Fragment {
      * Проверяет и запрашивает необходимые разрешения.
      */
     private void checkPermissions() {
+        List<String> missing = new ArrayList<>();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            // Android 12+ требует новые разрешения
-            if (ContextCompat.checkSelfPermission(requireContext(), 
-                    Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED ||
-                ContextCompat.checkSelfPermission(requireContext(), 
-                    Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                
-                ActivityCompat.requestPermissions(requireActivity(),
-                        new String[]{
-                                Manifest.permission.BLUETOOTH_SCAN,
-                                Manifest.permission.BLUETOOTH_CONNECT
-                        },
-                        REQUEST_BLUETOOTH_PERMISSIONS);
-            }
+            // Android 12+ требует новые разрешения для Bluetooth
+            addIfMissing(missing, Manifest.permission.BLUETOOTH_SCAN);
+            addIfMissing(missing, Manifest.permission.BLUETOOTH_CONNECT);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Без него на Android 13+ уведомление сервиса соединения не показывается
+            addIfMissing(missing, Manifest.permission.POST_NOTIFICATIONS);
+        }
+        if (!missing.isEmpty()) {
+            ActivityCompat.requestPermissions(requireActivity(),
+                    missing.toArray(new String[0]),
+                    REQUEST_BLUETOOTH_PERMISSIONS);
         }
         
         // Разрешение на местоположение необходимо для поиска устройств
@@ -121,6 +124,12 @@ public class ConnectionFragment extends Fragment {
         }
     }
     
+    private void addIfMissing(List<String> out, String permission) {
+        if (ContextCompat.checkSelfPermission(requireContext(), permission) != PackageManager.PERMISSION_GRANTED) {
+            out.add(permission);
+        }
+    }
+    
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
                                            @NonNull int[] grantResults) {
@@ -0,0 +1,133 @@
+package com.example.meshtastic.ui.diagnostics;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.example.meshtastic.R;
+import com.example.meshtastic.data.metrics.MetricsRegistry;
+import com.example.meshtastic.data.metrics.PacketTrace;
+import com.google.android.material.switchmaterial.SwitchMaterial;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Метрики радио и приёма из {@link MetricsRegistry}: счётчики со скоростью,
+ * измерители и гистограммы задержек, сброс и выгрузка снимка в текстовый файл.
+ * Здесь же включается {@link PacketTrace}.
+ */
+public class DiagnosticsFragment extends Fragment {
+
+    private static final long REFRESH_MS = 500;
+    // Трассируется один кадр FromRadio из стольких
+    private static final int TRACE_SAMPLE_EVERY = 10;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final MetricsRegistry registry = MetricsRegistry.get();
+
+    private TextView metricsText;
+    // Значения счётчиков на прошлом обновлении — для скорости
+    private Map<String, Long> lastCounters = new HashMap<>();
+    private long lastRefreshMs;
+    private Map<String, Double> rates = new HashMap<>();
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_diagnostics, container, false);
+        metricsText = view.findViewById(R.id.metrics_text);
+        view.findViewById(R.id.metrics_reset_button).setOnClickListener(v -> {
+            registry.reset();
+            lastCounters = new HashMap<>();
+            refresh();
+        });
+        SwitchMaterial traceSwitch = view.findViewById(R.id.packet_trace_switch);
+        traceSwitch.setChecked(PacketTrace.isEnabled());
+        traceSwitch.setOnCheckedChangeListener((b, checked) -> PacketTrace.setEnabled(checked, TRACE_SAMPLE_EVERY));
+        view.findViewById(R.id.metrics_export_button).setOnClickListener(v -> exportSnapshot());
+        return view;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        lastCounters = registry.counterValues();
+        lastRefreshMs = SystemClock.elapsedRealtime();
+        refresh();
+        handler.postDelayed(refreshRunnable, REFRESH_MS);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refreshRunnable);
+    }
+
+    private void refresh() {
+        long now = SystemClock.elapsedRealtime();
+        Map<String, Long> counters = registry.counterValues();
+        double seconds = (now - lastRefreshMs) / 1000.0;
+        if (seconds > 0.05) {
+            Map<String, Double> next = new HashMap<>();
+            for (Map.Entry<String, Long> e : counters.entrySet()) {
+                Long prev = lastCounters.get(e.getKey());
+                next.put(e.getKey(), (e.getValue() - (prev != null ? prev : 0)) / seconds);
+            }
+            rates = next;
+            lastCounters = counters;
+            lastRefreshMs = now;
+        }
+        metricsText.setText(registry.toText(rates));
+    }
+
+    private void exportSnapshot() {
+        File dir = requireContext().getExternalFilesDir("diagnostics");
+        if (dir == null) dir = new File(requireContext().getFilesDir(), "diagnostics");
+        File file = new File(dir, "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date()) + ".txt");
+        Map<String, Double> snapshotRates = rates;
+        new Thread(() -> {
+            String result;
+            try {
+                if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                    throw new IOException("не удалось создать " + file.getParent());
+                }
+                try (Writer w = new BufferedWriter(new FileWriter(file))) {
+                    registry.writeText(w, snapshotRates);
+                }
+                result = "Сохранено\n" + file.getAbsolutePath();
+            } catch (IOException e) {
+                result = "Ошибка экспорта: " + e.getMessage();
+            }
+            String message = result;
+            handler.post(() -> {
+                if (isAdded()) Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+            });
+        }, "MetricsExport").start();
+    }
+}
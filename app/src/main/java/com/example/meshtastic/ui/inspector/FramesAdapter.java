@@ -0,0 +1,132 @@
+package com.example.meshtastic.ui.inspector;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.meshtastic.R;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.inspector.HexEncoder;
+import com.example.meshtastic.data.parser.MeshProtoParser;
+
+import org.meshtastic.proto.MeshProtos;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Кадры инспектора, новые сверху. Hex и разбор строятся в onBindViewHolder —
+ * только для видимых на экране строк.
+ */
+class FramesAdapter extends RecyclerView.Adapter<FramesAdapter.VH> {
+
+    enum Mode {
+        HEX,
+        DECODED
+    }
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.ROOT);
+    private final Date date = new Date();
+    private final StringBuilder sb = new StringBuilder();
+
+    private List<FrameHistory.Frame> frames = new ArrayList<>();
+    private Mode mode = Mode.HEX;
+
+    FramesAdapter() {
+        setHasStableIds(true);
+    }
+
+    void submit(List<FrameHistory.Frame> oldestFirst) {
+        List<FrameHistory.Frame> list = new ArrayList<>(oldestFirst.size());
+        for (int i = oldestFirst.size() - 1; i >= 0; i--) list.add(oldestFirst.get(i));
+        frames = list;
+        notifyDataSetChanged();
+    }
+
+    void setMode(Mode mode) {
+        if (this.mode == mode) return;
+        this.mode = mode;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_frame, parent, false);
+        return new VH(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        FrameHistory.Frame f = frames.get(position);
+        boolean rx = f.direction == FrameHistory.Direction.RX;
+
+        date.setTime(f.timeMs);
+        sb.setLength(0);
+        sb.append(timeFormat.format(date)).append("  ")
+                .append(rx ? "RX" : "TX").append("  ")
+                .append(f.data.length).append(" B  ")
+                .append(rx ? summarizeRx(f.data) : summarizeTx(f.data));
+        holder.header.setText(sb.toString());
+
+        sb.setLength(0);
+        if (mode == Mode.HEX) {
+            HexEncoder.dump(sb, f.data, 0, f.data.length);
+            if (sb.length() > 0) sb.setLength(sb.length() - 1);
+        } else {
+            sb.append(decode(f.data, rx));
+        }
+        holder.body.setText(sb.toString());
+    }
+
+    @Override
+    public int getItemCount() {
+        return frames.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return frames.get(position).seq;
+    }
+
+    private static String summarizeRx(byte[] data) {
+        String s = MeshProtoParser.parseFromRadioSummary(data);
+        return s != null ? s : "не разобран";
+    }
+
+    private static String summarizeTx(byte[] data) {
+        try {
+            return "ToRadio " + MeshProtos.ToRadio.parseFrom(data).getPayloadVariantCase().name();
+        } catch (Exception e) {
+            return "не разобран";
+        }
+    }
+
+    private static String decode(byte[] data, boolean rx) {
+        try {
+            return rx ? MeshProtos.FromRadio.parseFrom(data).toString()
+                    : MeshProtos.ToRadio.parseFrom(data).toString();
+        } catch (Exception e) {
+            return "Ошибка разбора: " + e.getMessage();
+        }
+    }
+
+    static class VH extends RecyclerView.ViewHolder {
+        final TextView header;
+        final TextView body;
+
+        VH(@NonNull View itemView) {
+            super(itemView);
+            header = itemView.findViewById(R.id.frame_header);
+            body = itemView.findViewById(R.id.frame_body);
+        }
+    }
+}
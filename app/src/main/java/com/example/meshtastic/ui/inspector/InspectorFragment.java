@@ -0,0 +1,105 @@
+package com.example.meshtastic.ui.inspector;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.meshtastic.R;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+
+import java.util.Locale;
+
+/**
+ * Инспектор сырых кадров FromRadio/ToRadio: hex-дамп или разбор protobuf.
+ *
+ * История пишется всегда (это только ссылки на кадры), а читается опросом лишь
+ * пока экран открыт.
+ */
+public class InspectorFragment extends Fragment {
+
+    private static final long REFRESH_MS = 500;
+    private static final String[] MODE_LABELS = {"HEX", "Разбор"};
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private FrameHistory history;
+    private FramesAdapter adapter;
+    private TextView statsText;
+    private long renderedCount = -1;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_inspector, container, false);
+
+        history = MeshConnectionRepository.getInstance(requireContext()).getFrameHistory();
+        statsText = view.findViewById(R.id.inspector_stats_text);
+
+        RecyclerView rv = view.findViewById(R.id.inspector_recycler);
+        rv.setLayoutManager(new LinearLayoutManager(requireContext()));
+        adapter = new FramesAdapter();
+        rv.setAdapter(adapter);
+
+        Spinner modeSpinner = view.findViewById(R.id.inspector_mode_spinner);
+        ArrayAdapter<String> modeAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, MODE_LABELS);
+        modeAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        modeSpinner.setAdapter(modeAdapter);
+        modeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                adapter.setMode(FramesAdapter.Mode.values()[position]);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        return view;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        renderedCount = -1;
+        refresh();
+        handler.postDelayed(refreshRunnable, REFRESH_MS);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refreshRunnable);
+    }
+
+    private void refresh() {
+        long count = history.getCount();
+        if (count == renderedCount) return;
+        renderedCount = count;
+        statsText.setText(String.format(Locale.ROOT, "Кадров: %d (хранится %d)",
+                count, Math.min(count, history.capacity())));
+        adapter.submit(history.snapshot(history.capacity()));
+    }
+}
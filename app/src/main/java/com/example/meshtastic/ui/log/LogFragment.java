@@ -0,0 +1,189 @@
+package com.example.meshtastic.ui.log;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.ScrollView;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.example.meshtastic.R;
+import com.example.meshtastic.data.log.LogRingBuffer;
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.google.android.material.textfield.TextInputEditText;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Журнал прошивки (LogRecord) с фильтром по уровню и подстроке и выгрузкой в файл.
+ *
+ * Кольцо журнала читается опросом, только пока экран открыт: приём строк
+ * экран никак не замедляет.
+ */
+public class LogFragment extends Fragment {
+
+    private static final long REFRESH_MS = 500;
+    // Больше строк в TextView не показываем, полный журнал — через экспорт
+    private static final int MAX_LINES = 500;
+
+    private static final String[] LEVEL_LABELS = {"Все", "DEBUG+", "INFO+", "WARN+", "ERROR+"};
+    private static final int[] LEVELS = {
+            0, LogRingBuffer.DEBUG, LogRingBuffer.INFO, LogRingBuffer.WARNING, LogRingBuffer.ERROR
+    };
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.ROOT);
+    private final Date date = new Date();
+
+    private LogRingBuffer log;
+    private TextView logText;
+    private TextView statsText;
+    private ScrollView scroll;
+
+    private int minLevel = LogRingBuffer.DEBUG;
+    private String filter = "";
+    private long renderedCount = -1;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh(false);
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_log, container, false);
+
+        log = MeshConnectionRepository.getInstance(requireContext()).getRadioLog();
+        logText = view.findViewById(R.id.log_text);
+        statsText = view.findViewById(R.id.log_stats_text);
+        scroll = view.findViewById(R.id.log_scroll);
+
+        Spinner levelSpinner = view.findViewById(R.id.log_level_spinner);
+        ArrayAdapter<String> levelAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, LEVEL_LABELS);
+        levelAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        levelSpinner.setAdapter(levelAdapter);
+        levelSpinner.setSelection(1);
+        levelSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                if (LEVELS[position] != minLevel) {
+                    minLevel = LEVELS[position];
+                    refresh(true);
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        TextInputEditText searchEdit = view.findViewById(R.id.log_search_edit);
+        searchEdit.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter = s.toString().trim();
+                refresh(true);
+            }
+        });
+
+        view.findViewById(R.id.log_export_button).setOnClickListener(v -> exportLog());
+        return view;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        refresh(true);
+        handler.postDelayed(refreshRunnable, REFRESH_MS);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refreshRunnable);
+    }
+
+    private void refresh(boolean force) {
+        long written = log.getWrittenCount();
+        if (!force && written == renderedCount) return;
+        renderedCount = written;
+
+        statsText.setText(String.format(Locale.ROOT, "Строк: %d, вытеснено: %d, ёмкость: %d",
+                written, log.getOverwrittenCount(), log.capacity()));
+        List<LogRingBuffer.Entry> entries = log.query(minLevel, filter, MAX_LINES);
+        if (entries.isEmpty()) {
+            logText.setText(written == 0 ? "Журнал пуст. Включите отладочный вывод в прошивке." : "Нет строк под фильтр");
+            return;
+        }
+        boolean atBottom = !scroll.canScrollVertically(1);
+        StringBuilder sb = new StringBuilder(entries.size() * 64);
+        for (LogRingBuffer.Entry e : entries) {
+            date.setTime(e.timeMs);
+            sb.append(timeFormat.format(date)).append(' ')
+                    .append(LogRingBuffer.levelName(e.level)).append(' ');
+            if (e.source != null && !e.source.isEmpty()) sb.append('[').append(e.source).append("] ");
+            sb.append(e.message).append('\n');
+        }
+        logText.setText(sb);
+        if (atBottom) scroll.post(() -> scroll.fullScroll(View.FOCUS_DOWN));
+    }
+
+    private void exportLog() {
+        File dir = requireContext().getExternalFilesDir("logs");
+        if (dir == null) dir = new File(requireContext().getFilesDir(), "logs");
+        File file = new File(dir, "radio-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date()) + ".txt");
+        int level = minLevel;
+        String substring = filter;
+        // Запись на диск — вне главного потока; кольцо допускает параллельное чтение
+        new Thread(() -> {
+            String result;
+            try {
+                if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                    throw new IOException("не удалось создать " + file.getParent());
+                }
+                try (Writer w = new BufferedWriter(new FileWriter(file))) {
+                    int n = log.exportTo(w, level, substring);
+                    result = "Сохранено строк: " + n + "\n" + file.getAbsolutePath();
+                }
+            } catch (IOException e) {
+                result = "Ошибка экспорта: " + e.getMessage();
+            }
+            String message = result;
+            handler.post(() -> {
+                if (isAdded()) Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+            });
+        }, "LogExport").start();
+    }
+}
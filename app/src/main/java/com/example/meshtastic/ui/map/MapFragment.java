@@ -0,0 +1,143 @@
+package com.example.meshtastic.ui.map;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.example.meshtastic.R;
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.example.meshtastic.data.tiles.OfflineTileInterceptor;
+import com.example.meshtastic.data.tiles.OfflineTileProvider;
+import com.mapbox.mapboxsdk.Mapbox;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.module.http.HttpRequestUtil;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Карта узлов сети (MapLibre). Узлы берутся из таблицы репозитория и обновляются
+ * инкрементально через {@link NodeLayerController}.
+ *
+ * Если в каталоге {@link OfflineTileProvider#MAPS_DIR} лежит .pmtiles/.mbtiles,
+ * подложка берётся из него без сети; иначе используется онлайн-стиль.
+ */
+public class MapFragment extends Fragment {
+
+    private static final String STYLE_URL = "https://demotiles.maplibre.org/style.json";
+
+    // Перехватчик ставится в HTTP-стек MapLibre один раз на процесс
+    private static OfflineTileInterceptor tileInterceptor;
+    private static final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private MapView mapView;
+    private MeshConnectionRepository repo;
+    private final NodeLayerController nodeLayer = new NodeLayerController();
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        // MapLibre должен быть инициализирован до создания MapView
+        Mapbox.getInstance(requireContext().getApplicationContext());
+        View view = inflater.inflate(R.layout.fragment_map, container, false);
+
+        mapView = view.findViewById(R.id.map_view);
+        mapView.onCreate(savedInstanceState);
+
+        repo = MeshConnectionRepository.getInstance(requireContext());
+        nodeLayer.load(repo.getNodeSnapshot());
+        repo.addNodeChangeListener(nodeLayer);
+
+        mapView.getMapAsync(this::loadStyle);
+
+        return view;
+    }
+
+    /**
+     * Открытие архива (чтение заголовка и корневого каталога) — в фоне, стиль — в главном потоке.
+     */
+    private void loadStyle(MapboxMap map) {
+        android.content.Context appContext = requireContext().getApplicationContext();
+        archiveExecutor.execute(() -> {
+            OfflineTileProvider provider = OfflineTileProvider.openDefault(appContext);
+            String offlineStyle = provider != null ? OfflineMapStyle.build(provider.getArchive()) : null;
+            mainHandler.post(() -> {
+                if (mapView == null) return;
+                if (offlineStyle != null) {
+                    installInterceptor().setProvider(provider);
+                    map.setStyle(new Style.Builder().fromJson(offlineStyle), nodeLayer::attach);
+                } else {
+                    map.setStyle(new Style.Builder().fromUri(STYLE_URL), nodeLayer::attach);
+                }
+            });
+        });
+    }
+
+    private static OfflineTileInterceptor installInterceptor() {
+        if (tileInterceptor == null) {
+            tileInterceptor = new OfflineTileInterceptor();
+            HttpRequestUtil.setOkHttpClient(new OkHttpClient.Builder()
+                    .addInterceptor(tileInterceptor)
+                    .build());
+        }
+        return tileInterceptor;
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        mapView.onStart();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        mapView.onResume();
+    }
+
+    @Override
+    public void onPause() {
+        mapView.onPause();
+        super.onPause();
+    }
+
+    @Override
+    public void onStop() {
+        mapView.onStop();
+        super.onStop();
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        if (mapView != null) mapView.onLowMemory();
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (mapView != null) mapView.onSaveInstanceState(outState);
+    }
+
+    @Override
+    public void onDestroyView() {
+        repo.removeNodeChangeListener(nodeLayer);
+        nodeLayer.detach();
+        mapView.onDestroy();
+        mapView = null;
+        super.onDestroyView();
+    }
+}
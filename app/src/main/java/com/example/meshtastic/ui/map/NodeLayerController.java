@@ -0,0 +1,247 @@
+package com.example.meshtastic.ui.map;
+
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.example.meshtastic.data.model.NodeInfo;
+import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.has;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.match;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.not;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.rgb;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.step;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleRadius;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleStrokeColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleStrokeWidth;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textAllowOverlap;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textField;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textFont;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textOffset;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textSize;
+
+/**
+ * Слой узлов на карте: один GeoJSON-источник с нативной кластеризацией.
+ *
+ * Feature каждого узла кэшируется и пересоздаётся только если изменились отображаемые поля
+ * (координаты, подпись, тип значка). Изменения копятся и сбрасываются в источник не чаще
+ * одного раза за {@link #FLUSH_INTERVAL_MS}; без изменений источник не трогается вовсе.
+ * Все вызовы — из главного потока.
+ */
+class NodeLayerController implements MeshConnectionRepository.NodeChangeListener {
+
+    static final String SOURCE_ID = "mesh-nodes";
+    private static final String LAYER_CLUSTERS = "mesh-nodes-clusters";
+    private static final String LAYER_CLUSTER_COUNT = "mesh-nodes-cluster-count";
+    private static final String LAYER_POINTS = "mesh-nodes-points";
+    private static final String LAYER_LABELS = "mesh-nodes-labels";
+
+    private static final long FLUSH_INTERVAL_MS = 250;
+    private static final long STALE_AFTER_SEC = 2 * 60 * 60;
+
+    private static final String PROP_NUM = "num";
+    private static final String PROP_LABEL = "label";
+    private static final String PROP_KIND = "kind";
+
+    private static final String KIND_DIRECT = "direct";
+    private static final String KIND_RELAY = "relay";
+    private static final String KIND_MQTT = "mqtt";
+    private static final String KIND_STALE = "stale";
+
+    /** Отображаемое состояние узла: по нему решаем, нужно ли пересоздавать Feature. */
+    private static final class NodeFeature {
+        final double latitude;
+        final double longitude;
+        final String label;
+        final String kind;
+        final Feature feature;
+
+        NodeFeature(NodeInfo n, String label, String kind) {
+            this.latitude = n.getLatitude();
+            this.longitude = n.getLongitude();
+            this.label = label;
+            this.kind = kind;
+            this.feature = Feature.fromGeometry(Point.fromLngLat(longitude, latitude));
+            feature.addNumberProperty(PROP_NUM, n.getNodeNum());
+            feature.addStringProperty(PROP_LABEL, label);
+            feature.addStringProperty(PROP_KIND, kind);
+        }
+
+        boolean sameAs(NodeInfo n, String label, String kind) {
+            return Double.compare(latitude, n.getLatitude()) == 0
+                    && Double.compare(longitude, n.getLongitude()) == 0
+                    && Objects.equals(this.label, label)
+                    && Objects.equals(this.kind, kind);
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Long, NodeFeature> features = new HashMap<>();
+
+    private GeoJsonSource source;
+    private boolean dirty = false;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable = this::flush;
+
+    /**
+     * Добавляет источник и слои в стиль. Вызывать после загрузки стиля.
+     */
+    void attach(@NonNull Style style) {
+        source = new GeoJsonSource(SOURCE_ID,
+                FeatureCollection.fromFeatures(new ArrayList<>()),
+                new GeoJsonOptions()
+                        .withCluster(true)
+                        .withClusterMaxZoom(14)
+                        .withClusterRadius(50));
+        style.addSource(source);
+
+        Expression pointCount = Expression.toNumber(get("point_count"));
+
+        CircleLayer clusters = new CircleLayer(LAYER_CLUSTERS, SOURCE_ID);
+        clusters.setFilter(has("point_count"));
+        clusters.setProperties(
+                circleColor(step(pointCount, rgb(81, 187, 214),
+                        stop(20, rgb(241, 240, 117)),
+                        stop(100, rgb(242, 140, 177)))),
+                circleRadius(step(pointCount, literal(16f),
+                        stop(20, 22f),
+                        stop(100, 28f))),
+                circleStrokeColor(Color.WHITE),
+                circleStrokeWidth(1.5f));
+        style.addLayer(clusters);
+
+        SymbolLayer clusterCount = new SymbolLayer(LAYER_CLUSTER_COUNT, SOURCE_ID);
+        clusterCount.setFilter(has("point_count"));
+        clusterCount.setProperties(
+                textField(Expression.toString(get("point_count"))),
+                textFont(new String[]{"Open Sans Semibold"}),
+                textSize(12f),
+                textColor(Color.BLACK),
+                textAllowOverlap(true));
+        style.addLayer(clusterCount);
+
+        CircleLayer points = new CircleLayer(LAYER_POINTS, SOURCE_ID);
+        points.setFilter(not(has("point_count")));
+        points.setProperties(
+                circleColor(match(get(PROP_KIND), rgb(33, 150, 243),
+                        stop(KIND_DIRECT, rgb(76, 175, 80)),
+                        stop(KIND_MQTT, rgb(156, 39, 176)),
+                        stop(KIND_STALE, rgb(158, 158, 158)))),
+                circleRadius(7f),
+                circleStrokeColor(Color.WHITE),
+                circleStrokeWidth(1.5f));
+        style.addLayer(points);
+
+        SymbolLayer labels = new SymbolLayer(LAYER_LABELS, SOURCE_ID);
+        labels.setFilter(not(has("point_count")));
+        labels.setProperties(
+                textField(get(PROP_LABEL)),
+                textFont(new String[]{"Open Sans Semibold"}),
+                textSize(11f),
+                textOffset(new Float[]{0f, 1.3f}),
+                textColor(Color.DKGRAY));
+        style.addLayer(labels);
+
+        // Источник пересоздан — выгружаем в него всё, что уже накоплено
+        dirty = !features.isEmpty();
+        scheduleFlush();
+    }
+
+    void detach() {
+        mainHandler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        source = null;
+    }
+
+    /** Первичная загрузка таблицы узлов. */
+    void load(List<NodeInfo> nodes) {
+        for (NodeInfo n : nodes) onNodeChanged(n);
+    }
+
+    @Override
+    public void onNodeChanged(NodeInfo n) {
+        if (n == null) return;
+        long num = n.getNodeNum();
+        if (n.getLatitude() == 0 && n.getLongitude() == 0) {
+            // Позиция неизвестна — на карте узла нет
+            if (features.remove(num) != null) markDirty();
+            return;
+        }
+
+        String label = label(n);
+        String kind = kind(n);
+        NodeFeature current = features.get(num);
+        if (current != null && current.sameAs(n, label, kind)) return;
+
+        features.put(num, new NodeFeature(n, label, kind));
+        markDirty();
+    }
+
+    @Override
+    public void onNodesCleared() {
+        if (features.isEmpty()) return;
+        features.clear();
+        markDirty();
+    }
+
+    private void markDirty() {
+        dirty = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled || source == null) return;
+        flushScheduled = true;
+        mainHandler.postDelayed(flushRunnable, FLUSH_INTERVAL_MS);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (!dirty || source == null) return;
+        dirty = false;
+
+        // Неизменённые Feature переиспользуются как есть, пересобирается только список-обёртка
+        List<Feature> list = new ArrayList<>(features.size());
+        for (NodeFeature f : features.values()) list.add(f.feature);
+        source.setGeoJson(FeatureCollection.fromFeatures(list));
+    }
+
+    private static String label(NodeInfo n) {
+        if (n.getShortName() != null && !n.getShortName().isEmpty()) return n.getShortName();
+        if (n.getLongName() != null && !n.getLongName().isEmpty()) return n.getLongName();
+        if (n.getUserId() != null && !n.getUserId().isEmpty()) return n.getUserId();
+        return "!" + Long.toHexString(n.getNodeNum());
+    }
+
+    private static String kind(NodeInfo n) {
+        long nowSec = System.currentTimeMillis() / 1000;
+        if (n.getLastHeard() > 0 && nowSec - n.getLastHeard() > STALE_AFTER_SEC) return KIND_STALE;
+        if (n.isViaMqtt()) return KIND_MQTT;
+        if (n.getHopsAway() != null && n.getHopsAway() == 0) return KIND_DIRECT;
+        return KIND_RELAY;
+    }
+}
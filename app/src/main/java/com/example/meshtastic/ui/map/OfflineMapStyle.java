@@ -0,0 +1,77 @@
+package com.example.meshtastic.ui.map;
+
+import com.example.meshtastic.data.tiles.OfflineTileProvider;
+import com.example.meshtastic.data.tiles.TileArchive;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Стиль MapLibre для офлайн-архива.
+ *
+ * Растровый архив — один растровый слой. Для векторного архива строится обобщённый стиль:
+ * на каждый векторный слой — заливка, линии и точки с фильтром по типу геометрии.
+ * Шрифтов (glyphs) офлайн нет, поэтому подписи карты не рисуются.
+ */
+final class OfflineMapStyle {
+
+    private static final String SOURCE_ID = "offline";
+
+    private OfflineMapStyle() {
+    }
+
+    static String build(TileArchive archive) {
+        try {
+            JSONObject source = new JSONObject()
+                    .put("tiles", new JSONArray().put(OfflineTileProvider.TILE_URL_TEMPLATE))
+                    .put("minzoom", archive.getMinZoom())
+                    .put("maxzoom", archive.getMaxZoom());
+
+            JSONArray layers = new JSONArray()
+                    .put(new JSONObject()
+                            .put("id", "background")
+                            .put("type", "background")
+                            .put("paint", new JSONObject().put("background-color", "#F2EFE9")));
+
+            if (archive.getFormat() == TileArchive.Format.MVT) {
+                source.put("type", "vector");
+                for (String name : archive.getVectorLayers()) {
+                    layers.put(vectorLayer(name, "fill", "Polygon",
+                            new JSONObject().put("fill-color", "#C8D7C0").put("fill-opacity", 0.5)));
+                    layers.put(vectorLayer(name, "line", "LineString",
+                            new JSONObject().put("line-color", "#8A8A8A").put("line-width", 1)));
+                    layers.put(vectorLayer(name, "circle", "Point",
+                            new JSONObject().put("circle-color", "#5A5A5A").put("circle-radius", 2)));
+                }
+            } else {
+                source.put("type", "raster").put("tileSize", 256);
+                layers.put(new JSONObject()
+                        .put("id", "offline-raster")
+                        .put("type", "raster")
+                        .put("source", SOURCE_ID));
+            }
+
+            return new JSONObject()
+                    .put("version", 8)
+                    .put("name", "offline")
+                    .put("sources", new JSONObject().put(SOURCE_ID, source))
+                    .put("layers", layers)
+                    .toString();
+        } catch (JSONException e) {
+            // put() с литеральными ключами и конечными числами не бросает
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JSONObject vectorLayer(String sourceLayer, String type, String geometry, JSONObject paint)
+            throws JSONException {
+        return new JSONObject()
+                .put("id", sourceLayer + "-" + type)
+                .put("type", type)
+                .put("source", SOURCE_ID)
+                .put("source-layer", sourceLayer)
+                .put("filter", new JSONArray().put("==").put("$type").put(geometry))
+                .put("paint", paint);
+    }
+}
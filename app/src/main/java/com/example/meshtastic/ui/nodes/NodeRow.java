@@ -0,0 +1,119 @@
+package com.example.meshtastic.ui.nodes;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.meshtastic.data.model.NodeInfo;
+
+import java.util.Objects;
+
+/**
+ * Неизменяемая модель строки списка узлов: все строки уже отформатированы,
+ * onBindViewHolder только раскладывает их по TextView.
+ *
+ * Хранит исходные значения полей, из которых собраны строки, чтобы при
+ * следующем обновлении пересобирать строку только если они изменились.
+ */
+final class NodeRow {
+
+    final long nodeNum;
+    final String title;
+    final String subtitle;
+    final String meta;
+    @Nullable final String coords;
+    final String time;
+
+    // Исходные значения (для проверки, нужно ли пересобирать строку)
+    private final String longName;
+    private final String shortName;
+    private final String userId;
+    private final int batteryLevel;
+    private final float snr;
+    private final Integer hopsAway;
+    private final Integer channel;
+    private final boolean viaMqtt;
+    private final double latitude;
+    private final double longitude;
+    private final long lastHeard;
+
+    private NodeRow(NodeInfo n) {
+        nodeNum = n.getNodeNum();
+        longName = n.getLongName();
+        shortName = n.getShortName();
+        userId = n.getUserId();
+        batteryLevel = n.getBatteryLevel();
+        snr = n.getSnr();
+        hopsAway = n.getHopsAway();
+        channel = n.getChannel();
+        viaMqtt = n.isViaMqtt();
+        latitude = n.getLatitude();
+        longitude = n.getLongitude();
+        lastHeard = n.getLastHeard();
+
+        title = displayName(n);
+        subtitle = "ID: " + userId + " | Num: " + nodeNum;
+
+        StringBuilder sb = new StringBuilder();
+        if (batteryLevel >= 0) sb.append("Batt: ").append(batteryLevel).append("%  ");
+        sb.append("SNR: ").append(String.format("%.1f", snr));
+        if (hopsAway != null) sb.append("  Hops: ").append(hopsAway);
+        if (channel != null) sb.append("  Ch: ").append(channel);
+        if (viaMqtt) sb.append("  via MQTT");
+        meta = sb.toString();
+
+        coords = (latitude != 0 || longitude != 0)
+                ? String.format("Lat: %.5f  Lon: %.5f", latitude, longitude)
+                : null;
+
+        time = "last heard: " + lastHeard;
+    }
+
+    /**
+     * Возвращает строку для узла: переиспользует previous, если отображаемые поля не изменились.
+     */
+    static NodeRow of(NodeInfo n, @Nullable NodeRow previous) {
+        if (previous != null && previous.matches(n)) return previous;
+        return new NodeRow(n);
+    }
+
+    private boolean matches(NodeInfo n) {
+        return nodeNum == n.getNodeNum()
+                && batteryLevel == n.getBatteryLevel()
+                && Float.compare(snr, n.getSnr()) == 0
+                && viaMqtt == n.isViaMqtt()
+                && Double.compare(latitude, n.getLatitude()) == 0
+                && Double.compare(longitude, n.getLongitude()) == 0
+                && lastHeard == n.getLastHeard()
+                && Objects.equals(longName, n.getLongName())
+                && Objects.equals(shortName, n.getShortName())
+                && Objects.equals(userId, n.getUserId())
+                && Objects.equals(hopsAway, n.getHopsAway())
+                && Objects.equals(channel, n.getChannel());
+    }
+
+    private static String displayName(NodeInfo n) {
+        if (n.getLongName() != null && !n.getLongName().isEmpty()) return n.getLongName();
+        if (n.getShortName() != null && !n.getShortName().isEmpty()) return n.getShortName();
+        if (n.getUserId() != null && !n.getUserId().isEmpty()) return n.getUserId();
+        return "Node " + n.getNodeNum();
+    }
+
+    static final DiffUtil.ItemCallback<NodeRow> DIFF = new DiffUtil.ItemCallback<NodeRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NodeRow a, @NonNull NodeRow b) {
+            return a.nodeNum == b.nodeNum;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NodeRow a, @NonNull NodeRow b) {
+            // Неизменённые узлы переиспользуют тот же объект — сравнение ссылок покрывает почти всё
+            if (a == b) return true;
+            return a.title.equals(b.title)
+                    && a.subtitle.equals(b.subtitle)
+                    && a.meta.equals(b.meta)
+                    && Objects.equals(a.coords, b.coords)
+                    && a.time.equals(b.time);
+        }
+    };
+}
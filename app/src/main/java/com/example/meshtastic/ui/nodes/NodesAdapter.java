@@ -1,22 +1,50 @@
 package com.example.meshtastic.ui.nodes;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.meshtastic.R;
 import com.example.meshtastic.data.model.NodeInfo;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
-class NodesAdapter extends RecyclerView.Adapter<NodesAdapter.VH> {
-
-    private final List<NodeInfo> items = new ArrayList<>();
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Адаптер списка узлов на ListAdapter (DiffUtil в фоне).
+ *
+ * Строки {@link NodeRow} собираются на отдельном потоке и кэшируются по nodeNum,
+ * так что при обновлении пересобираются только изменившиеся узлы,
+ * а onBindViewHolder не форматирует ничего на главном потоке.
+ */
+class NodesAdapter extends ListAdapter<NodeRow, NodesAdapter.VH> {
+
+    private static final ExecutorService ROW_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "NodeRows");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Доступ только из ROW_EXECUTOR
+    private Map<Long, NodeRow> rowCache = new HashMap<>();
+
+    NodesAdapter() {
+        super(NodeRow.DIFF);
+        setHasStableIds(true);
+    }
 
     @NonNull
     @Override
@@ -28,48 +56,42 @@ class NodesAdapter extends RecyclerView.Adapter<NodesAdapter.VH> {
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        NodeInfo n = items.get(position);
-        holder.title.setText(displayName(n));
-        holder.subtitle.setText("ID: " + n.getUserId() + " | Num: " + n.getNodeNum());
-
-        StringBuilder meta = new StringBuilder();
-        if (n.getBatteryLevel() >= 0) meta.append("Batt: ").append(n.getBatteryLevel()).append("%  ");
-        meta.append("SNR: ").append(String.format("%.1f", n.getSnr()));
-        if (n.getHopsAway() != null) meta.append("  Hops: ").append(n.getHopsAway());
-        if (n.getChannel() != null) meta.append("  Ch: ").append(n.getChannel());
-        if (n.isViaMqtt()) meta.append("  via MQTT");
-        holder.meta.setText(meta.toString());
-
-        if (n.getLatitude() != 0 || n.getLongitude() != 0) {
-            holder.coords.setText(
-                    String.format("Lat: %.5f  Lon: %.5f", n.getLatitude(), n.getLongitude())
-            );
+        NodeRow row = getItem(position);
+        holder.title.setText(row.title);
+        holder.subtitle.setText(row.subtitle);
+        holder.meta.setText(row.meta);
+        if (row.coords != null) {
+            holder.coords.setText(row.coords);
             holder.coords.setVisibility(View.VISIBLE);
         } else {
             holder.coords.setVisibility(View.GONE);
         }
-
-        holder.time.setText("last heard: " + (n.getLastHeard()));
+        holder.time.setText(row.time);
     }
 
     @Override
-    public int getItemCount() {
-        return items.size();
+    public long getItemId(int position) {
+        return getItem(position).nodeNum;
     }
 
+    /**
+     * Принимает снимок узлов из репозитория; строки собираются в фоне, затем DiffUtil.
+     */
     void submit(List<NodeInfo> list) {
-        items.clear();
-        if (list != null) {
-            items.addAll(list);
-        }
-        notifyDataSetChanged();
-    }
-
-    private String displayName(NodeInfo n) {
-        if (n.getLongName() != null && !n.getLongName().isEmpty()) return n.getLongName();
-        if (n.getShortName() != null && !n.getShortName().isEmpty()) return n.getShortName();
-        if (n.getUserId() != null && !n.getUserId().isEmpty()) return n.getUserId();
-        return "Node " + n.getNodeNum();
+        final List<NodeInfo> snapshot = list != null ? list : new ArrayList<>();
+        ROW_EXECUTOR.execute(() -> {
+            Map<Long, NodeRow> nextCache = new HashMap<>(snapshot.size() * 2);
+            List<NodeRow> rows = new ArrayList<>(snapshot.size());
+            for (NodeInfo n : snapshot) {
+                if (n == null) continue;
+                NodeRow row = NodeRow.of(n, rowCache.get(n.getNodeNum()));
+                nextCache.put(row.nodeNum, row);
+                rows.add(row);
+            }
+            // Узлы, пропавшие из снимка, выпадают из кэша вместе со старой картой
+            rowCache = nextCache;
+            mainHandler.post(() -> submitList(rows));
+        });
     }
 
     static class VH extends RecyclerView.ViewHolder {
@@ -1,9 +1,14 @@
 package com.example.meshtastic.ui.nodes;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
 import android.widget.TextView;
 
 import androidx.annotation.Nullable;
@@ -13,7 +18,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.meshtastic.R;
 import com.example.meshtastic.data.model.NodeInfo;
+import com.example.meshtastic.data.nodes.NodeIndex;
 import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.List;
 
@@ -22,8 +29,15 @@ import java.util.List;
  */
 public class NodesFragment extends Fragment {
 
+    // Порядок совпадает с NodeIndex.SortKey
+    private static final String[] SORT_LABELS = {
+            "Недавние", "SNR", "Расстояние", "Хопы", "Батарея"
+    };
+
     private NodesAdapter adapter;
     private TextView emptyText;
+    private MeshConnectionRepository repo;
+    private boolean firstListShown;
 
     @Nullable
     @Override
@@ -33,15 +47,56 @@ public class NodesFragment extends Fragment {
         RecyclerView rv = view.findViewById(R.id.nodes_recycler);
         emptyText = view.findViewById(R.id.empty_text);
         rv.setLayoutManager(new LinearLayoutManager(requireContext()));
+        rv.setHasFixedSize(true);
         adapter = new NodesAdapter();
         rv.setAdapter(adapter);
 
-        MeshConnectionRepository repo = MeshConnectionRepository.getInstance(requireContext());
+        repo = MeshConnectionRepository.getInstance(requireContext());
+        setupQueryControls(view);
         repo.getNodes().observe(getViewLifecycleOwner(), this::renderNodes);
 
         return view;
     }
 
+    private void setupQueryControls(View view) {
+        Spinner sortSpinner = view.findViewById(R.id.node_sort_spinner);
+        ArrayAdapter<String> sortAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, SORT_LABELS);
+        sortAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        sortSpinner.setAdapter(sortAdapter);
+        sortSpinner.setSelection(repo.getNodeSortKey().ordinal());
+        sortSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                NodeIndex.SortKey key = NodeIndex.SortKey.values()[position];
+                if (key != repo.getNodeSortKey()) {
+                    repo.setNodeQuery(key, repo.getNodeFilter());
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        TextInputEditText searchEdit = view.findViewById(R.id.node_search_edit);
+        searchEdit.setText(repo.getNodeFilter());
+        searchEdit.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                repo.setNodeQuery(repo.getNodeSortKey(), s.toString());
+            }
+        });
+    }
+
     private void renderNodes(List<NodeInfo> list) {
         if (list == null || list.isEmpty()) {
             emptyText.setVisibility(View.VISIBLE);
@@ -50,5 +105,10 @@ public class NodesFragment extends Fragment {
             emptyText.setVisibility(View.GONE);
             adapter.submit(list);
         }
+        if (!firstListShown) {
+            firstListShown = true;
+            // Конец «времени до списка узлов» для StartupTimingMetric (timeToFullDisplay)
+            requireActivity().reportFullyDrawn();
+        }
     }
 }
@@ -1,7 +1,6 @@
 package com.example.meshtastic.ui.settings;
 
 import android.os.Bundle;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,9 +10,11 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.meshtastic.R;
+import com.example.meshtastic.data.config.DeviceConfigManager;
 import com.example.meshtastic.data.model.SettingsDraft;
 import com.example.meshtastic.data.repository.MeshConnectionRepository;
 import com.example.meshtastic.data.storage.SettingsStore;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 
 /**
@@ -44,6 +45,13 @@ public class SettingsFragment extends Fragment {
         view.findViewById(R.id.save_button).setOnClickListener(v -> saveDraft());
         view.findViewById(R.id.apply_button).setOnClickListener(v -> applyToDevice());
 
+        SwitchMaterial sharePositionSwitch = view.findViewById(R.id.share_position_switch);
+        sharePositionSwitch.setChecked(store.isPositionSharingEnabled());
+        sharePositionSwitch.setOnCheckedChangeListener((button, checked) -> {
+            store.setPositionSharingEnabled(checked);
+            MeshConnectionRepository.getInstance(requireContext()).setPositionSharingEnabled(checked);
+        });
+
         return view;
     }
 
@@ -74,15 +82,25 @@ public class SettingsFragment extends Fragment {
         SettingsDraft draft = collectDraft();
         store.save(draft);
 
-        if (TextUtils.isEmpty(draft.getChannelName()) || TextUtils.isEmpty(draft.getPsk())) {
-            Toast.makeText(requireContext(), "Укажите имя канала и PSK", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
         MeshConnectionRepository repo = MeshConnectionRepository.getInstance(requireContext());
-        boolean ok = repo.applyChannelPsk(draft.getChannelName(), draft.getPsk());
-
-        Toast.makeText(requireContext(), ok ? "Настройки отправлены" : "Не удалось отправить", Toast.LENGTH_SHORT).show();
+        DeviceConfigManager.ApplyResult result = repo.applySettings(draft);
+
+        String message;
+        switch (result.status) {
+            case SENT:
+                message = "Отправлено изменений: " + result.changes.size();
+                break;
+            case NO_CHANGES:
+                message = "Настройки уже совпадают с устройством";
+                break;
+            case PARTIAL:
+                message = "Отправлено не всё, настройки не сохранены — примените ещё раз";
+                break;
+            default:
+                message = "Не удалось отправить: " + result.error;
+                break;
+        }
+        Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
     }
 
     private static String textOf(TextInputEditText edit) {
@@ -4,20 +4,36 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.example.meshtastic.MainActivity;
 import com.example.meshtastic.R;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.inspector.HexEncoder;
 import com.example.meshtastic.data.model.DeviceStatus;
 import com.example.meshtastic.data.repository.MeshConnectionRepository;
+import com.example.meshtastic.data.synthetic.TrafficGenerator;
+import com.example.meshtastic.ui.diagnostics.DiagnosticsFragment;
+import com.example.meshtastic.ui.inspector.InspectorFragment;
+import com.example.meshtastic.ui.log.LogFragment;
 
 /**
  * Экран состояния устройства и сети.
  */
 public class StatusFragment extends Fragment {
 
+    // Полный кадр — в инспекторе пакетов
+    private static final int HEX_PREVIEW_BYTES = 48;
+    private static final int SYNTHETIC_NODES = 10_000;
+    private static final int SYNTHETIC_FPS = 200;
+
+    private FrameHistory frameHistory;
+
     private TextView stateText;
     private TextView statusText;
     private TextView deviceNameText;
@@ -48,8 +64,18 @@ public class StatusFragment extends Fragment {
         lastSummaryText = view.findViewById(R.id.last_parsed_text);
 
         MeshConnectionRepository repo = MeshConnectionRepository.getInstance(requireContext());
+        frameHistory = repo.getFrameHistory();
         repo.getDeviceStatus().observe(getViewLifecycleOwner(), this::renderStatus);
 
+        view.findViewById(R.id.open_log_button).setOnClickListener(v -> open(new LogFragment()));
+        view.findViewById(R.id.open_inspector_button).setOnClickListener(v -> open(new InspectorFragment()));
+        view.findViewById(R.id.open_diagnostics_button).setOnClickListener(v -> open(new DiagnosticsFragment()));
+        if (MainActivity.isDebuggable(requireContext())) {
+            Button synthetic = view.findViewById(R.id.synthetic_traffic_button);
+            synthetic.setVisibility(View.VISIBLE);
+            synthetic.setOnClickListener(v -> toggleSyntheticTraffic(repo));
+        }
+
         return view;
     }
 
@@ -64,10 +90,42 @@ public class StatusFragment extends Fragment {
         snrText.setText(floatOrDash(status.getSnr()));
         lastHeardText.setText(valueOrDash(status.getLastHeard()));
         lastRxText.setText(valueOrDash(status.getLastRxAt()));
-        lastRxHexText.setText(safe(status.getLastRxHex()));
+        lastRxHexText.setText(lastRxHex());
         lastSummaryText.setText(safe(status.getLastSummary()));
     }
 
+    /** Отладка: 10 000 узлов с повторами, перестановками и битыми кадрами вместо радио. */
+    private void toggleSyntheticTraffic(MeshConnectionRepository repo) {
+        if (repo.isSyntheticTrafficRunning()) {
+            repo.disconnect();
+            Toast.makeText(requireContext(), "Синтетический трафик остановлен", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        repo.startSyntheticTraffic(new TrafficGenerator.Config()
+                .nodes(SYNTHETIC_NODES)
+                .seed(System.currentTimeMillis())
+                .duplicates(0.05)
+                .reorder(0.02)
+                .corruption(0.01), SYNTHETIC_FPS);
+        Toast.makeText(requireContext(), "Синтетический трафик: " + SYNTHETIC_NODES + " узлов, "
+                + SYNTHETIC_FPS + " кадров/с", Toast.LENGTH_SHORT).show();
+    }
+
+    private void open(Fragment fragment) {
+        getParentFragmentManager().beginTransaction()
+                .replace(R.id.fragment_container, fragment)
+                .addToBackStack(null)
+                .commit();
+    }
+
+    private String lastRxHex() {
+        FrameHistory.Frame frame = frameHistory.last(FrameHistory.Direction.RX);
+        if (frame == null || frame.data.length == 0) return "—";
+        int n = Math.min(frame.data.length, HEX_PREVIEW_BYTES);
+        String hex = HexEncoder.toHex(frame.data, 0, n);
+        return n < frame.data.length ? hex + " … (" + frame.data.length + " B)" : hex;
+    }
+
     private static String safe(String value) {
         return value == null || value.isEmpty() ? "—" : value;
     }
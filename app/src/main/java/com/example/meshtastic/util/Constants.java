@@ -21,7 +21,16 @@ public class Constants {
     public static final int BLUETOOTH_CONNECTION_TIMEOUT = 10000;
     public static final int GPS_UPDATE_INTERVAL = 5000; // 5 секунд
     public static final int GPS_UPDATE_DISTANCE = 10; // 10 метров
-    
+
+    // Умная рассылка позиции (значения по умолчанию как в прошивке)
+    public static final long SMART_POSITION_MIN_INTERVAL = 30_000; // broadcast_smart_minimum_interval_secs
+    public static final long SMART_POSITION_MAX_INTERVAL = 900_000; // position_broadcast_secs
+    public static final float SMART_POSITION_MIN_DISTANCE = 100f; // broadcast_smart_minimum_distance, метры
+    public static final long SMART_POSITION_GPS_FAST_INTERVAL = 1000;
+    public static final long SMART_POSITION_GPS_SLOW_INTERVAL = 60_000;
+    public static final float SMART_POSITION_AIRTIME_BUDGET_PERCENT = 1.0f; // доля эфира под позицию
+    public static final long SMART_POSITION_PACKET_AIRTIME_MS = 1200; // пакет позиции на LONG_FAST
+
     // Размеры буферов
     public static final int READ_BUFFER_SIZE = 1024;
     
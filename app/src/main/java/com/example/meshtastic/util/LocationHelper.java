@@ -21,7 +21,9 @@ public class LocationHelper implements LocationListener {
     private LocationManager locationManager;
     private Context context;
     private LocationCallback callback;
-    
+    private long updateIntervalMs = Constants.GPS_UPDATE_INTERVAL;
+    private float updateDistanceM = Constants.GPS_UPDATE_DISTANCE;
+
     public interface LocationCallback {
         void onLocationReceived(android.location.Location location);
     }
@@ -63,24 +65,44 @@ public class LocationHelper implements LocationListener {
         }
         
         this.callback = callback;
-        
+        requestUpdates();
+    }
+
+    /**
+     * Меняет частоту запросов GPS. Если обновления уже идут — перерегистрирует слушателя.
+     */
+    public void setUpdateInterval(long intervalMs, float minDistanceM) {
+        if (intervalMs == updateIntervalMs && minDistanceM == updateDistanceM) return;
+        updateIntervalMs = intervalMs;
+        updateDistanceM = minDistanceM;
+        if (callback != null) {
+            requestUpdates();
+        }
+    }
+
+    public long getUpdateInterval() {
+        return updateIntervalMs;
+    }
+
+    private void requestUpdates() {
         try {
             locationManager.requestLocationUpdates(
                     LocationManager.GPS_PROVIDER,
-                    Constants.GPS_UPDATE_INTERVAL,
-                    Constants.GPS_UPDATE_DISTANCE,
+                    updateIntervalMs,
+                    updateDistanceM,
                     this
             );
-            Log.d(TAG, "Начато получение обновлений GPS");
+            Log.d(TAG, "Начато получение обновлений GPS, интервал " + updateIntervalMs + " мс");
         } catch (SecurityException e) {
             Log.e(TAG, "Ошибка при запросе обновлений местоположения", e);
         }
     }
-    
+
     /**
      * Останавливает получение обновлений местоположения.
      */
     public void stopLocationUpdates() {
+        callback = null;
         if (locationManager != null) {
             locationManager.removeUpdates(this);
             Log.d(TAG, "Остановлено получение обновлений GPS");
@@ -0,0 +1,106 @@
+package com.example.meshtastic.data.config;
+
+import com.example.meshtastic.data.model.SettingsDraft;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.junit.Test;
+import org.meshtastic.proto.AdminProtos;
+import org.meshtastic.proto.ChannelProtos;
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeviceConfigManagerTest {
+
+    private static final int MY_NODE = 0x1234;
+
+    /** Принимает первые {@code capacity} сообщений, остальные отклоняет. */
+    private static class FakeTransport implements DeviceConfigManager.Transport {
+        final List<AdminProtos.AdminMessage> sent = new ArrayList<>();
+        int capacity = Integer.MAX_VALUE;
+
+        @Override
+        public boolean send(MeshProtos.ToRadio msg) {
+            if (sent.size() >= capacity) return false;
+            try {
+                sent.add(AdminProtos.AdminMessage.parseFrom(msg.getPacket().getDecoded().getPayload()));
+            } catch (InvalidProtocolBufferException e) {
+                throw new AssertionError(e);
+            }
+            return true;
+        }
+    }
+
+    private static DeviceConfigManager loaded(FakeTransport transport) {
+        DeviceConfigManager m = new DeviceConfigManager(transport);
+        m.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setMyInfo(MeshProtos.MyNodeInfo.newBuilder().setMyNodeNum(MY_NODE))
+                .build());
+        m.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setNodeInfo(MeshProtos.NodeInfo.newBuilder()
+                        .setNum(MY_NODE)
+                        .setUser(MeshProtos.User.newBuilder().setLongName("Base").setShortName("BS")))
+                .build());
+        m.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setConfig(ConfigProtos.Config.newBuilder()
+                        .setLora(ConfigProtos.Config.LoRaConfig.newBuilder()
+                                .setRegion(ConfigProtos.Config.LoRaConfig.RegionCode.EU_868)))
+                .build());
+        m.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setChannel(ChannelProtos.Channel.newBuilder()
+                        .setIndex(0)
+                        .setRole(ChannelProtos.Channel.Role.PRIMARY)
+                        .setSettings(ChannelProtos.ChannelSettings.newBuilder()
+                                .setName("Mesh")
+                                .setPsk(ByteString.copyFrom("secret", StandardCharsets.UTF_8))))
+                .build());
+        return m;
+    }
+
+    private static SettingsDraft renameAndMove() {
+        SettingsDraft d = new SettingsDraft();
+        d.setNodeName("Rover");
+        d.setRegion("RU");
+        return d;
+    }
+
+    @Test
+    public void apply_wrapsEditsInOneTransaction() {
+        FakeTransport t = new FakeTransport();
+        DeviceConfigManager.ApplyResult r = loaded(t).apply(renameAndMove());
+        assertEquals(DeviceConfigManager.Status.SENT, r.status);
+        assertEquals(4, t.sent.size());
+        assertTrue(t.sent.get(0).getBeginEditSettings());
+        assertTrue(t.sent.get(3).getCommitEditSettings());
+    }
+
+    @Test
+    public void apply_nothingQueued_isNotSent() {
+        FakeTransport t = new FakeTransport();
+        t.capacity = 0;
+        assertEquals(DeviceConfigManager.Status.NOT_SENT, loaded(t).apply(renameAndMove()).status);
+    }
+
+    @Test
+    public void apply_commitLost_isPartialAndRetrySendsEverythingAgain() {
+        FakeTransport t = new FakeTransport();
+        t.capacity = 3;
+        DeviceConfigManager m = loaded(t);
+        DeviceConfigManager.ApplyResult r = m.apply(renameAndMove());
+        assertEquals(DeviceConfigManager.Status.PARTIAL, r.status);
+        assertEquals(2, r.changes.size());
+
+        t.sent.clear();
+        t.capacity = Integer.MAX_VALUE;
+        assertEquals(DeviceConfigManager.Status.SENT, m.apply(renameAndMove()).status);
+        assertEquals(4, t.sent.size());
+        assertTrue(t.sent.get(3).getCommitEditSettings());
+        assertEquals(DeviceConfigManager.Status.NO_CHANGES, m.apply(renameAndMove()).status);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.meshtastic.data.config;
+
+import com.example.meshtastic.data.model.SettingsDraft;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.AdminProtos;
+import org.meshtastic.proto.ChannelProtos;
+import org.meshtastic.proto.ConfigProtos;
+import org.meshtastic.proto.MeshProtos;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class SettingsDiffTest {
+
+    private static final int MY_NODE = 0x1234;
+
+    private static DeviceConfigCache loadedCache() {
+        DeviceConfigCache cache = new DeviceConfigCache();
+        cache.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setMyInfo(MeshProtos.MyNodeInfo.newBuilder().setMyNodeNum(MY_NODE))
+                .build());
+        cache.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setNodeInfo(MeshProtos.NodeInfo.newBuilder()
+                        .setNum(MY_NODE)
+                        .setUser(MeshProtos.User.newBuilder().setLongName("Base").setShortName("BS")))
+                .build());
+        cache.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setConfig(ConfigProtos.Config.newBuilder()
+                        .setLora(ConfigProtos.Config.LoRaConfig.newBuilder()
+                                .setRegion(ConfigProtos.Config.LoRaConfig.RegionCode.EU_868)
+                                .setHopLimit(3)))
+                .build());
+        cache.onFromRadio(MeshProtos.FromRadio.newBuilder()
+                .setChannel(ChannelProtos.Channel.newBuilder()
+                        .setIndex(0)
+                        .setRole(ChannelProtos.Channel.Role.PRIMARY)
+                        .setSettings(ChannelProtos.ChannelSettings.newBuilder()
+                                .setName("Mesh")
+                                .setPsk(ByteString.copyFrom("secret", StandardCharsets.UTF_8))))
+                .build());
+        return cache;
+    }
+
+    private static SettingsDraft draft(String name, String region, String channel, String psk) {
+        SettingsDraft d = new SettingsDraft();
+        d.setNodeName(name);
+        d.setRegion(region);
+        d.setChannelName(channel);
+        d.setPsk(psk);
+        return d;
+    }
+
+    @Test
+    public void sameValues_noEdits() {
+        SettingsDiff diff = SettingsDiff.compute(draft("Base", "eu868", "Mesh", "secret"), loadedCache());
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.getChanges().isEmpty());
+    }
+
+    @Test
+    public void emptyFields_areNotTouched() {
+        assertTrue(SettingsDiff.compute(draft("", "", "", ""), new DeviceConfigCache()).isEmpty());
+    }
+
+    @Test
+    public void onlyChangedSectionIsSent_keepingOtherFields() {
+        SettingsDiff diff = SettingsDiff.compute(draft("Base", "RU", "Mesh", "secret"), loadedCache());
+        assertEquals(1, diff.getEdits().size());
+        AdminProtos.AdminMessage edit = diff.getEdits().get(0);
+        assertTrue(edit.hasSetConfig());
+        ConfigProtos.Config.LoRaConfig lora = edit.getSetConfig().getLora();
+        assertEquals(ConfigProtos.Config.LoRaConfig.RegionCode.RU, lora.getRegion());
+        assertEquals(3, lora.getHopLimit());
+        assertEquals("lora.region", diff.getChanges().get(0).field);
+    }
+
+    @Test
+    public void channelNameAndPsk_goInOneSetChannel() {
+        SettingsDiff diff = SettingsDiff.compute(draft("", "", "Team", "other"), loadedCache());
+        assertEquals(1, diff.getEdits().size());
+        assertEquals(2, diff.getChanges().size());
+        ChannelProtos.Channel ch = diff.getEdits().get(0).getSetChannel();
+        assertEquals("Team", ch.getSettings().getName());
+        assertEquals("other", ch.getSettings().getPsk().toStringUtf8());
+    }
+
+    @Test
+    public void appliedEdits_updateCache() {
+        DeviceConfigCache cache = loadedCache();
+        SettingsDiff diff = SettingsDiff.compute(draft("Rover", "", "", ""), cache);
+        cache.applyEdits(diff.getEdits());
+        assertEquals("Rover", cache.getOwner().getLongName());
+        assertEquals("BS", cache.getOwner().getShortName());
+        assertTrue(SettingsDiff.compute(draft("Rover", "", "", ""), cache).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRegion_isRejected() {
+        SettingsDiff.compute(draft("", "MARS", "", ""), loadedCache());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingSection_isNotReady() {
+        SettingsDiff.compute(draft("", "RU", "", ""), new DeviceConfigCache());
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.meshtastic.data.ingest;
+
+import com.example.meshtastic.data.config.DeviceConfigManager;
+import com.example.meshtastic.data.inspector.FrameHistory;
+import com.example.meshtastic.data.log.LogRingBuffer;
+import com.example.meshtastic.data.model.DeviceStatus;
+import com.example.meshtastic.data.model.NodeInfo;
+import com.example.meshtastic.data.nodes.NodeIndex;
+import com.example.meshtastic.data.synthetic.TrafficGenerator;
+import com.example.meshtastic.data.topology.LinkGraph;
+
+import org.meshtastic.proto.MeshProtos;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Безголовый стенд входящего конвейера MeshConnectionRepository на JVM.
+ *
+ * Кадры идут через тот же {@link InboundProcessor}, что и в репозитории. Вместо
+ * LiveData стенд делает то же, что репозиторий перед postValue: query списка узлов
+ * (как publishNodes) и копию состояния устройства. Движки отправки (ACK, передачи,
+ * трассировка, очередь) работают на таймерах Android и здесь не подключены.
+ *
+ * Кадры подаются отдельным потоком с заданной частотой в неограниченную очередь
+ * (как сообщения в Handler потока разбора) и разбираются одним потоком. Для каждой
+ * частоты — достигнутые кадры/с, задержки по стадиям, выделение памяти на кадр и
+ * рост очереди.
+ */
+public class IngestHarness {
+
+    /**
+     * RECORD — до записи в историю кадров, PUBLISH — подготовка списка узлов и состояния
+     * устройства к публикации, HANDLE — всё остальное (разбор, кэш, таблица узлов, граф).
+     */
+    public enum Stage { RECORD, HANDLE, PUBLISH }
+
+    // Отставание больше стольких секунд входящего потока — конвейер не успевает
+    static final double BACKLOG_LIMIT_S = 0.1;
+
+    /** Результат одной ступени частоты. */
+    public static final class StepResult {
+        public final int targetFps;
+        public final long offered;
+        public final long processed;
+        public final double achievedFps;
+        public final int maxQueue;
+        public final int finalQueue;
+        // -1, если JVM не умеет считать выделения потока
+        public final long allocBytesPerFrame;
+        public final long[] p50Nanos = new long[Stage.values().length];
+        public final long[] p99Nanos = new long[Stage.values().length];
+
+        StepResult(int targetFps, long offered, long processed, double achievedFps, int maxQueue,
+                   int finalQueue, long allocBytesPerFrame) {
+            this.targetFps = targetFps;
+            this.offered = offered;
+            this.processed = processed;
+            this.achievedFps = achievedFps;
+            this.maxQueue = maxQueue;
+            this.finalQueue = finalQueue;
+            this.allocBytesPerFrame = allocBytesPerFrame;
+        }
+
+        public boolean fellBehind() {
+            return finalQueue > targetFps * BACKLOG_LIMIT_S;
+        }
+    }
+
+    /** Итог прогона по всем ступеням. */
+    public static final class Report {
+        public final List<StepResult> steps = new ArrayList<>();
+
+        /** Наибольшая частота, на которой очередь не росла; 0 — не успели ни на одной. */
+        public int sustainedFps() {
+            int best = 0;
+            for (StepResult s : steps) {
+                if (s.fellBehind()) break;
+                best = s.targetFps;
+            }
+            return best;
+        }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "%8s %8s %9s %7s %7s %9s",
+                    "target", "done", "fps", "maxQ", "endQ", "B/frame"));
+            for (Stage st : Stage.values()) sb.append(String.format(Locale.ROOT, " %15s", st + " p50/p99us"));
+            sb.append('\n');
+            for (StepResult s : steps) {
+                sb.append(String.format(Locale.ROOT, "%8d %8d %9.0f %7d %7d %9d",
+                        s.targetFps, s.processed, s.achievedFps, s.maxQueue, s.finalQueue, s.allocBytesPerFrame));
+                for (Stage st : Stage.values()) {
+                    sb.append(String.format(Locale.ROOT, " %7.1f/%7.1f",
+                            s.p50Nanos[st.ordinal()] / 1000.0, s.p99Nanos[st.ordinal()] / 1000.0));
+                }
+                sb.append(s.fellBehind() ? "  BEHIND\n" : "\n");
+            }
+            sb.append("sustained fps: ").append(sustainedFps()).append('\n');
+            return sb.toString();
+        }
+    }
+
+    private final List<byte[]> frames;
+
+    public IngestHarness(List<byte[]> frames) {
+        if (frames.isEmpty()) throw new IllegalArgumentException("нет кадров");
+        this.frames = frames;
+    }
+
+    /** Синтетический поток: начальная загрузка сети и смесь пакетов без искажений. */
+    public static List<byte[]> synthetic(int nodes, int count, long seed) {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(nodes).seed(seed));
+        List<byte[]> out = new ArrayList<>(count);
+        gen.feed(out::add, count, 1_700_000_000_000L);
+        return out;
+    }
+
+    /**
+     * Записанный поток: FromRadio подряд с префиксом длины (varint), как в снимках
+     * ConfigSnapshotStore.
+     */
+    public static List<byte[]> recorded(File file) throws IOException {
+        List<byte[]> out = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            MeshProtos.FromRadio msg;
+            while ((msg = MeshProtos.FromRadio.parseDelimitedFrom(in)) != null) out.add(msg.toByteArray());
+        }
+        return out;
+    }
+
+    /**
+     * Прогоняет ступени частот по {@code stepMs} каждая; конвейер на каждой ступени новый.
+     * Останавливается после первой ступени, на которой конвейер не успел.
+     */
+    public Report run(int[] ratesFps, long stepMs) throws InterruptedException {
+        Report report = new Report();
+        for (int rate : ratesFps) {
+            StepResult step = runStep(rate, stepMs);
+            report.steps.add(step);
+            if (step.fellBehind()) break;
+        }
+        return report;
+    }
+
+    /** Кадров в секунду без ограничения частоты, в одном потоке. */
+    public double flatOutFps(int frameCount) {
+        Pipeline p = new Pipeline(null);
+        long start = System.nanoTime();
+        for (int i = 0; i < frameCount; i++) p.process(frames.get(i % frames.size()), 0);
+        return frameCount / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private StepResult runStep(int rate, long stepMs) throws InterruptedException {
+        int expected = (int) Math.min(Integer.MAX_VALUE - 8, (long) rate * stepMs / 1000 + 1);
+        LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        Pipeline pipeline = new Pipeline(new long[Stage.values().length][expected]);
+        long[] processed = new long[1];
+        long[] allocated = {-1};
+
+        Thread consumer = new Thread(() -> {
+            long allocStart = allocatedBytes();
+            try {
+                while (!stop.get()) {
+                    byte[] frame = queue.poll(10, TimeUnit.MILLISECONDS);
+                    if (frame == null) continue;
+                    pipeline.process(frame, processed[0]);
+                    processed[0]++;
+                }
+            } catch (InterruptedException ignored) {
+            }
+            long allocEnd = allocatedBytes();
+            if (allocStart >= 0 && allocEnd >= 0) allocated[0] = allocEnd - allocStart;
+        }, "IngestHarness");
+        consumer.start();
+
+        long periodNanos = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + stepMs * 1_000_000L;
+        long offered = 0;
+        int maxQueue = 0;
+        for (long next = start; next < end; next += periodNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            queue.offer(frames.get((int) (offered % frames.size())));
+            offered++;
+            maxQueue = Math.max(maxQueue, queue.size());
+        }
+        double elapsedS = (System.nanoTime() - start) / 1e9;
+        int finalQueue = queue.size();
+        stop.set(true);
+        consumer.join();
+
+        long done = processed[0];
+        StepResult result = new StepResult(rate, offered, done, done / elapsedS, maxQueue, finalQueue,
+                allocated[0] >= 0 && done > 0 ? allocated[0] / done : -1);
+        int n = (int) Math.min(done, expected);
+        for (Stage st : Stage.values()) {
+            long[] samples = Arrays.copyOf(pipeline.nanos[st.ordinal()], n);
+            Arrays.sort(samples);
+            result.p50Nanos[st.ordinal()] = percentile(samples, 0.50);
+            result.p99Nanos[st.ordinal()] = percentile(samples, 0.99);
+        }
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (q * sorted.length))];
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return -1;
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Процессор приёма со стороной публикации, как у репозитория, и замерами по стадиям. */
+    private static final class Pipeline implements InboundProcessor.Sink {
+        final NodeIndex nodes = new NodeIndex();
+        final InboundProcessor processor = new InboundProcessor(new FrameHistory(), new LogRingBuffer(),
+                nodes, new LinkGraph(), new DeviceConfigManager(msg -> true), this);
+        // [стадия][номер кадра], null — без замеров
+        final long[][] nanos;
+        private DeviceStatus status = new DeviceStatus();
+        private long receivedAt;
+        private long publishNanos;
+
+        Pipeline(long[][] nanos) {
+            this.nanos = nanos;
+        }
+
+        void process(byte[] frame, long index) {
+            publishNanos = 0;
+            long start = System.nanoTime();
+            receivedAt = start;
+            processor.onFrame(frame, System.currentTimeMillis());
+            long end = System.nanoTime();
+
+            if (nanos != null && index < nanos[0].length) {
+                int i = (int) index;
+                nanos[Stage.RECORD.ordinal()][i] = receivedAt - start;
+                nanos[Stage.HANDLE.ordinal()][i] = end - receivedAt - publishNanos;
+                nanos[Stage.PUBLISH.ordinal()][i] = publishNanos;
+            }
+        }
+
+        @Override
+        public void onFrameReceived(byte[] data, long now) {
+            receivedAt = System.nanoTime();
+            updateStatus(s -> s.setLastRxAt(now));
+        }
+
+        @Override
+        public void updateStatus(Consumer<DeviceStatus> updater) {
+            long t = System.nanoTime();
+            DeviceStatus next = status.copy();
+            updater.accept(next);
+            status = next;
+            publishNanos += System.nanoTime() - t;
+        }
+
+        @Override
+        public void onNodesChanged(NodeInfo node) {
+            long t = System.nanoTime();
+            nodes.query(NodeIndex.SortKey.LAST_HEARD, "");
+            publishNanos += System.nanoTime() - t;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.meshtastic.data.ingest;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Порог входящего конвейера: на сети из 1000 узлов разбор должен держать не меньше
+ * ingest.minFps кадров в секунду (по умолчанию 1000 — с большим запасом над тем, что
+ * отдаёт BLE). Результат зависит от машины, поэтому тест не входит в обычный
+ * {@code test} и запускается отдельно: {@code ./gradlew :app:ingestBenchmark}.
+ * Записанный поток подставляется через -Dingest.frames=путь, таблица по ступеням
+ * пишется в ingest.report (по умолчанию build/reports/ingest/throughput.txt).
+ */
+public class IngestThroughputTest {
+
+    private static final int NODES = 1_000;
+    private static final int[] RATES = {250, 500, 1_000, 2_000, 5_000, 10_000};
+    private static final long STEP_MS = 1_000;
+
+    @Test
+    public void inboundPipeline_sustainsMinimumRate() throws Exception {
+        String recorded = System.getProperty("ingest.frames");
+        List<byte[]> frames = recorded != null
+                ? IngestHarness.recorded(new File(recorded))
+                : IngestHarness.synthetic(NODES, 20_000, 1);
+        IngestHarness harness = new IngestHarness(frames);
+        // Прогрев JIT, чтобы первая ступень не мерила интерпретатор
+        harness.flatOutFps(20_000);
+
+        IngestHarness.Report report = harness.run(RATES, STEP_MS);
+        String table = report.format()
+                + String.format(Locale.ROOT, "flat out: %.0f fps%n", harness.flatOutFps(20_000));
+        File out = new File(System.getProperty("ingest.report", "build/reports/ingest/throughput.txt"));
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        Files.write(out.toPath(), table.getBytes(StandardCharsets.UTF_8));
+
+        int minFps = Integer.getInteger("ingest.minFps", 1_000);
+        assertTrue("Конвейер держит только " + report.sustainedFps() + " кадров/с, нужно " + minFps
+                        + "\n" + table,
+                report.sustainedFps() >= minFps);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.meshtastic.data.ingest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecentPacketsTest {
+
+    @Test
+    public void repeat_isSeen_otherSenderIsNot() {
+        RecentPackets r = new RecentPackets(4);
+        assertFalse(r.seen(0xa1, 100));
+        assertTrue(r.seen(0xa1, 100));
+        assertFalse(r.seen(0xb2, 100));
+    }
+
+    @Test
+    public void oldest_isForgotten() {
+        RecentPackets r = new RecentPackets(2);
+        r.seen(1, 1);
+        r.seen(1, 2);
+        r.seen(1, 3);
+        assertFalse(r.seen(1, 1));
+        assertTrue(r.seen(1, 3));
+    }
+
+    @Test
+    public void zeroId_isIgnored() {
+        RecentPackets r = new RecentPackets();
+        assertFalse(r.seen(5, 0));
+        assertFalse(r.seen(5, 0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.meshtastic.data.log;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void query_returnsInWriteOrder() {
+        LogRingBuffer buf = new LogRingBuffer(8);
+        buf.add(1000, LogRingBuffer.INFO, "Router", "one");
+        buf.add(2000, LogRingBuffer.DEBUG, "GPS", "two");
+        buf.add(3000, LogRingBuffer.ERROR, "Router", "three");
+
+        List<LogRingBuffer.Entry> all = buf.query(0, null, 100);
+        assertEquals(3, all.size());
+        assertEquals("one", all.get(0).message);
+        assertEquals("three", all.get(2).message);
+        assertEquals(2, all.get(2).seq);
+    }
+
+    @Test
+    public void wrap_keepsNewestOnly() {
+        LogRingBuffer buf = new LogRingBuffer(5); // округлится до 8
+        assertEquals(8, buf.capacity());
+        for (int i = 0; i < 20; i++) buf.add(i, LogRingBuffer.INFO, "", "m" + i);
+
+        List<LogRingBuffer.Entry> all = buf.query(0, null, 100);
+        assertEquals(8, all.size());
+        assertEquals("m12", all.get(0).message);
+        assertEquals("m19", all.get(7).message);
+        assertEquals(12, buf.getOverwrittenCount());
+    }
+
+    @Test
+    public void query_filtersByLevelAndSubstring() {
+        LogRingBuffer buf = new LogRingBuffer(16);
+        buf.add(0, LogRingBuffer.DEBUG, "Router", "Packet queued");
+        buf.add(0, LogRingBuffer.WARNING, "Power", "Battery low");
+        buf.add(0, 0, "Router", "packet sent"); // UNSET -> INFO
+        buf.add(0, LogRingBuffer.ERROR, "Radio", "TX timeout");
+
+        assertEquals(3, buf.query(LogRingBuffer.INFO, null, 100).size());
+        List<LogRingBuffer.Entry> packets = buf.query(LogRingBuffer.INFO, "PACKET", 100);
+        assertEquals(1, packets.size());
+        assertEquals(LogRingBuffer.INFO, packets.get(0).level);
+        // Совпадение по источнику
+        assertEquals(2, buf.query(0, "router", 100).size());
+        // limit оставляет самые новые
+        List<LogRingBuffer.Entry> last = buf.query(0, null, 2);
+        assertEquals("packet sent", last.get(0).message);
+        assertEquals("TX timeout", last.get(1).message);
+    }
+
+    @Test
+    public void query_afterSeqReturnsOnlyNewer() {
+        LogRingBuffer buf = new LogRingBuffer(16);
+        for (int i = 0; i < 5; i++) buf.add(0, LogRingBuffer.INFO, "", "m" + i);
+        List<LogRingBuffer.Entry> tail = buf.query(0, null, 100, 2);
+        assertEquals(2, tail.size());
+        assertEquals("m3", tail.get(0).message);
+    }
+
+    @Test
+    public void clear_dropsEntriesButKeepsSequence() {
+        LogRingBuffer buf = new LogRingBuffer(4);
+        buf.add(0, LogRingBuffer.INFO, "", "a");
+        buf.add(0, LogRingBuffer.INFO, "", "b");
+        buf.clear();
+        assertTrue(buf.query(0, null, 100).isEmpty());
+        buf.add(0, LogRingBuffer.INFO, "", "c");
+        List<LogRingBuffer.Entry> all = buf.query(0, null, 100);
+        assertEquals(1, all.size());
+        assertEquals(2, all.get(0).seq);
+    }
+
+    @Test
+    public void export_writesOneLinePerEntry() throws Exception {
+        LogRingBuffer buf = new LogRingBuffer(8);
+        buf.add(0, LogRingBuffer.WARNING, "Power", "Battery low");
+        buf.add(0, LogRingBuffer.DEBUG, "", "noise");
+        StringWriter w = new StringWriter();
+        assertEquals(1, buf.exportTo(w, LogRingBuffer.INFO, null));
+        String text = w.toString();
+        assertTrue(text.endsWith(" WARN [Power] Battery low\n"));
+        assertEquals(1, text.split("\n").length);
+    }
+
+    @Test
+    public void concurrentReader_neverSeesTornEntries() throws Exception {
+        LogRingBuffer buf = new LogRingBuffer(64);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && failure.get() == null) {
+                List<LogRingBuffer.Entry> snap = buf.query(0, null, 64);
+                long prev = -1;
+                for (LogRingBuffer.Entry e : snap) {
+                    // Все поля записи выводятся из её номера — смешение двух записей сразу видно
+                    if (e.timeMs != e.seq || !e.message.equals("m" + e.seq)
+                            || e.level != (e.seq % 2 == 0 ? LogRingBuffer.INFO : LogRingBuffer.DEBUG)
+                            || e.seq <= prev) {
+                        failure.set("torn entry " + e.seq + " " + e.message);
+                        return;
+                    }
+                    prev = e.seq;
+                }
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 200; round++) {
+            buf.clear();
+            for (int i = 0; i < 1000; i++) {
+                long seq = buf.getWrittenCount();
+                buf.add(seq, seq % 2 == 0 ? LogRingBuffer.INFO : LogRingBuffer.DEBUG, "", "m" + seq);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
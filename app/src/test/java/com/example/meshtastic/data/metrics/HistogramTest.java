@@ -0,0 +1,52 @@
+package com.example.meshtastic.data.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void buckets_areContiguousAndOrdered() {
+        int prev = -1;
+        for (long v = 0; v < 100_000; v++) {
+            int b = Histogram.bucketOf(v);
+            assertTrue(b == prev || b == prev + 1);
+            assertTrue(v <= Histogram.upperBound(b));
+            prev = b;
+        }
+        assertTrue(Histogram.bucketOf(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        Histogram h = new Histogram("t");
+        for (int i = 1; i <= 10; i++) h.record(i);
+        assertEquals(5, h.percentile(0.5));
+        assertEquals(10, h.percentile(1.0));
+        assertEquals(5.5, h.getMean(), 1e-9);
+    }
+
+    @Test
+    public void percentiles_withinOneSixteenth() {
+        Histogram h = new Histogram("t");
+        for (int i = 1; i <= 100_000; i++) h.record(i);
+        long p50 = h.percentile(0.50);
+        long p99 = h.percentile(0.99);
+        assertTrue(Math.abs(p50 - 50_000) <= 50_000 / 16);
+        assertTrue(Math.abs(p99 - 99_000) <= 99_000 / 16);
+        assertEquals(100_000, h.getMax());
+        assertEquals(100_000, h.getCount());
+    }
+
+    @Test
+    public void negative_countsAsZero_andResetClears() {
+        Histogram h = new Histogram("t");
+        h.record(-5);
+        assertEquals(0, h.percentile(0.5));
+        assertEquals(1, h.getCount());
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.percentile(0.99));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.meshtastic.data.metrics;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void sameName_sameMetric() {
+        MetricsRegistry r = new MetricsRegistry();
+        assertSame(r.counter("a.b"), r.counter("a.b"));
+        assertSame(r.histogram("h.us"), r.histogram("h.us"));
+        assertSame(r.gauge("g"), r.gauge("g"));
+    }
+
+    @Test
+    public void text_listsEveryMetric() {
+        MetricsRegistry r = new MetricsRegistry();
+        r.counter("frames").add(42);
+        r.gauge("queue").set(7);
+        r.gauge("queue").set(3);
+        r.histogram("decode.us").record(100);
+
+        String text = r.toText(Collections.singletonMap("frames", 12.5));
+        assertTrue(text.contains("frames 42 (12.5/s)\n"));
+        assertTrue(text.contains("queue 3 max=7\n"));
+        assertTrue(text.contains("decode.us n=1 "));
+    }
+
+    @Test
+    public void reset_keepsRegistration() {
+        MetricsRegistry r = new MetricsRegistry();
+        Counter c = r.counter("x");
+        c.add(5);
+        r.reset();
+        assertEquals(0, c.get());
+        assertSame(c, r.counter("x"));
+    }
+}
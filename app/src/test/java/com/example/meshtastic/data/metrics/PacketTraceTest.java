@@ -0,0 +1,78 @@
+package com.example.meshtastic.data.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PacketTraceTest {
+
+    private final MetricsRegistry registry = MetricsRegistry.get();
+
+    // Состояние трассировки общее на процесс — каждый тест начинает с чистого
+    private void start(int sampleEvery) {
+        PacketTrace.setEnabled(false, 1);
+        PacketTrace.setEnabled(true, sampleEvery);
+        registry.reset();
+    }
+
+    @Test
+    public void stages_recordedInOrder() {
+        start(1);
+        byte[] frame = {1, 2, 3};
+        PacketTrace.read(frame, 1_000_000);
+        assertTrue(PacketTrace.advance(frame, 0, 3_000_000));
+        assertTrue(PacketTrace.advance(frame, 1, 3_500_000));
+        assertTrue(PacketTrace.advance(frame, 2, 4_000_000));
+        assertTrue(PacketTrace.advance(frame, 3, 20_000_000));
+
+        assertEquals(2000, registry.histogram("trace.read_to_handover.us").getMax());
+        assertEquals(500, registry.histogram("trace.handover_to_decode.us").getMax());
+        assertEquals(16000, registry.histogram("trace.state_to_render.us").getMax());
+        assertEquals(19000, registry.histogram("trace.read_to_render.us").getMax());
+        // Кадр дошёл до экрана — место свободно
+        assertFalse(PacketTrace.advance(frame, 0, 21_000_000));
+    }
+
+    @Test
+    public void otherFramesAndSkippedStages_ignored() {
+        start(1);
+        byte[] frame = {1};
+        PacketTrace.read(frame, 0);
+        assertFalse(PacketTrace.advance(new byte[]{1}, 0, 10));
+        assertFalse(PacketTrace.advance(frame, 1, 10));
+        // Пока кадр в пути, новый не берётся
+        byte[] next = {2};
+        PacketTrace.read(next, 20);
+        assertFalse(PacketTrace.advance(next, 0, 30));
+        assertTrue(PacketTrace.advance(frame, 0, 30));
+    }
+
+    @Test
+    public void sampling_takesOneOfN() {
+        start(3);
+        byte[] a = {1}, b = {2}, c = {3};
+        PacketTrace.read(a, 0);
+        PacketTrace.read(b, 0);
+        PacketTrace.read(c, 0);
+        assertFalse(PacketTrace.advance(a, 0, 1));
+        assertFalse(PacketTrace.advance(b, 0, 1));
+        assertTrue(PacketTrace.advance(c, 0, 1));
+    }
+
+    @Test
+    public void droppedOrStale_frameIsAbandoned() {
+        start(1);
+        byte[] lost = {1};
+        PacketTrace.read(lost, 0);
+        PacketTrace.dropped(lost);
+        assertEquals(1, registry.counter("trace.abandoned").get());
+
+        byte[] stuck = {2};
+        PacketTrace.read(stuck, 0);
+        byte[] fresh = {3};
+        PacketTrace.read(fresh, PacketTrace.STALE_NANOS + 1);
+        assertEquals(2, registry.counter("trace.abandoned").get());
+        assertFalse(PacketTrace.advance(stuck, 0, PacketTrace.STALE_NANOS + 2));
+        assertTrue(PacketTrace.advance(fresh, 0, PacketTrace.STALE_NANOS + 2));
+    }
+}
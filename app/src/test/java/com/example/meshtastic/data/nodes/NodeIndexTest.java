@@ -0,0 +1,232 @@
+package com.example.meshtastic.data.nodes;
+
+import com.example.meshtastic.data.model.Location;
+import com.example.meshtastic.data.model.NodeInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Инкрементальные индексы против полной сортировки и перебора имён.
+ */
+public class NodeIndexTest {
+
+    private static final double LAT = 55.0;
+    private static final double LON = 37.0;
+
+    @Test
+    public void changedKey_movesNodeInEveryIndex() {
+        NodeIndex index = new NodeIndex();
+        index.setReference(LAT, LON);
+        for (int i = 1; i <= 5; i++) {
+            index.put(node(i, "node" + i, 100 + i, -10f + i, i * 10, 1 + i, LAT + i * 0.01));
+        }
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, 5, 4, 3, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.SNR, 5, 4, 3, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.BATTERY, 5, 4, 3, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.HOPS, 1, 2, 3, 4, 5);
+        assertOrder(index, NodeIndex.SortKey.DISTANCE, 1, 2, 3, 4, 5);
+
+        // Узел 3 стал лучшим по всем ключам сразу
+        index.put(node(3, "node3", 200, 9f, 100, 0, LAT));
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, 3, 5, 4, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.SNR, 3, 5, 4, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.BATTERY, 3, 5, 4, 2, 1);
+        assertOrder(index, NodeIndex.SortKey.HOPS, 3, 1, 2, 4, 5);
+        assertOrder(index, NodeIndex.SortKey.DISTANCE, 3, 1, 2, 4, 5);
+
+        // Без позиции и хопов — в конец
+        NodeInfo lost = node(1, "node1", 101, -9f, 10, 2, 0);
+        lost.setHopsAway(null);
+        index.put(lost);
+        assertOrder(index, NodeIndex.SortKey.HOPS, 3, 2, 4, 5, 1);
+        assertOrder(index, NodeIndex.SortKey.DISTANCE, 3, 2, 4, 5, 1);
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void prefix_matchesLongNameWordsShortNameAndUserId() {
+        NodeIndex index = new NodeIndex();
+        NodeInfo n = node(0x1234abcdL, "Alpha Base", 1, 0f, 50, 1, 0);
+        n.setShortName("AB1");
+        index.put(n);
+        index.put(node(2, "Bravo", 2, 0f, 50, 1, 0));
+
+        for (String q : new String[]{"alp", "ALPHA B", "bas", "ab", "!1234", "1234ab", "  Alpha "}) {
+            assertOrder(index, NodeIndex.SortKey.LAST_HEARD, q, 0x1234abcdL);
+        }
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "b", 2, 0x1234abcdL);
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "lpha");
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "alpha base x");
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "", 2, 0x1234abcdL);
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, null, 2, 0x1234abcdL);
+    }
+
+    @Test
+    public void rename_oldPrefixStopsMatching() {
+        NodeIndex index = new NodeIndex();
+        index.put(node(1, "Alpha", 1, 0f, 50, 1, 0));
+        index.put(node(2, "Alpine", 2, 0f, 50, 1, 0));
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "alp", 2, 1);
+
+        index.put(node(1, "Zulu", 1, 0f, 50, 1, 0));
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "alp", 2);
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "alpha");
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "zu", 1);
+        // Слово, общее со старым именем, не теряет другой узел
+        index.put(node(2, "Zulu", 2, 0f, 50, 1, 0));
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "alp");
+        assertOrder(index, NodeIndex.SortKey.LAST_HEARD, "zulu", 2, 1);
+    }
+
+    @Test
+    public void remove_dropsNodeFromIndexesAndSearch() {
+        NodeIndex index = new NodeIndex();
+        index.put(node(1, "Alpha", 1, 0f, 50, 1, 0));
+        index.put(node(2, "Alpine", 2, 0f, 50, 1, 0));
+        index.remove(2);
+        index.remove(99);
+        assertNull(index.get(2));
+        assertEquals(1, index.size());
+        for (NodeIndex.SortKey key : NodeIndex.SortKey.values()) assertOrder(index, key, 1);
+        assertOrder(index, NodeIndex.SortKey.SNR, "alpi");
+        assertOrder(index, NodeIndex.SortKey.SNR, "al", 1);
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertOrder(index, NodeIndex.SortKey.SNR, "al");
+    }
+
+    @Test
+    public void randomUpdates_matchFullSortAndScan() {
+        Random rnd = new Random(28);
+        NodeIndex index = new NodeIndex();
+        Map<Long, NodeInfo> ref = new HashMap<>();
+        String[] names = {"alpha", "alpine", "base", "bravo", "charlie", "delta", "echo", "al"};
+        // Короткие и длинные префиксы: проверяются обе ветки query (мало и много совпадений)
+        String[] prefixes = {"", "a", "al", "alp", "b", "base", "!0000", "00000", "e", "x"};
+        Location reference = null;
+
+        for (int step = 1; step <= 5_000; step++) {
+            long num = 1 + rnd.nextInt(300);
+            int op = rnd.nextInt(100);
+            if (op < 80) {
+                String name = names[rnd.nextInt(names.length)] + " " + names[rnd.nextInt(names.length)];
+                NodeInfo n = node(num, name, rnd.nextInt(50), rnd.nextInt(40) - 20f, rnd.nextInt(102) - 1,
+                        rnd.nextInt(8), rnd.nextInt(4) == 0 ? 0 : LAT + rnd.nextDouble());
+                if (rnd.nextInt(5) == 0) n.setHopsAway(null);
+                n.setShortName(names[rnd.nextInt(names.length)].substring(0, 2) + rnd.nextInt(10));
+                index.put(n);
+                ref.put(num, n);
+            } else if (op < 98) {
+                index.remove(num);
+                ref.remove(num);
+            } else {
+                double lat = LAT + rnd.nextDouble();
+                index.setReference(lat, LON);
+                // Сдвиг меньше порога не пересчитывает индекс — эталон повторяет это правило
+                Location next = new Location(lat, LON);
+                if (reference == null || reference.distanceTo(next) >= 250) reference = next;
+            }
+            if (step % 50 != 0) continue;
+            assertEquals(ref.size(), index.size());
+            for (NodeIndex.SortKey key : NodeIndex.SortKey.values()) {
+                for (String p : prefixes) {
+                    List<Long> expected = new ArrayList<>();
+                    for (NodeInfo n : sorted(ref, key, reference)) {
+                        if (matches(n, p)) expected.add(n.getNodeNum());
+                    }
+                    assertEquals(key + " \"" + p + "\" шаг " + step, expected, nums(index.query(key, p)));
+                }
+            }
+        }
+    }
+
+    private static List<NodeInfo> sorted(Map<Long, NodeInfo> ref, NodeIndex.SortKey key, Location reference) {
+        Comparator<NodeInfo> c;
+        switch (key) {
+            case SNR:
+                c = (a, b) -> Float.compare(b.getSnr(), a.getSnr());
+                break;
+            case DISTANCE:
+                c = Comparator.comparingDouble(n -> distance(n, reference));
+                break;
+            case HOPS:
+                c = Comparator.comparingInt(n -> n.getHopsAway() != null ? n.getHopsAway() : Integer.MAX_VALUE);
+                break;
+            case BATTERY:
+                c = (a, b) -> Integer.compare(b.getBatteryLevel(), a.getBatteryLevel());
+                break;
+            default:
+                c = (a, b) -> Long.compare(b.getLastHeard(), a.getLastHeard());
+                break;
+        }
+        List<NodeInfo> out = new ArrayList<>(ref.values());
+        out.sort(c.thenComparingLong(NodeInfo::getNodeNum));
+        return out;
+    }
+
+    private static double distance(NodeInfo n, Location reference) {
+        if (reference == null || (n.getLatitude() == 0 && n.getLongitude() == 0)) return Double.MAX_VALUE;
+        return reference.distanceTo(new Location(n.getLatitude(), n.getLongitude()));
+    }
+
+    /** Перебор слов узла — то же правило, что у индекса, без дерева. */
+    private static boolean matches(NodeInfo n, String prefix) {
+        String p = prefix.trim().toLowerCase(Locale.ROOT);
+        if (p.isEmpty()) return true;
+        List<String> words = new ArrayList<>();
+        String longName = n.getLongName().toLowerCase(Locale.ROOT);
+        words.add(longName);
+        for (String w : longName.split("\\s+")) words.add(w);
+        words.add(n.getShortName().toLowerCase(Locale.ROOT));
+        words.add(n.getUserId());
+        words.add(n.getUserId().substring(1));
+        for (String w : words) {
+            if (w.startsWith(p)) return true;
+        }
+        return false;
+    }
+
+    private static NodeInfo node(long num, String longName, long lastHeard, float snr, int battery,
+                                 int hops, double lat) {
+        NodeInfo n = new NodeInfo();
+        n.setNodeNum(num);
+        n.setUserId(String.format(Locale.ROOT, "!%08x", num));
+        n.setLongName(longName);
+        n.setLastHeard(lastHeard);
+        n.setSnr(snr);
+        n.setBatteryLevel(battery);
+        n.setHopsAway(hops);
+        if (lat != 0) {
+            n.setLatitude(lat);
+            n.setLongitude(LON);
+        }
+        return n;
+    }
+
+    private static void assertOrder(NodeIndex index, NodeIndex.SortKey key, long... expected) {
+        assertOrder(index, key, "", expected);
+    }
+
+    private static void assertOrder(NodeIndex index, NodeIndex.SortKey key, String prefix, long... expected) {
+        List<Long> want = new ArrayList<>();
+        for (long n : expected) want.add(n);
+        assertEquals(key + " \"" + prefix + "\"", want, nums(index.query(key, prefix)));
+    }
+
+    private static List<Long> nums(List<NodeInfo> nodes) {
+        List<Long> out = new ArrayList<>(nodes.size());
+        for (NodeInfo n : nodes) out.add(n.getNodeNum());
+        return out;
+    }
+}
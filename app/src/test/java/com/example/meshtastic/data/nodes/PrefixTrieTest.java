@@ -0,0 +1,57 @@
+package com.example.meshtastic.data.nodes;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void find_collectsWholeSubtree() {
+        PrefixTrie t = new PrefixTrie();
+        t.add("alpha", 1);
+        t.add("alpine", 2);
+        t.add("al", 3);
+        t.add("bravo", 4);
+        assertEquals(ids(1, 2, 3), t.find("al"));
+        assertEquals(ids(1, 2), t.find("alp"));
+        assertEquals(ids(1), t.find("alpha"));
+        assertEquals(ids(), t.find("alphas"));
+        assertEquals(ids(1, 2, 3, 4), t.find(""));
+    }
+
+    @Test
+    public void remove_keepsSiblingsAndSharedWords() {
+        PrefixTrie t = new PrefixTrie();
+        t.add("alpha", 1);
+        t.add("alpha", 2);
+        t.add("alpine", 3);
+
+        t.remove("alpha", 1);
+        assertEquals(ids(2), t.find("alpha"));
+        t.remove("alpha", 2);
+        assertEquals(ids(), t.find("alpha"));
+        assertEquals(ids(3), t.find("alp"));
+
+        // Удаление отсутствующего слова ничего не ломает
+        t.remove("alpin", 3);
+        t.remove("zulu", 3);
+        assertEquals(ids(3), t.find("a"));
+        t.remove("alpine", 3);
+        assertEquals(ids(), t.find(""));
+
+        t.add("alpha", 5);
+        assertEquals(ids(5), t.find("a"));
+        t.clear();
+        assertEquals(ids(), t.find(""));
+    }
+
+    private static Set<Long> ids(long... ids) {
+        Set<Long> out = new HashSet<>();
+        for (long id : ids) out.add(id);
+        return out;
+    }
+}
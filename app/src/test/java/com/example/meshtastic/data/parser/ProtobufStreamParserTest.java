@@ -0,0 +1,174 @@
+package com.example.meshtastic.data.parser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ProtobufStreamParserTest {
+
+    private static byte[] payload(int length, int seed) {
+        byte[] p = new byte[length];
+        for (int i = 0; i < length; i++) p[i] = (byte) (seed + i);
+        p[0] = 0x0A; // поле 1, length-delimited — правдоподобное начало protobuf
+        return p;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.write(p, 0, p.length);
+        return out.toByteArray();
+    }
+
+    /** Подаёт поток кусками по {@code chunk} байт. */
+    private static List<byte[]> feed(ProtobufStreamParser parser, byte[] stream, int chunk) {
+        List<byte[]> frames = new ArrayList<>();
+        for (int off = 0; off < stream.length; off += chunk) {
+            parser.append(stream, off, Math.min(chunk, stream.length - off), frames::add);
+        }
+        return frames;
+    }
+
+    @Test
+    public void varint_framesSplitAcrossChunks() {
+        byte[] a = payload(3, 1);
+        byte[] b = payload(200, 7); // длина — два байта varint
+        byte[] stream = concat(new byte[]{3}, a, new byte[]{(byte) 0xC8, 0x01}, b);
+        for (int chunk = 1; chunk <= stream.length; chunk++) {
+            ProtobufStreamParser parser = new ProtobufStreamParser();
+            List<byte[]> frames = feed(parser, stream, chunk);
+            assertEquals("chunk " + chunk, 2, frames.size());
+            assertArrayEquals(a, frames.get(0));
+            assertArrayEquals(b, frames.get(1));
+            assertEquals(0, parser.buffered());
+        }
+    }
+
+    @Test
+    public void serial_framesSplitAcrossChunks() {
+        byte[] a = payload(10, 3);
+        byte[] b = payload(ProtobufStreamParser.SERIAL_MAX_PAYLOAD, 9);
+        byte[] stream = concat(ProtobufStreamParser.encodeSerialFrame(a), ProtobufStreamParser.encodeSerialFrame(b));
+        for (int chunk : new int[]{1, 3, 5, 64, stream.length}) {
+            ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.SERIAL);
+            List<byte[]> frames = feed(parser, stream, chunk);
+            assertEquals(2, frames.size());
+            assertArrayEquals(a, frames.get(0));
+            assertArrayEquals(b, frames.get(1));
+        }
+    }
+
+    @Test
+    public void serial_resyncsAfterGarbage() {
+        byte[] a = payload(5, 1);
+        byte[] b = payload(8, 2);
+        byte[] stream = concat(
+                "DEBUG | ??:??:?? 12 [Router] boot\r\n".getBytes(),
+                ProtobufStreamParser.encodeSerialFrame(a),
+                // Стартовый байт без второго и заголовок с невозможной длиной
+                new byte[]{(byte) 0x94, 0x00, (byte) 0x94, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, 0x42},
+                ProtobufStreamParser.encodeSerialFrame(b));
+        for (int chunk : new int[]{1, 2, 7, stream.length}) {
+            ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.SERIAL);
+            List<byte[]> frames = feed(parser, stream, chunk);
+            assertEquals("chunk " + chunk, 2, frames.size());
+            assertArrayEquals(a, frames.get(0));
+            assertArrayEquals(b, frames.get(1));
+        }
+    }
+
+    @Test
+    public void serial_waitsForSecondStartByte() {
+        ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.SERIAL);
+        List<byte[]> frames = new ArrayList<>();
+        byte[] frame = ProtobufStreamParser.encodeSerialFrame(payload(4, 0));
+        parser.append(new byte[]{'x', 'y', 'z', frame[0]}, 0, 4, frames::add);
+        assertEquals(1, parser.buffered());
+        parser.append(frame, 1, frame.length - 1, frames::add);
+        assertEquals(1, frames.size());
+    }
+
+    @Test
+    public void append_legacyListApi() {
+        ProtobufStreamParser parser = new ProtobufStreamParser();
+        assertTrue(parser.append(new byte[]{2, 0x08}).isEmpty());
+        List<byte[]> frames = parser.append(new byte[]{1});
+        assertEquals(1, frames.size());
+        assertArrayEquals(new byte[]{0x08, 1}, frames.get(0));
+    }
+
+    @Test
+    public void varint_impossibleLengthResyncs() {
+        byte[] a = {0x08, 0x01}; // field 1 varint = 1
+        byte[] b = {0x12, 0x02, 'h', 'i'};
+        byte[] stream = concat(
+                new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F}, // ~2^35, больше maxFrameSize
+                new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80}, // varint > 5 байт
+                new byte[]{2}, a,
+                new byte[]{4}, b);
+        for (int chunk : new int[]{1, 3, stream.length}) {
+            ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.VARINT, 64);
+            List<byte[]> frames = feed(parser, stream, chunk);
+            assertEquals("chunk " + chunk, 2, frames.size());
+            assertArrayEquals(a, frames.get(0));
+            assertArrayEquals(b, frames.get(1));
+            assertEquals(11, parser.getDroppedBytes());
+            assertEquals(1, parser.getResyncs());
+        }
+    }
+
+    @Test
+    public void varint_implausiblePayloadStartIsDropped() {
+        ProtobufStreamParser parser = new ProtobufStreamParser();
+        List<byte[]> frames = new ArrayList<>();
+        // Длина 3, но 0x07 — номер поля 0 и тип 7: начала protobuf здесь быть не может
+        parser.append(new byte[]{3, 0x07, 0, 0, 2, 0x08}, 0, 6, frames::add);
+        assertEquals(0, frames.size());
+        assertEquals(2, parser.getDroppedBytes());
+        assertEquals(1, parser.getResyncs());
+        parser.append(new byte[]{0x05}, 0, 1, frames::add);
+        assertEquals(1, frames.size());
+        assertArrayEquals(new byte[]{0x08, 0x05}, frames.get(0));
+    }
+
+    @Test
+    public void noise_neverGrowsBuffer() {
+        int max = 128;
+        for (ProtobufStreamParser.Framing framing : ProtobufStreamParser.Framing.values()) {
+            ProtobufStreamParser parser = new ProtobufStreamParser(framing, max);
+            Random random = new Random(42);
+            byte[] noise = new byte[10_000];
+            for (int round = 0; round < 50; round++) {
+                random.nextBytes(noise);
+                parser.append(noise, 0, noise.length, frame -> assertTrue(frame.length <= max));
+                assertTrue(framing + " buffered " + parser.buffered(), parser.buffered() < max + 6);
+            }
+            assertTrue(parser.getDroppedBytes() > 0);
+            // После шума поток снова разбирается
+            parser.reset();
+            byte[] payload = {0x08, 0x2A};
+            byte[] frame = framing == ProtobufStreamParser.Framing.SERIAL
+                    ? ProtobufStreamParser.encodeSerialFrame(payload)
+                    : concat(new byte[]{2}, payload);
+            List<byte[]> frames = feed(parser, frame, frame.length);
+            assertEquals(1, frames.size());
+            assertArrayEquals(payload, frames.get(0));
+        }
+    }
+
+    @Test
+    public void serial_countsDroppedBytes() {
+        ProtobufStreamParser parser = new ProtobufStreamParser(ProtobufStreamParser.Framing.SERIAL);
+        byte[] stream = concat("noise".getBytes(), ProtobufStreamParser.encodeSerialFrame(new byte[]{0x08, 0x01}),
+                "more".getBytes(), ProtobufStreamParser.encodeSerialFrame(new byte[]{0x08, 0x02}));
+        List<byte[]> frames = feed(parser, stream, stream.length);
+        assertEquals(2, frames.size());
+        assertEquals(9, parser.getDroppedBytes());
+        assertEquals(2, parser.getResyncs());
+        assertEquals(0, parser.buffered());
+    }
+}
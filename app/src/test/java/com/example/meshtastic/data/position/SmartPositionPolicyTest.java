@@ -0,0 +1,111 @@
+package com.example.meshtastic.data.position;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SmartPositionPolicyTest {
+
+    private static final double LAT = 55.0;
+    private static final double LON = 37.0;
+    // ~200 м к северу
+    private static final double LAT_200M = LAT + 0.0018;
+
+    @Test
+    public void firstFix_sendsThenWaitsForMinInterval() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        assertTrue(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 0));
+        assertEquals(SmartPositionPolicy.Reason.FIRST_FIX, p.getLastReason());
+        p.onSent(LAT, LON, Float.NaN, 0);
+
+        assertFalse(p.shouldSend(LAT_200M, LON, 30f, Float.NaN, 10_000));
+        assertFalse(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 60_000));
+        assertEquals(SmartPositionPolicy.Reason.NONE, p.getLastReason());
+    }
+
+    @Test
+    public void standingStill_sendsHeartbeatAfterMaxInterval() {
+        SmartPositionPolicy p = sentAt(LAT, LON, Float.NaN, 0);
+        assertFalse(p.shouldSend(LAT, LON, 0f, Float.NaN, 899_999));
+        assertTrue(p.shouldSend(LAT, LON, 0f, Float.NaN, 900_000));
+        assertEquals(SmartPositionPolicy.Reason.HEARTBEAT, p.getLastReason());
+    }
+
+    @Test
+    public void distance_waitsForSpeedBeaconInterval() {
+        SmartPositionPolicy p = sentAt(LAT, LON, Float.NaN, 0);
+        // 10 м/с: интервал 30 с * 25 / 10 = 75 с
+        assertEquals(75_000, p.beaconIntervalMs(10f));
+        assertFalse(p.shouldSend(LAT_200M, LON, 10f, Float.NaN, 60_000));
+        assertTrue(p.shouldSend(LAT_200M, LON, 10f, Float.NaN, 80_000));
+        assertEquals(SmartPositionPolicy.Reason.DISTANCE, p.getLastReason());
+    }
+
+    @Test
+    public void turn_sendsBeforeDistanceIsCovered() {
+        SmartPositionPolicy p = sentAt(LAT, LON, 0f, 0);
+        // Порог при 10 м/с: 28° + 12 / 10 = 29.2°
+        assertFalse(p.shouldSend(LAT + 0.0001, LON, 10f, 20f, 31_000));
+        assertTrue(p.shouldSend(LAT + 0.0001, LON, 10f, 90f, 31_000));
+        assertEquals(SmartPositionPolicy.Reason.TURN, p.getLastReason());
+    }
+
+    @Test
+    public void zeroPrecision_neverSends() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        p.setPrecisionBits(0);
+        assertFalse(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 0));
+        assertFalse(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 1_000_000));
+    }
+
+    @Test
+    public void quantize_keepsHighBitsAndCentersCell() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        assertEquals(550_000_000, p.quantize(550_000_000));
+        p.setPrecisionBits(13);
+        // Ячейка 2^19: 1049 * 524288 + 2^18
+        assertEquals(550_240_256, p.quantize(550_000_000));
+        p.setPrecisionBits(40);
+        assertEquals(32, p.getPrecisionBits());
+    }
+
+    @Test
+    public void moveWithinCoarseCell_isNotSent() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        p.setPrecisionBits(13);
+        assertTrue(p.shouldSend(LAT, LON, 10f, Float.NaN, 0));
+        p.onSent(LAT, LON, Float.NaN, 0);
+        // 200 м внутри ячейки ~5.8 км — снаружи не видно
+        assertFalse(p.shouldSend(LAT_200M, LON, 10f, Float.NaN, 80_000));
+        // Пульс уходит и без видимого движения
+        assertTrue(p.shouldSend(LAT_200M, LON, 10f, Float.NaN, 900_000));
+    }
+
+    @Test
+    public void airtimeBudget_delaysHeartbeat() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        // 0.1%: корзина на один пакет (1200 мс), за 900 с набегает только 900 мс
+        p.setAirtimeBudgetPercent(0.1f);
+        assertTrue(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 0));
+        p.onSent(LAT, LON, Float.NaN, 0);
+        assertFalse(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 900_000));
+        assertTrue(p.shouldSend(LAT, LON, Float.NaN, Float.NaN, 1_200_000));
+    }
+
+    @Test
+    public void gpsInterval_followsSpeed() {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        assertEquals(60_000, p.recommendedGpsIntervalMs(Float.NaN));
+        assertEquals(60_000, p.recommendedGpsIntervalMs(0.5f));
+        // Половина минимальной дистанции (50 м) за фикс
+        assertEquals(5_000, p.recommendedGpsIntervalMs(10f));
+        assertEquals(1_000, p.recommendedGpsIntervalMs(100f));
+    }
+
+    private static SmartPositionPolicy sentAt(double lat, double lon, float bearing, long now) {
+        SmartPositionPolicy p = new SmartPositionPolicy();
+        assertTrue(p.shouldSend(lat, lon, Float.NaN, bearing, now));
+        p.onSent(lat, lon, bearing, now);
+        return p;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.meshtastic.data.schedule;
+
+import java.util.PriorityQueue;
+
+/**
+ * Планировщик с ручным временем: задачи выполняются в потоке теста, когда тест
+ * двигает часы ({@link #advance}) или вызывает {@link #runDue()}.
+ * Задачи с одним сроком идут в порядке постановки, как в Handler.
+ */
+public class ManualScheduler implements TaskScheduler {
+
+    private static final class Task implements Comparable<Task> {
+        final long at;
+        final long seq;
+        final Runnable runnable;
+
+        Task(long at, long seq, Runnable runnable) {
+            this.at = at;
+            this.seq = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            return at != o.at ? Long.compare(at, o.at) : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long seq;
+
+    public ManualScheduler(long startMs) {
+        this.now = startMs;
+    }
+
+    @Override
+    public synchronized long now() {
+        return now;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs) {
+        tasks.add(new Task(now + Math.max(0, delayMs), seq++, task));
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        tasks.removeIf(t -> t.runnable == task);
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return true;
+    }
+
+    /** Задачи, которые ещё не выполнены (включая отложенные). */
+    public synchronized int pending() {
+        return tasks.size();
+    }
+
+    /** Выполняет всё, чей срок уже наступил, включая задачи, поставленные по ходу. */
+    public void runDue() {
+        advance(0);
+    }
+
+    /** Двигает часы на ms, выполняя задачи по порядку их сроков. */
+    public void advance(long ms) {
+        long target;
+        synchronized (this) {
+            target = now + ms;
+        }
+        while (true) {
+            Task t;
+            synchronized (this) {
+                t = tasks.peek();
+                if (t == null || t.at > target) {
+                    now = target;
+                    return;
+                }
+                tasks.poll();
+                now = Math.max(now, t.at);
+            }
+            t.runnable.run();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.meshtastic.data.send;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void putGetReplaceRemove() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        assertNull(m.put(7, "a"));
+        assertEquals("a", m.put(7, "b"));
+        assertEquals("b", m.get(7));
+        assertEquals(1, m.size());
+        assertEquals("b", m.remove(7));
+        assertNull(m.remove(7));
+        assertNull(m.get(7));
+        assertTrue(m.isEmpty());
+    }
+
+    @Test
+    public void zeroKey_isReserved() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        assertNull(m.get(0));
+        assertNull(m.remove(0));
+        try {
+            m.put(0, "x");
+            fail("ключ 0 принят");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void removeInsideProbeChain_keepsLaterKeysReachable() {
+        // Маленькая таблица: 3000 ключей дают длинные цепочки пробирования и несколько рехешей
+        IntObjectMap<Integer> m = new IntObjectMap<>(4);
+        for (int k = 1; k <= 3000; k++) m.put(k, k);
+        for (int k = 1; k <= 3000; k += 3) assertEquals(Integer.valueOf(k), m.remove(k));
+        for (int k = 1; k <= 3000; k++) {
+            if (k % 3 == 1) assertNull(m.get(k));
+            else assertEquals(Integer.valueOf(k), m.get(k));
+        }
+        assertEquals(2000, m.size());
+        int[] count = new int[1];
+        m.forEachValue(v -> count[0]++);
+        assertEquals(2000, count[0]);
+    }
+
+    @Test
+    public void randomOps_matchHashMap() {
+        Random rnd = new Random(31);
+        IntObjectMap<Integer> m = new IntObjectMap<>(8);
+        Map<Integer, Integer> ref = new HashMap<>();
+        for (int op = 0; op < 200_000; op++) {
+            // Узкий диапазон с отрицательными ключами: частые совпадения и удаления в цепочках
+            int key = rnd.nextInt(2001) - 1000;
+            if (key == 0) continue;
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(ref.remove(key), m.remove(key));
+            } else {
+                assertEquals(ref.put(key, op), m.put(key, op));
+            }
+            if (op % 1000 == 0) {
+                assertEquals(ref.size(), m.size());
+                for (int k = -1000; k <= 1000; k++) {
+                    if (k != 0) assertEquals(ref.get(k), m.get(k));
+                }
+            }
+        }
+        m.clear();
+        assertTrue(m.isEmpty());
+        assertNull(m.get(5));
+    }
+}
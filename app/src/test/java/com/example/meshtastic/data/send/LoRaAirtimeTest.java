@@ -0,0 +1,70 @@
+package com.example.meshtastic.data.send;
+
+import org.junit.Test;
+import org.meshtastic.proto.ConfigProtos.Config.LoRaConfig;
+
+import static org.junit.Assert.*;
+
+/**
+ * Значения посчитаны по формуле Semtech AN1200.13 вручную: преамбула 16 + 4.25 символа,
+ * явный заголовок, CRC включён.
+ */
+public class LoRaAirtimeTest {
+
+    private static final double EPS = 1e-6;
+
+    @Test
+    public void longFast_matchesSemtechFormula() {
+        LoRaAirtime a = LoRaAirtime.defaults();
+        assertEquals(8.192, a.getSymbolMs(), EPS);
+        // 36 байт: ceil((288 - 44 + 44) / 44) = 7 блоков по 5 символов
+        assertEquals(43, a.payloadSymbols(36));
+        assertEquals(518.144, a.airtimeMs(36), EPS);
+        assertEquals(a.airtimeMs(LoRaAirtime.MESH_HEADER_BYTES + 20), a.packetAirtimeMs(20), EPS);
+        assertEquals(8, a.payloadSymbols(0));
+    }
+
+    @Test
+    public void longSlow_usesLowDataRateOptimize() {
+        LoRaAirtime a = LoRaAirtime.of(LoRaConfig.newBuilder()
+                .setUsePreset(true).setModemPreset(LoRaConfig.ModemPreset.LONG_SLOW).build());
+        // Символ 32.768 мс > 16 мс: DE = 1, ceil(284 / 40) = 8 блоков по 8 символов
+        assertEquals(32.768, a.getSymbolMs(), EPS);
+        assertEquals(72, a.payloadSymbols(36));
+        assertEquals(3022.848, a.airtimeMs(36), EPS);
+    }
+
+    @Test
+    public void payloadSymbols_growInWholeBlocks() {
+        LoRaAirtime a = LoRaAirtime.defaults();
+        // Блок LONG_FAST — 44 бита, то есть 5.5 байта: внутри блока число символов не меняется
+        int prev = a.payloadSymbols(1);
+        for (int bytes = 2; bytes < 240; bytes++) {
+            int s = a.payloadSymbols(bytes);
+            assertTrue(s == prev || s == prev + 5);
+            prev = s;
+        }
+    }
+
+    @Test
+    public void config_mapsPresetCustomBandwidthAndRegion() {
+        LoRaAirtime turbo = LoRaAirtime.of(LoRaConfig.newBuilder()
+                .setUsePreset(true).setModemPreset(LoRaConfig.ModemPreset.SHORT_TURBO)
+                .setRegion(LoRaConfig.RegionCode.EU_868).build());
+        assertEquals(7, turbo.getSpreadFactor());
+        assertEquals(500, turbo.getBandwidthKHz(), EPS);
+        assertEquals(10, turbo.getRegionDutyCyclePercent());
+        assertEquals(14.912, turbo.airtimeMs(16), EPS);
+
+        LoRaAirtime custom = LoRaAirtime.of(LoRaConfig.newBuilder()
+                .setUsePreset(false).setBandwidth(31).setSpreadFactor(9).setCodingRate(9)
+                .setRegion(LoRaConfig.RegionCode.US).build());
+        assertEquals(31.25, custom.getBandwidthKHz(), EPS);
+        assertEquals(9, custom.getSpreadFactor());
+        assertEquals(100, custom.getRegionDutyCyclePercent());
+        // Символ 16.384 мс — уже DE = 1; недопустимый CR заменяется на 4/5: ceil(136 / 28) = 5 блоков
+        assertEquals(8 + 5 * 5, custom.payloadSymbols(16));
+
+        assertEquals(11, LoRaAirtime.of(null).getSpreadFactor());
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.meshtastic.data.send;
+
+import com.example.meshtastic.data.schedule.ManualScheduler;
+import com.example.meshtastic.data.transfer.ChunkedTransferEngine;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Планировщик на ручном времени: QueueStatus, бюджет эфира и загрузка канала
+ * подаются тестом, записи собираются фейковым транспортом.
+ */
+public class OutboundSchedulerTest {
+
+    private static final int ME = 0x11;
+    private static final int DEST = 0x22;
+
+    private final ManualScheduler scheduler = new ManualScheduler(100_000);
+    private final List<MeshProtos.ToRadio> written = Collections.synchronizedList(new ArrayList<>());
+    private final OutboundScheduler out = new OutboundScheduler(written::add, scheduler);
+
+    @Test
+    public void classes_goByPriorityThenFifo() {
+        queueStatus(0);
+        out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "tel1"));
+        out.enqueue(packet(DEST, Portnums.PortNum.POSITION_APP, "pos1"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "text1"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "tel2"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "text2"));
+        out.enqueue(packet(DEST, Portnums.PortNum.ADMIN_APP, "admin1"));
+        assertTrue(written.isEmpty());
+
+        // Служебные сообщения не ждут ни места, ни эфира
+        out.enqueue(MeshProtos.ToRadio.newBuilder().setWantConfigId(7).build());
+        assertEquals(1, written.size());
+        assertEquals(7, written.get(0).getWantConfigId());
+
+        queueStatus(10);
+        assertEquals(List.of("admin1", "text1", "text2", "pos1", "tel1", "tel2"), payloads(1));
+        assertEquals(0, out.getPendingCount());
+    }
+
+    @Test
+    public void queueStatus_gatesAndCountsWrittenLocally() {
+        queueStatus(2);
+        for (int i = 0; i < 3; i++) out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "t" + i));
+        assertEquals(List.of("t0", "t1"), payloads(0));
+
+        queueStatus(1);
+        assertEquals(List.of("t0", "t1", "t2"), payloads(0));
+
+        // Последнее место — только для ADMIN/TEXT
+        queueStatus(1);
+        out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "tel"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "t3"));
+        assertEquals(List.of("t0", "t1", "t2", "t3"), payloads(0));
+        queueStatus(2);
+        assertEquals("tel", payloads(0).get(4));
+    }
+
+    @Test
+    public void staleQueueStatus_releasesOneSlotPerPeriod() {
+        queueStatus(0);
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "a"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "b"));
+        scheduler.advance(2_900);
+        assertTrue(written.isEmpty());
+        // Старая прошивка молчит: через 3 с после последнего QueueStatus уходит один пакет
+        scheduler.advance(100);
+        assertEquals(List.of("a"), payloads(0));
+        scheduler.advance(2_900);
+        assertEquals(1, written.size());
+        scheduler.advance(100);
+        assertEquals(List.of("a", "b"), payloads(0));
+
+        // Свежий QueueStatus снова главный
+        queueStatus(0);
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "c"));
+        scheduler.advance(1_000);
+        queueStatus(1);
+        assertEquals(3, written.size());
+    }
+
+    @Test
+    public void tokenBucket_refillsAtBudgetRate() {
+        // По умолчанию: LONG_FAST, 10% эфира — 0.1 мс на мс, корзина 6 с
+        queueStatus(50);
+        MeshProtos.ToRadio big = packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, repeat('x', 200));
+        double cost = out.getAirtime().packetAirtimeMs(big.getPacket().getDecoded().getSerializedSize());
+        int burst = (int) (6_000 / cost);
+        assertTrue(burst >= 2);
+        for (int i = 0; i < burst + 2; i++) out.enqueue(big);
+        assertEquals(burst, written.size());
+
+        double left = 6_000 - burst * cost;
+        long wait = (long) Math.ceil((cost - left) / 0.1);
+        scheduler.advance(wait - 5);
+        assertEquals(burst, written.size());
+        scheduler.advance(10);
+        assertEquals(burst + 1, written.size());
+        scheduler.advance((long) Math.ceil(cost / 0.1) + 5);
+        assertEquals(burst + 2, written.size());
+
+        // Корзина не копится выше ёмкости: после долгой паузы — снова тот же залп
+        scheduler.advance(600_000);
+        queueStatus(50);
+        for (int i = 0; i < burst + 1; i++) out.enqueue(big);
+        assertEquals(2 * burst + 2, written.size());
+    }
+
+    @Test
+    public void packetLargerThanBucket_goesWhenBucketIsFull() {
+        // 1%: корзина 600 мс, пакет дороже — уходит, когда корзина полна,
+        // и уводит её в минус на свою полную цену
+        out.setAirtimeBudgetPercent(1f);
+        queueStatus(50);
+        MeshProtos.ToRadio big = packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, repeat('x', 200));
+        double cost = out.getAirtime().packetAirtimeMs(big.getPacket().getDecoded().getSerializedSize());
+        assertTrue(cost > 600);
+        out.enqueue(big);
+        out.enqueue(big);
+        assertEquals(1, written.size());
+        long wait = (long) Math.ceil(cost / 0.01);
+        scheduler.advance(wait - 100);
+        assertEquals(1, written.size());
+        scheduler.advance(200);
+        assertEquals(2, written.size());
+    }
+
+    @Test
+    public void channelUtilization_defersBackgroundClasses() {
+        queueStatus(50);
+        out.setChannelUtilization(30f);
+        out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "tel"));
+        out.enqueue(packet(DEST, Portnums.PortNum.POSITION_APP, "pos"));
+        assertEquals(List.of("pos"), payloads(0));
+
+        out.setChannelUtilization(45f);
+        out.enqueue(packet(DEST, Portnums.PortNum.POSITION_APP, "pos2"));
+        out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "text"));
+        assertEquals(List.of("pos", "text"), payloads(0));
+
+        out.setChannelUtilization(10f);
+        assertEquals(List.of("pos", "text", "pos2", "tel"), payloads(0));
+    }
+
+    @Test
+    public void chunkTransfer_notDeferredByUtilization() {
+        queueStatus(50);
+        out.setChannelUtilization(30f);
+        out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "tel"));
+        out.enqueue(packet(DEST, ChunkedTransferEngine.CHUNK_PORT, "chunk"));
+        out.enqueue(packet(DEST, ChunkedTransferEngine.RESPONSE_PORT, "report"));
+        assertEquals(List.of("chunk", "report"), payloads(0));
+        assertEquals(1, out.getPendingCount(OutboundScheduler.TrafficClass.TELEMETRY));
+
+        // По приоритету: позиции, куски, телеметрия
+        queueStatus(0);
+        out.setChannelUtilization(10f);
+        out.enqueue(packet(DEST, ChunkedTransferEngine.CHUNK_PORT, "chunk2"));
+        out.enqueue(packet(DEST, Portnums.PortNum.POSITION_APP, "pos"));
+        assertEquals(1, out.getPendingCount(OutboundScheduler.TrafficClass.TRANSFER));
+        queueStatus(10);
+        assertEquals(List.of("chunk", "report", "pos", "chunk2", "tel"), payloads(0));
+    }
+
+    @Test
+    public void localPackets_skipQueueAndBudget() {
+        out.setMyNodeNum(ME);
+        out.setAirtimeBudgetPercent(0f);
+        queueStatus(0);
+        out.enqueue(packet(ME, Portnums.PortNum.ADMIN_APP, "local"));
+        out.enqueue(packet(DEST, Portnums.PortNum.ADMIN_APP, "remote"));
+        assertEquals(List.of("local"), payloads(0));
+    }
+
+    @Test
+    public void fullClassQueue_rejectsInsteadOfDropping() {
+        queueStatus(0);
+        for (int i = 0; i < 64; i++) {
+            assertTrue(out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "t" + i)));
+        }
+        assertFalse(out.enqueue(packet(DEST, Portnums.PortNum.TELEMETRY_APP, "lost")));
+        assertTrue(out.enqueue(packet(DEST, Portnums.PortNum.TEXT_MESSAGE_APP, "text")));
+        assertEquals(65, out.getPendingCount());
+        assertEquals(65, out.clear());
+        assertEquals(0, out.getPendingCount());
+    }
+
+    @Test
+    public void concurrentEnqueue_writesOneAtATimeInQueueOrder() throws Exception {
+        int perThread = 300;
+        AtomicInteger writing = new AtomicInteger();
+        AtomicInteger maxWriting = new AtomicInteger();
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        OutboundScheduler slow = new OutboundScheduler(msg -> {
+            int n = writing.incrementAndGet();
+            maxWriting.accumulateAndGet(n, Math::max);
+            // Медленная запись: второй поток успевает выбрать пакет, пока идёт эта
+            Thread.yield();
+            for (int i = 0; i < 2_000; i++) Thread.onSpinWait();
+            log.add(msg.getPacket().getDecoded().getPayload().toStringUtf8());
+            writing.decrementAndGet();
+        }, scheduler);
+        slow.setMyNodeNum(ME);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (String name : new String[]{"a", "b"}) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // Очередь класса ограничена — при отказе ждём, пока её разберут
+                    while (!slow.enqueue(packet(ME, Portnums.PortNum.TEXT_MESSAGE_APP, name + i))) {
+                        Thread.yield();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) t.join(10_000);
+
+        assertEquals(1, maxWriting.get());
+        assertEquals(2 * perThread, log.size());
+        assertEquals(0, slow.getPendingCount());
+        int[] next = new int[2];
+        for (String s : log) {
+            int who = s.charAt(0) - 'a';
+            assertEquals(s, next[who]++, Integer.parseInt(s.substring(1)));
+        }
+    }
+
+    private void queueStatus(int free) {
+        out.onQueueStatus(MeshProtos.QueueStatus.newBuilder().setFree(free).setMaxlen(16).build());
+    }
+
+    private List<String> payloads(int from) {
+        List<String> out = new ArrayList<>();
+        synchronized (written) {
+            for (MeshProtos.ToRadio m : written.subList(from, written.size())) {
+                out.add(m.getPacket().getDecoded().getPayload().toStringUtf8());
+            }
+        }
+        return out;
+    }
+
+    private static MeshProtos.ToRadio packet(int to, Portnums.PortNum port, String payload) {
+        return packet(to, port.getNumber(), payload);
+    }
+
+    private static MeshProtos.ToRadio packet(int to, int port, String payload) {
+        return MeshProtos.ToRadio.newBuilder().setPacket(MeshProtos.MeshPacket.newBuilder()
+                .setTo(to)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnumValue(port)
+                        .setPayload(ByteString.copyFromUtf8(payload))))
+                .build();
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append(c);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.meshtastic.data.send;
+
+import com.example.meshtastic.data.schedule.ManualScheduler;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Движок на ручном времени: ответы радио подаются через onFromRadio, таймауты —
+ * сдвигом часов планировщика.
+ */
+public class ReliableSendEngineTest {
+
+    private static final int ME = 0x11;
+    private static final int DEST = 0x22;
+    private static final int RELAY = 0x33;
+    private static final int BROADCAST = 0xFFFFFFFF;
+    private static final long TIMEOUT_MS = 10_000;
+
+    private final ManualScheduler scheduler = new ManualScheduler(1_000);
+    private final List<MeshProtos.MeshPacket> sent = new ArrayList<>();
+    private boolean accept = true;
+    private final ReliableSendEngine engine = new ReliableSendEngine(msg -> {
+        if (!accept) return false;
+        sent.add(msg.getPacket());
+        return true;
+    }, scheduler);
+    private final List<SendResult> results = new ArrayList<>();
+
+    @Test
+    public void ack_resolvesCallbackAndFuture() {
+        CompletableFuture<SendResult> future = engine.send(text(DEST, "привет"));
+        assertEquals(1, sent.size());
+        MeshProtos.MeshPacket p = sent.get(0);
+        assertTrue(p.getWantAck());
+        assertNotEquals(0, p.getId());
+        assertFalse(future.isDone());
+        assertEquals(1, engine.getInFlightCount());
+
+        scheduler.advance(1_500);
+        engine.onFromRadio(routing(DEST, p.getId(), MeshProtos.Routing.Error.NONE));
+        SendResult r = future.getNow(null);
+        assertNotNull(r);
+        assertEquals(SendResult.Status.DELIVERED, r.getStatus());
+        assertTrue(r.isSuccess());
+        assertEquals(p.getId(), r.getPacketId());
+        assertEquals(1, r.getAttempts());
+        assertFalse(r.isRelayed());
+        assertEquals(1_500, r.getLatencyMs());
+        assertEquals(0, engine.getInFlightCount());
+
+        // Без пакетов в полёте колесо перестаёт тикать
+        scheduler.advance(1_000);
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void nak_mapsRoutingErrorToFailed() {
+        int id = engine.send(text(DEST, "a"), results::add);
+        engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NO_ROUTE));
+        assertEquals(1, results.size());
+        assertEquals(SendResult.Status.FAILED, results.get(0).getStatus());
+        assertEquals(MeshProtos.Routing.Error.NO_ROUTE, results.get(0).getError());
+        assertFalse(results.get(0).isSuccess());
+
+        // Поздний ответ на завершённый пакет ничего не меняет
+        engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NONE));
+        assertEquals(1, results.size());
+
+        int other = engine.send(text(DEST, "b"), results::add);
+        engine.onFromRadio(routing(ME, other, MeshProtos.Routing.Error.MAX_RETRANSMIT));
+        assertEquals(SendResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals(MeshProtos.Routing.Error.MAX_RETRANSMIT, results.get(1).getError());
+    }
+
+    @Test
+    public void queueRejectionAndRefusedTransport_areNotSent() {
+        int id = engine.send(text(DEST, "a"), results::add);
+        engine.onFromRadio(MeshProtos.FromRadio.newBuilder().setQueueStatus(MeshProtos.QueueStatus.newBuilder()
+                .setRes(MeshProtos.Routing.Error.TOO_LARGE_VALUE).setMeshPacketId(id)).build());
+        assertEquals(SendResult.Status.NOT_SENT, results.get(0).getStatus());
+        assertEquals(MeshProtos.Routing.Error.TOO_LARGE, results.get(0).getError());
+
+        accept = false;
+        engine.send(text(DEST, "b"), results::add);
+        assertEquals(2, results.size());
+        assertEquals(SendResult.Status.NOT_SENT, results.get(1).getStatus());
+        assertEquals(MeshProtos.Routing.Error.NO_INTERFACE, results.get(1).getError());
+        assertEquals(0, engine.getInFlightCount());
+    }
+
+    @Test
+    public void implicitAck_waitsForDestination() {
+        int id = engine.send(text(DEST, "a"), results::add);
+        // Ретранслятор повторил пакет — это ещё не доставка
+        engine.onFromRadio(routing(RELAY, id, MeshProtos.Routing.Error.NONE));
+        assertTrue(results.isEmpty());
+        assertEquals(1, engine.getInFlightCount());
+
+        engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NONE));
+        assertEquals(SendResult.Status.DELIVERED, results.get(0).getStatus());
+        assertTrue(results.get(0).isRelayed());
+
+        // Для broadcast достаточно ответа любого соседа
+        int bc = engine.send(text(BROADCAST, "всем"), results::add);
+        engine.onFromRadio(routing(RELAY, bc, MeshProtos.Routing.Error.NONE));
+        assertEquals(SendResult.Status.DELIVERED, results.get(1).getStatus());
+        assertFalse(results.get(1).isRelayed());
+    }
+
+    @Test
+    public void timeout_retriesWithNewIdThenExpires() {
+        engine.setTimeoutMs(TIMEOUT_MS);
+        int id = engine.send(text(DEST, "a"), results::add);
+
+        scheduler.advance(TIMEOUT_MS - 500);
+        assertEquals(1, sent.size());
+        scheduler.advance(1_000);
+        assertEquals(2, sent.size());
+        MeshProtos.MeshPacket retry = sent.get(1);
+        assertNotEquals(id, retry.getId());
+        assertEquals(sent.get(0).getDecoded(), retry.getDecoded());
+        assertTrue(results.isEmpty());
+
+        // Ответ на старый id уже никого не ждёт
+        engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NONE));
+        assertTrue(results.isEmpty());
+
+        scheduler.advance(TIMEOUT_MS);
+        assertEquals(1, results.size());
+        SendResult r = results.get(0);
+        assertEquals(SendResult.Status.TIMEOUT, r.getStatus());
+        assertEquals(MeshProtos.Routing.Error.TIMEOUT, r.getError());
+        assertEquals(2, r.getAttempts());
+        assertEquals(retry.getId(), r.getPacketId());
+        assertEquals(2, sent.size());
+        assertEquals(0, engine.getInFlightCount());
+        scheduler.advance(1_000);
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void retry_canStillBeAcked() {
+        engine.setTimeoutMs(TIMEOUT_MS);
+        engine.send(text(DEST, "a"), results::add);
+        scheduler.advance(TIMEOUT_MS + 500);
+        engine.onFromRadio(routing(DEST, sent.get(1).getId(), MeshProtos.Routing.Error.NONE));
+        assertEquals(SendResult.Status.DELIVERED, results.get(0).getStatus());
+        assertEquals(2, results.get(0).getAttempts());
+
+        engine.setMaxRetries(0);
+        engine.send(text(DEST, "b"), results::add);
+        scheduler.advance(TIMEOUT_MS + 500);
+        assertEquals(SendResult.Status.TIMEOUT, results.get(1).getStatus());
+        assertEquals(1, results.get(1).getAttempts());
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void cancelAll_completesEverythingAsCancelled() {
+        for (int i = 0; i < 3; i++) engine.send(text(DEST, "x" + i), results::add);
+        engine.cancelAll();
+        assertEquals(3, results.size());
+        for (SendResult r : results) assertEquals(SendResult.Status.CANCELLED, r.getStatus());
+        assertEquals(0, engine.getInFlightCount());
+        scheduler.advance(ReliableSendEngine.DEFAULT_TIMEOUT_MS * 3);
+        assertEquals(3, results.size());
+    }
+
+    @Test
+    public void hundredsInFlight_eachResolvedByItsOwnId() {
+        engine.setTimeoutMs(TIMEOUT_MS);
+        engine.setMaxRetries(0);
+        Random rnd = new Random(31);
+        int count = 600;
+        Map<Integer, SendResult.Status> expected = new HashMap<>();
+        Map<Integer, SendResult> got = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = engine.send(text(DEST, "m" + i), r -> assertNull("два итога", got.put(r.getPacketId(), r)));
+            ids.add(id);
+            scheduler.advance(rnd.nextInt(5));
+        }
+        assertEquals(count, new HashSet<>(ids).size());
+        assertEquals(count, engine.getInFlightCount());
+
+        Collections.shuffle(ids, rnd);
+        for (int i = 0; i < count; i++) {
+            int id = ids.get(i);
+            if (i % 4 == 0) {
+                expected.put(id, SendResult.Status.TIMEOUT);
+            } else if (i % 4 == 1) {
+                expected.put(id, SendResult.Status.FAILED);
+                engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NO_RESPONSE));
+            } else {
+                expected.put(id, SendResult.Status.DELIVERED);
+                engine.onFromRadio(routing(DEST, id, MeshProtos.Routing.Error.NONE));
+            }
+        }
+        assertEquals(count / 4, engine.getInFlightCount());
+        scheduler.advance(TIMEOUT_MS + 1_000);
+        assertEquals(0, engine.getInFlightCount());
+        assertEquals(count, got.size());
+        for (Map.Entry<Integer, SendResult.Status> e : expected.entrySet()) {
+            assertEquals("id " + e.getKey(), e.getValue(), got.get(e.getKey()).getStatus());
+        }
+        Set<Integer> sentIds = new HashSet<>();
+        for (MeshProtos.MeshPacket p : sent) sentIds.add(p.getId());
+        assertEquals(count, sentIds.size());
+    }
+
+    private static MeshProtos.MeshPacket text(int to, String text) {
+        return MeshProtos.MeshPacket.newBuilder()
+                .setTo(to)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.TEXT_MESSAGE_APP)
+                        .setPayload(ByteString.copyFromUtf8(text)))
+                .build();
+    }
+
+    private static MeshProtos.FromRadio routing(int from, int requestId, MeshProtos.Routing.Error error) {
+        return MeshProtos.FromRadio.newBuilder().setPacket(MeshProtos.MeshPacket.newBuilder()
+                .setFrom(from)
+                .setTo(ME)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.ROUTING_APP)
+                        .setRequestId(requestId)
+                        .setPayload(MeshProtos.Routing.newBuilder().setErrorReason(error).build().toByteString())))
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.meshtastic.data.send;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int SIZE = 8; // оборот — 80 мс
+
+    @Test
+    public void timeout_neverFiresEarly() {
+        TimingWheel<String> w = new TimingWheel<>(TICK, SIZE);
+        w.schedule("a", 25, 0);
+        List<String> out = new ArrayList<>();
+        assertEquals(0, w.advance(20, out));
+        assertEquals(0, w.advance(29, out));
+        assertEquals(1, w.advance(30, out));
+        assertEquals("a", out.get(0));
+        assertTrue(w.isEmpty());
+    }
+
+    @Test
+    public void timeoutLongerThanRotation_waitsForItsRound() {
+        TimingWheel<String> w = new TimingWheel<>(TICK, SIZE);
+        TimingWheel.Timeout<String> t = w.schedule("late", 250, 0);
+        // Корзина срока проходится на 1-м, 9-м и 17-м тике — там ещё рано
+        List<String> out = new ArrayList<>();
+        for (long now = TICK; now < 250; now += TICK) {
+            assertEquals("сработал на " + now, 0, w.advance(now, out));
+            assertTrue(t.isScheduled());
+        }
+        assertEquals(1, w.advance(250, out));
+        assertFalse(t.isScheduled());
+    }
+
+    @Test
+    public void longPause_expiresEverythingDueInOneAdvance() {
+        TimingWheel<Integer> w = new TimingWheel<>(TICK, SIZE);
+        for (int i = 1; i <= 20; i++) w.schedule(i, i * 30L, 0);
+        List<Integer> out = new ArrayList<>();
+        // 0..300 мс за один шаг: сроки 30..300 пройдены, несколько оборотов колеса пропущены
+        assertEquals(10, w.advance(300, out));
+        assertEquals(10, w.size());
+        assertEquals(10, w.advance(10_000, out));
+        assertEquals(20, new HashSet<>(out).size());
+    }
+
+    @Test
+    public void cancel_removesOnce() {
+        TimingWheel<String> w = new TimingWheel<>(TICK, SIZE);
+        TimingWheel.Timeout<String> a = w.schedule("a", 50, 0);
+        w.schedule("b", 50, 0);
+        assertTrue(w.cancel(a));
+        assertFalse(w.cancel(a));
+        assertFalse(w.cancel(null));
+        List<String> out = new ArrayList<>();
+        w.advance(100, out);
+        assertEquals(1, out.size());
+        assertEquals("b", out.get(0));
+    }
+
+    @Test
+    public void randomSchedule_firesExactlyAtDeadlineTick() {
+        Random rnd = new Random(31);
+        TimingWheel<Integer> w = new TimingWheel<>(TICK, SIZE);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        List<Long> deadlines = new ArrayList<>();
+        Set<Integer> pending = new HashSet<>();
+        long now = 0;
+        long tick = 0; // currentTick колеса после первого вызова
+        w.advance(now, new ArrayList<>());
+
+        for (int step = 0; step < 20_000; step++) {
+            int op = rnd.nextInt(10);
+            if (op < 5) {
+                // До пяти оборотов — таймауты, которые ждут своего круга
+                long delay = rnd.nextInt((int) (5 * SIZE * TICK));
+                int id = timeouts.size();
+                timeouts.add(w.schedule(id, delay, now));
+                deadlines.add(Math.max(tick + 1, (now + delay + TICK - 1) / TICK));
+                pending.add(id);
+            } else if (op < 6 && !timeouts.isEmpty()) {
+                int id = rnd.nextInt(timeouts.size());
+                assertEquals(pending.remove(id), w.cancel(timeouts.get(id)));
+            } else {
+                // Обычно тик-другой, изредка пауза длиннее оборота
+                now += rnd.nextInt(20) == 0 ? rnd.nextInt(500) : rnd.nextInt(25);
+                List<Integer> out = new ArrayList<>();
+                w.advance(now, out);
+                long target = now / TICK;
+                if (target > tick) tick = target;
+                Set<Integer> due = new HashSet<>();
+                for (int id : pending) {
+                    if (deadlines.get(id) <= tick) due.add(id);
+                }
+                assertEquals("шаг " + step, due, new HashSet<>(out));
+                assertEquals(due.size(), out.size());
+                pending.removeAll(due);
+            }
+            assertEquals(pending.size(), w.size());
+        }
+    }
+}
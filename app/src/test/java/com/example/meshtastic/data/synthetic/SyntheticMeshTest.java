@@ -0,0 +1,48 @@
+package com.example.meshtastic.data.synthetic;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SyntheticMeshTest {
+
+    @Test
+    public void initialLoad_isMyInfoThenEveryNode() throws Exception {
+        SyntheticMesh mesh = new SyntheticMesh(50, 1);
+        MeshProtos.FromRadio first = MeshProtos.FromRadio.parseFrom(mesh.nextInitialFrame(0));
+        assertTrue(first.hasMyInfo());
+        assertEquals(mesh.getMyNodeNum(), first.getMyInfo().getMyNodeNum() & 0xffffffffL);
+
+        Set<Integer> nums = new HashSet<>();
+        while (mesh.hasInitialFrames()) {
+            MeshProtos.FromRadio f = MeshProtos.FromRadio.parseFrom(mesh.nextInitialFrame(0));
+            assertTrue(f.hasNodeInfo());
+            nums.add(f.getNodeInfo().getNum());
+        }
+        assertEquals(50, nums.size());
+        assertNull(mesh.nextInitialFrame(0));
+    }
+
+    @Test
+    public void sameSeed_sameFrames() {
+        SyntheticMesh a = new SyntheticMesh(100, 7);
+        SyntheticMesh b = new SyntheticMesh(100, 7);
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(a.nextUpdateFrame(1_000_000), b.nextUpdateFrame(1_000_000));
+        }
+    }
+
+    @Test
+    public void update_keepsBatteryInRange() throws Exception {
+        SyntheticMesh mesh = new SyntheticMesh(3, 3);
+        for (int i = 0; i < 1000; i++) {
+            MeshProtos.NodeInfo ni = MeshProtos.FromRadio.parseFrom(mesh.nextUpdateFrame(0)).getNodeInfo();
+            int battery = ni.getDeviceMetrics().getBatteryLevel();
+            assertTrue(battery >= 0 && battery <= 100);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.meshtastic.data.synthetic;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TrafficGeneratorTest {
+
+    private static List<byte[]> take(TrafficGenerator gen, int n) {
+        List<byte[]> out = new ArrayList<>();
+        gen.feed(out::add, n, 1_700_000_000_000L);
+        return out;
+    }
+
+    @Test
+    public void sameConfig_sameFrames() {
+        TrafficGenerator a = new TrafficGenerator(new TrafficGenerator.Config().nodes(20).seed(5)
+                .duplicates(0.1).reorder(0.1).corruption(0.1));
+        TrafficGenerator b = new TrafficGenerator(new TrafficGenerator.Config().nodes(20).seed(5)
+                .duplicates(0.1).reorder(0.1).corruption(0.1));
+        List<byte[]> fa = take(a, 500);
+        List<byte[]> fb = take(b, 500);
+        for (int i = 0; i < fa.size(); i++) assertArrayEquals(fa.get(i), fb.get(i));
+    }
+
+    @Test
+    public void cleanStream_parsesAndCoversEveryKind() throws Exception {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(10).seed(2));
+        List<byte[]> frames = take(gen, 11 + 2000);
+        Set<Portnums.PortNum> ports = EnumSet.noneOf(Portnums.PortNum.class);
+        int nodeInfos = 0;
+        for (byte[] f : frames.subList(11, frames.size())) {
+            MeshProtos.FromRadio msg = MeshProtos.FromRadio.parseFrom(f);
+            if (msg.hasNodeInfo()) nodeInfos++;
+            if (msg.hasPacket()) ports.add(msg.getPacket().getDecoded().getPortnum());
+        }
+        assertTrue(nodeInfos > 0);
+        assertEquals(EnumSet.of(Portnums.PortNum.POSITION_APP, Portnums.PortNum.TELEMETRY_APP,
+                Portnums.PortNum.TEXT_MESSAGE_APP, Portnums.PortNum.ROUTING_APP), ports);
+        assertEquals(0, gen.getDuplicatedCount() + gen.getReorderedCount() + gen.getCorruptedCount());
+    }
+
+    @Test
+    public void routing_acksOwnPacketsOnly() throws Exception {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(10).seed(6)
+                .weight(TrafficGenerator.Kind.NODE_INFO, 0));
+        List<byte[]> frames = take(gen, 11 + 1000);
+        Set<Integer> ids = new HashSet<>();
+        Set<Integer> acked = new HashSet<>();
+        for (byte[] f : frames.subList(11, frames.size())) {
+            MeshProtos.MeshPacket p = MeshProtos.FromRadio.parseFrom(f).getPacket();
+            ids.add(p.getId());
+            if (p.getDecoded().getPortnum() != Portnums.PortNum.ROUTING_APP) continue;
+            assertEquals(SyntheticMesh.nodeNum(0), p.getTo());
+            assertTrue("каждый ACK — на свой пакет", acked.add(p.getDecoded().getRequestId()));
+        }
+        assertTrue(acked.size() > 100);
+        for (int id : acked) assertFalse("ACK на чужой пакет", ids.contains(id));
+    }
+
+    @Test
+    public void initialLoad_isNotImpaired() throws Exception {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(30).seed(9)
+                .duplicates(1).reorder(1).corruption(1));
+        List<byte[]> frames = take(gen, 31);
+        assertTrue(MeshProtos.FromRadio.parseFrom(frames.get(0)).hasMyInfo());
+        for (byte[] f : frames.subList(1, 31)) assertTrue(MeshProtos.FromRadio.parseFrom(f).hasNodeInfo());
+        assertFalse(gen.hasInitialFrames());
+    }
+
+    @Test
+    public void duplicates_arriveAgainLater() {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(5).seed(3)
+                .weight(TrafficGenerator.Kind.NODE_INFO, 0).duplicates(0.5));
+        List<byte[]> frames = take(gen, 6 + 1000);
+        int repeats = 0;
+        for (int i = 6; i < frames.size(); i++) {
+            for (int j = 6; j < i; j++) {
+                if (Arrays.equals(frames.get(i), frames.get(j))) {
+                    repeats++;
+                    break;
+                }
+            }
+        }
+        assertTrue(gen.getDuplicatedCount() > 200);
+        assertTrue(repeats > 200);
+    }
+
+    @Test
+    public void fullReorder_stillProducesFrames() {
+        TrafficGenerator gen = new TrafficGenerator(new TrafficGenerator.Config().nodes(5).seed(4)
+                .reorder(1).maxReorderDistance(4));
+        assertEquals(6 + 100, take(gen, 6 + 100).size());
+        assertTrue(gen.getReorderedCount() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allWeightsZero_rejected() {
+        TrafficGenerator.Config c = new TrafficGenerator.Config();
+        for (TrafficGenerator.Kind k : TrafficGenerator.Kind.values()) c.weight(k, 0);
+        new TrafficGenerator(c);
+    }
+}
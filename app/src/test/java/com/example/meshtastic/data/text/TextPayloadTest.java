@@ -0,0 +1,65 @@
+package com.example.meshtastic.data.text;
+
+import com.example.meshtastic.data.send.LoRaAirtime;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TextPayloadTest {
+
+    private static final String TEXT = "Meet at the north gate at 14:30, bring water and the radio";
+
+    @Test
+    public void encode_plainWhenCompressionNotAllowed() {
+        MeshProtos.Data data = TextPayload.encode(TEXT, false, LoRaAirtime.defaults());
+        assertEquals(Portnums.PortNum.TEXT_MESSAGE_APP, data.getPortnum());
+        assertEquals(TEXT, TextPayload.decode(data));
+    }
+
+    @Test
+    public void encode_compressedRoundTrip() {
+        MeshProtos.Data data = TextPayload.encode(TEXT, true, LoRaAirtime.defaults());
+        assertEquals(Portnums.PortNum.TEXT_MESSAGE_COMPRESSED_APP, data.getPortnum());
+        assertEquals(TEXT, TextPayload.decode(data));
+    }
+
+    @Test
+    public void decode_undecodableCompressedShowsRawPayload() {
+        // Код, которого кодек не знает (delta/hex-escape другого клиента): сообщение не теряется
+        MeshProtos.Data data = compressed(new byte[]{0x00, (byte) 0x80});
+        assertEquals("[сжатое сообщение не распаковано, 2 байт: 00 80]", TextPayload.decode(data));
+    }
+
+    @Test
+    public void decode_longUndecodablePayloadIsTruncated() {
+        byte[] raw = new byte[TextPayload.MAX_RAW_SHOWN + 10];
+        Arrays.fill(raw, (byte) 0xFF);
+        raw[0] = 0x00;
+        raw[1] = (byte) 0x80;
+        String text = TextPayload.decode(compressed(raw));
+        assertTrue(text, text.startsWith("[сжатое сообщение не распаковано, 74 байт: 00 80 FF"));
+        assertTrue(text, text.endsWith(" …]"));
+    }
+
+    @Test
+    public void decode_nonTextPortIsNull() {
+        MeshProtos.Data data = MeshProtos.Data.newBuilder()
+                .setPortnum(Portnums.PortNum.POSITION_APP)
+                .setPayload(ByteString.copyFromUtf8(TEXT))
+                .build();
+        assertNull(TextPayload.decode(data));
+    }
+
+    private static MeshProtos.Data compressed(byte[] payload) {
+        return MeshProtos.Data.newBuilder()
+                .setPortnum(Portnums.PortNum.TEXT_MESSAGE_COMPRESSED_APP)
+                .setPayload(ByteString.copyFrom(payload))
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.meshtastic.data.text;
+
+import com.example.meshtastic.data.send.LoRaAirtime;
+
+import org.meshtastic.proto.MeshProtos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH-замеры кодека на типичных сообщениях: ./gradlew :app:unishoxBenchmark.
+ * В обычный прогон unit-тестов не входит (в классе нет @Test).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Unishox2Benchmark {
+
+    @Param({
+            "ok",
+            "On my way, ETA 10 min",
+            "Meet at the north gate at 14:30, bring water and the radio",
+            "WARNING: BATTERY LOW 15%. Node 3 going offline at 18:00, switching to the relay on the hill"
+    })
+    public String text;
+
+    private byte[] raw;
+    private byte[] packed;
+    private int packedLen;
+    private final byte[] out = new byte[4096];
+    private MeshProtos.Data compressedData;
+    private final LoRaAirtime airtime = LoRaAirtime.defaults();
+
+    @Setup
+    public void setUp() {
+        raw = text.getBytes(StandardCharsets.US_ASCII);
+        packed = new byte[raw.length * 2 + 8];
+        packedLen = Unishox2.compress(raw, raw.length, packed);
+        compressedData = TextPayload.encode(text, true, airtime);
+    }
+
+    @Benchmark
+    public int compress() {
+        return Unishox2.compress(raw, raw.length, out);
+    }
+
+    @Benchmark
+    public int decompress() {
+        return Unishox2.decompress(packed, 0, packedLen, out);
+    }
+
+    /** Входящий путь целиком: Data → String. */
+    @Benchmark
+    public String decodePayload() {
+        return TextPayload.decode(compressedData);
+    }
+
+    /** Исходящий путь: сжатие плюс выбор по числу символов LoRa. */
+    @Benchmark
+    public MeshProtos.Data encodePayload() {
+        return TextPayload.encode(text, true, airtime);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.meshtastic.data.topology;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Инкрементальные деревья кратчайших путей против полной Дейкстры на той же копии графа.
+ */
+public class LinkGraphTest {
+
+    private static final int NODES = 500;
+    private static final int UPDATES = 20_000;
+    private static final int CHECK_EVERY = 10;
+    private static final double EPS = 1e-9;
+    private static final long ME = 1;
+
+    @Test
+    public void removedTreeEdge_reroutesAroundIt() {
+        LinkGraph g = new LinkGraph();
+        g.setMyNode(1);
+        g.updateEdge(1, 2, 10f, 0);
+        g.updateEdge(2, 3, 10f, 0);
+        g.updateEdge(1, 3, -15f, 0);
+        assertArrayEquals(new long[]{1, 2, 3}, g.getRoute(3).nodes);
+
+        g.removeEdge(2, 3);
+        assertArrayEquals(new long[]{1, 3}, g.getRoute(3).nodes);
+        assertEquals(4.0, g.getRoute(3).cost, EPS);
+
+        g.removeEdge(1, 3);
+        assertNull(g.getRoute(3));
+    }
+
+    @Test
+    public void randomUpdates_matchFullDijkstra() {
+        Random rnd = new Random(36);
+        LinkGraph g = new LinkGraph();
+        // cost[from][to], NaN — ребра нет; номера узлов 1..NODES
+        double[][] cost = new double[NODES + 1][NODES + 1];
+        for (double[] row : cost) Arrays.fill(row, Double.NaN);
+        boolean[] gateway = new boolean[NODES + 1];
+        List<long[]> edges = new ArrayList<>();
+        Map<Long, Integer> edgeAt = new HashMap<>();
+
+        g.setMyNode(ME);
+        for (long gw : new long[]{NODES / 2, NODES}) {
+            g.setGateway(gw, true);
+            gateway[(int) gw] = true;
+        }
+
+        for (int step = 1; step <= UPDATES; step++) {
+            int op = rnd.nextInt(100);
+            if (op < 60 || edges.isEmpty()) {
+                // Соседи по номеру чаще слышат друг друга — пути выходят длинными
+                int from = 1 + rnd.nextInt(NODES);
+                int to = Math.floorMod(from - 1 + rnd.nextInt(21) - 10, NODES) + 1;
+                if (from == to) continue;
+                float snr = rnd.nextInt(10) == 0 ? Float.NaN : -20f + rnd.nextFloat() * 30f;
+                g.updateEdge(from, to, snr, 0);
+                long key = (long) from << 32 | to;
+                if (!edgeAt.containsKey(key)) {
+                    edgeAt.put(key, edges.size());
+                    edges.add(new long[]{from, to});
+                    cost[from][to] = LinkGraph.linkCost(snr);
+                } else if (!Float.isNaN(snr)) {
+                    cost[from][to] = LinkGraph.linkCost(snr);
+                }
+            } else if (op < 95) {
+                long[] e = edges.get(rnd.nextInt(edges.size()));
+                g.removeEdge(e[0], e[1]);
+                cost[(int) e[0]][(int) e[1]] = Double.NaN;
+                int at = edgeAt.remove(e[0] << 32 | e[1]);
+                long[] last = edges.remove(edges.size() - 1);
+                if (at < edges.size()) {
+                    edges.set(at, last);
+                    edgeAt.put(last[0] << 32 | last[1], at);
+                }
+            } else {
+                int n = 1 + rnd.nextInt(NODES);
+                gateway[n] = !gateway[n];
+                g.setGateway(n, gateway[n]);
+            }
+            if (step % CHECK_EVERY == 0) assertMatches(g, cost, gateway, step);
+        }
+    }
+
+    private static void assertMatches(LinkGraph g, double[][] cost, boolean[] gateway, int step) {
+        boolean[] fromMe = new boolean[NODES + 1];
+        fromMe[(int) ME] = true;
+        double[] expectedFromMe = dijkstra(cost, fromMe, false);
+        double[] expectedToGateway = dijkstra(cost, gateway, true);
+        for (int n = 1; n <= NODES; n++) {
+            LinkGraph.Route r = g.getRoute(n);
+            assertRoute("route " + n + " at step " + step, cost, r, expectedFromMe[n], ME, n);
+            LinkGraph.Route gw = g.getBestGateway(n);
+            assertRoute("gateway " + n + " at step " + step, cost, gw, expectedToGateway[n], n, -1);
+            if (gw != null) assertTrue(gateway[(int) gw.nodes[gw.nodes.length - 1]]);
+        }
+    }
+
+    /** Маршрут есть ровно тогда, когда узел достижим, и идёт по существующим рёбрам. */
+    private static void assertRoute(String what, double[][] cost, LinkGraph.Route r, double expected,
+                                    long first, long last) {
+        if (expected == Double.POSITIVE_INFINITY) {
+            assertNull(what, r);
+            return;
+        }
+        assertNotNull(what, r);
+        assertEquals(what, expected, r.cost, EPS);
+        assertEquals(what, first, r.nodes[0]);
+        if (last >= 0) assertEquals(what, last, r.nodes[r.nodes.length - 1]);
+        double sum = 0;
+        for (int i = 0; i + 1 < r.nodes.length; i++) {
+            double c = cost[(int) r.nodes[i]][(int) r.nodes[i + 1]];
+            assertFalse(what + ": нет ребра " + r.nodes[i] + " → " + r.nodes[i + 1], Double.isNaN(c));
+            sum += c;
+        }
+        assertEquals(what, expected, sum, EPS);
+    }
+
+    /** O(n²) Дейкстра; reverse — расстояние до ближайшего источника против рёбер. */
+    private static double[] dijkstra(double[][] cost, boolean[] sources, boolean reverse) {
+        double[] dist = new double[NODES + 1];
+        boolean[] done = new boolean[NODES + 1];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        for (int i = 1; i <= NODES; i++) {
+            if (sources[i]) dist[i] = 0;
+        }
+        while (true) {
+            int u = -1;
+            for (int i = 1; i <= NODES; i++) {
+                if (!done[i] && dist[i] < Double.POSITIVE_INFINITY && (u < 0 || dist[i] < dist[u])) u = i;
+            }
+            if (u < 0) return dist;
+            done[u] = true;
+            for (int v = 1; v <= NODES; v++) {
+                double c = reverse ? cost[v][u] : cost[u][v];
+                if (!Double.isNaN(c) && dist[u] + c < dist[v]) dist[v] = dist[u] + c;
+            }
+        }
+    }
+}
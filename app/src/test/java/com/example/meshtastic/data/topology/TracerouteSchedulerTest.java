@@ -0,0 +1,276 @@
+package com.example.meshtastic.data.topology;
+
+import com.example.meshtastic.data.schedule.ManualScheduler;
+import com.example.meshtastic.data.send.LoRaAirtime;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+import org.meshtastic.proto.Portnums;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Планировщик на ручном времени: запросы копятся в {@link #sent}, ответы подаются через onPacket.
+ */
+public class TracerouteSchedulerTest {
+
+    private static final long ME = 0x10;
+    private static final long A = 0xA1;
+    private static final long B = 0xB2;
+    private static final long C = 0xC3;
+    private static final long D = 0xD4;
+    private static final long RELAY = 0xEE;
+
+    private final ManualScheduler scheduler = new ManualScheduler(1_000);
+    private final LinkGraph graph = new LinkGraph();
+    private final LoRaAirtime airtime = LoRaAirtime.defaults();
+    private final List<MeshProtos.MeshPacket> sent = new ArrayList<>();
+    // Цель, запрос к которой радио не принимает
+    private long refuse;
+    private int nextId = 100;
+    private final TracerouteScheduler traceroutes = new TracerouteScheduler(msg -> {
+        if ((msg.getPacket().getTo() & 0xffffffffL) == refuse) return false;
+        sent.add(msg.getPacket());
+        return true;
+    }, graph, () -> airtime, () -> nextId++, scheduler);
+
+    private final List<TracerouteScheduler.Result> results = new ArrayList<>();
+    private final List<TracerouteScheduler.Progress> progress = new ArrayList<>();
+    private final TracerouteScheduler.Listener listener = new TracerouteScheduler.Listener() {
+        @Override
+        public void onResult(TracerouteScheduler.Result result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onProgress(TracerouteScheduler.Progress p) {
+            progress.add(p);
+        }
+    };
+
+    {
+        graph.setMyNode(ME);
+        traceroutes.setMyNodeNum(ME);
+    }
+
+    @Test
+    public void inFlight_isBoundedAndFreedByReplies() {
+        traceroutes.setMaxInFlight(2);
+        traceroutes.setTimeoutMs(10 * spacingMs());
+        traceroutes.start(Arrays.asList(A, B, C, D), listener);
+        scheduler.runDue();
+        assertEquals(1, sent.size());
+
+        scheduler.advance(spacingMs());
+        assertEquals(2, sent.size());
+        // Интервал прошёл, но в полёте уже два запроса
+        scheduler.advance(3 * spacingMs());
+        assertEquals(2, sent.size());
+        assertEquals(2, traceroutes.getProgress().inFlight);
+
+        assertTrue(traceroutes.onPacket(reply(sent.get(0), RELAY)));
+        scheduler.runDue();
+        assertEquals(3, sent.size());
+        assertEquals(C, sent.get(2).getTo() & 0xffffffffL);
+        assertEquals(2, traceroutes.getProgress().inFlight);
+    }
+
+    @Test
+    public void requests_areSpacedByAirtimeBudget() {
+        traceroutes.setMaxInFlight(4);
+        traceroutes.setTimeoutMs(10 * spacingMs());
+        traceroutes.start(Arrays.asList(A, B), listener);
+        scheduler.runDue();
+        assertEquals(1, sent.size());
+        MeshProtos.MeshPacket first = sent.get(0);
+        assertEquals(Portnums.PortNum.TRACEROUTE_APP, first.getDecoded().getPortnum());
+        assertTrue(first.getWantAck());
+        assertTrue(first.getDecoded().getWantResponse());
+
+        // LONG_FAST, 3 хопа по умолчанию: эфир трассировки, растянутый до 5 % — больше минимума 10 с
+        assertTrue(spacingMs() > 10_000);
+        scheduler.advance(spacingMs() - 1);
+        assertEquals(1, sent.size());
+        scheduler.advance(1);
+        assertEquals(2, sent.size());
+
+        // Известный маршрут в один хоп — интервал короче, но не меньше минимума
+        graph.updateEdge(ME, C, 5f, System.currentTimeMillis());
+        assertEquals(1, graph.getRoute(C).hops());
+        traceroutes.start(Arrays.asList(C, D), listener);
+        scheduler.runDue();
+        assertEquals(3, sent.size());
+        scheduler.advance(spacingMs(1) - 1);
+        assertEquals(3, sent.size());
+        scheduler.advance(1);
+        assertEquals(4, sent.size());
+    }
+
+    @Test
+    public void replies_matchByRequestIdAndFillGraph() {
+        traceroutes.setMaxInFlight(2);
+        traceroutes.start(Arrays.asList(A, B), listener);
+        scheduler.runDue();
+        scheduler.advance(spacingMs());
+        assertEquals(2, sent.size());
+
+        // Ответ без нашего request_id — не наш
+        MeshProtos.MeshPacket stranger = reply(sent.get(1), RELAY).toBuilder()
+                .setDecoded(reply(sent.get(1), RELAY).getDecoded().toBuilder().setRequestId(12345))
+                .build();
+        assertFalse(traceroutes.onPacket(stranger));
+
+        scheduler.advance(2_500);
+        assertTrue(traceroutes.onPacket(reply(sent.get(1), RELAY)));
+        scheduler.runDue();
+        assertEquals(1, results.size());
+        TracerouteScheduler.Result r = results.get(0);
+        assertEquals(B, r.target);
+        assertEquals(TracerouteScheduler.Result.Status.OK, r.status);
+        assertEquals(Arrays.asList(ME, RELAY, B), r.routeTowards);
+        assertEquals(Arrays.asList(B, RELAY, ME), r.routeBack);
+        assertEquals(2_500, r.rttMs);
+        assertNotNull(graph.getRoute(B));
+        assertArrayEquals(new long[]{ME, RELAY, B}, graph.getRoute(B).nodes);
+
+        // Повтор того же ответа после завершения запроса уже не наш
+        assertFalse(traceroutes.onPacket(reply(sent.get(1), RELAY)));
+    }
+
+    @Test
+    public void routingAck_isConsumedWithoutResult() {
+        traceroutes.start(Arrays.asList(A), listener);
+        scheduler.runDue();
+        MeshProtos.MeshPacket req = sent.get(0);
+
+        assertTrue(traceroutes.onPacket(routing(req, MeshProtos.Routing.Error.NONE)));
+        scheduler.runDue();
+        assertTrue(results.isEmpty());
+        assertEquals(1, traceroutes.getProgress().inFlight);
+
+        assertTrue(traceroutes.onPacket(reply(req, RELAY)));
+        scheduler.runDue();
+        assertEquals(1, results.size());
+        assertEquals(TracerouteScheduler.Result.Status.OK, results.get(0).status);
+    }
+
+    @Test
+    public void timeoutFailedAndNotSent_areReported() {
+        traceroutes.setMaxInFlight(3);
+        traceroutes.setTimeoutMs(30_000);
+        refuse = A;
+        traceroutes.start(Arrays.asList(A, B, C), listener);
+        scheduler.runDue();
+
+        // A радио не приняло — B уходит сразу, без ожидания интервала
+        assertEquals(1, results.size());
+        assertEquals(A, results.get(0).target);
+        assertEquals(TracerouteScheduler.Result.Status.NOT_SENT, results.get(0).status);
+        assertEquals(1, sent.size());
+        MeshProtos.MeshPacket b = sent.get(0);
+        assertEquals(B, b.getTo() & 0xffffffffL);
+
+        assertTrue(traceroutes.onPacket(routing(b, MeshProtos.Routing.Error.NO_ROUTE)));
+        scheduler.runDue();
+        TracerouteScheduler.Result failed = results.get(1);
+        assertEquals(B, failed.target);
+        assertEquals(TracerouteScheduler.Result.Status.FAILED, failed.status);
+        assertEquals("NO_ROUTE", failed.error);
+
+        scheduler.advance(spacingMs());
+        assertEquals(2, sent.size());
+        scheduler.advance(30_000 - 1);
+        assertEquals(2, results.size());
+        scheduler.advance(1);
+        TracerouteScheduler.Result timedOut = results.get(2);
+        assertEquals(C, timedOut.target);
+        assertEquals(TracerouteScheduler.Result.Status.TIMEOUT, timedOut.status);
+        assertEquals(30_000, timedOut.rttMs);
+        assertFalse(traceroutes.getProgress().running);
+        assertEquals(3, traceroutes.getProgress().done);
+    }
+
+    @Test
+    public void partialResults_arriveWithProgress() {
+        traceroutes.setMaxInFlight(2);
+        traceroutes.setTimeoutMs(10 * spacingMs());
+        traceroutes.start(Arrays.asList(A, B), listener);
+        scheduler.runDue();
+        scheduler.advance(spacingMs());
+        assertEquals(2, sent.size());
+        TracerouteScheduler.Progress p = last(progress);
+        assertEquals(2, p.total);
+        assertEquals(0, p.done);
+        assertEquals(2, p.inFlight);
+        assertTrue(p.running);
+
+        traceroutes.onPacket(reply(sent.get(0), RELAY));
+        scheduler.runDue();
+        assertEquals(1, results.size());
+        assertEquals(1, traceroutes.getResults().size());
+        p = last(progress);
+        assertEquals(1, p.done);
+        assertEquals(1, p.succeeded);
+        assertTrue(p.running);
+
+        traceroutes.cancel();
+        scheduler.runDue();
+        assertEquals(2, results.size());
+        assertEquals(TracerouteScheduler.Result.Status.CANCELLED, results.get(1).status);
+        p = last(progress);
+        assertEquals(2, p.done);
+        assertFalse(p.running);
+        assertEquals(0, scheduler.pending());
+    }
+
+    private long spacingMs() {
+        return spacingMs(3);
+    }
+
+    /** Формула планировщика: запрос и ответ по hops звеньям, растянутые до 5 % эфира. */
+    private long spacingMs(int hops) {
+        double packetMs = airtime.packetAirtimeMs(4 + 14 * hops);
+        return Math.max(10_000, (long) (packetMs * 2 * hops * 100 / 5f));
+    }
+
+    /** Ответ цели на запрос: маршрут туда и обратно через RELAY. */
+    private static MeshProtos.MeshPacket reply(MeshProtos.MeshPacket request, long relay) {
+        MeshProtos.RouteDiscovery rd = MeshProtos.RouteDiscovery.newBuilder()
+                .addRoute((int) relay)
+                .addSnrTowards(24)
+                .addSnrTowards(20)
+                .addRouteBack((int) relay)
+                .addSnrBack(16)
+                .addSnrBack(12)
+                .build();
+        return MeshProtos.MeshPacket.newBuilder()
+                .setFrom(request.getTo())
+                .setTo((int) ME)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.TRACEROUTE_APP)
+                        .setRequestId(request.getId())
+                        .setPayload(rd.toByteString()))
+                .build();
+    }
+
+    private static MeshProtos.MeshPacket routing(MeshProtos.MeshPacket request, MeshProtos.Routing.Error error) {
+        ByteString payload = MeshProtos.Routing.newBuilder().setErrorReason(error).build().toByteString();
+        return MeshProtos.MeshPacket.newBuilder()
+                .setFrom((int) RELAY)
+                .setTo((int) ME)
+                .setDecoded(MeshProtos.Data.newBuilder()
+                        .setPortnum(Portnums.PortNum.ROUTING_APP)
+                        .setRequestId(request.getId())
+                        .setPayload(payload))
+                .build();
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+}
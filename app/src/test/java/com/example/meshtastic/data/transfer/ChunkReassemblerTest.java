@@ -0,0 +1,88 @@
+package com.example.meshtastic.data.transfer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ChunkReassemblerTest {
+
+    @Test
+    public void outOfOrderChunks_reassembleInPlace() {
+        byte[] payload = bytes(4 * 4 + 2);
+        ChunkReassembler r = new ChunkReassembler(5, 4);
+        for (int i : new int[]{3, 0, 4, 1}) {
+            assertEquals(ChunkReassembler.Result.ACCEPTED, r.put(i, chunk(payload, i, 4)));
+            assertFalse(r.isComplete());
+        }
+        assertEquals(ChunkReassembler.Result.ACCEPTED, r.put(2, chunk(payload, 2, 4)));
+        assertTrue(r.isComplete());
+
+        ByteBuffer data = r.data();
+        byte[] out = new byte[data.remaining()];
+        data.get(out);
+        assertArrayEquals(payload, out);
+    }
+
+    @Test
+    public void duplicateAndMalformedChunks_areRejected() {
+        byte[] payload = bytes(10);
+        ChunkReassembler r = new ChunkReassembler(3, 4);
+        assertEquals(ChunkReassembler.Result.ACCEPTED, r.put(1, chunk(payload, 1, 4)));
+        assertEquals(ChunkReassembler.Result.DUPLICATE, r.put(1, chunk(payload, 1, 4)));
+        assertEquals(ChunkReassembler.Result.INVALID, r.put(3, ByteBuffer.wrap(new byte[4])));
+        assertEquals(ChunkReassembler.Result.INVALID, r.put(0, ByteBuffer.wrap(new byte[3])));
+        assertEquals(ChunkReassembler.Result.INVALID, r.put(2, ByteBuffer.wrap(new byte[0])));
+        assertEquals(ChunkReassembler.Result.INVALID, r.put(2, ByteBuffer.wrap(new byte[5])));
+        assertEquals(1, r.getReceivedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void data_beforeComplete_throws() {
+        new ChunkReassembler(2, 4).data();
+    }
+
+    @Test
+    public void report_listsGapsBelowHighWater() {
+        ChunkReassembler r = new ChunkReassembler(8, 1);
+        for (int i : new int[]{0, 2, 5}) r.put(i, ByteBuffer.wrap(new byte[1]));
+        int[] out = new int[8];
+        int n = r.report(out, 7);
+        assertEquals(4, n);
+        assertArrayEquals(new int[]{1, 3, 4, 6}, Arrays.copyOf(out, n));
+    }
+
+    @Test
+    public void report_withTooManyGaps_pullsHorizonBack() {
+        ChunkReassembler r = new ChunkReassembler(8, 1);
+        for (int i : new int[]{0, 2, 5}) r.put(i, ByteBuffer.wrap(new byte[1]));
+        int[] out = new int[3];
+        int n = r.report(out, 2);
+        // 4 не вошёл — граница на нём, и 5 отчёт не подтверждает
+        assertArrayEquals(new int[]{1, 3, 4}, Arrays.copyOf(out, n));
+    }
+
+    @Test
+    public void report_acrossWordBoundary() {
+        ChunkReassembler r = new ChunkReassembler(130, 1);
+        for (int i = 0; i < 130; i++) {
+            if (i != 63 && i != 64 && i != 127) r.put(i, ByteBuffer.wrap(new byte[1]));
+        }
+        int[] out = new int[8];
+        int n = r.report(out, 7);
+        assertArrayEquals(new int[]{63, 64, 127, 130}, Arrays.copyOf(out, n));
+    }
+
+    static byte[] bytes(int length) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) b[i] = (byte) (i * 31 + 7);
+        return b;
+    }
+
+    static ByteBuffer chunk(byte[] payload, int index, int chunkSize) {
+        int offset = index * chunkSize;
+        return ByteBuffer.wrap(payload, offset, Math.min(chunkSize, payload.length - offset));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.meshtastic.data.transfer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChunkSendWindowTest {
+
+    private static final long HOLDOFF_MS = 50;
+
+    @Test
+    public void newChunks_stopAtWindow() {
+        ChunkSendWindow w = new ChunkSendWindow(10, 3, HOLDOFF_MS);
+        assertEquals(0, w.next());
+        assertEquals(1, w.next());
+        assertEquals(2, w.next());
+        assertEquals(-1, w.next());
+        assertEquals(3, w.getOutstanding());
+    }
+
+    @Test
+    public void report_acksReceivedAndResendsOnlyGaps() {
+        ChunkSendWindow w = new ChunkSendWindow(10, 3, HOLDOFF_MS);
+        for (int i = 0; i < 3; i++) w.markSent(w.next(), 1);
+
+        // Получены 0 и 2, граница 3
+        assertEquals(2, w.onReport(new int[]{1, 3}, 2, 1));
+        assertTrue(w.isAcked(0));
+        assertFalse(w.isAcked(1));
+        assertTrue(w.isAcked(2));
+        // 1 отправлен только что — отчёт мог его опередить, повтора пока нет
+        assertEquals(3, w.next());
+        assertEquals(4, w.next());
+        assertEquals(-1, w.next());
+
+        w.onReport(new int[]{1, 3}, 2, 1 + HOLDOFF_MS);
+        assertEquals(1, w.next());
+        assertEquals(-1, w.next());
+    }
+
+    @Test
+    public void unsend_returnsChunkToQueue() {
+        ChunkSendWindow w = new ChunkSendWindow(4, 4, HOLDOFF_MS);
+        int first = w.next();
+        w.unsend(first);
+        assertEquals(first, w.next());
+        w.markSent(first, 1);
+        assertEquals(1, w.next());
+        w.markSent(1, 1);
+
+        w.onReport(new int[]{0, 2}, 2, 100);
+        assertEquals(0, w.next());
+        w.unsend(0);
+        assertEquals(0, w.next());
+    }
+
+    @Test
+    public void probe_repeatsLowestUnacked() {
+        ChunkSendWindow w = new ChunkSendWindow(4, 4, HOLDOFF_MS);
+        assertEquals(-1, w.probe());
+        for (int i = 0; i < 2; i++) w.markSent(w.next(), 1);
+        w.onReport(new int[]{1}, 1, 1);
+        assertEquals(1, w.probe());
+        assertEquals(1, w.next());
+        w.onReport(new int[]{2}, 1, 2);
+        assertEquals(-1, w.probe());
+    }
+
+    /**
+     * Отправитель и получатель через канал, который теряет и переставляет куски и отчёты:
+     * окно не подтверждает непришедшего, а передача доходит целиком.
+     */
+    @Test
+    public void lossyReorderingChannel_completesWithoutFalseAcks() {
+        for (long seed = 1; seed <= 20; seed++) {
+            runLossyTransfer(new Random(seed), 200, 16, 8);
+        }
+    }
+
+    private static void runLossyTransfer(Random rnd, int chunks, int chunkSize, int window) {
+        byte[] payload = ChunkReassemblerTest.bytes(chunks * chunkSize - 5);
+        ChunkSendWindow w = new ChunkSendWindow(chunks, window, HOLDOFF_MS);
+        ChunkReassembler r = new ChunkReassembler(chunks, chunkSize);
+        List<Integer> chunksInFlight = new ArrayList<>();
+        List<int[]> reportsInFlight = new ArrayList<>();
+        int[] out = new int[17];
+        long now = 0;
+
+        int rounds = 0;
+        while (!w.isComplete()) {
+            assertTrue("передача не сошлась", ++rounds < 100_000);
+            now += 10;
+            int i;
+            while ((i = w.next()) >= 0) {
+                w.markSent(i, now);
+                if (rnd.nextInt(5) != 0) chunksInFlight.add(i);
+            }
+
+            // Часть кусков доходит в перемешанном порядке, остальные ещё в пути
+            Collections.shuffle(chunksInFlight, rnd);
+            int delivered = rnd.nextInt(chunksInFlight.size() + 1);
+            for (int k = 0; k < delivered; k++) {
+                int c = chunksInFlight.remove(chunksInFlight.size() - 1);
+                r.put(c, ChunkReassemblerTest.chunk(payload, c, chunkSize));
+            }
+            if (delivered > 0 && rnd.nextInt(5) != 0) {
+                int n = r.report(out, out.length - 1);
+                reportsInFlight.add(Arrays.copyOf(out, n));
+            }
+
+            // Отчёты тоже приходят не по порядку: старый может прийти после нового
+            Collections.shuffle(reportsInFlight, rnd);
+            int reports = rnd.nextInt(reportsInFlight.size() + 1);
+            for (int k = 0; k < reports; k++) {
+                int[] report = reportsInFlight.remove(reportsInFlight.size() - 1);
+                w.onReport(report, report.length, now);
+                for (int c = 0; c < chunks; c++) {
+                    if (w.isAcked(c)) assertTrue("подтверждён непришедший кусок " + c, r.has(c));
+                }
+            }
+
+            if (chunksInFlight.isEmpty() && reportsInFlight.isEmpty() && w.getOutstanding() > 0
+                    && rnd.nextInt(4) == 0) {
+                w.probe();
+            }
+        }
+
+        assertTrue(r.isComplete());
+        ByteBuffer data = r.data();
+        byte[] got = new byte[data.remaining()];
+        data.get(got);
+        assertArrayEquals(payload, got);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.meshtastic.data.transfer;
+
+import com.example.meshtastic.data.schedule.ManualScheduler;
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.meshtastic.proto.MeshProtos;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Отправитель и получатель на одних ручных часах; пакет доходит через {@link #AIR_MS}.
+ */
+public class ChunkedTransferEngineTest {
+
+    private static final int SENDER = 0x0A;
+    private static final int RECEIVER = 0x0B;
+    private static final int CHANNEL = 1;
+    private static final long AIR_MS = 100;
+
+    private final ManualScheduler scheduler = new ManualScheduler(1_000);
+    // Отправитель не может поставить кусок в очередь до этого момента
+    private long refuseChunksUntil;
+    // Эфир между узлами пропал: пакеты в обе стороны теряются
+    private boolean linkDown;
+    private int refused;
+    // Очередь перед радио выпускает куски не чаще, чем раз в столько мс (0 — сразу)
+    private long chunkSpacingMs;
+    private long lastChunkLeftAt;
+    private int chunksQueued;
+
+    private final ChunkedTransferEngine receiver = new ChunkedTransferEngine(
+            (to, channel, port, payload) -> air(RECEIVER, to, channel, port, payload), scheduler);
+    private final ChunkedTransferEngine sender = new ChunkedTransferEngine(new ChunkedTransferEngine.Transport() {
+        @Override
+        public boolean send(int to, int channel, int port, ByteString payload) {
+            if (port != ChunkedTransferEngine.CHUNK_PORT) return air(SENDER, to, channel, port, payload);
+            long now = scheduler.now();
+            if (now < refuseChunksUntil) {
+                refused++;
+                return false;
+            }
+            long leaveAt = Math.max(now, lastChunkLeftAt + chunkSpacingMs);
+            lastChunkLeftAt = leaveAt;
+            chunksQueued++;
+            scheduler.postDelayed(() -> {
+                chunksQueued--;
+                air(SENDER, to, channel, port, payload);
+            }, leaveAt - now);
+            return true;
+        }
+
+        @Override
+        public boolean hasQueued() {
+            return chunksQueued > 0;
+        }
+    }, scheduler);
+
+    private final List<byte[]> received = new ArrayList<>();
+    private final List<String> results = new ArrayList<>();
+    private int lastAcked;
+
+    private final ChunkedTransferEngine.Callback callback = new ChunkedTransferEngine.Callback() {
+        @Override
+        public void onProgress(int payloadId, int ackedChunks, int totalChunks) {
+            lastAcked = ackedChunks;
+        }
+
+        @Override
+        public void onComplete(int payloadId, boolean success, String error) {
+            results.add(success ? "ok" : error);
+        }
+    };
+
+    {
+        receiver.setListener((from, payloadId, data) -> {
+            assertEquals(SENDER, from);
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            received.add(copy);
+        });
+    }
+
+    @Test
+    public void send_deliversWholePayloadAndReportsProgress() {
+        byte[] data = payload(5_000);
+        int id = sender.send(RECEIVER, CHANNEL, data, callback);
+        assertNotEquals(0, id);
+
+        scheduler.advance(60_000);
+        assertEquals(1, results.size());
+        assertEquals("ok", results.get(0));
+        assertEquals(1, received.size());
+        assertArrayEquals(data, received.get(0));
+        assertEquals(25, lastAcked);
+    }
+
+    @Test
+    public void blockedQueue_doesNotConsumeProbes() {
+        byte[] data = payload(3_000);
+        // Очередь отказывает дольше, чем MAX_PROBES × BLOCKED_RETRY_MS
+        refuseChunksUntil = scheduler.now() + 20_000;
+        sender.send(RECEIVER, CHANNEL, data, callback);
+
+        scheduler.advance(19_000);
+        assertTrue(refused >= 9);
+        assertTrue(results.isEmpty());
+
+        scheduler.advance(60_000);
+        assertEquals(1, results.size());
+        assertEquals("ok", results.get(0));
+        assertArrayEquals(data, received.get(0));
+    }
+
+    @Test
+    public void slowQueue_holdsTimeoutsUntilChunksLeave() {
+        byte[] data = payload(3_000);
+        // Бюджет эфира выпускает кусок раз в 45 с: между отчётами (каждые 4 куска) проходит
+        // больше трёх минут — больше, чем MAX_PROBES таймаутов отчёта
+        chunkSpacingMs = 45_000;
+        sender.send(RECEIVER, CHANNEL, data, callback);
+
+        scheduler.advance(15 * 45_000 + 5_000);
+        assertEquals(1, results.size());
+        assertEquals("ok", results.get(0));
+        assertArrayEquals(data, received.get(0));
+        assertEquals(15, lastAcked);
+    }
+
+    @Test
+    public void silentReceiver_abortsAfterProbes() {
+        sender.send(RECEIVER, CHANNEL, payload(3_000), callback);
+        // Рукопожатие прошло (accept пришёл через 2 × AIR_MS), первые куски уже в эфире
+        scheduler.advance(2 * AIR_MS + AIR_MS / 2);
+        linkDown = true;
+
+        // Три зондирования по таймауту отчёта, четвёртый таймаут — отказ
+        scheduler.advance(3 * 60_000);
+        assertTrue(results.isEmpty());
+        scheduler.advance(60_000);
+        assertEquals(1, results.size());
+        assertEquals("нет отчётов от получателя", results.get(0));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void cancelAll_reportsLostConnection() {
+        sender.send(RECEIVER, CHANNEL, payload(3_000), callback);
+        sender.cancelAll();
+        scheduler.runDue();
+        assertEquals(1, results.size());
+        assertEquals("соединение потеряно", results.get(0));
+    }
+
+    private boolean air(int from, int to, int channel, int port, ByteString payload) {
+        ChunkedTransferEngine dest = to == RECEIVER ? receiver : sender;
+        MeshProtos.MeshPacket p = MeshProtos.MeshPacket.newBuilder()
+                .setFrom(from)
+                .setTo(to)
+                .setChannel(channel)
+                .setDecoded(MeshProtos.Data.newBuilder().setPortnumValue(port).setPayload(payload))
+                .build();
+        scheduler.postDelayed(() -> {
+            if (!linkDown) dest.onPacket(p);
+        }, AIR_MS);
+        return true;
+    }
+
+    private static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.meshtastic.data.xmodem;
+
+import com.google.protobuf.ByteString;
+
+import org.meshtastic.proto.XmodemProtos.XModem;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Радио для локальных прогонов XModem: повторяет логику XModemAdapter прошивки
+ * (один файл за раз, приём строго по порядку, передача stop-and-wait) поверх
+ * файловой системы в памяти.
+ *
+ * Задержка линка задаётся в каждую сторону; часть блоков можно портить, чтобы
+ * проверить повторы, а первую отправку выбранных блоков — потерять или испортить.
+ * Радио однопоточное, как и настоящее.
+ */
+class FakeXModemRadio implements XModemTransfer.Transport {
+
+    private static final int MAX_RETRANS = 25;
+
+    final Map<String, byte[]> files = new HashMap<>();
+
+    private final ScheduledExecutorService radio =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "FakeRadio"));
+    private final long latencyMs;
+    private final double corruptRate;
+    private final Random random;
+    private Consumer<XModem> toPhone;
+
+    // Состояние адаптера, как в прошивке
+    private String filename;
+    private boolean isReceiving;
+    private boolean isTransmitting;
+    private boolean isEot;
+    private int packetno;
+    private int retrans;
+    private ByteArrayOutputStream writing;
+    private byte[] reading;
+    private int readPos;
+    private XModem store;
+
+    // Номера блоков, первая отправка которых пропадает в пути / приходит с битой CRC
+    final Set<Integer> loseOnce = ConcurrentHashMap.newKeySet();
+    final Set<Integer> corruptOnce = ConcurrentHashMap.newKeySet();
+
+    int blocksReceived;
+    int naksSent;
+    int acksSent;
+    // Пакеты, отправленные телефоном и ещё не дошедшие до радио
+    private final AtomicInteger inFlight = new AtomicInteger();
+    volatile int maxInFlight;
+
+    FakeXModemRadio(long latencyMs, double corruptRate, long seed) {
+        this.latencyMs = latencyMs;
+        this.corruptRate = corruptRate;
+        this.random = new Random(seed);
+    }
+
+    void connect(Consumer<XModem> toPhone) {
+        this.toPhone = toPhone;
+    }
+
+    void shutdown() {
+        radio.shutdownNow();
+    }
+
+    @Override
+    public boolean send(XModem packet) {
+        if (packet.getControl() == XModem.Control.SOH && packet.getSeq() > 0) {
+            if (loseOnce.remove(packet.getSeq())) return true;
+            if (corruptOnce.remove(packet.getSeq())) {
+                packet = packet.toBuilder().setCrc16(packet.getCrc16() ^ 1).build();
+            }
+        }
+        XModem sent = packet;
+        int n = inFlight.incrementAndGet();
+        if (n > maxInFlight) maxInFlight = n;
+        radio.schedule(() -> {
+            inFlight.decrementAndGet();
+            handle(corrupt(sent));
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private XModem corrupt(XModem p) {
+        if (corruptRate <= 0 || p.getBuffer().isEmpty() || random.nextDouble() >= corruptRate) return p;
+        byte[] b = p.getBuffer().toByteArray();
+        b[random.nextInt(b.length)] ^= 0x5A;
+        return p.toBuilder().setBuffer(ByteString.copyFrom(b)).build();
+    }
+
+    private void reply(XModem p) {
+        radio.schedule(() -> toPhone.accept(p), latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendControl(XModem.Control c) {
+        // XModemAdapter::sendControl обнуляет пакет: seq в ACK/NAK/EOT всегда 0
+        if (c == XModem.Control.ACK) acksSent++;
+        reply(XModem.newBuilder().setControl(c).build());
+    }
+
+    private boolean check(XModem p) {
+        byte[] b = p.getBuffer().toByteArray();
+        return Crc16Ccitt.compute(b, 0, b.length) == p.getCrc16();
+    }
+
+    private void handle(XModem p) {
+        switch (p.getControl()) {
+            case SOH:
+            case STX:
+                if (p.getSeq() == 0 && !isReceiving && !isTransmitting) {
+                    filename = p.getBuffer().toString(StandardCharsets.UTF_8);
+                    if (p.getControl() == XModem.Control.SOH) {
+                        writing = new ByteArrayOutputStream();
+                        isReceiving = true;
+                        packetno = 1;
+                        sendControl(XModem.Control.ACK);
+                    } else {
+                        reading = files.get(filename);
+                        if (reading == null) {
+                            sendControl(XModem.Control.NAK);
+                            break;
+                        }
+                        readPos = 0;
+                        packetno = 1;
+                        isTransmitting = true;
+                        retrans = MAX_RETRANS;
+                        nextBlock();
+                    }
+                } else if (p.getSeq() == packetno && check(p)) {
+                    blocksReceived++;
+                    writing.write(p.getBuffer().toByteArray(), 0, p.getBuffer().size());
+                    sendControl(XModem.Control.ACK);
+                    packetno++;
+                } else {
+                    naksSent++;
+                    sendControl(XModem.Control.NAK);
+                }
+                break;
+            case EOT:
+                if (writing != null) files.put(filename, writing.toByteArray());
+                writing = null;
+                sendControl(XModem.Control.ACK);
+                isReceiving = false;
+                break;
+            case CAN:
+                sendControl(XModem.Control.ACK);
+                writing = null;
+                files.remove(filename);
+                isReceiving = false;
+                break;
+            case ACK:
+                if (isTransmitting) {
+                    if (isEot) {
+                        sendControl(XModem.Control.EOT);
+                        isTransmitting = false;
+                        isEot = false;
+                        break;
+                    }
+                    retrans = MAX_RETRANS;
+                    packetno++;
+                    nextBlock();
+                } else {
+                    sendControl(XModem.Control.CAN);
+                }
+                break;
+            case NAK:
+                if (isTransmitting) {
+                    if (--retrans <= 0) {
+                        sendControl(XModem.Control.CAN);
+                        isTransmitting = false;
+                        break;
+                    }
+                    reply(corrupt(store));
+                } else {
+                    sendControl(XModem.Control.CAN);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void nextBlock() {
+        int len = Math.min(XModemTransfer.BLOCK_SIZE, reading.length - readPos);
+        store = XModem.newBuilder()
+                .setControl(XModem.Control.SOH)
+                .setSeq(packetno)
+                .setBuffer(ByteString.copyFrom(reading, readPos, len))
+                .setCrc16(Crc16Ccitt.compute(reading, readPos, len))
+                .build();
+        readPos += len;
+        if (len < XModemTransfer.BLOCK_SIZE) isEot = true;
+        reply(corrupt(store));
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.meshtastic.data.xmodem;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class XModemTransferTest {
+
+    private FakeXModemRadio radio;
+    private XModemTransfer transfer;
+
+    private void setUp(long latencyMs, double corruptRate, int window) {
+        radio = new FakeXModemRadio(latencyMs, corruptRate, 42);
+        transfer = new XModemTransfer(radio);
+        transfer.setWindow(window);
+        radio.connect(transfer::onXModem);
+    }
+
+    @After
+    public void tearDown() {
+        if (transfer != null) transfer.shutdown();
+        if (radio != null) radio.shutdown();
+    }
+
+    @Test
+    public void crc16_matchesXmodemCheckValue() {
+        byte[] check = "123456789".getBytes();
+        assertEquals(0x31C3, Crc16Ccitt.compute(check, 0, check.length));
+        // По частям — то же самое
+        int crc = Crc16Ccitt.update(0, check, 0, 4);
+        assertEquals(0x31C3, Crc16Ccitt.update(crc, check, 4, 5));
+    }
+
+    @Test
+    public void push_thenPull_roundTrip() throws Exception {
+        setUp(1, 0, 8);
+        byte[] data = randomBytes(10_000, 1);
+
+        assertTrue(push("/prefs/backup.bin", data).get(10, TimeUnit.SECONDS));
+        assertArrayEquals(data, radio.files.get("/prefs/backup.bin"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(pull("/prefs/backup.bin", out).get(10, TimeUnit.SECONDS));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void push_exactMultipleOfBlock() throws Exception {
+        setUp(1, 0, 4);
+        byte[] data = randomBytes(XModemTransfer.BLOCK_SIZE * 5, 2);
+
+        assertTrue(push("/a", data).get(10, TimeUnit.SECONDS));
+        assertArrayEquals(data, radio.files.get("/a"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(pull("/a", out).get(10, TimeUnit.SECONDS));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void push_recoversFromCorruptedBlocks() throws Exception {
+        setUp(1, 0.05, 8);
+        byte[] data = randomBytes(20_000, 3);
+
+        assertTrue(push("/firmware.bin", data).get(30, TimeUnit.SECONDS));
+        assertArrayEquals(data, radio.files.get("/firmware.bin"));
+        assertTrue(radio.naksSent > 0);
+    }
+
+    @Test
+    public void pull_recoversFromCorruptedBlocks() throws Exception {
+        setUp(1, 0.05, 8);
+        byte[] data = randomBytes(8_000, 4);
+        radio.files.put("/log.txt", data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(pull("/log.txt", out).get(30, TimeUnit.SECONDS));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void pull_missingFileFails() throws Exception {
+        setUp(1, 0, 8);
+        assertFalse(pull("/nope", new ByteArrayOutputStream()).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void push_countsAcksWithoutSeq() throws Exception {
+        // ACK от радио приходят с seq=0, как в прошивке
+        setUp(1, 0, 8);
+        byte[] data = randomBytes(XModemTransfer.BLOCK_SIZE * 20 + 7, 6);
+
+        assertTrue(push("/acks", data).get(10, TimeUnit.SECONDS));
+        assertArrayEquals(data, radio.files.get("/acks"));
+        // Открытие файла + 21 блок + EOT, без повторов
+        assertEquals(21, radio.blocksReceived);
+        assertEquals(23, radio.acksSent);
+        assertEquals(0, radio.naksSent);
+    }
+
+    @Test
+    public void push_keepsWindowInFlight() throws Exception {
+        byte[] data = randomBytes(16 * 1024, 5);
+
+        setUp(5, 0, 1);
+        assertTrue(push("/bench", data).get(60, TimeUnit.SECONDS));
+        assertEquals(1, radio.maxInFlight);
+        tearDown();
+
+        setUp(5, 0, 8);
+        assertTrue(push("/bench", data).get(60, TimeUnit.SECONDS));
+        assertArrayEquals(data, radio.files.get("/bench"));
+        assertTrue("в полёте " + radio.maxInFlight, radio.maxInFlight > 1);
+        assertTrue(radio.maxInFlight <= 8);
+        // Конвейер не порождает лишних блоков
+        assertEquals(128, radio.blocksReceived);
+    }
+
+    @Test
+    public void push_lostBlockThenGenuineNakRecoversWithoutTimeout() throws Exception {
+        setUp(5, 0, 8);
+        byte[] data = randomBytes(XModemTransfer.BLOCK_SIZE * 20 + 7, 7);
+        // Блок 3 пропадает целиком: NAK приходят только на 4.., их меньше, чем блоков после него.
+        // Повтор 3 и последний блок приходят битыми — на них настоящие NAK, которые нельзя
+        // принять за хвост прошлого раунда
+        radio.loseOnce.add(3);
+        radio.corruptOnce.add(3);
+        radio.corruptOnce.add(21);
+
+        long started = System.nanoTime();
+        assertTrue(push("/lost", data).get(30, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertArrayEquals(data, radio.files.get("/lost"));
+        assertEquals(21, radio.blocksReceived);
+        // Таймаут XModemTransfer — 5 с; восстановление по NAK укладывается в единицы RTT
+        assertTrue("передача шла " + elapsedMs + " мс", elapsedMs < 2_000);
+    }
+
+    private CompletableFuture<Boolean> push(String name, byte[] data) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        transfer.push(name, new ByteArrayInputStream(data), data.length,
+                (success, bytes, error) -> done.complete(success));
+        return done;
+    }
+
+    private CompletableFuture<Boolean> pull(String name, ByteArrayOutputStream out) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        transfer.pull(name, out, (success, bytes, error) -> done.complete(success));
+        return done;
+    }
+
+    private static byte[] randomBytes(int n, long seed) {
+        byte[] b = new byte[n];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,42 @@
+plugins {
+    alias(libs.plugins.android.test)
+    alias(libs.plugins.baselineprofile)
+}
+
+// Макробенчмарки запуска и плавности и генератор Baseline Profile для :app.
+// Запуск на подключённом устройстве (API 28+):
+//   ./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest
+//   ./gradlew :app:generateBaselineProfile
+android {
+    namespace = "com.example.meshtastic.benchmark"
+    compileSdk {
+        version = release(36)
+    }
+
+    defaultConfig {
+        // Macrobenchmark и BaselineProfileRule требуют API 28+
+        minSdk = 28
+        targetSdk = 36
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    targetProjectPath = ":app"
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+baselineProfile {
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation(libs.ext.junit)
+    implementation(libs.espresso.core)
+    implementation(libs.uiautomator)
+    implementation(libs.benchmark.macro.junit4)
+    implementation(libs.annotation.experimental)
+}
@@ -0,0 +1,70 @@
+package com.example.meshtastic.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiObject2;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Снимает Baseline Profile для запуска, экрана подключения и списка узлов:
+ * {@code ./gradlew :app:generateBaselineProfile}.
+ *
+ * Приложение запускается с синтетической сетью (extras {@code synthetic_nodes} и
+ * {@code synthetic_rate}): кадры FromRadio идут тем же путём разбора, что и с BLE, так что
+ * в профиль попадают разбор, таблица узлов и обновления списка без живого радио.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final int NODES = 1_000;
+    // Невысокий поток обновлений: waitForIdle между шагами ещё дожидается простоя
+    private static final int RATE = 10;
+    // Начальная загрузка идёт порциями по 250 узлов каждые 50 мс — с запасом
+    private static final long LOAD_SETTLE_MS = 2_000;
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(MeshApp.PACKAGE, scope -> {
+            MeshApp.grantPermissions(scope);
+            scope.pressHome();
+            scope.startActivityAndWait(intent -> {
+                intent.putExtra(MeshApp.EXTRA_SYNTHETIC_NODES, NODES);
+                intent.putExtra(MeshApp.EXTRA_SYNTHETIC_RATE, RATE);
+                return Unit.INSTANCE;
+            });
+
+            // Путь подключения: экран подключения открывается первым, запускаем поиск
+            MeshApp.click(scope, "scan_button");
+
+            MeshApp.click(scope, "nav_status");
+            MeshApp.click(scope, "nav_nodes");
+            UiObject2 list = MeshApp.waitForNodeList(scope);
+            sleep(LOAD_SETTLE_MS);
+            list.setGestureMargin(scope.getDevice().getDisplayWidth() / 5);
+            for (int i = 0; i < 3; i++) {
+                list.fling(Direction.DOWN);
+                scope.getDevice().waitForIdle();
+            }
+            list.fling(Direction.UP);
+            scope.getDevice().waitForIdle();
+            return Unit.INSTANCE;
+        });
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
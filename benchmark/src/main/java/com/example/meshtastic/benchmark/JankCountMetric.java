@@ -0,0 +1,46 @@
+package com.example.meshtastic.benchmark;
+
+import androidx.annotation.OptIn;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.TraceMetric;
+import androidx.benchmark.perfetto.ExperimentalPerfettoTraceProcessorApi;
+import androidx.benchmark.perfetto.PerfettoTraceProcessor;
+import androidx.benchmark.perfetto.Row;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Число janky-кадров приложения по FrameTimeline SurfaceFlinger (API 31+): кадры,
+ * у которых jank_type не None. FrameTimingMetric даёт перцентили времени кадра,
+ * но не сам счёт пропущенных кадров.
+ */
+@OptIn(markerClass = {ExperimentalMetricApi.class, ExperimentalPerfettoTraceProcessorApi.class})
+class JankCountMetric extends TraceMetric {
+
+    @Override
+    public List<Measurement> getResult(CaptureInfo captureInfo, PerfettoTraceProcessor.Session session) {
+        String sql = "SELECT COUNT(*) AS frames,"
+                + " SUM(CASE WHEN jank_type != 'None' THEN 1 ELSE 0 END) AS janky"
+                + " FROM actual_frame_timeline_slice JOIN process USING(upid)"
+                + " WHERE process.name LIKE '" + captureInfo.getTargetPackageName() + "%'";
+        long frames = 0;
+        long janky = 0;
+        Iterator<Row> rows = session.query(sql).iterator();
+        if (rows.hasNext()) {
+            Row row = rows.next();
+            frames = asLong(row.get("frames"));
+            janky = asLong(row.get("janky"));
+        }
+        double percent = frames > 0 ? 100.0 * janky / frames : 0;
+        return Arrays.asList(
+                new Measurement("jankCount", (double) janky),
+                new Measurement("jankPercent", percent));
+    }
+
+    private static long asLong(Object value) {
+        // SUM по пустой выборке — NULL
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
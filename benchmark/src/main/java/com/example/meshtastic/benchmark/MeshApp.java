@@ -0,0 +1,65 @@
+package com.example.meshtastic.benchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+
+/**
+ * Общие шаги сценариев над приложением: пакет, разрешения, переходы по вкладкам.
+ */
+final class MeshApp {
+
+    static final String PACKAGE = "com.example.meshtastic";
+    // Совпадает с MainActivity.EXTRA_START_TAB
+    static final String EXTRA_START_TAB = "start_tab";
+    // Совпадают с MainActivity.EXTRA_SYNTHETIC_NODES / EXTRA_SYNTHETIC_RATE
+    static final String EXTRA_SYNTHETIC_NODES = "synthetic_nodes";
+    static final String EXTRA_SYNTHETIC_RATE = "synthetic_rate";
+
+    static final long UI_TIMEOUT_MS = 5_000;
+
+    private static final String[] RUNTIME_PERMISSIONS = {
+            "android.permission.BLUETOOTH_SCAN",
+            "android.permission.BLUETOOTH_CONNECT",
+            "android.permission.ACCESS_FINE_LOCATION",
+            "android.permission.ACCESS_COARSE_LOCATION",
+            "android.permission.POST_NOTIFICATIONS",
+    };
+
+    private MeshApp() {
+    }
+
+    /**
+     * Выдаёт разрешения заранее: иначе экран подключения открывает системный
+     * диалог и замеры запуска включают его.
+     */
+    static void grantPermissions(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        for (String permission : RUNTIME_PERMISSIONS) {
+            try {
+                // На старых API часть разрешений не существует — pm просто вернёт ошибку
+                device.executeShellCommand("pm grant " + PACKAGE + " " + permission);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static void click(MacrobenchmarkScope scope, String resId) {
+        UiDevice device = scope.getDevice();
+        UiObject2 target = device.wait(Until.findObject(By.res(PACKAGE, resId)), UI_TIMEOUT_MS);
+        if (target == null) throw new AssertionError("Нет элемента " + resId);
+        target.click();
+        device.waitForIdle();
+    }
+
+    static UiObject2 waitForNodeList(MacrobenchmarkScope scope) {
+        UiObject2 list = scope.getDevice().wait(
+                Until.findObject(By.res(PACKAGE, "nodes_recycler")), UI_TIMEOUT_MS);
+        if (list == null) throw new AssertionError("Список узлов не появился");
+        return list;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.meshtastic.benchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Плавность интерфейса на большой сети: 5000 синтетических узлов
+ * ({@code TrafficGenerator} в приложении), которые обновляются несколько раз в секунду.
+ *
+ * FrameTimingMetric даёт P50/P90/P95/P99 времени кадра (frameDurationCpuMs) и
+ * перерасход бюджета кадра (frameOverrunMs), {@link JankCountMetric} — число janky-кадров.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MeshJankBenchmark {
+
+    private static final int NODES = 5_000;
+    // Обновлений узлов в секунду: обычная большая сеть и шторм
+    private static final int STEADY_RATE = 50;
+    private static final int STORM_RATE = 500;
+    private static final int ITERATIONS = 5;
+    // Начальная загрузка идёт порциями по 250 узлов каждые 50 мс — с запасом
+    private static final long LOAD_SETTLE_MS = 3_000;
+    private static final long OBSERVE_MS = 5_000;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void scrollNodeListSteady() {
+        scrollNodeList(STEADY_RATE);
+    }
+
+    @Test
+    public void scrollNodeListStorm() {
+        scrollNodeList(STORM_RATE);
+    }
+
+    @Test
+    public void statusScreenStorm() {
+        rule.measureRepeated(MeshApp.PACKAGE, metrics(), CompilationMode.DEFAULT, StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    launch(scope, "status", STORM_RATE);
+                    scope.getDevice().wait(Until.hasObject(By.res(MeshApp.PACKAGE, "battery_text")),
+                            MeshApp.UI_TIMEOUT_MS);
+                    sleep(LOAD_SETTLE_MS);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    // Кадры рисуют только обновления DeviceStatus — экран не трогаем
+                    sleep(OBSERVE_MS);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private void scrollNodeList(int rate) {
+        rule.measureRepeated(MeshApp.PACKAGE, metrics(), CompilationMode.DEFAULT, StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    launch(scope, "nodes", rate);
+                    MeshApp.waitForNodeList(scope);
+                    sleep(LOAD_SETTLE_MS);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiObject2 list = MeshApp.waitForNodeList(scope);
+                    list.setGestureMargin(scope.getDevice().getDisplayWidth() / 5);
+                    // Под потоком обновлений приложение не простаивает — waitForIdle здесь не дождётся
+                    for (int i = 0; i < 3; i++) list.fling(Direction.DOWN);
+                    list.fling(Direction.UP);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static List<Metric> metrics() {
+        return Arrays.asList(new FrameTimingMetric(), new JankCountMetric());
+    }
+
+    private static void launch(MacrobenchmarkScope scope, String tab, int rate) {
+        MeshApp.grantPermissions(scope);
+        scope.pressHome();
+        scope.startActivityAndWait(intent -> {
+            intent.putExtra(MeshApp.EXTRA_START_TAB, tab);
+            intent.putExtra(MeshApp.EXTRA_SYNTHETIC_NODES, NODES);
+            intent.putExtra(MeshApp.EXTRA_SYNTHETIC_RATE, rate);
+            return Unit.INSTANCE;
+        });
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
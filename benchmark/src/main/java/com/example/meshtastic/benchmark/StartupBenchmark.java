@@ -0,0 +1,86 @@
+package com.example.meshtastic.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Холодный и тёплый запуск, а также время до первого списка узлов.
+ *
+ * Каждый замер — без профиля и с Baseline Profile, чтобы разница была видна в одном
+ * отчёте. Время до списка узлов — это timeToFullDisplay холодного запуска сразу на
+ * вкладку узлов: NodesFragment вызывает reportFullyDrawn() после первой отрисовки.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartupNoCompilation() {
+        startup(StartupMode.COLD, new CompilationMode.None(), null);
+    }
+
+    @Test
+    public void coldStartupBaselineProfile() {
+        startup(StartupMode.COLD, baselineProfile(), null);
+    }
+
+    @Test
+    public void warmStartupNoCompilation() {
+        startup(StartupMode.WARM, new CompilationMode.None(), null);
+    }
+
+    @Test
+    public void warmStartupBaselineProfile() {
+        startup(StartupMode.WARM, baselineProfile(), null);
+    }
+
+    @Test
+    public void timeToNodeListNoCompilation() {
+        startup(StartupMode.COLD, new CompilationMode.None(), "nodes");
+    }
+
+    @Test
+    public void timeToNodeListBaselineProfile() {
+        startup(StartupMode.COLD, baselineProfile(), "nodes");
+    }
+
+    private static CompilationMode baselineProfile() {
+        return new CompilationMode.Partial(BaselineProfileMode.Require, 0);
+    }
+
+    private void startup(StartupMode mode, CompilationMode compilation, String startTab) {
+        List<Metric> metrics = Collections.singletonList(new StartupTimingMetric());
+        rule.measureRepeated(MeshApp.PACKAGE, metrics, compilation, mode, ITERATIONS,
+                scope -> {
+                    MeshApp.grantPermissions(scope);
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait(intent -> {
+                        if (startTab != null) intent.putExtra(MeshApp.EXTRA_START_TAB, startTab);
+                        return Unit.INSTANCE;
+                    });
+                    if (startTab != null) MeshApp.waitForNodeList(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
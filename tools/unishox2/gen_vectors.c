@@ -0,0 +1,61 @@
+/*
+ * Эталонные векторы для Unishox2Test.referenceVectors_matchInBothDirections.
+ *
+ * Собирается с исходниками https://github.com/siara-cc/Unishox2 (та же версия,
+ * что в прошивке Meshtastic):
+ *
+ *   cc -O2 -I<Unishox2> gen_vectors.c <Unishox2>/unishox2.c -o gen_vectors
+ *   ./gen_vectors > app/src/test/resources/unishox2/reference_vectors.txt
+ *
+ * Формат строки: hex исходного текста, TAB, hex вывода unishox2_compress_simple.
+ */
+#include <stdio.h>
+#include <string.h>
+
+#include "unishox2.h"
+
+static const char *const CORPUS[] = {
+    "Hello World",
+    "ok",
+    "Meet at the north gate at 14:30, bring water!!!!!!",
+    "AAAAAAAAAA",
+    "WARNING: BATTERY LOW 15%",
+    "http://example.com/a?b=c",
+    "{\"a\": \"b\", \"c\":\"d\"}",
+    "line1\r\nline2\n\ttab",
+    "test test test test test",
+    "Meet at the north gate at 14:30",
+    "On my way, ETA 10 min",
+    "Copy that. Channel 2 is quiet.",
+    "SOS at 55.7512 37.6184",
+    "the quick brown fox jumps over the lazy dog",
+    "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG",
+    "aBcDeFgHiJ 0123456789 ~!@#$%^&*()_+",
+    "a",
+    " ",
+};
+
+static void hex(const char *p, int n) {
+    for (int i = 0; i < n; i++) printf("%02x", (unsigned char) p[i]);
+}
+
+int main(void) {
+    char packed[1024];
+    char back[1024];
+    printf("# unishox2_compress_simple / unishox2_decompress_simple\n");
+    for (size_t i = 0; i < sizeof(CORPUS) / sizeof(CORPUS[0]); i++) {
+        const char *s = CORPUS[i];
+        int len = (int) strlen(s);
+        int n = unishox2_compress_simple(s, len, packed);
+        int m = unishox2_decompress_simple(packed, n, back);
+        if (m != len || memcmp(s, back, len) != 0) {
+            fprintf(stderr, "reference round trip failed: %s\n", s);
+            return 1;
+        }
+        hex(s, len);
+        putchar('\t');
+        hex(packed, n);
+        putchar('\n');
+    }
+    return 0;
+}